@@ -27,5 +27,14 @@ public class IIIFAuthConfigs {
 	public static final String iipPrivatePrefixPropertyName="imagingServerIIPPrivatePrefix";
 	public static final String iiifPublicPrefixPropertyName="imagingServerIIIFPublicPrefix";
 	public static final String iiifPrivatePrefixPropertyName="imagingServerIIIFPrivatePrefix";
+	public static final String authProfileCacheSizePropertyName="iiifAuthProfileCacheSize";
+	public static final String iipProxyMaxConnectionsPerHostPropertyName="iipProxyMaxConnectionsPerHost";
+	public static final String iipProxyMaxConnectionsPropertyName="iipProxyMaxConnections";
+	public static final String iipProxyConnectTimeoutPropertyName="iipProxyConnectTimeout";
+	public static final String iipProxyReadTimeoutPropertyName="iipProxyReadTimeout";
+	public static final String iipProxyPoolTimeoutPropertyName="iipProxyPoolTimeout";
+	public static final String tileCacheDirectoryPropertyName="iiifTileCacheDirectory";
+	public static final String tileCacheMaxSizePropertyName="iiifTileCacheMaxSizeMB";
+	public static final String tileCacheMaxAgePropertyName="iiifTileCacheMaxAgeHours";
 
 }
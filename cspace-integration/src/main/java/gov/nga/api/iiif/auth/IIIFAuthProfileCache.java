@@ -0,0 +1,163 @@
+/*
+    NGA IIIF Authorization Service: IIIFAuthProfileCache remembers the authorization profiles
+    worked out for recently requested images so that the many tile requests a zoom viewer makes
+    for the same image don't each have to work them out again
+
+    Copyright (C) 2018 National Gallery of Art Washington DC
+    Developers: David Beaudet
+
+	This library is free software; you can redistribute it and/or
+	modify it under the terms of the GNU Lesser General Public
+	License as published by the Free Software Foundation; either
+	version 2.1 of the License, or (at your option) any later version.
+
+	This library is distributed in the hope that it will be useful,
+	but WITHOUT ANY WARRANTY; without even the implied warranty of
+	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+	Lesser General Public License for more details.
+
+	You should have received a copy of the GNU Lesser General Public
+	License along with this library; if not, write to the Free Software
+	Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+
+package gov.nga.api.iiif.auth;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import gov.nga.utils.SegmentedLRUCache;
+
+// a least recently used cache split into segments that are each locked on their own so that
+// concurrent tile requests for different images rarely wait on one another.  A profile is only
+// valid for the image data it was worked out from - the source passed in with every call identifies
+// the data the caller is using, each profile is filed along with the source it came from and is only
+// given to callers using that same source.  The cache is also emptied when the data is replaced so
+// that outdated profiles don't take up room
+public class IIIFAuthProfileCache<V> {
+
+	public static final int DEFAULT_CAPACITY = 10000;
+
+	private final SegmentedLRUCache<Key, Entry<V>> profiles;
+	private final int capacity;
+
+	private volatile Object source = null;
+
+	private final AtomicLong hits 		= new AtomicLong();
+	private final AtomicLong misses 	= new AtomicLong();
+
+	// a profile along with the image data it was worked out from
+	private static class Entry<V> {
+		private final V value;
+		private final Object source;
+
+		Entry(V value, Object source) {
+			this.value = value;
+			this.source = source;
+		}
+	}
+
+	public static class Key {
+		private final String imgVolPath;
+		private final String imgFilename;
+		private final Long requestedSamplingSize;
+		private final boolean ngainternal;
+
+		public Key(String imgVolPath, String imgFilename, Long requestedSamplingSize, boolean ngainternal) {
+			this.imgVolPath = imgVolPath;
+			this.imgFilename = imgFilename;
+			this.requestedSamplingSize = requestedSamplingSize;
+			this.ngainternal = ngainternal;
+		}
+
+		public boolean equals(Object o) {
+			if (!(o instanceof Key))
+				return false;
+			Key k = (Key) o;
+			return ngainternal == k.ngainternal
+					&& equal(imgVolPath, k.imgVolPath)
+					&& equal(imgFilename, k.imgFilename)
+					&& equal(requestedSamplingSize, k.requestedSamplingSize);
+		}
+
+		private static boolean equal(Object a, Object b) {
+			return a == null ? b == null : a.equals(b);
+		}
+
+		public int hashCode() {
+			int h = imgFilename == null ? 0 : imgFilename.hashCode();
+			h = h * 31 + (imgVolPath == null ? 0 : imgVolPath.hashCode());
+			h = h * 31 + (requestedSamplingSize == null ? 0 : requestedSamplingSize.hashCode());
+			return h * 31 + (ngainternal ? 1 : 0);
+		}
+	}
+
+	public IIIFAuthProfileCache(int capacity) {
+		this.capacity = capacity;
+		profiles = new SegmentedLRUCache<Key, Entry<V>>(capacity);
+	}
+
+	// a request that has moved on to new data empties the cache even if it gets here before the
+	// notification that the data was refreshed does - this only frees the room, since a profile
+	// filed by a request still using the old data is never given to one using the new data
+	private void checkSource(Object currentSource) {
+		if (currentSource != source) {
+			synchronized (this) {
+				if (currentSource != source) {
+					clear();
+					source = currentSource;
+				}
+			}
+		}
+	}
+
+	public V get(Key key, Object currentSource) {
+		if (capacity <= 0)
+			return null;
+		checkSource(currentSource);
+		Entry<V> entry = profiles.get(key);
+		if (entry == null || entry.source != currentSource) {
+			misses.incrementAndGet();
+			return null;
+		}
+		hits.incrementAndGet();
+		return entry.value;
+	}
+
+	public void put(Key key, V value, Object currentSource) {
+		if (capacity <= 0 || value == null)
+			return;
+		// a profile worked out from data that has since been replaced is of no use to anyone
+		if (currentSource != source)
+			return;
+		profiles.put(key, new Entry<V>(value, currentSource));
+	}
+
+	public void clear() {
+		profiles.clear();
+	}
+
+	public int size() {
+		return profiles.size();
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	public long getEvictionCount() {
+		return profiles.getEvictionCount();
+	}
+
+	public String toString() {
+		return "IIIFAuthProfileCache[size=" + size() + "/" + capacity + ", hits=" + getHitCount() + ", misses=" + getMissCount() + ", evictions=" + getEvictionCount() + "]";
+	}
+
+}
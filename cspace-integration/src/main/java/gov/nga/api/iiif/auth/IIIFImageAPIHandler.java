@@ -24,10 +24,13 @@
 package gov.nga.api.iiif.auth;
 
 import java.io.IOException;
-import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutionException;
@@ -35,14 +38,19 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.apache.catalina.connector.ClientAbortException;
+import org.apache.commons.httpclient.ConnectionPoolTimeoutException;
+import org.apache.commons.httpclient.Header;
+import org.apache.commons.httpclient.methods.GetMethod;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.InputStreamResource;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -54,9 +62,13 @@ import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import gov.nga.entities.art.Derivative;
 import gov.nga.entities.art.Derivative.IMGFORMAT;
+import gov.nga.entities.art.MessageProvider;
+import gov.nga.entities.art.MessageProvider.EVENTTYPES;
+import gov.nga.entities.art.MessageSubscriber;
 import gov.nga.integration.cspace.APIUsageException;
 import gov.nga.integration.cspace.CSpaceImage;
 import gov.nga.integration.cspace.imageproviders.WebImageSearchProvider;
@@ -68,7 +80,7 @@ import gov.nga.utils.ConfigService;
 @CrossOrigin(origins="*")
 @RestController
 @RequestMapping(value={"/${ngaweb.imagingServerIIIFPublicPrefix}/", "/${ngaweb.imagingServerFastCGIPublicPrefix}/"})
-public class IIIFImageAPIHandler {
+public class IIIFImageAPIHandler implements MessageSubscriber {
 
 	@Autowired
 	ConfigService cs;
@@ -76,7 +88,18 @@ public class IIIFImageAPIHandler {
 	@Autowired
 	WebImageSearchProvider webImageSearchProvider;
 	
+	@Autowired
+	MessageProvider messageProvider;
+
+	@Autowired
+	IIPProxyClient iipProxyClient;
+
+	@Autowired
+	IIIFTileCache tileCache;
+
 	private static final Logger log = LoggerFactory.getLogger(IIIFImageAPIHandler.class);
+
+	private IIIFAuthProfileCache<Map<IIIFAuthParameters, Object>> authProfileCache = null;
 	
 	public static enum EXCLUDEHEADER {
 		CACHE_CONTROL("Cache-Control"),
@@ -97,6 +120,9 @@ public class IIIFImageAPIHandler {
 
 	}
 	
+	// headers describing a particular response or connection that mustn't be replayed from the tile cache
+	private static final List<String> UNCACHEDHEADERS = Arrays.asList("Date", "Connection", "Content-Length");
+
 	private static Pattern IMGFILENAMEPATTERN = Pattern.compile("(.*\\/)(.*ptif)");
 	private static Pattern SAMPLESIZEPATTERN = null;
 	
@@ -460,7 +486,6 @@ public class IIIFImageAPIHandler {
 
 		Map<IIIFAuthParameters, Object> returnMap = CollectionUtils.newHashMap();
 		
-		SearchHelper<CSpaceImage> dSearchHelper = new SearchHelper<CSpaceImage>();
 		if ( !imgVolPath.startsWith("/") )
 			imgVolPath = "/" + imgVolPath;
 		if ( !imgVolPath.endsWith("/") )
@@ -476,6 +501,33 @@ public class IIIFImageAPIHandler {
 			return returnMap;
 		}
 		
+		// read header set by Apache to determine whether this is an internal or external request
+		boolean ngainternal = request.getHeader("NGA_EXTERNAL") == null && request.getHeader("NGA_INTERNAL") != null;
+		log.debug("NGA INTERNAL: " + ngainternal);
+
+		// the profile only depends on the image data and these four values so every other tile of the
+		// same image requested the same way can re-use it until the image data is refreshed
+		IIIFAuthProfileCache.Key key = new IIIFAuthProfileCache.Key(imgVolPath, imgFilename, requestedSamplingSize, ngainternal);
+		Object source = webImageSearchProvider.getImageCache();
+		Map<IIIFAuthParameters, Object> profile = authProfileCache.get(key, source);
+		if (profile != null)
+			return profile;
+
+		profile = computeImageAuthorizationProfile(imgVolPath, imgFilename, requestedSamplingSize, ngainternal);
+		// a failed search says nothing about the image so it isn't remembered
+		if (profile == null)
+			return NOTFOUND;
+		profile = Collections.unmodifiableMap(profile);
+		authProfileCache.put(key, profile, source);
+		return profile;
+	}
+
+	// returns null if the image could not be searched for
+	private Map<IIIFAuthParameters, Object> computeImageAuthorizationProfile(String imgVolPath, String imgFilename, Long requestedSamplingSize, boolean ngainternal) {
+
+		Map<IIIFAuthParameters, Object> returnMap = CollectionUtils.newHashMap();
+
+		SearchHelper<CSpaceImage> dSearchHelper = new SearchHelper<CSpaceImage>();
 		dSearchHelper.addFilter(Derivative.SEARCH.IMAGEVOLUMEPATH, SEARCHOP.EQUALS, imgVolPath);
 		dSearchHelper.addFilter(Derivative.SEARCH.IMAGEFILENAME, SEARCHOP.EQUALS, imgFilename);
 
@@ -484,7 +536,7 @@ public class IIIFImageAPIHandler {
 			images = webImageSearchProvider.searchImages(dSearchHelper, null);
 		}
 		catch (ExecutionException | InterruptedException ie) {
-			return NOTFOUND;
+			return null;
 		}
 
 		// we should only ever have one image with the same volumepath and filename given the way we handle object images right now
@@ -492,10 +544,6 @@ public class IIIFImageAPIHandler {
 
 		Long maxPermittedSamplingSize = null;
 
-		// read header set by Apache to determine whether this is an internal or external request
-		boolean ngainternal = request.getHeader("NGA_EXTERNAL") == null && request.getHeader("NGA_INTERNAL") != null;
-		log.debug("NGA INTERNAL: " + ngainternal);
-
 		CSpaceImage d = null;
 
 		// if we don't have any images, then it is safe to just defer to the image server to handle them like it did before this layer was written
@@ -579,105 +627,245 @@ public class IIIFImageAPIHandler {
 			String image_id
 			) throws Exception {
 
-		
-		HttpURLConnection urlConnection = null;
+		URI imageURI = null;
 		try {
+			imageURI = new URI(proxyURL);
+		}
+		catch (URISyntaxException se) {
+			throw new APIUsageException(se.getMessage());
+		}
 
-			URI imageURI = new URI(proxyURL);
+		log.debug("proxying to: " + imageURI.toString());
 
-			log.debug("proxying to: " + imageURI.toString());
+		Map<String, String> headers = CollectionUtils.newHashMap();
 
-			urlConnection = (HttpURLConnection) imageURI.toURL().openConnection();
-			urlConnection.setInstanceFollowRedirects(false); // don't follow IIP redirects automatically behind the scenes - we want to return those to browser
-			// add a special HTTP header here to instruct IIP to only take up to a certain maximum tile size when resampling if we have such a restriction
-			urlConnection.setUseCaches(false);
+		String iiif_image_id = null;
+		if (image_id != null)
+			iiif_image_id = String.format("%s:%s%s", iiif_scheme, iiif_prefix, image_id);
 
-			String iiif_image_id = null;
+		// this might seem silly to set three headers for the same thing, and admittedly it is
+		// but in Apache 2.4, it seems headers with underscores set by the client are converted to
+		// headers with dashes - in light of this, I'm going to try to transition away from using any
+		// word delimiters. Putting all three at once for a while ensures that this program continues
+		// to be backwards compatible with the original IIP implementation that expects underscores
+		// add a special HTTP header here to instruct IIP to only take up to a certain maximum tile size when resampling if we have such a restriction
+		if ( samplingSizeToEnforce != null ) {
+			headers.put("MAXSAMPLESIZE",   samplingSizeToEnforce.toString());
+			headers.put("MAX_SAMPLE_SIZE", samplingSizeToEnforce.toString());
+			headers.put("MAX-SAMPLE-SIZE", samplingSizeToEnforce.toString());
 			if (image_id != null)
-				iiif_image_id = String.format("%s:%s%s", iiif_scheme, iiif_prefix, image_id);
-
-			// this might seem silly to set three headers for the same thing, and admittedly it is
-			// but in Apache 2.4, it seems headers with underscores set by the client are converted to
-			// headers with dashes - in light of this, I'm going to try to transition away from using any
-			// word delimiters. Putting all three at once for a while ensures that this program continues
-			// to be backwards compatible with the original IIP implementation that expects underscores
-			if ( samplingSizeToEnforce != null ) {
-				urlConnection.setRequestProperty("MAXSAMPLESIZE",   samplingSizeToEnforce.toString());
-				urlConnection.setRequestProperty("MAX_SAMPLE_SIZE", samplingSizeToEnforce.toString());
-				urlConnection.setRequestProperty("MAX-SAMPLE-SIZE", samplingSizeToEnforce.toString());
-				if (image_id != null)
-					iiif_image_id = String.format("%s:%s/%s%s", iiif_scheme, iiif_prefix, samplingSizeToEnforce.toString(), image_id);
+				iiif_image_id = String.format("%s:%s/%s%s", iiif_scheme, iiif_prefix, samplingSizeToEnforce.toString(), image_id);
+		}
+		// override the IIIF Image ID that IIP uses to ensure the size constraint is reported in the ID as this is very important to
+		// establish for the purpose of annotation, etc.  Also, a IIIF Image request to a region INSIDE a size-constrained image will NOT
+		// match the region inside a non-size constrained image, so it makes sense that these two image renditions would have different IDs
+		if (iiif_image_id != null) {
+			headers.put("XIIIFID",   iiif_image_id );
+			headers.put("X_IIIF_ID", iiif_image_id );
+			headers.put("X-IIIF-ID", iiif_image_id );
+		}
+		
+		if ( request.getHeader("NGA_EXTERNAL") != null) {
+			headers.put("NGAEXTERNAL",  "true");
+			headers.put("NGA_EXTERNAL",  "true");
+			headers.put("NGA-EXTERNAL",  "true");
+		}
+
+		// responses that anyone may cache and that IIP isn't being asked to restrict can be served from local disk
+		String tileKey = null;
+		if ( tileCache.isEnabled() && permitCaching && samplingSizeToEnforce == null ) {
+			tileKey = imageURI.toString() + (headers.containsKey("NGAEXTERNAL") ? " external" : "");
+			IIIFTileCache.Tile tile = tileCache.get(tileKey);
+			if (tile != null) {
+				try {
+					return serveCachedTile(tile, request, response);
+				}
+				finally {
+					tile.close();
+				}
 			}
-			// override the IIIF Image ID that IIP uses to ensure the size constraint is reported in the ID as this is very important to
-			// establish for the purpose of annotation, etc.  Also, a IIIF Image request to a region INSIDE a size-constrained image will NOT
-			// match the region inside a non-size constrained image, so it makes sense that these two image renditions would have different IDs
-			if (iiif_image_id != null) {
-				urlConnection.setRequestProperty("XIIIFID",   iiif_image_id );
-				urlConnection.setRequestProperty("X_IIIF_ID", iiif_image_id );
-				urlConnection.setRequestProperty("X-IIIF-ID", iiif_image_id );
+		}
+
+		// redirects from IIP are not followed behind the scenes - we want to return those to the browser
+		GetMethod method = null;
+		IIIFTileCache.Writer tileCopy = null;
+		boolean abandoned = false;
+		try {
+			try {
+				method = iipProxyClient.execute(imageURI, headers);
 			}
-			
-			if ( request.getHeader("NGA_EXTERNAL") != null) {
-				urlConnection.setRequestProperty("NGAEXTERNAL",  "true");
-				urlConnection.setRequestProperty("NGA_EXTERNAL",  "true");
-				urlConnection.setRequestProperty("NGA-EXTERNAL",  "true");
+			catch (ConnectionPoolTimeoutException pe) {
+				// every pooled connection is busy so IIP is already as loaded as we're going to let it get
+				log.warn("No connection available to proxy to " + imageURI.toString() + ": " + iipProxyClient);
+				return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(null);
 			}
-			
-			urlConnection.connect();
-
-			Map<String, List<String>> map = urlConnection.getHeaderFields();
-
-			for (Map.Entry<String, List<String>> entry : map.entrySet()) {
-				log.debug("Key : " + entry.getKey() + " ,Value : " + entry.getValue());
-
-				String headerKey = entry.getKey();
-				if (headerKey != null) {
-					boolean copyToResponse = true;
-					for (EXCLUDEHEADER eh : EXCLUDEHEADER.values() ) {
-						if (headerKey.equals(eh.getLabel())) {
-							// allow cache control headers through but only if we are permitting caching of the response
-							if ( eh != EXCLUDEHEADER.CACHE_CONTROL || !permitCaching )
-								copyToResponse = false;
-							break;
-						}
-					}
-					if (copyToResponse) {
-						// copy all of the relevant response headers from IIP directly to this response
-						for (String s : entry.getValue())
-							response.setHeader(entry.getKey(), s);
+			catch (SocketTimeoutException te) {
+				log.warn("Timed out proxying to " + imageURI.toString() + ": " + te.getMessage());
+				return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(null);
+			}
+			catch (IOException ie) {
+				log.warn("Unable to proxy to " + imageURI.toString() + ": " + ie.getMessage());
+				return ResponseEntity.status(HttpStatus.BAD_GATEWAY).body(null);
+			}
+
+			Map<String, String> copiedHeaders = new LinkedHashMap<String, String>();
+			for (Header h : method.getResponseHeaders()) {
+				log.debug("Key : " + h.getName() + " ,Value : " + h.getValue());
+
+				boolean copyToResponse = true;
+				for (EXCLUDEHEADER eh : EXCLUDEHEADER.values() ) {
+					if (h.getName().equalsIgnoreCase(eh.getLabel())) {
+						// allow cache control headers through but only if we are permitting caching of the response
+						if ( eh != EXCLUDEHEADER.CACHE_CONTROL || !permitCaching )
+							copyToResponse = false;
+						break;
 					}
 				}
-
+				// copy all of the relevant response headers from IIP directly to this response
+				if (copyToResponse) {
+					response.setHeader(h.getName(), h.getValue());
+					copiedHeaders.put(h.getName(), h.getValue());
+				}
 			}
 
 			if ( !permitCaching )
 				response.setHeader(EXCLUDEHEADER.CACHE_CONTROL.getLabel(), "no-cache");
-			
-			return ResponseEntity.status(urlConnection.getResponseCode())
-					.contentType(MediaType.parseMediaType(urlConnection.getContentType() != null ? urlConnection.getContentType() : MediaType.TEXT_PLAIN.toString()))
-					.body(new InputStreamResource(urlConnection.getInputStream()));
-		}
-		catch (URISyntaxException se) {
-				throw new APIUsageException(se.getMessage());
+
+			Header contentType = method.getResponseHeader(EXCLUDEHEADER.CONTENT_TYPE.getLabel());
+			response.setStatus(method.getStatusCode());
+			response.setContentType(contentType != null ? contentType.getValue() : MediaType.TEXT_PLAIN_VALUE);
+
+			boolean head = request.getMethod().equalsIgnoreCase(RequestMethod.HEAD.name());
+			if ( tileKey != null && !head && method.getStatusCode() == HttpStatus.OK.value() )
+				tileCopy = tileCache.put(tileKey, cachedHeaders(copiedHeaders, response.getContentType(), response));
+
+			// the body is copied here rather than handed to Spring as a stream so that the connection goes back
+			// to the pool as soon as it's been read and is closed rather than leaked if the client goes away
+			if ( !head ) {
+				IIPProxyClient.copy(method.getResponseBodyAsStream(), response.getOutputStream(), tileCopy);
+				if (tileCopy != null)
+					tileCopy.commit();
+			}
+
+			// the response has already been written
+			return null;
 		}
 		catch (IOException ie) {
-			if ( urlConnection.getErrorStream() != null)
-				return ResponseEntity.status(urlConnection.getResponseCode())
-						.contentType(MediaType.parseMediaType(urlConnection.getContentType() != null ? urlConnection.getContentType() : MediaType.TEXT_PLAIN.toString()))
-						.body(new InputStreamResource(urlConnection.getErrorStream()));
-			else 
-				return ResponseEntity.status(urlConnection.getResponseCode())
-						.contentType(MediaType.parseMediaType(urlConnection.getContentType() != null ? urlConnection.getContentType() : MediaType.TEXT_PLAIN.toString()))
-						.body(null);
+			// includes the client aborting the request and IIP timing out part way through the response
+			abandoned = true;
+			throw ie;
+		}
+		finally {
+			if (tileCopy != null)
+				tileCopy.discard();
+			iipProxyClient.release(method, abandoned);
 		}
 	}
+
+	// the headers to keep with a cached response - a response without its own validators is given
+	// some so that clients can revalidate it against the cache
+	private Map<String, String> cachedHeaders(Map<String, String> copiedHeaders, String contentType, HttpServletResponse response) {
+		Map<String, String> cached = new LinkedHashMap<String, String>();
+		for (Map.Entry<String, String> h : copiedHeaders.entrySet()) {
+			if (!containsIgnoreCase(UNCACHEDHEADERS, h.getKey()))
+				cached.put(h.getKey(), h.getValue());
+		}
+		cached.put(EXCLUDEHEADER.CONTENT_TYPE.getLabel(), contentType);
+		long now = System.currentTimeMillis();
+		if (getIgnoreCase(cached, HttpHeaders.ETAG) == null) {
+			String etag = "\"" + Long.toHexString(now) + "\"";
+			cached.put(HttpHeaders.ETAG, etag);
+			response.setHeader(HttpHeaders.ETAG, etag);
+		}
+		if (getIgnoreCase(cached, HttpHeaders.LAST_MODIFIED) == null) {
+			response.setDateHeader(HttpHeaders.LAST_MODIFIED, now);
+			cached.put(HttpHeaders.LAST_MODIFIED, response.getHeader(HttpHeaders.LAST_MODIFIED));
+		}
+		return cached;
+	}
+
+	private ResponseEntity<InputStreamResource> serveCachedTile(IIIFTileCache.Tile tile, HttpServletRequest request, HttpServletResponse response) throws IOException {
+		String contentType = MediaType.TEXT_PLAIN_VALUE;
+		String etag = null;
+		long lastModified = -1;
+		for (Map.Entry<String, String> h : tile.getHeaders().entrySet()) {
+			if (h.getKey().equalsIgnoreCase(EXCLUDEHEADER.CONTENT_TYPE.getLabel())) {
+				contentType = h.getValue();
+				continue;
+			}
+			if (h.getKey().equalsIgnoreCase(HttpHeaders.ETAG))
+				etag = h.getValue();
+			else if (h.getKey().equalsIgnoreCase(HttpHeaders.LAST_MODIFIED))
+				lastModified = parseDate(h.getValue());
+			response.setHeader(h.getKey(), h.getValue());
+		}
+		if (lastModified < 0)
+			lastModified = tile.getLastModified();
+
+		// answers conditional requests with a 304 and no body
+		if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified))
+			return null;
+
+		response.setStatus(HttpStatus.OK.value());
+		response.setContentType(contentType);
+		response.setHeader(HttpHeaders.CONTENT_LENGTH, Long.toString(tile.getBodyLength()));
+		if ( !request.getMethod().equalsIgnoreCase(RequestMethod.HEAD.name()) )
+			tile.transferTo(response.getOutputStream());
+		return null;
+	}
+
+	private static long parseDate(String value) {
+		HttpHeaders h = new HttpHeaders();
+		h.set(HttpHeaders.LAST_MODIFIED, value);
+		try {
+			return h.getLastModified();
+		}
+		catch (IllegalArgumentException iae) {
+			return -1;
+		}
+	}
+
+	private static boolean containsIgnoreCase(List<String> names, String name) {
+		for (String n : names) {
+			if (n.equalsIgnoreCase(name))
+				return true;
+		}
+		return false;
+	}
+
+	private static String getIgnoreCase(Map<String, String> headers, String name) {
+		for (Map.Entry<String, String> h : headers.entrySet()) {
+			if (h.getKey().equalsIgnoreCase(name))
+				return h.getValue();
+		}
+		return null;
+	}
 	
 	@PostConstruct
 	public void postConstruct() throws Exception {
 		if (SAMPLESIZEPATTERN == null)
 			SAMPLESIZEPATTERN = Pattern.compile("/"+cs.getString(IIIFAuthConfigs.iiifPublicPrefixPropertyName)+"\\/(\\d*)\\/");
+		Integer cacheSize = cs.getInteger(IIIFAuthConfigs.authProfileCacheSizePropertyName);
+		if (cacheSize == null || cacheSize < 0)
+			cacheSize = IIIFAuthProfileCache.DEFAULT_CAPACITY;
+		authProfileCache = new IIIFAuthProfileCache<Map<IIIFAuthParameters, Object>>(cacheSize);
+		messageProvider.subscribe(this);
 	}
-	
+
+	@PreDestroy
+	public void preDestroy() {
+		log.info("Unregistering from event notifications");
+		messageProvider.unsubscribe(this);
+	}
+
+	// the rights of an image can change along with the rest of its data
+	public void receiveMessage(EVENTTYPES event) {
+		if (event == EVENTTYPES.DATAREFRESHED) {
+			log.info("Clearing IIIF authorization profiles: " + authProfileCache);
+			authProfileCache.clear();
+		}
+	}
+
 /*	@RequestMapping("**")
 	public ResponseEntity<String> iiifUnMatchedRequestHandler (
 			HttpServletRequest request,
@@ -0,0 +1,343 @@
+/*
+    NGA IIIF Authorization Service: IIIFTileCache keeps a copy on local disk of the tiles and
+    other responses from IIP that are safe for anyone to cache
+
+    Copyright (C) 2018 National Gallery of Art Washington DC
+    Developers: David Beaudet
+
+	This library is free software; you can redistribute it and/or
+	modify it under the terms of the GNU Lesser General Public
+	License as published by the Free Software Foundation; either
+	version 2.1 of the License, or (at your option) any later version.
+
+	This library is distributed in the hope that it will be useful,
+	but WITHOUT ANY WARRANTY; without even the implied warranty of
+	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+	Lesser General Public License for more details.
+
+	You should have received a copy of the GNU Lesser General Public
+	License along with this library; if not, write to the Free Software
+	Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+
+package gov.nga.api.iiif.auth;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import gov.nga.utils.ConfigService;
+import gov.nga.utils.DiskLRUCache;
+
+// the tiles of popular images, e.g. highlights and objects on view, are requested over and over
+// again and IIP would otherwise render every one of them each time.  When a cache directory is
+// configured, successful responses that may be cached publicly and that aren't restricted to a
+// maximum sample size are written there as they are proxied and later requests for the same IIP
+// URL are answered from disk.  Each file holds the response headers followed by the body and is
+// named after a hash of the URL.  The total size is kept under a limit by removing the least
+// recently used files and a file older than the maximum age is treated as missing so that a
+// changed image is eventually picked up from IIP again.
+@Service
+public class IIIFTileCache {
+
+	private static final Logger log = LoggerFactory.getLogger(IIIFTileCache.class);
+
+	public static final int DEFAULT_MAX_SIZE_MB		= 1024;
+	public static final int DEFAULT_MAX_AGE_HOURS	= 24;
+
+	// the largest single response worth keeping as a fraction of the whole cache
+	private static final int MAX_ENTRY_FRACTION 	= 64;
+
+	private static final String SUFFIX 				= ".tile";
+
+	@Autowired
+	ConfigService cs;
+
+	private DiskLRUCache disk = null;
+	private long maxEntryBytes = 0;
+	private long maxAgeMillis = 0;
+
+	private final AtomicLong hits 		= new AtomicLong();
+	private final AtomicLong misses 	= new AtomicLong();
+
+	// the response headers and body of a cached response along with where the body starts in the file - the
+	// file is held open from the time it's found so that it can still be read if it's evicted in the meantime,
+	// so a tile has to be closed once it has been served
+	public static class Tile implements Closeable {
+		private final File file;
+		private final FileChannel channel;
+		private final Map<String, String> headers;
+		private final long bodyOffset;
+		private final long bodyLength;
+		private final long lastModified;
+
+		Tile(File file, FileChannel channel, Map<String, String> headers, long bodyOffset, long bodyLength, long lastModified) {
+			this.file = file;
+			this.channel = channel;
+			this.headers = headers;
+			this.bodyOffset = bodyOffset;
+			this.bodyLength = bodyLength;
+			this.lastModified = lastModified;
+		}
+
+		public Map<String, String> getHeaders() {
+			return headers;
+		}
+
+		public long getBodyLength() {
+			return bodyLength;
+		}
+
+		// when the response was stored, used as its last modified time if IIP didn't send one
+		public long getLastModified() {
+			return lastModified;
+		}
+
+		// sends the body straight from the file to the given stream
+		public void transferTo(OutputStream out) throws IOException {
+			WritableByteChannel target = Channels.newChannel(out);
+			long position = bodyOffset;
+			long end = bodyOffset + bodyLength;
+			while (position < end) {
+				long n = channel.transferTo(position, end - position, target);
+				if (n <= 0)
+					throw new IOException("cached tile " + file + " ended early");
+				position += n;
+			}
+			out.flush();
+		}
+
+		public void close() throws IOException {
+			channel.close();
+		}
+	}
+
+	// receives a copy of a response body while it is being proxied - if anything goes wrong, or the
+	// response turns out to be too large, the copy is quietly dropped rather than failing the request
+	public class Writer extends OutputStream {
+		private final String name;
+		private final File temp;
+		private DataOutputStream out = null;
+		private long bodyLength = 0;
+		private boolean finished = false;
+
+		Writer(String name, Map<String, String> headers) throws IOException {
+			this.name = name;
+			temp = disk.createTempFile(name);
+			try {
+				// the headers are preceded by their length so the body can be found without reading them
+				ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+				DataOutputStream hout = new DataOutputStream(bytes);
+				hout.writeInt(headers.size());
+				for (Map.Entry<String, String> h : headers.entrySet()) {
+					hout.writeUTF(h.getKey());
+					hout.writeUTF(h.getValue());
+				}
+				hout.close();
+				out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+				out.writeInt(bytes.size());
+				bytes.writeTo(out);
+			}
+			catch (IOException ie) {
+				discard();
+				throw ie;
+			}
+		}
+
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		public void write(byte[] b, int off, int len) throws IOException {
+			if (finished)
+				return;
+			bodyLength += len;
+			if (bodyLength > maxEntryBytes) {
+				discard();
+				return;
+			}
+			try {
+				out.write(b, off, len);
+			}
+			catch (IOException ie) {
+				log.warn("Unable to write to tile cache: " + ie.getMessage());
+				discard();
+			}
+		}
+
+		// moves the completed copy into place, replacing any copy already there
+		public void commit() {
+			if (finished)
+				return;
+			try {
+				out.close();
+				out = null;
+				disk.commit(temp, name);
+				finished = true;
+			}
+			catch (IOException ie) {
+				log.warn("Unable to add to tile cache: " + ie.getMessage());
+				discard();
+			}
+		}
+
+		// drops the copy if it hasn't been committed
+		public void discard() {
+			if (finished)
+				return;
+			finished = true;
+			try {
+				if (out != null)
+					out.close();
+			}
+			catch (IOException ie) {
+				// already giving up on this copy
+			}
+			temp.delete();
+		}
+	}
+
+	@PostConstruct
+	public void postConstruct() {
+		String dir = cs == null ? null : cs.getString(IIIFAuthConfigs.tileCacheDirectoryPropertyName);
+		if (dir == null || dir.trim().length() == 0) {
+			log.info("IIIF tile cache is disabled");
+			return;
+		}
+		Integer mb = cs.getInteger(IIIFAuthConfigs.tileCacheMaxSizePropertyName);
+		if (mb == null || mb <= 0)
+			mb = DEFAULT_MAX_SIZE_MB;
+		Integer hours = cs.getInteger(IIIFAuthConfigs.tileCacheMaxAgePropertyName);
+		if (hours == null || hours <= 0)
+			hours = DEFAULT_MAX_AGE_HOURS;
+
+		File d = new File(dir.trim());
+		if (!d.isDirectory() && !d.mkdirs()) {
+			log.error("IIIF tile cache directory " + d + " cannot be created so the tile cache is disabled");
+			return;
+		}
+		long maxBytes = mb * 1024L * 1024L;
+		maxEntryBytes = maxBytes / MAX_ENTRY_FRACTION;
+		maxAgeMillis = hours * 60L * 60L * 1000L;
+		disk = new DiskLRUCache(d, SUFFIX, maxBytes);
+		log.info("IIIF tile cache in " + d + " holding " + disk.size() + " tiles of up to " + mb + "MB");
+	}
+
+	public boolean isEnabled() {
+		return disk != null;
+	}
+
+	// the cached response for the given key or null if there isn't a current one
+	public Tile get(String key) {
+		if (!isEnabled())
+			return null;
+		String name = DiskLRUCache.nameFor(key);
+		if (!disk.contains(name)) {
+			misses.incrementAndGet();
+			return null;
+		}
+		File f = disk.fileFor(name);
+		try {
+			long lastModified = f.lastModified();
+			if (System.currentTimeMillis() - lastModified > maxAgeMillis) {
+				disk.remove(name);
+				misses.incrementAndGet();
+				return null;
+			}
+			FileChannel fc = FileChannel.open(f.toPath(), StandardOpenOption.READ);
+			try {
+				// the stream isn't closed since that would close the channel the body is later read from
+				DataInputStream in = new DataInputStream(Channels.newInputStream(fc));
+				byte[] bytes = new byte[in.readInt()];
+				in.readFully(bytes);
+				DataInputStream hin = new DataInputStream(new ByteArrayInputStream(bytes));
+				Map<String, String> headers = new LinkedHashMap<String, String>();
+				int count = hin.readInt();
+				for (int i=0; i<count; i++) {
+					String k = hin.readUTF();
+					headers.put(k, hin.readUTF());
+				}
+				long offset = 4 + bytes.length;
+				Tile tile = new Tile(f, fc, headers, offset, fc.size() - offset, lastModified);
+				fc = null;
+				hits.incrementAndGet();
+				return tile;
+			}
+			finally {
+				if (fc != null)
+					fc.close();
+			}
+		}
+		catch (NoSuchFileException nfe) {
+			// removed by another request in the meantime
+			disk.remove(name);
+		}
+		catch (IOException ie) {
+			log.warn("Unable to read cached tile " + f + ": " + ie.getMessage());
+			disk.remove(name);
+		}
+		misses.incrementAndGet();
+		return null;
+	}
+
+	// starts a copy of a response with the given headers to be filed under the given key, or null if
+	// the copy can't be started
+	public Writer put(String key, Map<String, String> headers) {
+		if (!isEnabled())
+			return null;
+		try {
+			return new Writer(DiskLRUCache.nameFor(key), headers);
+		}
+		catch (IOException ie) {
+			log.warn("Unable to write to tile cache: " + ie.getMessage());
+			return null;
+		}
+	}
+
+	public int size() {
+		return disk == null ? 0 : disk.size();
+	}
+
+	public long getSizeInBytes() {
+		return disk == null ? 0 : disk.getSizeInBytes();
+	}
+
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	public long getEvictionCount() {
+		return disk == null ? 0 : disk.getEvictionCount();
+	}
+
+	public String toString() {
+		return "IIIFTileCache[tiles=" + size() + ", bytes=" + getSizeInBytes() + "/" + (disk == null ? 0 : disk.getMaxBytes()) + ", hits=" + getHitCount() + ", misses=" + getMissCount() + ", evictions=" + getEvictionCount() + "]";
+	}
+
+}
@@ -0,0 +1,173 @@
+/*
+    NGA IIIF Authorization Service: IIPProxyClient is the pooled HTTP client used to proxy
+    image requests through to the IIP imaging server
+
+    Copyright (C) 2018 National Gallery of Art Washington DC
+    Developers: David Beaudet
+
+	This library is free software; you can redistribute it and/or
+	modify it under the terms of the GNU Lesser General Public
+	License as published by the Free Software Foundation; either
+	version 2.1 of the License, or (at your option) any later version.
+
+	This library is distributed in the hope that it will be useful,
+	but WITHOUT ANY WARRANTY; without even the implied warranty of
+	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+	Lesser General Public License for more details.
+
+	You should have received a copy of the GNU Lesser General Public
+	License along with this library; if not, write to the Free Software
+	Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+
+package gov.nga.api.iiif.auth;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.Map;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.commons.httpclient.HttpClient;
+import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
+import org.apache.commons.httpclient.methods.GetMethod;
+import org.apache.commons.httpclient.params.HttpConnectionManagerParams;
+import org.apache.commons.httpclient.util.IdleConnectionTimeoutThread;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import gov.nga.utils.ConfigService;
+
+// every tile a zoom viewer shows is a separate request to IIP, so rather than opening a new
+// connection for each one, connections are kept alive in a pool that is limited per host and in
+// total.  A request that can't get a connection within the pool timeout fails instead of piling
+// more load onto an imaging server that is already saturated.  Connections left idle are closed
+// in the background so that the pool doesn't hold on to sockets IIP has long since given up on.
+@Service
+public class IIPProxyClient {
+
+	private static final Logger log = LoggerFactory.getLogger(IIPProxyClient.class);
+
+	public static final int DEFAULT_MAX_CONNECTIONS_PER_HOST 	= 50;
+	public static final int DEFAULT_MAX_CONNECTIONS 			= 200;
+	public static final int DEFAULT_CONNECT_TIMEOUT 			= 5000;
+	public static final int DEFAULT_READ_TIMEOUT 				= 30000;
+	public static final int DEFAULT_POOL_TIMEOUT 				= 10000;
+
+	private static final long IDLE_CONNECTION_TIMEOUT 			= 60000;
+	private static final int BUFFER_SIZE 						= 64 * 1024;
+
+	// each request thread copies through its own buffer rather than allocating one per tile
+	private static final ThreadLocal<byte[]> buffers = new ThreadLocal<byte[]>() {
+		protected byte[] initialValue() {
+			return new byte[BUFFER_SIZE];
+		}
+	};
+
+	@Autowired
+	ConfigService cs;
+
+	private MultiThreadedHttpConnectionManager connectionManager = null;
+	private IdleConnectionTimeoutThread idleConnectionCloser = null;
+	private HttpClient client = null;
+
+	@PostConstruct
+	public void postConstruct() {
+		HttpConnectionManagerParams params = new HttpConnectionManagerParams();
+		params.setDefaultMaxConnectionsPerHost(ConfigService.getPositiveInteger(cs, IIIFAuthConfigs.iipProxyMaxConnectionsPerHostPropertyName, DEFAULT_MAX_CONNECTIONS_PER_HOST));
+		params.setMaxTotalConnections(ConfigService.getPositiveInteger(cs, IIIFAuthConfigs.iipProxyMaxConnectionsPropertyName, DEFAULT_MAX_CONNECTIONS));
+		params.setConnectionTimeout(ConfigService.getPositiveInteger(cs, IIIFAuthConfigs.iipProxyConnectTimeoutPropertyName, DEFAULT_CONNECT_TIMEOUT));
+		params.setSoTimeout(ConfigService.getPositiveInteger(cs, IIIFAuthConfigs.iipProxyReadTimeoutPropertyName, DEFAULT_READ_TIMEOUT));
+		params.setStaleCheckingEnabled(true);
+		params.setTcpNoDelay(true);
+
+		connectionManager = new MultiThreadedHttpConnectionManager();
+		connectionManager.setParams(params);
+
+		client = new HttpClient(connectionManager);
+		client.getParams().setConnectionManagerTimeout(ConfigService.getPositiveInteger(cs, IIIFAuthConfigs.iipProxyPoolTimeoutPropertyName, DEFAULT_POOL_TIMEOUT));
+
+		idleConnectionCloser = new IdleConnectionTimeoutThread();
+		idleConnectionCloser.setName("IIP proxy idle connection closer");
+		idleConnectionCloser.setTimeoutInterval(IDLE_CONNECTION_TIMEOUT / 2);
+		idleConnectionCloser.setConnectionTimeout(IDLE_CONNECTION_TIMEOUT);
+		idleConnectionCloser.addConnectionManager(connectionManager);
+		idleConnectionCloser.start();
+
+		log.info("IIP proxy client pooling up to " + params.getDefaultMaxConnectionsPerHost() + " connections per host and "
+				+ params.getMaxTotalConnections() + " in total");
+	}
+
+	@PreDestroy
+	public void preDestroy() {
+		if (idleConnectionCloser != null)
+			idleConnectionCloser.shutdown();
+		if (connectionManager != null)
+			connectionManager.shutdown();
+	}
+
+	// sends a GET for the given URI with the given request headers - redirects are returned rather than followed
+	// and the method must always be handed back to release() once the caller is done with its response
+	public GetMethod execute(URI uri, Map<String, String> headers) throws IOException {
+		GetMethod method = new GetMethod(uri.toString());
+		method.setFollowRedirects(false);
+		if (headers != null) {
+			for (Map.Entry<String, String> h : headers.entrySet())
+				method.setRequestHeader(h.getKey(), h.getValue());
+		}
+		try {
+			client.executeMethod(method);
+		}
+		catch (IOException ie) {
+			method.releaseConnection();
+			throw ie;
+		}
+		return method;
+	}
+
+	// returns the connection to the pool, or closes it if the response was abandoned part way through
+	// since whatever remains of the body would otherwise have to be read before it could be re-used
+	public void release(GetMethod method, boolean abandoned) {
+		if (method == null)
+			return;
+		if (abandoned)
+			method.abort();
+		method.releaseConnection();
+	}
+
+	// copies the response body to the given stream and returns the number of bytes copied
+	public static long copy(InputStream in, OutputStream out) throws IOException {
+		return copy(in, out, null);
+	}
+
+	// as above but also writes whatever is copied to the given branch if there is one
+	public static long copy(InputStream in, OutputStream out, OutputStream branch) throws IOException {
+		if (in == null)
+			return 0;
+		byte[] buffer = buffers.get();
+		long total = 0;
+		int n;
+		while ( (n = in.read(buffer)) != -1 ) {
+			out.write(buffer, 0, n);
+			if (branch != null)
+				branch.write(buffer, 0, n);
+			total += n;
+		}
+		out.flush();
+		return total;
+	}
+
+	public int getConnectionsInPool() {
+		return connectionManager == null ? 0 : connectionManager.getConnectionsInPool();
+	}
+
+	public String toString() {
+		return "IIPProxyClient[connectionsInPool=" + getConnectionsInPool() + "]";
+	}
+
+}
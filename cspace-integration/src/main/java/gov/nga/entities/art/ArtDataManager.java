@@ -32,15 +32,29 @@ import gov.nga.entities.art.factory.ArtObjectFactory;
 import gov.nga.entities.art.factory.ArtObjectFactoryImpl;
 import gov.nga.entities.art.factory.ConstituentFactory;
 import gov.nga.entities.art.factory.ConstituentFactoryImpl;
+import gov.nga.entities.common.FingerprintedEntity;
+import gov.nga.search.Bitmap;
+import gov.nga.search.BitmapIndex;
 import gov.nga.search.Facet;
+import gov.nga.search.FacetCache;
 import gov.nga.search.FacetHelper;
+import gov.nga.search.Faceted;
+import gov.nga.search.FieldIndex;
+import gov.nga.search.FreeTextIndex;
+import gov.nga.search.PrefixIndex;
+import gov.nga.search.RangeIndex;
+import gov.nga.search.TrigramIndex;
 import gov.nga.search.FreeTextSearchable;
 import gov.nga.search.ResultsPaginator;
+import gov.nga.search.SearchExecutor;
+import gov.nga.search.SearchFilter;
 import gov.nga.search.SearchHelper;
+import gov.nga.search.Searchable;
 import gov.nga.search.SortHelper;
+import gov.nga.search.Sortable;
 import gov.nga.utils.CollectionUtils;
 import gov.nga.utils.ConfigService;
-import gov.nga.utils.MutableInt;
+import gov.nga.utils.LongKeyedMap;
 import gov.nga.utils.StringUtils;
 import gov.nga.utils.SystemUtils;
 import gov.nga.utils.TypeUtils;
@@ -48,6 +62,12 @@ import gov.nga.utils.db.DataSourceService;
 
 import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -74,14 +94,48 @@ public class ArtDataManager extends MessageProviderImpl implements Runnable, Art
 	private static ArtObjectFactory<ArtObject> artObjFactory = new ArtObjectFactoryImpl();
     
     private static ConstituentFactory<Constituent> constFactory = new ConstituentFactoryImpl();
-    
-    private static Comparator<Suggestion> suggestionAlphaDiacriticNormalizedComparator =
-        new Comparator<Suggestion>() {
-            public int compare(Suggestion a, Suggestion b) {
-                int j = StringUtils.getDefaultCollator().compare(a.string, b.string);
-                return j;
-            }
-        };
+
+    // art object search fields that get an inverted index at the end of each load 
+    private static final ArtObject.SEARCH[] INDEXEDARTOBJECTFIELDS = {
+        ArtObject.SEARCH.OBJECTID,
+        ArtObject.SEARCH.ACCESSIONNUM,
+        ArtObject.SEARCH.LOCATION_ID,
+        ArtObject.SEARCH.ONVIEW,
+        ArtObject.SEARCH.VISUALBROWSERCLASSIFICATION,
+        ArtObject.SEARCH.VISUALBROWSERNATIONALITY,
+        ArtObject.SEARCH.VISUALBROWSERSTYLE,
+        ArtObject.SEARCH.VISUALBROWSERTHEME,
+        ArtObject.SEARCH.DONORCONSTITUENTID,
+        ArtObject.SEARCH.OWNERCONSTITUENTID
+    };
+
+    // the fields user entered text is matched against with LIKE
+    private static final ArtObject.SEARCH[] SUBSTRINGINDEXEDARTOBJECTFIELDS = {
+        ArtObject.SEARCH.ACCESSIONNUM,
+        ArtObject.SEARCH.TITLE,
+        ArtObject.SEARCH.ATTRIBUTION_INV,
+        ArtObject.SEARCH.ARTIST_ALLNAMES,
+        ArtObject.SEARCH.OWNER_ALLNAMES,
+        ArtObject.SEARCH.PROVENANCE,
+        ArtObject.SEARCH.OVERVIEW
+    };
+
+    // the fields the visual browser filters on, which only have a few values apiece
+    private static final ArtObject.SEARCH[] BITMAPPEDARTOBJECTFIELDS = {
+        ArtObject.SEARCH.LOCATION_ID,
+        ArtObject.SEARCH.ONVIEW,
+        ArtObject.SEARCH.VISUALBROWSERCLASSIFICATION,
+        ArtObject.SEARCH.VISUALBROWSERNATIONALITY,
+        ArtObject.SEARCH.VISUALBROWSERSTYLE,
+        ArtObject.SEARCH.VISUALBROWSERTHEME
+    };
+
+    // the fields searched with ranges of years or dates
+    private static final ArtObject.SEARCH[] RANGEINDEXEDARTOBJECTFIELDS = {
+        ArtObject.SEARCH.YEARS_SPAN,
+        ArtObject.SEARCH.YEARS_BEGIN,
+        ArtObject.SEARCH.LASTDETECTEDMODIFICATION
+    };
     
     public class Suggestion {
         private Long entityID = null;
@@ -122,28 +176,58 @@ public class ArtDataManager extends MessageProviderImpl implements Runnable, Art
 
     private static final Logger log = LoggerFactory.getLogger(ArtDataManager.class);
 
-    // cache of art object data
-    private Map<Long, ArtObject> artObjects = null; 
-    private List<Facet> standardArtObjectFacets = null;
-    private Map<String, Set<Suggestion>> artObjectTitleWords = null; 
+    // the complete set of cached art data currently being served - a refresh builds an entirely
+    // new snapshot and swaps it in so readers never see a mix of old and new data
+    private final AtomicReference<ArtDataSnapshot> publishedSnapshot = new AtomicReference<ArtDataSnapshot>(ArtDataSnapshot.EMPTY);
 
-    // cache of constituent data
-    private Map<Long, Constituent> constituents = null;
-    private Map<String, String> allIndexOfArtistRanges = null;
-    private Map<String, Set<Suggestion>> artistAltNames = null; 
-    private Map<String, Set<Suggestion>> ownerAltNames = null; 
+    // snapshots pinned to individual threads, e.g. for the lifetime of a request or while a new
+    // snapshot is still being built
+    private final ThreadLocal<ArtDataSnapshot> pinnedSnapshot = new ThreadLocal<ArtDataSnapshot>();
 
-    // cache of location data
-    private Map<Long, Location> locations = null;
+    // carries a pinned snapshot over to the search executor's threads
+    private final SearchExecutor.ThreadContext snapshotContext = new SearchExecutor.ThreadContext() {
+        public Object capture() {
+            return pinnedSnapshot.get();
+        }
+        public Object install(Object captured) {
+            ArtDataSnapshot previous = pinnedSnapshot.get();
+            if (captured == null)
+                pinnedSnapshot.remove();
+            else
+                pinnedSnapshot.set((ArtDataSnapshot) captured);
+            return previous;
+        }
+    };
+
+    public ArtDataManager() {
+        SearchExecutor.addThreadContext(snapshotContext);
+    }
+
+    // the snapshot pinned to the calling thread, if any, otherwise the one most recently published
+    public ArtDataSnapshot getSnapshot() {
+        ArtDataSnapshot s = pinnedSnapshot.get();
+        return s == null ? publishedSnapshot.get() : s;
+    }
+
+    // pins the current snapshot to the calling thread so that everything it looks up until the
+    // snapshot is released comes from the same data set, even if a refresh is published meanwhile
+    public ArtDataSnapshot pinSnapshot() {
+        ArtDataSnapshot s = pinnedSnapshot.get();
+        if (s == null) {
+            s = publishedSnapshot.get();
+            pinnedSnapshot.set(s);
+        }
+        return s;
+    }
+
+    public void releaseSnapshot() {
+        pinnedSnapshot.remove();
+    }
+
+    private void publishSnapshot(ArtDataSnapshot snapshot) {
+        publishedSnapshot.set(snapshot);
+    }
 
-    // cache of web defined location / place definitions which are
-    // also mapped to visual maps and TMS location IDs
-    private Map<String, Place> places = null;
-    private Map<Long, Place> placesTMSLocations = null;
-    
-    private Map<Long, Media> mediaItems = null;
-    private Map<String, List<Media>> mediaRelationships = null;
-    
     public DataSourceService dataSourceService;
     public DataSourceService getDataSourceService() {
         return dataSourceService;
@@ -175,7 +259,7 @@ public class ArtDataManager extends MessageProviderImpl implements Runnable, Art
         return this.synchronizationFinishedAt;
     } 
 
-    private boolean dataReady=false;
+    private volatile boolean dataReady=false;
     synchronized protected void setDataReady(boolean dataReady) {
         this.dataReady = dataReady;
     }
@@ -256,111 +340,421 @@ public class ArtDataManager extends MessageProviderImpl implements Runnable, Art
     synchronized public void unload() {
         log.info("**************************** Unloading Previous Art Data Manager cached data *************************************************");
         setDataReady(false);
-        setArtObjects(null);
-        setLocations(null);
-        setConstituents(null);
-        setStandardArtObjectFacets(null);
-        setAllIndexOfArtistRanges(null);
+        publishSnapshot(ArtDataSnapshot.EMPTY);
 //        clearDerivativesByImageID();
-        setArtObjectTitleWords(null);
-        setArtistAltNames(null);
-        setOwnerAltNames(null);
         System.gc();
         log.info(SystemUtils.freeMemorySummary());
 //        clearDerivativesRaw();
     }
 
+    public final String loadParallelismPropertyName = "loadParallelism";
+    public static final int DEFAULT_LOAD_PARALLELISM = 4;
+    // number of TMS tables fetched at the same time during a refresh - each one holds a pooled
+    // database connection for the duration of its query so this should stay below the pool size
+    protected int getLoadParallelism() {
+    	Integer i = getConfig() == null ? null : getConfig().getInteger(loadParallelismPropertyName);
+    	if (i == null || i <= 0)
+    		return DEFAULT_LOAD_PARALLELISM;
+    	return i;
+    }
+
+    public final String facetCacheSizePropertyName = "facetCacheSize";
+    // number of searches whose facet counts are remembered until the next refresh
+    protected int getFacetCacheSize() {
+    	Integer i = getConfig() == null ? null : getConfig().getInteger(facetCacheSizePropertyName);
+    	if (i == null || i < 0)
+    		return FacetCache.DEFAULT_CAPACITY;
+    	return i;
+    }
+
+    public final String relatedWorksCacheSizePropertyName = "relatedWorksCacheSize";
+    // number of art objects whose related works are remembered until the next refresh
+    protected int getRelatedWorksCacheSize() {
+    	Integer i = getConfig() == null ? null : getConfig().getInteger(relatedWorksCacheSizePropertyName);
+    	if (i == null || i < 0)
+    		return RelatedWorksIndex.DEFAULT_CACHE_SIZE;
+    	return i;
+    }
+
+    public final String freeTextCacheSizePropertyName = "freeTextCacheSize";
+    // number of free text queries whose scores are remembered until the next refresh
+    protected int getFreeTextCacheSize() {
+    	Integer i = getConfig() == null ? null : getConfig().getInteger(freeTextCacheSizePropertyName);
+    	if (i == null || i < 0)
+    		return FreeTextIndex.DEFAULT_CACHE_SIZE;
+    	return i;
+    }
+
+    public final String relatedWorksLimitPropertyName = "relatedWorksLimit";
+    // maximum number of related works returned when the caller doesn't ask for a number, 0 for all of them
+    protected int getRelatedWorksLimit() {
+    	Integer i = getConfig() == null ? null : getConfig().getInteger(relatedWorksLimitPropertyName);
+    	if (i == null || i < 0)
+    		return 0;
+    	return i;
+    }
+
+    public final String loadFetchSizePropertyName = "loadFetchSize";
+    // number of rows read from the database at a time while loading
+    protected int getLoadFetchSize() {
+    	Integer i = getConfig() == null ? null : getConfig().getInteger(loadFetchSizePropertyName);
+    	if (i == null || i <= 0)
+    		return EntityQuery.DEFAULT_FETCH_SIZE;
+    	return i;
+    }
+
+    // builds up whatever a load query produces one entity at a time as its rows are read
+    private static abstract class Collector<E, R> implements EntityQuery.EntityHandler<E> {
+        protected abstract R getResult();
+    }
+
+    // maps each entity by its own ID - the IDs are kept as primitive longs
+    private static abstract class Mapper<E> extends Collector<E, Map<Long, E>> {
+        private final LongKeyedMap<E> map = CollectionUtils.newLongKeyedMap();
+        protected abstract Long keyOf(E entity);
+        public void handle(E entity) {
+            map.put(keyOf(entity), entity);
+        }
+        protected Map<Long, E> getResult() {
+            return map;
+        }
+    }
+
+    // files each entity under the ID of the art object or constituent it belongs to
+    private static abstract class Grouper<E> extends Collector<E, Map<Long, List<E>>> {
+        private final LongKeyedMap<List<E>> groups = CollectionUtils.newLongKeyedMap();
+        protected abstract Long keyOf(E entity);
+        public void handle(E entity) {
+            add(keyOf(entity), entity);
+        }
+        protected void add(Long key, E entity) {
+            List<E> l = groups.get(key);
+            if (l == null) {
+                l = CollectionUtils.newArrayList();
+                groups.put(key, l);
+            }
+            l.add(entity);
+        }
+        protected Map<Long, List<E>> getResult() {
+            return groups;
+        }
+    }
+
+    private static Mapper<ArtObject> objectsByID() {
+        return new Mapper<ArtObject>() {
+            protected Long keyOf(ArtObject o) {
+                return o.getObjectID();
+            }
+        };
+    }
+
+    private static Mapper<Constituent> constituentsByID() {
+        return new Mapper<Constituent>() {
+            protected Long keyOf(Constituent c) {
+                return c.getConstituentID();
+            }
+        };
+    }
+
+    private static Grouper<ArtObjectConstituent> ocsByObject() {
+        return new Grouper<ArtObjectConstituent>() {
+            protected Long keyOf(ArtObjectConstituent oc) {
+                return oc.getObjectID();
+            }
+        };
+    }
+
+    private static Grouper<ArtObjectConstituent> ocsByConstituent() {
+        return new Grouper<ArtObjectConstituent>() {
+            protected Long keyOf(ArtObjectConstituent oc) {
+                return oc.getConstituentID();
+            }
+        };
+    }
+
+    private static Grouper<ArtObjectTerm> termsByObject() {
+        return new Grouper<ArtObjectTerm>() {
+            protected Long keyOf(ArtObjectTerm t) {
+                return t.getObjectID();
+            }
+        };
+    }
+
+    private static <T extends Derivative> Grouper<T> imagesByObject() {
+        return new Grouper<T>() {
+            protected Long keyOf(T d) {
+                return d.getArtObjectID();
+            }
+        };
+    }
+
+    private static Grouper<ArtObjectTextEntry> textEntriesByObject() {
+        return new Grouper<ArtObjectTextEntry>() {
+            protected Long keyOf(ArtObjectTextEntry te) {
+                return te.getObjectID();
+            }
+        };
+    }
+
+    private static Grouper<ArtObjectHistoricalData> historicalDataByObject() {
+        return new Grouper<ArtObjectHistoricalData>() {
+            protected Long keyOf(ArtObjectHistoricalData h) {
+                return h.getObjectID();
+            }
+        };
+    }
+
+    private static Grouper<ArtObjectDimension> dimensionsByObject() {
+        return new Grouper<ArtObjectDimension>() {
+            protected Long keyOf(ArtObjectDimension d) {
+                return d.getObjectID();
+            }
+        };
+    }
+
+    private static Grouper<ArtObjectComponent> componentsByObject() {
+        return new Grouper<ArtObjectComponent>() {
+            protected Long keyOf(ArtObjectComponent c) {
+                return c.getObjectID();
+            }
+        };
+    }
+
+    // an association belongs to both of the objects it associates, and is only taken once
+    // if it's returned by more than one query
+    private static Grouper<ArtObjectAssociationRecord> associationsByObject() {
+        return new Grouper<ArtObjectAssociationRecord>() {
+            private final Set<Long> seen = CollectionUtils.newHashSet();
+            protected Long keyOf(ArtObjectAssociationRecord aoa) {
+                return aoa.getParentObjectID();
+            }
+            public void handle(ArtObjectAssociationRecord aoa) {
+                if (!seen.add(aoa.getAssociationID()))
+                    return;
+                add(aoa.getParentObjectID(), aoa);
+                add(aoa.getChildObjectID(), aoa);
+            }
+        };
+    }
+
+    private static Grouper<ConstituentAltName> altNamesByConstituent() {
+        return new Grouper<ConstituentAltName>() {
+            protected Long keyOf(ConstituentAltName alt) {
+                return alt.getConstituentID();
+            }
+        };
+    }
+
+    private static Grouper<ConstituentTextEntry> textEntriesByConstituent() {
+        return new Grouper<ConstituentTextEntry>() {
+            protected Long keyOf(ConstituentTextEntry te) {
+                return te.getConstituentID();
+            }
+        };
+    }
+
+    private <E extends ArtEntity, R> Future<R> fetchAllAsync(ExecutorService loader, final String query, final E seed, final Collector<E, R> collector) {
+        return loader.submit(new Callable<R>() {
+            public R call() throws SQLException {
+                log.info("Starting pre-fetch of all " + seed.getClass().getSimpleName() + " rows");
+                EntityQuery<E> eq = new EntityQuery<E>(getDataSourceService());
+                eq.setFetchSize(getLoadFetchSize());
+                int count = eq.fetchAll(query, seed, collector);
+                log.info("found this many " + seed.getClass().getSimpleName() + " rows: " + count);
+                return collector.getResult();
+            }
+        });
+    }
+
+    // waits for one step of the load and re-throws whatever made it fail
+    private static <T> T await(Future<T> f) throws SQLException {
+        try {
+            return f.get();
+        }
+        catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while loading TMS data", ie);
+        }
+        catch (ExecutionException ee) {
+            Throwable t = ee.getCause();
+            if (t instanceof SQLException)
+                throw (SQLException) t;
+            if (t instanceof RuntimeException)
+                throw (RuntimeException) t;
+            if (t instanceof Error)
+                throw (Error) t;
+            throw new SQLException(t);
+        }
+    }
+
+    private class ArtObjectAssembler implements Callable<Map<Long, ArtObject>> {
+        private final Future<Map<Long, ArtObject>> objects;
+        private final Future<Map<Long, List<ArtObjectConstituent>>> ocs;
+        private final Future<Map<Long, List<ArtObjectTextEntry>>> textEntries;
+        private final Future<Map<Long, List<ArtObjectHistoricalData>>> aohist;
+        private final Future<Map<Long, List<ArtObjectDimension>>> aoDims;
+        private final Future<Map<Long, List<ArtObjectAssociationRecord>>> aoas;
+        private final Future<Map<Long, List<ArtObjectComponent>>> aocomps;
+        private final Future<Map<Long, List<ArtObjectImage>>> images;
+        private final Future<Map<Long, List<ResearchImage>>> researchImages;
+        private final Future<Map<Long, List<ArtObjectTerm>>> terms;
+
+        ArtObjectAssembler(
+                Future<Map<Long, ArtObject>> objects, Future<Map<Long, List<ArtObjectConstituent>>> ocs, 
+                Future<Map<Long, List<ArtObjectTextEntry>>> textEntries, Future<Map<Long, List<ArtObjectHistoricalData>>> aohist, 
+                Future<Map<Long, List<ArtObjectDimension>>> aoDims, Future<Map<Long, List<ArtObjectAssociationRecord>>> aoas,
+                Future<Map<Long, List<ArtObjectComponent>>> aocomps, Future<Map<Long, List<ArtObjectImage>>> images, 
+                Future<Map<Long, List<ResearchImage>>> researchImages, Future<Map<Long, List<ArtObjectTerm>>> terms) {
+            this.objects = objects;
+            this.ocs = ocs;
+            this.textEntries = textEntries;
+            this.aohist = aohist;
+            this.aoDims = aoDims;
+            this.aoas = aoas;
+            this.aocomps = aocomps;
+            this.images = images;
+            this.researchImages = researchImages;
+            this.terms = terms;
+        }
+
+        public Map<Long, ArtObject> call() throws SQLException {
+            return getArtObjects(await(objects), await(ocs), await(textEntries), await(aohist), await(aoDims),
+                    await(aoas), await(aocomps), await(images), await(researchImages), await(terms));
+        }
+    }
+
+    private class ConstituentAssembler implements Callable<Map<Long, Constituent>> {
+        private final Future<Map<Long, Constituent>> constituents;
+        private final Future<Map<Long, List<ArtObjectConstituent>>> ocs;
+        private final Future<Map<Long, List<ConstituentAltName>>> alts;
+        private final Future<Map<Long, List<ConstituentTextEntry>>> ctes;
+
+        ConstituentAssembler(Future<Map<Long, Constituent>> constituents, Future<Map<Long, List<ArtObjectConstituent>>> ocs,
+                Future<Map<Long, List<ConstituentAltName>>> alts, Future<Map<Long, List<ConstituentTextEntry>>> ctes) {
+            this.constituents = constituents;
+            this.ocs = ocs;
+            this.alts = alts;
+            this.ctes = ctes;
+        }
+
+        public Map<Long, Constituent> call() throws SQLException {
+            // the relationships arrive grouped by object and are regrouped by constituent here, which only
+            // reads the object groups since the art object assembler could be working on them at the same time
+            Grouper<ArtObjectConstituent> byConstituent = ocsByConstituent();
+            for (List<ArtObjectConstituent> l : await(ocs).values()) {
+                for (ArtObjectConstituent oc : l)
+                    byConstituent.handle(oc);
+            }
+            return getConstituents(await(constituents), byConstituent.getResult(), await(alts), await(ctes));
+        }
+    }
+
     synchronized public boolean load() {
 
     	log.info("**************************** Starting Load of Refreshed Art Data Manager Cached Data Set *************************************");
 
-        // load all art object constituent data first, then pass that
-        // map to both the object manager and constituent manager
+        // the TMS tables are fetched concurrently, each on its own pooled connection, and the
+        // entities are assembled as soon as the tables they depend on have arrived
+        ExecutorService loader = Executors.newFixedThreadPool(getLoadParallelism());
         try {
-            log.info("Loading all object constituent relationships");
-            EntityQuery<ArtObjectConstituent> eq = new EntityQuery<ArtObjectConstituent>(getDataSourceService());
-            List<ArtObjectConstituent> ocs = eq.fetchAll(ArtObjectConstituent.fetchAllObjectsConstituentsQuery, new ArtObjectConstituent(this));
-            log.info("found this many object constituent relationships: " + ocs.size());
-
-            log.info("Loading all location and related data");
-            Map<Long, Location> newLocations = loadLocations();
-            Map<String, Place> newPlaces = loadPlaces();
-            Map<Long, Place> newPlacesTMSLocations = loadPlacesTMSLocations(newPlaces);
-
-            log.info("Loading all media and media relationshps");
-            Map<Long, Media> newMediaItems = loadMediaItems();
-            Map<String, List<Media>> newMediaRelationshps = loadMediaRelationships(newMediaItems);
-
-            log.info("Loading all components");
-            List<ArtObjectComponent> aocomps = loadComponents();
-            
-            log.info("Loading all art object text entries");
-            EntityQuery<ArtObjectTextEntry> teq = new EntityQuery<ArtObjectTextEntry>(getDataSourceService());
-            List<ArtObjectTextEntry> teList = teq.fetchAll(ArtObjectTextEntry.allTextEntryQuery, new ArtObjectTextEntry(this));
-            log.info("found this many art object text entries: " + teList.size());
-
-            log.info("Loading all art object historical data entries");
-            EntityQuery<ArtObjectHistoricalData> aohistq = new EntityQuery<ArtObjectHistoricalData>(getDataSourceService());
-            List<ArtObjectHistoricalData> aohist = aohistq.fetchAll(ArtObjectHistoricalData.allHistoricalDataQuery, new ArtObjectHistoricalData(this));
-            log.info("found this many art object historical data entries: " + aohist.size());
-
-            log.info("Loading all art object dimensions");
-            EntityQuery<ArtObjectDimension> aoDimsq = new EntityQuery<ArtObjectDimension>(getDataSourceService());
-            List<ArtObjectDimension> aoDims = aoDimsq.fetchAll(ArtObjectDimension.allObjectsDimensionsQuery, new ArtObjectDimension(this));
-            log.info("found this many art object dimensions: " + aoDims.size());
-
-            log.info("Loading all inter art object associations");
-            EntityQuery<ArtObjectAssociationRecord> aq = new EntityQuery<ArtObjectAssociationRecord>(getDataSourceService());
-            List<ArtObjectAssociationRecord> aoas = aq.fetchAll(ArtObjectAssociationRecord.fetchAllArtObjectAssociationsQuery, new ArtObjectAssociationRecord(this));
-            log.info("found this many art object assocations: " + aoas.size());
-
-            log.info("Loading all art objects and related data");
-            Map<Long, ArtObject> newArtObjects = getArtObjects(ocs, teList, aohist, aoDims, aoas, aocomps);
-            
-            EntityQuery<ConstituentAltName> ceq = new EntityQuery<ConstituentAltName>(getDataSourceService());
-            log.info("Loading all constituent alternate names");
-            List<ConstituentAltName> alts = ceq.fetchAll(ConstituentAltName.fetchAllConstituentAltNamessQuery, new ConstituentAltName(this));
-            log.info("found this many constituent alternate names: " + alts.size());
-
-            log.info("Loading all constituent text entries");
-            EntityQuery<ConstituentTextEntry> cte = new EntityQuery<ConstituentTextEntry>(getDataSourceService());
-            List<ConstituentTextEntry> ctes = cte.fetchAll(ConstituentTextEntry.allTextEntryQuery, new ConstituentTextEntry(this));
-            log.info("found this many constituent text entries: " + ctes.size());
-
-            log.info("Loading all constituent and related data");
-            Map<Long, Constituent> newConstituents = getConstituents(ocs, alts, ctes);
-            
+            log.info("Loading all TMS tables using " + getLoadParallelism() + " concurrent queries");
+
+            // the largest tables are submitted first so they start as early as possible
+            ArtObject.setFetchAllObjectsQuery(getOperatingMode());
+            Future<Map<Long, ArtObject>> objectsF = fetchAllAsync(loader, ArtObject.fetchAllObjectsQuery, new ArtObject(this), objectsByID());
+            Future<Map<Long, List<ArtObjectConstituent>>> ocsF = fetchAllAsync(loader, ArtObjectConstituent.fetchAllObjectsConstituentsQuery, new ArtObjectConstituent(this), ocsByObject());
+            Future<Map<Long, List<ArtObjectTerm>>> termsF = fetchAllAsync(loader, ArtObjectTerm.fetchAllObjectTermsQuery, new ArtObjectTerm(this), termsByObject());
+            ArtObjectImage imageSeed = new ArtObjectImage(this);
+            Future<Map<Long, List<ArtObjectImage>>> imagesF = fetchAllAsync(loader, imageSeed.getAllImagesQuery(), imageSeed, ArtDataManager.<ArtObjectImage>imagesByObject());
+            ResearchImage researchImageSeed = new ResearchImage(this);
+            Future<Map<Long, List<ResearchImage>>> researchImagesF = fetchAllAsync(loader, researchImageSeed.getAllImagesQuery(), researchImageSeed, ArtDataManager.<ResearchImage>imagesByObject());
+            Future<Map<Long, List<ArtObjectTextEntry>>> teListF = fetchAllAsync(loader, ArtObjectTextEntry.allTextEntryQuery, new ArtObjectTextEntry(this), textEntriesByObject());
+            Future<Map<Long, List<ArtObjectHistoricalData>>> aohistF = fetchAllAsync(loader, ArtObjectHistoricalData.allHistoricalDataQuery, new ArtObjectHistoricalData(this), historicalDataByObject());
+            Future<Map<Long, List<ArtObjectDimension>>> aoDimsF = fetchAllAsync(loader, ArtObjectDimension.allObjectsDimensionsQuery, new ArtObjectDimension(this), dimensionsByObject());
+            Future<Map<Long, List<ArtObjectAssociationRecord>>> aoasF = fetchAllAsync(loader, ArtObjectAssociationRecord.fetchAllArtObjectAssociationsQuery, new ArtObjectAssociationRecord(this), associationsByObject());
+            Future<Map<Long, List<ArtObjectComponent>>> aocompsF = fetchAllAsync(loader, ArtObjectComponent.fetchAllComponentsQuery, new ArtObjectComponent(this), componentsByObject());
+            Future<Map<Long, Constituent>> constituentsF = fetchAllAsync(loader, Constituent.fetchAllConstituentsQuery, new Constituent(this), constituentsByID());
+            Future<Map<Long, List<ConstituentAltName>>> altsF = fetchAllAsync(loader, ConstituentAltName.fetchAllConstituentAltNamessQuery, new ConstituentAltName(this), altNamesByConstituent());
+            Future<Map<Long, List<ConstituentTextEntry>>> ctesF = fetchAllAsync(loader, ConstituentTextEntry.allTextEntryQuery, new ConstituentTextEntry(this), textEntriesByConstituent());
+            Future<Map<Long, Location>> newLocationsF = loader.submit(new Callable<Map<Long, Location>>() {
+                public Map<Long, Location> call() throws SQLException {
+                    return loadLocations();
+                }
+            });
+            final Future<Map<String, Place>> newPlacesF = loader.submit(new Callable<Map<String, Place>>() {
+                public Map<String, Place> call() throws SQLException {
+                    return loadPlaces();
+                }
+            });
+            final Future<Map<Long, Media>> newMediaItemsF = loader.submit(new Callable<Map<Long, Media>>() {
+                public Map<Long, Media> call() throws SQLException {
+                    return loadMediaItems();
+                }
+            });
+
+            // tasks that depend on others are only submitted after everything they wait on, so by the time
+            // one of them is running, everything it depends on has already been started by the pool
+            Future<Map<Long, Place>> newPlacesTMSLocationsF = loader.submit(new Callable<Map<Long, Place>>() {
+                public Map<Long, Place> call() throws SQLException {
+                    return loadPlacesTMSLocations(await(newPlacesF));
+                }
+            });
+            Future<Map<String, List<Media>>> newMediaRelationshpsF = loader.submit(new Callable<Map<String, List<Media>>>() {
+                public Map<String, List<Media>> call() throws SQLException {
+                    return loadMediaRelationships(await(newMediaItemsF));
+                }
+            });
+
+            log.info("Assembling all art objects and constituents as their data arrives");
+            final Future<Map<Long, ArtObject>> newArtObjectsF = loader.submit(new ArtObjectAssembler(
+                    objectsF, ocsF, teListF, aohistF, aoDimsF, aoasF, aocompsF, imagesF, researchImagesF, termsF));
+            final Future<Map<Long, Constituent>> newConstituentsF = loader.submit(new ConstituentAssembler(constituentsF, ocsF, altsF, ctesF));
+
             log.info("Computing art object title words and constituent altnames for suggest feature");
-            
-            Map<String, Set<Suggestion>> newArtObjectTitleWords = parseArtObjectTitleWords(newArtObjects);
-        	Map<String, Set<Suggestion>> newArtistAltNames = parseArtistAltNames(newConstituents);
-        	Map<String, Set<Suggestion>> newOwnerAltNames = parseOwnerAltNames(newConstituents);
-
-        	// dump any cached data we might still have before setting the new set in place  
-        	unload();
-        	setLocations(newLocations);
-        	setPlaces(newPlaces);
-        	setPlacesTMSLocations(newPlacesTMSLocations);
-        	setMediaItems(newMediaItems);
-        	setMediaRelationships(newMediaRelationshps);
-        	setArtObjects(newArtObjects);
-        	setArtObjectTitleWords (newArtObjectTitleWords);
-        	setConstituents(newConstituents);
-        	setArtistAltNames(newArtistAltNames);
-        	setOwnerAltNames(newOwnerAltNames);
+            Future<SuggestIndex> newArtObjectTitleWordsF = loader.submit(new Callable<SuggestIndex>() {
+                public SuggestIndex call() throws SQLException {
+                    return newSuggestIndex(parseArtObjectTitleWords(await(newArtObjectsF)));
+                }
+            });
+            Future<SuggestIndex> newArtistAltNamesF = loader.submit(new Callable<SuggestIndex>() {
+                public SuggestIndex call() throws SQLException {
+                    return newSuggestIndex(parseArtistAltNames(await(newConstituentsF)));
+                }
+            });
+            Future<SuggestIndex> newOwnerAltNamesF = loader.submit(new Callable<SuggestIndex>() {
+                public SuggestIndex call() throws SQLException {
+                    return newSuggestIndex(parseOwnerAltNames(await(newConstituentsF)));
+                }
+            });
+
+            Map<Long, Location> newLocations = await(newLocationsF);
+            Map<String, Place> newPlaces = await(newPlacesF);
+            Map<Long, Place> newPlacesTMSLocations = await(newPlacesTMSLocationsF);
+            Map<Long, Media> newMediaItems = await(newMediaItemsF);
+            Map<String, List<Media>> newMediaRelationshps = await(newMediaRelationshpsF);
+            Map<Long, ArtObject> newArtObjects = await(newArtObjectsF);
+            Map<Long, Constituent> newConstituents = await(newConstituentsF);
+            SuggestIndex newArtObjectTitleWords = await(newArtObjectTitleWordsF);
+            SuggestIndex newArtistAltNames = await(newArtistAltNamesF);
+            SuggestIndex newOwnerAltNames = await(newOwnerAltNamesF);
+
+        	assignTMSLocationIDs(newPlacesTMSLocations);
+        	ArtDataSnapshot staged = new ArtDataSnapshot(
+        			newArtObjects, newArtObjectTitleWords, 
+        			newConstituents, newArtistAltNames, newOwnerAltNames,
+        			newLocations, newPlaces, newPlacesTMSLocations,
+        			newMediaItems, newMediaRelationshps
+        	);
+
+        	publishStaged(staged, null, null, null);
+
         	log.info("Data refresh complete. Ready to serve queries.");
             // we can start serving queries again now
             setDataReady(true);
 
-            // pre-calculate all art object facet counts for use by the initial visual browser page
-            log.info("Pre-caching all art object facet counts");
-            getArtObjectFacetCounts();
-
-            // pre-calculate the facet ranges for the index of artists
-            log.info("Pre-caching all facet ranges for index of artists");
-            getIndexOfArtistsRanges();
             log.info("**************************** Finished Loading Art Data Manager Cached Data Set *******************************************");
             log.info(SystemUtils.freeMemorySummary());
+            log.info(SearchExecutor.getInstance().toString());
 
             return true;
         }
@@ -369,9 +763,283 @@ public class ArtDataManager extends MessageProviderImpl implements Runnable, Art
         catch (SQLException se) {
             log.error("ERROR Loading TMS Data: " + se.getMessage(), se );
         }
+        finally {
+            // abandon any queries still running if one of them failed
+            loader.shutdownNow();
+        }
         return false;
     }
 
+    // builds the indexes and pre-calculated facets for a staged snapshot and then publishes it - they are built
+    // while the staged snapshot is pinned to this thread since some of the values, such as on view, depend on
+    // looking up the new locations.  If a base index is given, only the removed and added objects are re-indexed
+    private void publishStaged(ArtDataSnapshot staged, FieldIndex<ArtObject> baseIndex, Collection<ArtObject> removedObjects, Collection<ArtObject> addedObjects) {
+        pinnedSnapshot.set(staged);
+        try {
+            log.info("Building art object search indexes");
+            FieldIndex<ArtObject> newArtObjectIndex = null;
+            if (baseIndex == null)
+                newArtObjectIndex = new FieldIndex<ArtObject>(staged.getArtObjects().values(), (Object[]) INDEXEDARTOBJECTFIELDS);
+            else
+                newArtObjectIndex = baseIndex.withChanges(removedObjects, addedObjects);
+            // entities are referred to by position so the substring index is rebuilt in full every time
+            TrigramIndex<ArtObject> newArtObjectSubstrings = new TrigramIndex<ArtObject>(staged.getArtObjects().values(), (Object[]) SUBSTRINGINDEXEDARTOBJECTFIELDS);
+            log.info(newArtObjectSubstrings.toString());
+            RangeIndex<ArtObject> newArtObjectRanges = new RangeIndex<ArtObject>(staged.getArtObjects().values(), (Object[]) RANGEINDEXEDARTOBJECTFIELDS);
+            log.info(newArtObjectRanges.toString());
+            // the one art object sort that's cheap to keep up to date ahead of time since it only depends on the objects themselves
+            SortHelper<ArtObject> accessionOrder = new SortHelper<ArtObject>(ArtObject.SORT.ACCESSIONNUM_ASC);
+            PrefixIndex<ArtObject> newArtObjectAccessions = new PrefixIndex<ArtObject>(staged.getArtObjects().values(), accessionOrder.getComparator(), ArtObject.SEARCH.ACCESSIONNUM);
+            log.info(newArtObjectAccessions.toString());
+
+            // facet values depend on looking up locations and constituents as well, so like the facet counts below they're
+            // only right for the staged data
+            BitmapIndex<ArtObject> newArtObjectBitmaps = new BitmapIndex<ArtObject>(staged.getArtObjects().values(), BITMAPPEDARTOBJECTFIELDS, FACET.values());
+            log.info(newArtObjectBitmaps.toString());
+
+            // pre-calculate all art object facet counts for use by the initial visual browser page
+            log.info("Pre-caching all art object facet counts");
+            List<Facet> newArtObjectFacets = computeArtObjectFacetCounts(staged.getArtObjects().values(), newArtObjectBitmaps);
+
+            // index the features art objects can have in common for finding related works
+            log.info("Building related works index");
+            RelatedWorksIndex newRelatedWorks = new RelatedWorksIndex(staged.getArtObjects().values(), getRelatedWorksCacheSize());
+
+            // pre-calculate the facet ranges for the index of artists
+            log.info("Pre-caching all facet ranges for index of artists");
+            Map<String, String> newIndexOfArtistsRanges = computeIndexOfArtistsRanges(staged.getConstituents().values());
+
+            // the full text indexes are rebuilt from scratch even for incremental refreshes since word
+            // statistics, and so every score, change along with any object that's added or removed
+            log.info("Building free text search indexes");
+            FreeTextIndex newArtObjectText = new FreeTextIndex(staged.getArtObjects().values(), getFreeTextCacheSize(), (Object[]) ArtObject.FREETEXTSEARCH.values());
+            FreeTextIndex newConstituentText = new FreeTextIndex(staged.getConstituents().values(), getFreeTextCacheSize(), (Object[]) Constituent.FREETEXTSEARCH.values());
+            log.info(newArtObjectText.toString());
+
+            // swap in the new data in one step - requests that have pinned the previous snapshot
+            // continue to use it until they complete, along with the facet counts cached for it
+            int facetCacheSize = getFacetCacheSize();
+            FacetCache newFacetCache = facetCacheSize > 0 ? new FacetCache(facetCacheSize) : null;
+            publishSnapshot(staged.withDerivedData(new ArtDataSnapshot.DerivedData()
+                    .setArtObjectIndex(newArtObjectIndex)
+                    .setArtObjectSubstrings(newArtObjectSubstrings)
+                    .setArtObjectRanges(newArtObjectRanges)
+                    .setArtObjectAccessions(newArtObjectAccessions)
+                    .setArtObjectBitmaps(newArtObjectBitmaps)
+                    .setArtObjectFacets(newArtObjectFacets)
+                    .setRelatedWorks(newRelatedWorks)
+                    .setArtObjectText(newArtObjectText)
+                    .setIndexOfArtistsRanges(newIndexOfArtistsRanges)
+                    .setConstituentText(newConstituentText)
+                    .setFacetCache(newFacetCache)));
+        }
+        finally {
+            pinnedSnapshot.remove();
+        }
+    }
+
+    // objects that are changed in place rather than by a refresh, as the test modes do, only turn up
+    // in searches on their years or modification dates once the range index has been rebuilt
+    synchronized protected void reindexArtObjectRanges() {
+        ArtDataSnapshot current = publishedSnapshot.get();
+        if (current.isEmpty())
+            return;
+        RangeIndex<ArtObject> newArtObjectRanges = new RangeIndex<ArtObject>(current.getArtObjects().values(), (Object[]) RANGEINDEXEDARTOBJECTFIELDS);
+        publishSnapshot(current.withDerivedData(new ArtDataSnapshot.DerivedData(current).setArtObjectRanges(newArtObjectRanges)));
+    }
+
+    // the largest share of the collection an incremental refresh will take on before it's
+    // simply cheaper to reload everything
+    private static final double MAX_INCREMENTAL_CHANGE = 0.1;
+
+    // refreshes only the art objects and constituents whose fingerprints have changed since they were loaded
+    // along with the data that hangs off of them - locations, places and media are carried over from the
+    // current snapshot as are changes to related data that don't alter an object's or constituent's own
+    // fingerprint, so a full load() is still needed from time to time to pick those up
+    synchronized public boolean loadChanges() {
+        ArtDataSnapshot current = publishedSnapshot.get();
+        if (current.isEmpty() || current.getArtObjectIndex() == null)
+            return load();
+
+        log.info("**************************** Starting Incremental Refresh of Art Data Manager Cached Data Set ************************************");
+
+        try {
+            EntityQuery<ArtObject> oeq = new EntityQuery<ArtObject>(getDataSourceService());
+            Map<Long, Long> objectPrints = oeq.fetchFingerprints(ArtObject.fetchAllObjectFingerprintsQuery);
+            EntityQuery<Constituent> ceq = new EntityQuery<Constituent>(getDataSourceService());
+            Map<Long, Long> constituentPrints = ceq.fetchFingerprints(Constituent.fetchAllConstituentFingerprintsQuery);
+
+            Map<Long, ArtObject> oldObjects = current.getArtObjects();
+            Map<Long, Constituent> oldConstituents = current.getConstituents();
+            List<Long> changedObjectIDs = changedIDs(oldObjects, objectPrints);
+            List<Long> deletedObjectIDs = deletedIDs(oldObjects, objectPrints);
+            List<Long> changedConstituentIDs = changedIDs(oldConstituents, constituentPrints);
+            List<Long> deletedConstituentIDs = deletedIDs(oldConstituents, constituentPrints);
+            log.info("found " + changedObjectIDs.size() + " new or changed and " + deletedObjectIDs.size() + " deleted objects, "
+                    + changedConstituentIDs.size() + " new or changed and " + deletedConstituentIDs.size() + " deleted constituents");
+
+            if (changedObjectIDs.isEmpty() && deletedObjectIDs.isEmpty() && changedConstituentIDs.isEmpty() && deletedConstituentIDs.isEmpty()) {
+                log.info("**************************** No Changes Found, Keeping Current Art Data Manager Cached Data Set **********************************");
+                return true;
+            }
+            if (   changedObjectIDs.size() + deletedObjectIDs.size() > oldObjects.size() * MAX_INCREMENTAL_CHANGE
+                || changedConstituentIDs.size() + deletedConstituentIDs.size() > oldConstituents.size() * MAX_INCREMENTAL_CHANGE) {
+                log.info("Too many changes for an incremental refresh, reloading everything instead");
+                return load();
+            }
+
+            // OBJECTS and everything related to them
+            log.info("Loading all changed art objects and related data");
+            Map<Long, ArtObject> objects = fetchByIDs(changedObjectIDs, new ArtObject(this).briefObjectQuery, new ArtObject(this), objectsByID());
+            Map<Long, List<ArtObjectConstituent>> ocs = fetchByIDs(changedObjectIDs, ArtObject.baseConstituentsQuery, new ArtObjectConstituent(this), ocsByObject());
+            Map<Long, List<ArtObjectTextEntry>> teList = fetchByIDs(changedObjectIDs, ArtObjectTextEntry.textEntriesByObjectQuery, new ArtObjectTextEntry(this), textEntriesByObject());
+            Map<Long, List<ArtObjectHistoricalData>> aohist = fetchByIDs(changedObjectIDs, ArtObjectHistoricalData.historicalDataByObjectQuery, new ArtObjectHistoricalData(this), historicalDataByObject());
+            Map<Long, List<ArtObjectDimension>> aoDims = fetchByIDs(changedObjectIDs, ArtObjectDimension.dimensionsByObjectQuery, new ArtObjectDimension(this), dimensionsByObject());
+            Map<Long, List<ArtObjectComponent>> aocomps = fetchByIDs(changedObjectIDs, ArtObjectComponent.componentsByObjectQuery, new ArtObjectComponent(this), componentsByObject());
+            ArtObjectImage imageSeed = new ArtObjectImage(this);
+            Map<Long, List<ArtObjectImage>> images = fetchByIDs(changedObjectIDs, imageSeed.getImagesByObjectQuery(), imageSeed, ArtDataManager.<ArtObjectImage>imagesByObject());
+            ResearchImage researchImageSeed = new ResearchImage(this);
+            Map<Long, List<ResearchImage>> researchImages = fetchByIDs(changedObjectIDs, researchImageSeed.getImagesByObjectQuery(), researchImageSeed, ArtDataManager.<ResearchImage>imagesByObject());
+            Map<Long, List<ArtObjectTerm>> terms = fetchByIDs(changedObjectIDs, ArtObject.baseTermsQuery, new ArtObjectTerm(this), termsByObject());
+
+            // an association is fetched twice when both of its objects have changed but only kept once
+            Grouper<ArtObjectAssociationRecord> associations = associationsByObject();
+            fetchByIDs(changedObjectIDs, ArtObjectAssociationRecord.associationsByParentQuery, new ArtObjectAssociationRecord(this), associations);
+            Map<Long, List<ArtObjectAssociationRecord>> aoas = fetchByIDs(changedObjectIDs, ArtObjectAssociationRecord.associationsByChildQuery, new ArtObjectAssociationRecord(this), associations);
+
+            Map<Long, ArtObject> changedObjects = getArtObjects(objects, ocs, teList, aohist, aoDims, aoas, aocomps, images, researchImages, terms);
+
+            // the previous versions of changed and deleted objects come out of the indexes
+            Set<Long> replacedObjectIDs = CollectionUtils.newHashSet(changedObjectIDs);
+            replacedObjectIDs.addAll(deletedObjectIDs);
+            Map<Long, ArtObject> replacedObjects = CollectionUtils.newLongKeyedMap();
+            for (Long id : replacedObjectIDs) {
+                ArtObject o = oldObjects.get(id);
+                if (o != null)
+                    replacedObjects.put(id, o);
+            }
+
+            // CONSTITUENTS - besides those that changed themselves, a constituent's roles change whenever
+            // one of the objects it was or is now related to changes 
+            Set<Long> affectedConstituentIDs = CollectionUtils.newHashSet(changedConstituentIDs);
+            for (ArtObject o : replacedObjects.values()) {
+                for (ArtObjectConstituent oc : o.getConstituents())
+                    affectedConstituentIDs.add(oc.getConstituentID());
+            }
+            for (List<ArtObjectConstituent> l : ocs.values()) {
+                for (ArtObjectConstituent oc : l)
+                    affectedConstituentIDs.add(oc.getConstituentID());
+            }
+            affectedConstituentIDs.removeAll(deletedConstituentIDs);
+            List<Long> constituentIDs = CollectionUtils.newArrayList(affectedConstituentIDs);
+
+            log.info("Loading all affected constituents and related data");
+            Map<Long, Constituent> constituents = fetchByIDs(constituentIDs, Constituent.briefConstituentQuery, new Constituent(this), constituentsByID());
+            Map<Long, List<ConstituentAltName>> alts = fetchByIDs(constituentIDs, ConstituentAltName.baseAltNamesQuery, new ConstituentAltName(this), altNamesByConstituent());
+            Map<Long, List<ConstituentTextEntry>> ctes = fetchByIDs(constituentIDs, ConstituentTextEntry.textEntriesByConstituentQuery, new ConstituentTextEntry(this), textEntriesByConstituent());
+
+            // the roles of constituents we already had are patched up from the changed objects while those
+            // of new constituents have to be fetched since they could also relate to unchanged objects
+            Grouper<ArtObjectConstituent> roles = ocsByConstituent();
+            List<Long> newConstituentIDs = CollectionUtils.newArrayList();
+            for (Long id : constituentIDs) {
+                Constituent c = oldConstituents.get(id);
+                if (c == null) {
+                    newConstituentIDs.add(id);
+                    continue;
+                }
+                for (ArtObjectConstituent oc : c.getObjectRoles()) {
+                    if (!replacedObjectIDs.contains(oc.getObjectID()))
+                        roles.handle(oc);
+                }
+            }
+            for (List<ArtObjectConstituent> l : ocs.values()) {
+                for (ArtObjectConstituent oc : l) {
+                    if (oldConstituents.containsKey(oc.getConstituentID()))
+                        roles.handle(oc);
+                }
+            }
+            fetchByIDs(newConstituentIDs, ArtObjectConstituent.fetchConstituentObjectsQuery, new ArtObjectConstituent(this), roles);
+
+            Map<Long, Constituent> changedConstituents = getConstituents(constituents, roles.getResult(), alts, ctes);
+
+            Map<Long, Constituent> replacedConstituents = CollectionUtils.newLongKeyedMap();
+            for (Long id : constituentIDs) {
+                Constituent c = oldConstituents.get(id);
+                if (c != null)
+                    replacedConstituents.put(id, c);
+            }
+            for (Long id : deletedConstituentIDs)
+                replacedConstituents.put(id, oldConstituents.get(id));
+
+            // unchanged entities carry over to the new snapshot as they are
+            Map<Long, ArtObject> newArtObjects = new LongKeyedMap<ArtObject>(oldObjects);
+            newArtObjects.keySet().removeAll(deletedObjectIDs);
+            newArtObjects.putAll(changedObjects);
+
+            Map<Long, Constituent> newConstituents = new LongKeyedMap<Constituent>(oldConstituents);
+            newConstituents.keySet().removeAll(deletedConstituentIDs);
+            newConstituents.putAll(changedConstituents);
+
+            log.info("Updating art object title words and constituent altnames for suggest feature");
+            SuggestIndex newArtObjectTitleWords = current.getArtObjectTitleWords().withChanges(
+                    parseArtObjectTitleWords(replacedObjects), parseArtObjectTitleWords(changedObjects));
+            SuggestIndex newArtistAltNames = current.getArtistAltNames().withChanges(
+                    parseArtistAltNames(replacedConstituents), parseArtistAltNames(changedConstituents));
+            SuggestIndex newOwnerAltNames = current.getOwnerAltNames().withChanges(
+                    parseOwnerAltNames(replacedConstituents), parseOwnerAltNames(changedConstituents));
+
+            ArtDataSnapshot staged = new ArtDataSnapshot(
+                    newArtObjects, newArtObjectTitleWords, 
+                    newConstituents, newArtistAltNames, newOwnerAltNames,
+                    current.getLocations(), current.getPlaces(), current.getPlacesTMSLocations(),
+                    current.getMediaItems(), current.getMediaRelationships()
+            );
+            // some index values, such as the visual browser nationality, come from an object's constituents, so once any
+            // constituent has changed the values that unchanged objects were indexed under can't be trusted, nor can those
+            // that the previous versions of changed objects would now give for taking them out of the index
+            FieldIndex<ArtObject> baseIndex = null;
+            if (changedConstituentIDs.isEmpty() && deletedConstituentIDs.isEmpty())
+                baseIndex = current.getArtObjectIndex();
+            publishStaged(staged, baseIndex, replacedObjects.values(), changedObjects.values());
+
+            log.info("**************************** Finished Incremental Refresh of Art Data Manager Cached Data Set ************************************");
+            log.info(SearchExecutor.getInstance().toString());
+            return true;
+        }
+        catch (SQLException se) {
+            log.error("ERROR Loading TMS Data Changes: " + se.getMessage(), se );
+        }
+        return false;
+    }
+
+    private <E extends ArtEntity, R> R fetchByIDs(List<Long> ids, String query, E seed, Collector<E, R> collector) throws SQLException {
+        EntityQuery<E> eq = new EntityQuery<E>(getDataSourceService());
+        eq.fetchAndCreate(ids, query, seed, collector);
+        return collector.getResult();
+    }
+
+    // IDs of entities that are new or whose fingerprint differs from the one loaded
+    private static List<Long> changedIDs(Map<Long, ? extends FingerprintedEntity> loaded, Map<Long, Long> fingerprints) {
+        List<Long> ids = CollectionUtils.newArrayList();
+        for (Map.Entry<Long, Long> e : fingerprints.entrySet()) {
+            FingerprintedEntity entity = loaded.get(e.getKey());
+            if (entity == null || TypeUtils.compare(entity.getFingerprint(), e.getValue()) != 0)
+                ids.add(e.getKey());
+        }
+        return ids;
+    }
+
+    // IDs of loaded entities that no longer exist
+    private static List<Long> deletedIDs(Map<Long, ?> loaded, Map<Long, Long> fingerprints) {
+        List<Long> ids = CollectionUtils.newArrayList();
+        for (Long id : loaded.keySet()) {
+            if (!fingerprints.containsKey(id))
+                ids.add(id);
+        }
+        return ids;
+    }
+
     @Deprecated
     public Narrative loadNarrative(long id, String query) {
         try {
@@ -431,54 +1099,108 @@ public class ArtDataManager extends MessageProviderImpl implements Runnable, Art
         return have;
     }
 
-    // returns all works related to this one
+    // returns the works related to this one, as many of them as configured
     public <T extends ArtObject>List<T> fetchRelatedWorks(ArtObject obj, ArtObjectFactory<T> factory) throws DataNotReadyException {
+        return fetchRelatedWorks(obj, factory, getRelatedWorksLimit());
+    }
+
+    // returns the works most related to this one, at most limit of them or all of them if limit is 0
+    public <T extends ArtObject>List<T> fetchRelatedWorks(ArtObject obj, ArtObjectFactory<T> factory, int limit) throws DataNotReadyException {
         isDataReady(true);
 
         List<T> returnList = CollectionUtils.newArrayList();
-        if (obj instanceof ArtObject)
-        {
-            ArtObject baseO = (ArtObject)obj;
-        
-            Map<String, MutableInt> nationalities = baseO.getNationalities();
-            Map<T, Long> m = CollectionUtils.newHashMap();
-            ArtObjectMapComparator<T> smc = new ArtObjectMapComparator<T>(m);
-            Map<T, Long> sm = CollectionUtils.newTreeMap(smc);
-    
-            if (baseO != null) {
-                // common styles
-                for (ArtObject o : getArtObjectsRaw().values()) 
-                {
-                    if (!baseO.getObjectID().equals(o.getObjectID()))
-                    {
-                        Long score = baseO.relatedTotalScore(o, nationalities);
-                        if (score > 0)
-                        {
-                            m.put(factory.createArtObject(o), score);
-                        }
-                    }
-                }
-    
-                // now, populate the sortable map
-                sm.putAll(m);
-    
-                returnList = CollectionUtils.newArrayList(sm.keySet());
-            }
+        RelatedWorksIndex index = getSnapshot().getRelatedWorks();
+        if (obj != null && index != null) {
+            for (ArtObject o : index.relatedTo(obj, limit))
+                returnList.add(factory.createArtObject(o));
         }
-            
         return returnList;
     }
     
     public <T extends ArtObject> List<T> searchArtObjects(SearchHelper<T> searchH, ResultsPaginator pn, FacetHelper fn, SortHelper<T> sortH, ArtObjectFactory<T> factory, FreeTextSearchable<T> freeTextSearcher) throws DataNotReadyException {
         isDataReady(true);
 
-        List<T> list = new ArrayList<T>();
-        for (ArtObject obj: getArtObjectsRaw().values())
+        ArtDataSnapshot snapshot = getSnapshot();
+        PrefixIndex<ArtObject> accessions = snapshot.getArtObjectAccessions();
+        boolean accessionOrder = accessions != null && sortH != null && sortH.isOrderedBy(ArtObject.SORT.ACCESSIONNUM_ASC) && !searchH.hasFreeTextFilters();
+        if (accessionOrder && fn == null) {
+            List<T> page = pageByAccessionNum(accessions, searchH, pn, factory);
+            if (page != null)
+                return page;
+        }
+
+        // only hand the entities that could satisfy the indexed filters to the search helper
+        Collection<ArtObject> candidates = searchH.narrow(snapshot.getArtObjects().values(), snapshot.getArtObjectIndex(), snapshot.getArtObjectSubstrings(), 
+                snapshot.getArtObjectRanges(), accessions);
+        // and when they're to be sorted by accession number, hand them over already in that order
+        List<ArtObject> ordered = accessionOrder ? accessions.inOrder(candidates) : null;
+        if (ordered != null)
+            candidates = ordered;
+        List<T> list = new ArrayList<T>(candidates.size());
+        for (ArtObject obj: candidates)
         {
             list.add(factory.createArtObject(obj));
         }
         searchH.setFreeTextServicer(freeTextSearcher);
-        return searchH.search(list, pn, fn, sortH);
+        return searchWithFacetCache(snapshot, "artObjects", searchH, list, pn, fn, sortH, ordered != null, snapshot.getArtObjectBitmaps(), factory, freeTextSearcher);
+    }
+
+    // when an accession number filter is the only filter, it matches exactly the objects the index finds for it
+    // and those are already in accession number order, so the page is simply taken from them - returns null
+    // for any other search
+    private <T extends ArtObject> List<T> pageByAccessionNum(PrefixIndex<ArtObject> accessions, SearchHelper<T> searchH, ResultsPaginator pn, ArtObjectFactory<T> factory) {
+        Set<SearchFilter> filters = searchH.getFilters();
+        if (filters.size() != 1)
+            return null;
+        SearchFilter f = filters.iterator().next();
+        int[] found = accessions.ranksOf(f);
+        if (found == null || !accessions.isExact(f))
+            return null;
+
+        int skip = 0;
+        int end = found.length;
+        if (pn != null) {
+            pn.setTotalResults(found.length);
+            skip = pn.getStartIndex();
+            end = pn.getEndIndex();
+        }
+        List<T> page = CollectionUtils.newArrayList();
+        for (ArtObject o : accessions.entities(found, skip, end)) {
+            T t = factory.createArtObject(o);
+            if (t != null)
+                page.add(t);
+        }
+        return page;
+    }
+
+    // re-use the facet counts of an identical earlier search of the same snapshot if there are any - the
+    // factory and free text searcher are part of the key since either can change what the facets see.  Lists
+    // already in the order wanted are searched without being sorted again
+    private <T extends Faceted & Searchable & Sortable> List<T> searchWithFacetCache(ArtDataSnapshot snapshot, String scope, SearchHelper<T> searchH, List<T> list, 
+            ResultsPaginator pn, FacetHelper fn, SortHelper<T> sortH, boolean inOrder, BitmapIndex<?> bitmaps, Object factory, Object freeTextSearcher) {
+        FacetCache cache = snapshot.getFacetCache();
+        FacetCache.Key key = null;
+        List<Facet> cached = null;
+        if (fn != null && cache != null) {
+            key = cache.keyFor(scope + ":" + factory.getClass().getName() + ":" + freeTextSearcher.getClass().getName(), searchH, fn);
+            cached = cache.get(key);
+            if (cached != null)
+                fn.setFacets(cached);
+        }
+
+        // when the facets aren't cached and the bitmaps can answer every filter, the facets are counted
+        // from them and the search itself is left to find the page of results
+        if (fn != null && !fn.isComplete() && bitmaps != null && !searchH.hasFreeTextFilters()) {
+            Bitmap matches = bitmaps.matchingAll(searchH.getFilters());
+            if (matches != null)
+                bitmaps.countFacets(matches, fn);
+        }
+
+        List<T> results = inOrder ? searchH.searchInOrder(list, pn, fn) : searchH.search(list, pn, fn, sortH);
+        // facets that timed out part way through are left to be counted again next time
+        if (key != null && cached == null && fn.isComplete())
+            cache.put(key, fn.getFacets());
+        return results;
     }
 
     public <T extends ArtObject>List<T> searchArtObjects(SearchHelper<T> searchH, ResultsPaginator pn, FacetHelper fn, SortHelper<T> sortH, ArtObjectFactory<T> factory) throws DataNotReadyException {
@@ -515,7 +1237,7 @@ public class ArtDataManager extends MessageProviderImpl implements Runnable, Art
     // simply assemble a map of objects that all the given constituents have in common
     // and return the values as a list
     public <T extends ArtObject>List<T> fetchObjectsByRelationships(List<ArtObjectConstituent> ocs, ArtObjectFactory<T> factory) {
-        Map<Long, T> aos = CollectionUtils.newHashMap();
+        Map<Long, T> aos = CollectionUtils.newLongKeyedMap();
         if (ocs != null) {
             for (ArtObjectConstituent oc : ocs) {
                 Constituent c = oc.getConstituent();
@@ -572,46 +1294,8 @@ public class ArtDataManager extends MessageProviderImpl implements Runnable, Art
     }
      */
     
-    private static String cleanupForMatching(String original) {
-        if (original == null)
-            return null;
-        
-        return
-            StringUtils.removeHTML(original).toLowerCase()
-            .replaceAll("^[^\\p{L}]+", " ")
-            .replaceAll("[^\\p{L}]+$", " ")
-            .replaceAll("\\s+[^\\p{L}]+", " ")
-            .replaceAll("[^\\p{L}]+\\s+", " ")
-            .replaceAll("-{2,}", " ")
-            .replaceAll("[^-\'\\p{L}]", " ")
-            // get rid of non-letter characters at beginning of word
-            .replaceAll("^[^\\p{L}]+", "")
-            // and at end of word
-            .replaceAll("[^\\p{L}]+$", "");
-        
-    }
-    
-    private static String cleanupForLettersOnlyMatching(String original)
-    {
-        String cleanedString = null;
-        if (original != null)
-        {
-            cleanedString = cleanupForMatching(original)
-                                .replaceAll("[\']+", "")
-                                .replaceAll("[-/]+", " ");
-        }
-        return cleanedString;
-    }
-    
-    synchronized private Map<String, Set<Suggestion>> parseArtObjectTitleWords(Map<Long, ArtObject> newArtObjects) {
-    	Map<String, Set<Suggestion>> newArtObjectTitleWords = null;
-        newArtObjectTitleWords = CollectionUtils.newTreeMap(
-                new Comparator<String>() {
-                    public int compare(String a, String b) {
-                        return StringUtils.getDefaultCollator().compare(a, b);
-                    }
-                }
-        );
+    private Map<String, Set<Suggestion>> parseArtObjectTitleWords(Map<Long, ArtObject> newArtObjects) {
+    	Map<String, Set<Suggestion>> newArtObjectTitleWords = CollectionUtils.newHashMap();
 
         if (newArtObjects != null) {
             for (ArtObject o : newArtObjects.values()) {
@@ -632,69 +1316,62 @@ public class ArtDataManager extends MessageProviderImpl implements Runnable, Art
         // of all lists, remove any items from #2 that intersect with #1
         // 3. sort list 1 and list 2 separately then concatenate them together
         
+        ArtDataSnapshot snapshot = getSnapshot();
+        SuggestIndex index = snapshot.getArtObjectTitleWords();
+
         // match against the full string that was supplied
-        Set<Suggestion> matches = suggest(artObjectTitleWords,titleWords);
+        BitSet matches = suggest(index, titleWords);
         
         String splitWords = titleWords;
-        Set<Suggestion> wordMatches = null;
+        BitSet wordMatches = null;
         if (splitWords != null && splitWords.length() > 0) {
             // now add the results from each word separately
             // but only keep results that match ALL words individually 
             for (String s : splitWords.split("\\s+")) {
-                Set<Suggestion> set = suggest(artObjectTitleWords, s);
+                BitSet set = suggest(index, s);
                 if (wordMatches == null)
                     wordMatches = set;
-                else {
-                    // only keep suggestion if it exists for all words supplied
-                    Set<Suggestion> copyMatches = CollectionUtils.newHashSet();
-                    for (Suggestion sug : wordMatches) {
-                        if (set.contains(sug))
-                            copyMatches.add(sug);
-                    }
-                    wordMatches = copyMatches;
-                }
+                else
+                    wordMatches.and(set);
             }
         }
         
         // add results from word matching to any existing results we might have
-        if (wordMatches != null && matches != null)
-            matches.addAll(wordMatches);
+        if (wordMatches != null)
+            matches.or(wordMatches);
         
         Set<Long> worksIDs = null;
         if (artistName != null && artistName.length() > 0) {
-            for (Suggestion artistSug : suggestNameSet(artistName,artistAltNames) ) {
+            SuggestIndex artists = snapshot.getArtistAltNames();
+            BitSet artistMatches = suggestNameSet(artistName, artists);
+            for (int r = artistMatches.nextSetBit(0); r >= 0; r = artistMatches.nextSetBit(r+1)) {
                 if (worksIDs == null)
                     worksIDs = CollectionUtils.newHashSet();
-                //log.info("artist: " + artistSug.entityID);
-                Constituent c = fetchByConstituentID(artistSug.entityID);
+                Constituent c = fetchByConstituentID(artists.getSuggestion(r).entityID);
                 worksIDs.addAll(c.getWorksIDs());
             }
         }
         if (worksIDs != null) {
             // only keep suggestions that also match the suggestions 
             // for the given artist name
-            Set<Suggestion> set = CollectionUtils.newHashSet();
-            if (matches != null) {
-                for (Suggestion oSug : matches) {
-                    //log.info("title:" + oSug.string + " id:" + oSug.entityID);
-                    if (worksIDs.contains(Long.valueOf(oSug.entityID)))
-                        set.add(oSug);
-                }
-                matches = set;
+            for (int r = matches.nextSetBit(0); r >= 0; r = matches.nextSetBit(r+1)) {
+                if (!worksIDs.contains(index.getSuggestion(r).entityID))
+                    matches.clear(r);
             }
         }
 
-        // now we need to remove duplicates and sort w.r.t. the given
-        // string
+        // now we need to remove duplicates and sort w.r.t. the given string - the matches are
+        // visited in collation order so once enough titles have been found the rest can be skipped
+        int limit = (index == null || index.getLimit() <= 0) ? Integer.MAX_VALUE : index.getLimit();
         Set<String> primaryTitles = CollectionUtils.newHashSet();
         Set<String> secondaryTitles = CollectionUtils.newHashSet();
-        String title = StringUtils.removeDiacritics(cleanupForMatching(titleWords));
-        if (matches != null) {
-            for (Suggestion suggestion : matches) {
-                String sugg = StringUtils.removeDiacritics(cleanupForMatching(suggestion.string));
-                if (sugg.startsWith(title))
+        if (index != null && titleWords != null) {
+            String title = normalizeForSuggest(titleWords);
+            for (int r = matches.nextSetBit(0); r >= 0 && primaryTitles.size() < limit; r = matches.nextSetBit(r+1)) {
+                Suggestion suggestion = index.getSuggestion(r);
+                if (index.getNormalized(r).startsWith(title))
                     primaryTitles.add(StringUtils.removeMarkup(suggestion.string, false));
-                else
+                else if (secondaryTitles.size() < limit)
                     secondaryTitles.add(StringUtils.removeMarkup(suggestion.string, false));
             }
         }
@@ -709,7 +1386,7 @@ public class ArtDataManager extends MessageProviderImpl implements Runnable, Art
         List<String> suggestions = CollectionUtils.toSortedAlphaDiacriticNormalizedList(primaryTitles);
         suggestions.addAll(CollectionUtils.toSortedAlphaDiacriticNormalizedList(secondaryTitles));
 
-        return suggestions;
+        return CollectionUtils.trimToSize(suggestions, limit);
     }
     
     private void consumeIndexPair(Map<String, Set<Suggestion>> map, String key, String value, Long entityID) {
@@ -727,7 +1404,7 @@ public class ArtDataManager extends MessageProviderImpl implements Runnable, Art
     
     private void consumeIndexPair(Map<String,Set<Suggestion>> map, String value, Long entityID) {
         if (value != null && value.length() > 0) {
-            String key = cleanupForMatching(value);
+            String key = StringUtils.cleanupForMatching(value);
             // include the full value as it's own "word" so we can try to match
             // the whole thing at once if we want - this would be the first
             // part of suggest I guess //TODO review this
@@ -738,7 +1415,7 @@ public class ArtDataManager extends MessageProviderImpl implements Runnable, Art
             }
             
             //Now strip out any non letters/white space for matching
-            String strippedName = cleanupForLettersOnlyMatching(key);
+            String strippedName = StringUtils.cleanupForLettersOnlyMatching(key);
             if (!strippedName.equals(key))
             {
                 //log.debug("stripped: " + key + " :: " + strippedName + "(" + entityID + ")");
@@ -751,14 +1428,8 @@ public class ArtDataManager extends MessageProviderImpl implements Runnable, Art
         }
     }
 
-    synchronized private Map<String, Set<Suggestion>> parseArtistAltNames(Map<Long, Constituent> newConstituents) {
-    	Map<String, Set<Suggestion>> newArtistAltNames = CollectionUtils.newTreeMap(
-                new Comparator<String>() {
-                    public int compare(String a, String b) {
-                        return StringUtils.getDefaultCollator().compare(a, b);
-                    }
-                }
-        );
+    private Map<String, Set<Suggestion>> parseArtistAltNames(Map<Long, Constituent> newConstituents) {
+    	Map<String, Set<Suggestion>> newArtistAltNames = CollectionUtils.newHashMap();
 
         if (newConstituents != null) {
             for (Constituent c : newConstituents.values()) {
@@ -776,14 +1447,8 @@ public class ArtDataManager extends MessageProviderImpl implements Runnable, Art
     	return newArtistAltNames;
     }
 
-    synchronized private Map<String, Set<Suggestion>> parseOwnerAltNames(Map<Long, Constituent> newConstituents) {
-    	Map<String, Set<Suggestion>> newOwnerAltNames = CollectionUtils.newTreeMap(
-                new Comparator<String>() {
-                    public int compare(String a, String b) {
-                        return StringUtils.getDefaultCollator().compare(a, b);
-                    }
-                }
-        );
+    private Map<String, Set<Suggestion>> parseOwnerAltNames(Map<Long, Constituent> newConstituents) {
+    	Map<String, Set<Suggestion>> newOwnerAltNames = CollectionUtils.newHashMap();
         
         if (newConstituents != null) {
             for (Constituent c : newConstituents.values()) {
@@ -802,104 +1467,85 @@ public class ArtDataManager extends MessageProviderImpl implements Runnable, Art
     	return newOwnerAltNames;
     }
 
-    private Set<Suggestion> suggest(Map<String, Set<Suggestion>> map, String string) {
-        Set<Suggestion> eSet = CollectionUtils.newHashSet();
-        if (map != null && string != null && string.length() > 0) {
+    // keys and suggestions are compared once both have been cleaned up and stripped of diacritics
+    private static String normalizeForSuggest(String s) {
+        return StringUtils.removeDiacritics(StringUtils.cleanupForMatching(s));
+    }
 
-            // remove any non-characters except for ' and - before we look up the string in our map
-            String base = cleanupForMatching(string);
-            //String base = string.toLowerCase().replaceAll("[^-\'\\p{L}]", " ");
-        
-            if (base.length() > 0) {
-                TreeMap<String, Set<Suggestion>> t = (TreeMap<String, Set<Suggestion>>) map;
-
-                // set the start and end keys for the sub map call
-                // which collects all keys within a range
-                // endKey is just the base with an extra character (the largest possible one)
-                // which we will never use anyway due to our data
-                // so this should be pretty safe to use
-                String startKey = base;
-                String endKey = base + Character.MAX_VALUE;
-//              log.info("DDDDDDDDDDDDDDDDDDDDDDDDDDDDD: Searching for: " + startKey);
-                Map<String, Set<Suggestion>> sMap = t.subMap(startKey, endKey);
-                for (Set<Suggestion> set : sMap.values()) {
-                    eSet.addAll(set);
-                }
-            }
+    private static final SuggestIndex.Normalizer suggestNormalizer = new SuggestIndex.Normalizer() {
+        public String normalize(String s) {
+            return normalizeForSuggest(s);
         }
-        return eSet;
+    };
+
+    public final String suggestLimitPropertyName = "suggestLimit";
+    public static final int DEFAULT_SUGGEST_LIMIT = 100;
+    // the most suggestions any of the suggest methods will return, 0 for no limit
+    protected int getSuggestLimit() {
+    	Integer i = getConfig() == null ? null : getConfig().getInteger(suggestLimitPropertyName);
+    	if (i == null || i < 0)
+    		return DEFAULT_SUGGEST_LIMIT;
+    	return i;
+    }
+
+    private SuggestIndex newSuggestIndex(Map<String, Set<Suggestion>> suggestionsByKey) {
+        return new SuggestIndex(suggestionsByKey, suggestNormalizer, getSuggestLimit());
+    }
+
+    // the ranks of every suggestion with a key that starts with the given string
+    private BitSet suggest(SuggestIndex index, String string) {
+        if (index == null || string == null || string.length() == 0)
+            return new BitSet();
+        return index.match(normalizeForSuggest(string));
     }
 
-    private Set<Suggestion> suggestNameSet(String baseName, Map<String, Set<Suggestion>> dataMap) {
+    private BitSet suggestNameSet(String baseName, SuggestIndex index) {
         // suggest based on the full string entered
-        Set<Suggestion> suggestions = suggest(dataMap, baseName);
+        BitSet suggestions = suggest(index, baseName);
+        if (baseName == null)
+            return suggestions;
 
         // now process each word separately and come up with another
         // list of suggestions where all terms match each suggestion
-        String splitString = cleanupForMatching(baseName);
-        Set<Suggestion> wordMatches = null;
+        String splitString = StringUtils.cleanupForMatching(baseName);
+        BitSet wordMatches = null;
         for (String name : splitString.split("\\s+")) {
-            Set<Suggestion> set = suggest(dataMap, name);
+            BitSet set = suggest(index, name);
             if (wordMatches == null)
                 wordMatches = set;
-            else {
+            else
                 // only keep suggestion if it exists for all the words supplied
-                Set<Suggestion> copyMatches = CollectionUtils.newHashSet();
-                for (Suggestion sug : wordMatches ) {
-                    if (set.contains(sug))
-                        copyMatches.add(sug);
-                }
-                wordMatches = copyMatches;
-            }
+                wordMatches.and(set);
         }
         
         // add the suggestions from word matching to the set of suggestions
-        if (suggestions != null && wordMatches != null)
-            suggestions.addAll(wordMatches);
+        if (wordMatches != null)
+            suggestions.or(wordMatches);
         
         return suggestions;
     }
     
-    private List<Suggestion> suggestSuggestions(String baseName, Set<Suggestion> suggestions) {
+    private List<Suggestion> suggestSuggestions(String baseName, SuggestIndex index) {
         // be sure data is loaded before we let the API get used
         isDataReady(true);
 
         List<Suggestion> combined = new ArrayList<Suggestion>();
-        // prioritize based on closeness of match to given name
-        Set<Suggestion> bestNames = CollectionUtils.newHashSet();
-        Set<Suggestion> otherNames = CollectionUtils.newHashSet();
-        List<Suggestion> otherNamesList = new ArrayList<Suggestion>();
-        
-        if (suggestions != null) {
-            // now, prioritize the suggestions based on names that
-            // match the given string (
-            String base = StringUtils.removeDiacritics(cleanupForMatching(baseName));
-            for (Suggestion suggestion : suggestions) {
-                String sugg = StringUtils.removeDiacritics(cleanupForMatching(suggestion.string));
-                if (sugg.startsWith(base)) {
-                    bestNames.add(suggestion);
-                }
-                else {
-                    otherNames.add(suggestion);
-                }
-            }
-            // remove duplicate string values
-            for (Suggestion s : bestNames) {
-                if (otherNames.contains(s))
-                    otherNames.remove(s);
-            }
-            combined.addAll(bestNames);
-            Collections.sort(combined, suggestionAlphaDiacriticNormalizedComparator);
-            otherNamesList.addAll(otherNames);
-            Collections.sort(otherNamesList, suggestionAlphaDiacriticNormalizedComparator);
-            combined.addAll(otherNamesList);
-        }
-        
+        if (index == null || baseName == null)
+            return combined;
+
+        // names that match the given string come first, each group in collation order - a single short
+        // word matches so many names that its best suggestions were already worked out when the index was built
+        String base = normalizeForSuggest(baseName);
+        int[] ranks = base.indexOf(' ') < 0 ? index.getTopRanks(base) : null;
+        if (ranks == null)
+            ranks = index.rank(base, suggestNameSet(baseName, index));
+        for (int r : ranks)
+            combined.add(index.getSuggestion(r));
         return combined;
     }
     
     public List<Suggestion> suggestArtObjectsByArtistName(String baseName) {
-    	List<Suggestion> constituentSuggestions = suggestSuggestions(baseName, suggestNameSet(baseName, artistAltNames));
+    	List<Suggestion> constituentSuggestions = suggestSuggestions(baseName, getSnapshot().getArtistAltNames());
     	List<Suggestion> objectSuggestions = CollectionUtils.newArrayList();
     	for (Suggestion s: constituentSuggestions) {
     		Constituent c = fetchByConstituentID(s.getEntityID());
@@ -913,12 +1559,12 @@ public class ArtDataManager extends MessageProviderImpl implements Runnable, Art
     }
 
     public List<Suggestion> suggestArtObjectsByTitle(String baseName) {
-    	return suggestSuggestions(baseName, suggestNameSet(baseName, artObjectTitleWords));
+    	return suggestSuggestions(baseName, getSnapshot().getArtObjectTitleWords());
     }
 
-    private List<String> suggestNames(String baseName, Set<Suggestion> suggestions) {
+    private List<String> suggestNames(String baseName, SuggestIndex index) {
         
-        List<Suggestion> rslts = suggestSuggestions(baseName, suggestions);
+        List<Suggestion> rslts = suggestSuggestions(baseName, index);
         List<String> rsltList = new ArrayList<String> ();
 
         if (rslts != null) {
@@ -931,17 +1577,17 @@ public class ArtDataManager extends MessageProviderImpl implements Runnable, Art
     }
     
     public List<String> suggestArtistNames(String baseName) {
-        return suggestNames(baseName, suggestNameSet(baseName, artistAltNames));
+        return suggestNames(baseName, getSnapshot().getArtistAltNames());
     }
 
     public List<String> suggestOwnerNames(String baseName) {
-        return suggestNames(baseName, suggestNameSet(baseName, ownerAltNames));
+        return suggestNames(baseName, getSnapshot().getOwnerAltNames());
     }
     
     public Map<Long, String> suggestOwners(String baseName) {
         log.debug("Suggest Owners called with param: " + baseName);
         LinkedHashMap<Long, String> rslts = new LinkedHashMap<Long, String>();
-        List<Suggestion> suggestions = suggestSuggestions(baseName, suggestNameSet(baseName, ownerAltNames));
+        List<Suggestion> suggestions = suggestSuggestions(baseName, getSnapshot().getOwnerAltNames());
         if (suggestions != null)
         {
             for (Suggestion s: suggestions)
@@ -953,51 +1599,39 @@ public class ArtDataManager extends MessageProviderImpl implements Runnable, Art
         return rslts;
     }
 
-    synchronized private void setArtObjects(Map<Long, ArtObject> newArtObjects) {
-        artObjects = newArtObjects;
+    public FieldIndex<ArtObject> getArtObjectIndex() {
+        return getSnapshot().getArtObjectIndex();
     }
 
-    synchronized private void setArtObjectTitleWords(Map<String, Set<Suggestion>> newArtObjectTitleWords) {
-        artObjectTitleWords = newArtObjectTitleWords;
-    }
-
-    
-    synchronized private void setStandardArtObjectFacets(List<Facet> standardArtObjectFacets) {
-        this.standardArtObjectFacets = standardArtObjectFacets;
-    }
-
-    synchronized private void setAllIndexOfArtistRanges(Map<String, String> allIndexOfArtistRanges) {
-        this.allIndexOfArtistRanges = allIndexOfArtistRanges;
-    }
 
     public List<ArtObject> getArtObjects() {
     	return CollectionUtils.newArrayList(getArtObjectsRaw().values());
     }
     
     public Map<Long, ArtObject> getArtObjectsRaw() {
-        return artObjects;
+        return getSnapshot().getArtObjects();
     }
 
     public List<Facet> getArtObjectFacetCounts() throws DataNotReadyException {
-        if (standardArtObjectFacets == null) {
-            // setup our facet helper to calculate all art object facets
-            FacetHelper fn = new FacetHelper(
-                FACET.VISUALBROWSERCLASSIFICATION,
-                FACET.VISUALBROWSERNATIONALITY,
-                FACET.VISUALBROWSERTIMESPAN,
-                FACET.VISUALBROWSERTHEME,
-                FACET.VISUALBROWSERSTYLE,
-                FACET.SCHOOL,
-                FACET.ONVIEW
-            );
+        return getSnapshot().getArtObjectFacets();
+    }
+
+    private List<Facet> computeArtObjectFacetCounts(Collection<ArtObject> newArtObjects, BitmapIndex<ArtObject> bitmaps) {
+        // setup our facet helper to calculate all art object facets
+        FacetHelper fn = new FacetHelper(
+            FACET.VISUALBROWSERCLASSIFICATION,
+            FACET.VISUALBROWSERNATIONALITY,
+            FACET.VISUALBROWSERTIMESPAN,
+            FACET.VISUALBROWSERTHEME,
+            FACET.VISUALBROWSERSTYLE,
+            FACET.SCHOOL,
+            FACET.ONVIEW
+        );
 
-            // our search helper, instantiated according to the art entity we
-            // intend to search against
-            SearchHelper<ArtObject> sh = new SearchHelper<ArtObject>();
-            searchArtObjects(sh,null,fn);
-            setStandardArtObjectFacets(fn.getFacets()); 
-        }
-        return standardArtObjectFacets;
+        // every art object is counted so there's no need to run them through a search first
+        if (!bitmaps.countFacets(bitmaps.all(), fn))
+            fn.processFacets(CollectionUtils.newArrayList(newArtObjects));
+        return fn.getFacets(); 
     }
     
     // DPB - I actually don't think we need this
@@ -1011,192 +1645,112 @@ public class ArtDataManager extends MessageProviderImpl implements Runnable, Art
     }
 */
     
-    synchronized protected <T extends Derivative> void loadImagery(Map<Long, ArtObject> newArtObjects, T seed) throws SQLException {
-        
-        EntityQuery<T> deq = new EntityQuery<T>(getDataSourceService());
-        log.info("Starting pre-fetch of all " + seed.getClass().getName() + " images");
-        List<T> newImages = deq.fetchAll(seed.getAllImagesQuery(), seed);
-        log.info("found this many " + seed.getClass().getName() + " images: " + newImages.size());
-        
-        // add to the derivatives list
-//        derivativesRaw.addAll(newImages);
+    protected <T extends Derivative> void assignImagery(Map<Long, ArtObject> newArtObjects, Map<Long, List<T>> imagesByObject, T seed) {
         
-        // separate the images into a map indexed by object id
-        Map<Long, List<T>> imgByObject = CollectionUtils.newHashMap();
-        for (T d : newImages) {
-        	//  DPB - I don't think we need this actually 
-        	//  derivativesByImageID.put(d.getImageID(), d);
-            ArtObject o = (ArtObject)newArtObjects.get(d.getArtObjectID());
-            if ( o != null && o.imageOK(d) ) {
-                List<T> ld = imgByObject.get(d.getArtObjectID());
-                if (ld == null) {
-                    ld = CollectionUtils.newArrayList();
-                    imgByObject.put(d.getArtObjectID(), ld);
-                }
-                ld.add(d);
+        log.info("Assigning all " + seed.getClass().getName() + " images to art objects");
+
+        // assign the images of each object that it can actually use
+        for (Map.Entry<Long, List<T>> e : imagesByObject.entrySet()) {
+            ArtObject o = (ArtObject)newArtObjects.get(e.getKey());
+            if (o == null)
+                continue;
+            List<T> l = CollectionUtils.newArrayList();
+            for (T d : e.getValue()) {
+                if (o.imageOK(d))
+                    l.add(d);
             }
-        }
-
-        // then assign those lists of images to each object
-        for (Long id : imgByObject.keySet()) {
-            ArtObject o = (ArtObject)newArtObjects.get(id);
-            List<T> l = imgByObject.get(id);
-            if (o != null && l != null) {
+            if (l.size() > 0)
                 o.setImages(l, seed);
-            }
         } 
 
     }
 
-    // load all of the art object data into our cached map
-    synchronized protected Map<Long, ArtObject> getArtObjects(
-            List<ArtObjectConstituent> ocs,
-            List<ArtObjectTextEntry> textEntries,
-            List<ArtObjectHistoricalData> aohist,
-            List<ArtObjectDimension> aoDims,
-            List<ArtObjectAssociationRecord> aoas,
-            List<ArtObjectComponent> aocomps
-    ) throws SQLException {
-
-        // ART OBJECT ASSOCIATIONS 
-        // load the art object associations into two maps indexed by the art object ID and containing a list of ArtObjectAssocations  
-        /*Map<Long, List<ArtObjectAssociation>> childAssociations = CollectionUtils.newHashMap();
-        Map<Long, List<ArtObjectAssociation>> parentAssociations = CollectionUtils.newHashMap();
-        for (ArtObjectAssociation aoa : aoas) {
-            List<ArtObjectAssociation> children = childAssociations.get(aoa.getParentObjectID());
-            if (children == null) {
-                children = CollectionUtils.newArrayList();
-                childAssociations.put(aoa.getParentObjectID(), children);
-            } 
-            children.add(aoa);
-
-            List<ArtObjectAssociation> parents = parentAssociations.get(aoa.getChildObjectID());
-            if (parents == null) {
-                parents = CollectionUtils.newArrayList();
-                parentAssociations.put(aoa.getChildObjectID(), parents);
-            } 
-            parents.add(aoa);
-        }*/
-
-        Map<Long, List<ArtObjectAssociationRecord>> associations = CollectionUtils.newHashMap();
-        for (ArtObjectAssociationRecord aoa : aoas) {
-            List<ArtObjectAssociationRecord> objAssociations = associations.get(aoa.getParentObjectID());
-            if (objAssociations == null) {
-                objAssociations = CollectionUtils.newArrayList();
-                associations.put(aoa.getParentObjectID(), objAssociations);
-            } 
-            objAssociations.add(aoa);
-
-            objAssociations = associations.get(aoa.getChildObjectID());
-            if (objAssociations == null) {
-                objAssociations = CollectionUtils.newArrayList();
-                associations.put(aoa.getChildObjectID(), objAssociations);
-            } 
-            objAssociations.add(aoa);
-        }
+    // assemble all of the art object data into our cached map - everything related to the objects
+    // arrives already grouped by object ID
+    protected Map<Long, ArtObject> getArtObjects(
+            Map<Long, ArtObject> newArtObjects,
+            Map<Long, List<ArtObjectConstituent>> ocs,
+            Map<Long, List<ArtObjectTextEntry>> textEntries,
+            Map<Long, List<ArtObjectHistoricalData>> aohist,
+            Map<Long, List<ArtObjectDimension>> aoDims,
+            Map<Long, List<ArtObjectAssociationRecord>> associations,
+            Map<Long, List<ArtObjectComponent>> aocomps,
+            Map<Long, List<ArtObjectImage>> images,
+            Map<Long, List<ResearchImage>> researchImages,
+            Map<Long, List<ArtObjectTerm>> terms
+    ) {
 
         // OBJECTS THEMSELVES
-        Map<Long, ArtObject> newArtObjects = CollectionUtils.newHashMap();
-        EntityQuery<ArtObject> eq = new EntityQuery<ArtObject>(getDataSourceService());
-        log.info("Starting pre-fetch of all objects");
-        ArtObject.setFetchAllObjectsQuery(getOperatingMode());
-        List<ArtObject> newObjects = eq.fetchAll(ArtObject.fetchAllObjectsQuery, new ArtObject(this));
-        log.info("found this many objects: " + newObjects.size());
-        for (ArtObject o : newObjects) {
+        for (ArtObject o : newArtObjects.values()) {
             // create blank lists for all objects by default so that
             // we don't try to load them again later if they're actually blank
             o.setConstituents();
             o.setTerms();
             o.setImages();
             o.setAssociations(associations.get(o.getObjectID()));
-            newArtObjects.put(o.getObjectID(), o);
         }
 
         // CONSTITUENT RELATIONSHIPS
-        // load the constituents into a huge map of lists indexed by object id
-        Map<Long, List<ArtObjectConstituent>> mapByObject = CollectionUtils.newHashMap(); //new HashMap<Long, List<ArtObjectConstituent>>();
-        for (ArtObjectConstituent oc : ocs) {
-            List<ArtObjectConstituent> loc = mapByObject.get(oc.getObjectID());
-            if (loc == null) {
-                loc = CollectionUtils.newArrayList();
-                mapByObject.put(oc.getObjectID(), loc);
-            }
-            loc.add(oc);
-        }
-
         // set the list of constituents for each art object
-        // pre-sorting the list by the displayOrder contained in the relationship
-        for (Long id : mapByObject.keySet()) {
-            ArtObject o = (ArtObject)newArtObjects.get(id);
-            List<ArtObjectConstituent> l = mapByObject.get(id);
-            if (o != null && l != null) {
+        // pre-sorting the list by the displayOrder contained in the relationship - the 
+        // groups are copied first since constituents are assembled from them at the same time
+        for (Map.Entry<Long, List<ArtObjectConstituent>> e : ocs.entrySet()) {
+            ArtObject o = (ArtObject)newArtObjects.get(e.getKey());
+            if (o != null) {
+                List<ArtObjectConstituent> l = CollectionUtils.newArrayList(e.getValue());
                 Collections.sort(l,ArtObjectConstituent.sortByDisplayOrderAsc);
                 o.setConstituents(l);
             }
         }
 
         // OBJECT IMAGES
-        loadImagery(newArtObjects, new ArtObjectImage(this));
-        loadImagery(newArtObjects, new ResearchImage(this));
+        assignImagery(newArtObjects, images, new ArtObjectImage(this));
+        assignImagery(newArtObjects, researchImages, new ResearchImage(this));
         
         checkImageSizes(newArtObjects);
         
         // OBJECT TERMS
-        EntityQuery<ArtObjectTerm> teq = new EntityQuery<ArtObjectTerm>(getDataSourceService());
-        log.info("Starting pre-fetch of all object terms");
-        List<ArtObjectTerm> newTerms = teq.fetchAll(ArtObjectTerm.fetchAllObjectTermsQuery, new ArtObjectTerm(this));
-        log.info("found this many object terms: " + newTerms.size());
-
-        // separate the terms into a map indexed by object id
-        // and store a list of object IDs for each term for fast access
-        Map<Long, List<ArtObjectTerm>> termsByObject = CollectionUtils.newHashMap();//new HashMap<Long, List<ArtObjectTerm>>();
-        for (ArtObjectTerm t : newTerms) {
-            ArtObject o = newArtObjects.get(t.getObjectID());
-            if ( o != null ) {
-                List<ArtObjectTerm> lt = termsByObject.get(t.getObjectID());
-                if (lt == null) {
-                    lt = CollectionUtils.newArrayList();
-                    termsByObject.put(t.getObjectID(), lt);
-                }
-                lt.add(t);
-            }
-        }
-
-        // then assign those lists of terms to each object
-        for (Long id : termsByObject.keySet()) {
-            ArtObject o = (ArtObject)newArtObjects.get(id);
-            List<ArtObjectTerm> l = termsByObject.get(id);
-            if (o != null && l != null) {
-                o.setTerms(l);
-            }
+        log.info("Assigning terms to art objects");
+        for (Map.Entry<Long, List<ArtObjectTerm>> e : terms.entrySet()) {
+            ArtObject o = (ArtObject)newArtObjects.get(e.getKey());
+            if (o != null)
+                o.setTerms(e.getValue());
         }
         
         log.info("Assigning text entries to art objects");
-        for (ArtObjectTextEntry te : textEntries) {
-            ArtObject o = (ArtObject)newArtObjects.get(te.getObjectID());
-            if (o != null)
-                o.addTextEntry(te);
+        for (Map.Entry<Long, List<ArtObjectTextEntry>> e : textEntries.entrySet()) {
+            ArtObject o = (ArtObject)newArtObjects.get(e.getKey());
+            if (o != null) {
+                for (ArtObjectTextEntry te : e.getValue())
+                    o.addTextEntry(te);
+            }
         }
 
         log.info("Assigning historical data entries to art objects");
-        for (ArtObjectHistoricalData h : aohist) {
-            ArtObject o = (ArtObject)newArtObjects.get(h.getObjectID());
-            if (o != null)
-                o.addHistoricalData(h);
+        for (Map.Entry<Long, List<ArtObjectHistoricalData>> e : aohist.entrySet()) {
+            ArtObject o = (ArtObject)newArtObjects.get(e.getKey());
+            if (o != null) {
+                for (ArtObjectHistoricalData h : e.getValue())
+                    o.addHistoricalData(h);
+            }
         }
         
         log.info("Assigning dimensions to art objects");
-        for (ArtObjectDimension d : aoDims) {
-            ArtObject o = (ArtObject)newArtObjects.get(d.getObjectID());
-            if (o != null)
-                o.addDimensions(d);
+        for (Map.Entry<Long, List<ArtObjectDimension>> e : aoDims.entrySet()) {
+            ArtObject o = (ArtObject)newArtObjects.get(e.getKey());
+            if (o != null) {
+                for (ArtObjectDimension d : e.getValue())
+                    o.addDimensions(d);
+            }
         }
         
         log.info("Assigning components to art objects");
-        for (ArtObjectComponent c : aocomps) {
-            ArtObject o = (ArtObject)newArtObjects.get(c.getObjectID());
-            if (o != null)
-                o.addComponent(c);
+        for (Map.Entry<Long, List<ArtObjectComponent>> e : aocomps.entrySet()) {
+            ArtObject o = (ArtObject)newArtObjects.get(e.getKey());
+            if (o != null) {
+                for (ArtObjectComponent c : e.getValue())
+                    o.addComponent(c);
+            }
         }
 
         return newArtObjects;
@@ -1243,13 +1797,14 @@ public class ArtDataManager extends MessageProviderImpl implements Runnable, Art
     }
 
     public <C extends Constituent>List<C> searchConstituents(SearchHelper<C> sh, ResultsPaginator pn, FacetHelper fn, SortHelper<C> sortH, ConstituentFactory<C> factory, FreeTextSearchable<C> freeTextSearcher) {
+        ArtDataSnapshot snapshot = getSnapshot();
         List<C> list = new ArrayList<C>();
-        for (Constituent constObj: getConstituentsRaw().values())
+        for (Constituent constObj: snapshot.getConstituents().values())
         {
             list.add(factory.createConstituent(constObj));
         }
         sh.setFreeTextServicer(freeTextSearcher);
-        return sh.search(list, pn, fn, sortH);
+        return searchWithFacetCache(snapshot, "constituents", sh, list, pn, fn, sortH, false, null, factory, freeTextSearcher);
     }
 
     //public <E extends ArtEntity> List<E> searchArtEntity(List<E> list, SearchHelper<E> sh, ResultsPaginator pn, FacetHelper fn, SortHelper<E> sortH) {
@@ -1293,80 +1848,51 @@ public class ArtDataManager extends MessageProviderImpl implements Runnable, Art
         return searchConstituents(searchH, pn, fn, constFactory, order);
     }
     
-    synchronized private void setConstituents(Map<Long, Constituent> newConstituents) {
-        constituents = newConstituents;
-    }
-
-    synchronized private void setArtistAltNames(Map<String, Set<Suggestion>> newArtistAltNames) {
-        artistAltNames = newArtistAltNames;
-    }
-
-    synchronized private void setOwnerAltNames(Map<String, Set<Suggestion>> newOwnerAltNames) {
-        ownerAltNames = newOwnerAltNames;
-    }
-    
     public Map<Long, Constituent> getConstituentsRaw() {
-        return constituents;
+        return getSnapshot().getConstituents();
     }
 
-    // load all constituent data
-    synchronized protected Map<Long, Constituent> getConstituents(List<ArtObjectConstituent> ocs, List<ConstituentAltName> alts, List<ConstituentTextEntry> ctes) throws SQLException {
-
-        Map<Long, Constituent> newConstituents = CollectionUtils.newHashMap();
-
-        EntityQuery<Constituent> eq = new EntityQuery<Constituent>(getDataSourceService());
-        log.info("Starting pre-fetch of all constituents");
-        List<Constituent> list = eq.fetchAll(Constituent.fetchAllConstituentsQuery, new Constituent(this));
-        log.info("found this many constituents: " + list.size());
-
-        // store constituents in a map, indexed by constituent ID
-        for (Constituent c : list ) {
-            newConstituents.put(c.getConstituentID(), c);
-        }
+    // assemble all constituent data - everything related to the constituents arrives
+    // already grouped by constituent ID
+    protected Map<Long, Constituent> getConstituents(
+            Map<Long, Constituent> newConstituents, 
+            Map<Long, List<ArtObjectConstituent>> ocs, 
+            Map<Long, List<ConstituentAltName>> alts, 
+            Map<Long, List<ConstituentTextEntry>> ctes
+    ) {
 
         // distribute the constituent alt names to the constituents
         log.info("Assigning all alternate names to constituents");
-        for (ConstituentAltName alt : alts) {
-            Constituent c = newConstituents.get(alt.getConstituentID());
+        for (Map.Entry<Long, List<ConstituentAltName>> e : alts.entrySet()) {
+            Constituent c = newConstituents.get(e.getKey());
             if (c != null) {
-                c.addAltName(alt);
+                for (ConstituentAltName alt : e.getValue())
+                    c.addAltName(alt);
             }
             else {
-                log.error("Could not locate constituent " + alt.getConstituentID() + " to place alternate name data");
+                log.error("Could not locate constituent " + e.getKey() + " to place alternate name data");
             }
         }
         
         log.info("Assigning Constituent Bibliography Entries");
-        for (ConstituentTextEntry e : ctes) {
-            Constituent c = newConstituents.get(e.getConstituentID());
-            if (c != null)
-                c.addTextEntry(e);
-        }
-        
-        // load the constituents into a huge map of lists indexed by object id
-        // and into another huge map indexed by constituent ids
-        log.info("Assigning all object roles to all constituents");
-        Map<Long, List<ArtObjectConstituent>> mapByConstituent = CollectionUtils.newHashMap(); //new HashMap<Long, List<ArtObjectConstituent>>();
-        for (ArtObjectConstituent oc : ocs) {
-            List<ArtObjectConstituent> loc = mapByConstituent.get(oc.getConstituentID());
-            if (loc == null) {
-                loc = CollectionUtils.newArrayList();
-                mapByConstituent.put(oc.getConstituentID(), loc);
+        for (Map.Entry<Long, List<ConstituentTextEntry>> e : ctes.entrySet()) {
+            Constituent c = newConstituents.get(e.getKey());
+            if (c != null) {
+                for (ConstituentTextEntry te : e.getValue())
+                    c.addTextEntry(te);
             }
-            // add this object constituent relationship to the list of relationships for its constituent
-            // sometimes, an artist can be listed with multiple roles such as both an artist and a related artist
-            // and we must store all of them - individual methods such as getWorks() should remove any duplicated works
-            // or duplicate artists as necessary (and if necessary)
-            loc.add(oc);
         }
-
+        
         // set the list of art object relationships for each constituent
-        // with no pre-defined sort order
-        for (Long id : mapByConstituent.keySet()) {
-            Constituent c = newConstituents.get(id);
-            List<ArtObjectConstituent> loc = mapByConstituent.get(id);
-            if (c != null && loc != null) {
-                c.setObjectRoles(loc);
+        // with no pre-defined sort order - sometimes, an artist can be listed with multiple roles 
+        // such as both an artist and a related artist and we must store all of them - individual 
+        // methods such as getWorks() should remove any duplicated works or duplicate artists 
+        // as necessary (and if necessary)
+        log.info("Assigning all object roles to all constituents");
+        for (Map.Entry<Long, List<ArtObjectConstituent>> e : ocs.entrySet()) {
+            Constituent c = newConstituents.get(e.getKey());
+            if (c != null) {
+                c.setObjectRoles(e.getValue());
             }
         }
 
@@ -1374,51 +1900,49 @@ public class ArtDataManager extends MessageProviderImpl implements Runnable, Art
     }
 
     public Map<String, String> getIndexOfArtistsRanges() {
+        return getSnapshot().getIndexOfArtistsRanges();
+    }
 
-        if (allIndexOfArtistRanges == null){
+    private Map<String, String> computeIndexOfArtistsRanges(Collection<Constituent> newConstituents) {
 
-            // setup our facet helper to calculate all art object facets
-            FacetHelper fn = new FacetHelper(
-                    Constituent.FACET.INDEXOFARTISTS_FIRST_TWO_LETTERS_LAST_NAME
-            );
+        Map<String, String> newIndexOfArtistsRanges = null;
+        // setup our facet helper to calculate all art object facets
+        FacetHelper fn = new FacetHelper(
+                Constituent.FACET.INDEXOFARTISTS_FIRST_TWO_LETTERS_LAST_NAME
+        );
 
-            // our search helper, instantiated according to the art entity we
-            // intend to search against
-            SearchHelper<Constituent> sh = new SearchHelper<Constituent>();
-            searchConstituents(sh,null,fn);
-            List<Facet> list = fn.getFacets();
-            if (list != null && list.size() > 0) {
-                Facet f = list.get(0);
-                Map<String, Integer> m = f.getFacetCounts();
-                Long sum = Long.valueOf(0);
-                for (Integer i : m.values())
-                    sum += i;
-                long bucketSize = sum / 25;
-
-                Map<String, String> newIndexOfArtistsRanges = CollectionUtils.newTreeMap(Facet.facetSorter);
-                sum = Long.valueOf(0);
-                String start = null;
-                String end = null;
-                for (String s : m.keySet()) {
-                    if (sum == 0) {
-                        start = s;
-                        end = s;
-                    }
-                    sum += m.get(s);
-                    if (sum >= bucketSize) {
-                        newIndexOfArtistsRanges.put(start, s);
-                        sum = Long.valueOf(0);
-                    }
+        // every constituent is counted so there's no need to run them through a search first
+        fn.processFacets(CollectionUtils.newArrayList(newConstituents));
+        List<Facet> list = fn.getFacets();
+        if (list != null && list.size() > 0) {
+            Facet f = list.get(0);
+            Map<String, Integer> m = f.getFacetCounts();
+            Long sum = Long.valueOf(0);
+            for (Integer i : m.values())
+                sum += i;
+            long bucketSize = sum / 25;
+
+            newIndexOfArtistsRanges = CollectionUtils.newTreeMap(Facet.facetSorter);
+            sum = Long.valueOf(0);
+            String start = null;
+            String end = null;
+            for (String s : m.keySet()) {
+                if (sum == 0) {
+                    start = s;
                     end = s;
                 }
-                // if we still have some remaining
-                if (sum > 0)
-                    newIndexOfArtistsRanges.put(start, end);
-
-                setAllIndexOfArtistRanges(newIndexOfArtistsRanges);
+                sum += m.get(s);
+                if (sum >= bucketSize) {
+                    newIndexOfArtistsRanges.put(start, s);
+                    sum = Long.valueOf(0);
+                }
+                end = s;
             }
+            // if we still have some remaining
+            if (sum > 0)
+                newIndexOfArtistsRanges.put(start, end);
         }
-        return allIndexOfArtistRanges;
+        return newIndexOfArtistsRanges;
     }
 
     public Location fetchByLocationID(long locationID) {
@@ -1483,49 +2007,31 @@ public class ArtDataManager extends MessageProviderImpl implements Runnable, Art
         return have;
     }
 
-    synchronized private void setLocations(Map<Long, Location> newLocations) {
-        locations = newLocations;
-        rooms = null;
-    }
-
     public Map<Long, Location> getLocationsRaw() {
-        return locations;
-    }
-
-    synchronized private void setPlaces(Map<String, Place> newPlaces) {
-        places = newPlaces;
+        return getSnapshot().getLocations();
     }
 
     public Map<String, Place> getPlacesRaw() {
-        return places;
+        return getSnapshot().getPlaces();
     }
 
-    synchronized private void setPlacesTMSLocations(Map<Long, Place> newPlacesTMSLocations) {
-        placesTMSLocations = newPlacesTMSLocations;
-        for (Long tmsid : placesTMSLocations.keySet()) {
-        	Place p = placesTMSLocations.get(tmsid);
+    private void assignTMSLocationIDs(Map<Long, Place> newPlacesTMSLocations) {
+        for (Long tmsid : newPlacesTMSLocations.keySet()) {
+        	Place p = newPlacesTMSLocations.get(tmsid);
         	p.addTMSLocationID(tmsid);
         }
     }
 
     public Map<Long, Place> getPlacesTMSLocationsRaw() {
-        return placesTMSLocations;
-    }
-
-    synchronized private void setMediaItems(Map<Long, Media> newMediaItems) {
-        this.mediaItems = newMediaItems;
+        return getSnapshot().getPlacesTMSLocations();
     }
 
     public Map<Long, Media> getMediaItemsRaw() {
-        return mediaItems;
+        return getSnapshot().getMediaItems();
     }
 
     public Map<String, List<Media>> getMediaRelationshipsRaw() {
-        return mediaRelationships;
-    }
-
-    synchronized private void setMediaRelationships(Map<String, List<Media>> newMediaRelationships) {
-        this.mediaRelationships = newMediaRelationships;
+        return getSnapshot().getMediaRelationships();
     }
 
     public Media fetchByMediaID(Long mediaID) {
@@ -1542,26 +2048,13 @@ public class ArtDataManager extends MessageProviderImpl implements Runnable, Art
     }
 */
     
-    private Map<String, String> rooms = null;
     public Map<String, String> getAllLocationDescriptionsByRoom() {
-        if (rooms == null) {
-            Map<String, String> newrooms = CollectionUtils.newHashMap();
-            Map<Long, Location> locs = getLocationsRaw();
-            if (locs != null) {
-                for (Location l : locs.values()) {
-                    newrooms.put(l.getRoom(), l.getDescription());
-                }
-            }
-            synchronized (this) {
-                rooms = newrooms;
-            }
-        }
-        return rooms;
+        return getSnapshot().getLocationDescriptionsByRoom();
     }
 
     // load all art object locations
-    synchronized protected Map<Long, Location> loadLocations() throws SQLException {
-        Map<Long, Location> newLocations = CollectionUtils.newHashMap();
+    protected Map<Long, Location> loadLocations() throws SQLException {
+        Map<Long, Location> newLocations = CollectionUtils.newLongKeyedMap();
         EntityQuery<Location> eq = new EntityQuery<Location>(getDataSourceService());
         log.info("Starting pre-fetch of all locations");
         List<Location> newObjectLocations = eq.fetchAll(Location.fetchAllLocationsQuery, new Location(this));
@@ -1573,7 +2066,7 @@ public class ArtDataManager extends MessageProviderImpl implements Runnable, Art
     }
 
     // load all web defined places which (mostly) have TMS objects residing in them
-    synchronized protected Map<String, Place> loadPlaces() throws SQLException {
+    protected Map<String, Place> loadPlaces() throws SQLException {
         Map<String, Place> newPlacesMap = CollectionUtils.newHashMap();
         EntityQuery<Place> eq = new EntityQuery<Place>(getDataSourceService());
         log.info("Starting pre-fetch of all place definitions");
@@ -1586,8 +2079,8 @@ public class ArtDataManager extends MessageProviderImpl implements Runnable, Art
     }
 
     // load all web defined place to tms object location associations
-    synchronized protected Map<Long, Place> loadPlacesTMSLocations(Map<String, Place> places) throws SQLException {
-        Map<Long, Place> newPlaceTMSLocations = CollectionUtils.newHashMap();
+    protected Map<Long, Place> loadPlacesTMSLocations(Map<String, Place> places) throws SQLException {
+        Map<Long, Place> newPlaceTMSLocations = CollectionUtils.newLongKeyedMap();
         EntityQuery<PlaceRelationships> eq = new EntityQuery<PlaceRelationships>(getDataSourceService());
         log.info("Starting pre-fetch of all place to TMS Location relationships");
         List<PlaceRelationships> newLocations = eq.fetchAll(PlaceRelationships.fetchAllPlaceTMSLocationsQuery, new PlaceRelationships(this));
@@ -1599,8 +2092,8 @@ public class ArtDataManager extends MessageProviderImpl implements Runnable, Art
     }
     
     // load all web defined places which (mostly) have TMS objects residing in them
-    synchronized protected Map<Long, Media> loadMediaItems() throws SQLException {
-        Map<Long, Media> newMediaMap = CollectionUtils.newHashMap();
+    protected Map<Long, Media> loadMediaItems() throws SQLException {
+        Map<Long, Media> newMediaMap = CollectionUtils.newLongKeyedMap();
         EntityQuery<Media> eq = new EntityQuery<Media>(getDataSourceService());
         log.info("Starting pre-fetch of all media definitions");
         List<Media> newMediaList = eq.fetchAll(Media.fetchAllMediaQuery, new Media(this));
@@ -1612,7 +2105,7 @@ public class ArtDataManager extends MessageProviderImpl implements Runnable, Art
     }
 
     // load all web defined place to tms object location associations
-    synchronized protected Map<String, List<Media>> loadMediaRelationships(Map<Long, Media> mediaItems) throws SQLException {
+    protected Map<String, List<Media>> loadMediaRelationships(Map<Long, Media> mediaItems) throws SQLException {
         Map<String, List<Media>> newRelationshipsMap = CollectionUtils.newHashMap();
         EntityQuery<MediaRelationship> eq = new EntityQuery<MediaRelationship>(getDataSourceService());
         log.info("Starting pre-fetch of all Media relationships");
@@ -1630,15 +2123,6 @@ public class ArtDataManager extends MessageProviderImpl implements Runnable, Art
     }
 
 
-    // load all art object components
-    synchronized protected List<ArtObjectComponent> loadComponents() throws SQLException {
-        EntityQuery<ArtObjectComponent> eq = new EntityQuery<ArtObjectComponent>(getDataSourceService());
-        log.info("Starting pre-fetch of all components");
-        List<ArtObjectComponent> newComponents = eq.fetchAll(ArtObjectComponent.fetchAllComponentsQuery, new ArtObjectComponent(this));
-        log.info("found this many components: " + newComponents.size());
-        return newComponents;
-    }
-
     private void checkImageSizes(final Map<Long, ArtObject> newArtObjects)
     {
         try
@@ -70,6 +70,7 @@ public interface ArtDataManagerService {
 	public <T extends ArtObject>List<T> searchArtObjects(SearchHelper<T> sh, ResultsPaginator pn, FacetHelper fn, SortHelper<T> sortH, ArtObjectFactory<T> factory) throws DataNotReadyException;
 	public <T extends ArtObject>List<T> searchArtObjects(SearchHelper<T> searchH, ResultsPaginator pn, FacetHelper fn, SortHelper<T> sortH, ArtObjectFactory<T> factory, FreeTextSearchable<T> freeTextSearcher) throws DataNotReadyException;
 	public <T extends ArtObject>List<T> fetchRelatedWorks(ArtObject baseO, ArtObjectFactory<T> factory) throws DataNotReadyException;
+	public <T extends ArtObject>List<T> fetchRelatedWorks(ArtObject baseO, ArtObjectFactory<T> factory, int limit) throws DataNotReadyException;
 	public List<String> 				suggestArtObjectTitles(String artistName, String titleWords);
 	public List<Facet> 					getArtObjectFacetCounts() throws DataNotReadyException;
 
@@ -117,4 +118,9 @@ public interface ArtDataManagerService {
 	public OperatingMode getOperatingMode();
 
 	public boolean isDataReady(boolean throwExceptionIfNot);
+
+	// the cached data as of the current request or thread
+	public ArtDataSnapshot getSnapshot();
+	public ArtDataSnapshot pinSnapshot();
+	public void releaseSnapshot();
 }
@@ -0,0 +1,338 @@
+/*
+    NGA Art Data API: ArtDataSnapshot holds one complete, consistent set of the
+    cached TMS data along with everything derived from it.  A snapshot is never
+    modified once it is published by the ArtDataManager; a refresh builds a new
+    one and swaps it in.
+
+    Copyright (C) 2018 National Gallery of Art Washington DC
+    Developers: David Beaudet
+
+	This library is free software; you can redistribute it and/or
+	modify it under the terms of the GNU Lesser General Public
+	License as published by the Free Software Foundation; either
+	version 2.1 of the License, or (at your option) any later version.
+
+	This library is distributed in the hope that it will be useful,
+	but WITHOUT ANY WARRANTY; without even the implied warranty of
+	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+	Lesser General Public License for more details.
+
+	You should have received a copy of the GNU Lesser General Public
+	License along with this library; if not, write to the Free Software
+	Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package gov.nga.entities.art;
+
+import gov.nga.search.BitmapIndex;
+import gov.nga.search.Facet;
+import gov.nga.search.FacetCache;
+import gov.nga.search.FieldIndex;
+import gov.nga.search.FreeTextIndex;
+import gov.nga.search.PrefixIndex;
+import gov.nga.search.RangeIndex;
+import gov.nga.search.TrigramIndex;
+import gov.nga.utils.CollectionUtils;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public class ArtDataSnapshot {
+
+	// published when nothing has been loaded yet or the cache has been dumped from memory
+	public static final ArtDataSnapshot EMPTY = new ArtDataSnapshot((Map<Long, ArtObject>) null, null, null, null, null, null, null, null, null, null);
+
+	// art object data
+	private final Map<Long, ArtObject> artObjects;
+	private final FieldIndex<ArtObject> artObjectIndex;
+	private final TrigramIndex<ArtObject> artObjectSubstrings;
+	private final RangeIndex<ArtObject> artObjectRanges;
+	private final PrefixIndex<ArtObject> artObjectAccessions;
+	private final BitmapIndex<ArtObject> artObjectBitmaps;
+	private final List<Facet> artObjectFacets;
+	private final RelatedWorksIndex relatedWorks;
+	private final FreeTextIndex artObjectText;
+
+	// facet counts of recent searches - the only part of a snapshot that changes after it's
+	// published, and since the counts only ever describe this snapshot's data, a refresh
+	// discards them along with it
+	private final FacetCache facetCache;
+	private final SuggestIndex artObjectTitleWords;
+
+	// constituent data
+	private final Map<Long, Constituent> constituents;
+	private final Map<String, String> indexOfArtistsRanges;
+	private final FreeTextIndex constituentText;
+	private final SuggestIndex artistAltNames;
+	private final SuggestIndex ownerAltNames;
+
+	// location data
+	private final Map<Long, Location> locations;
+	private final Map<String, String> locationDescriptionsByRoom;
+
+	// web defined location / place definitions which are
+	// also mapped to visual maps and TMS location IDs
+	private final Map<String, Place> places;
+	private final Map<Long, Place> placesTMSLocations;
+
+	private final Map<Long, Media> mediaItems;
+	private final Map<String, List<Media>> mediaRelationships;
+
+	protected ArtDataSnapshot(
+			Map<Long, ArtObject> artObjects, SuggestIndex artObjectTitleWords,
+			Map<Long, Constituent> constituents, SuggestIndex artistAltNames, SuggestIndex ownerAltNames,
+			Map<Long, Location> locations, Map<String, Place> places, Map<Long, Place> placesTMSLocations,
+			Map<Long, Media> mediaItems, Map<String, List<Media>> mediaRelationships) {
+		this.artObjects = unmodifiable(artObjects);
+		this.artObjectIndex = null;
+		this.artObjectSubstrings = null;
+		this.artObjectRanges = null;
+		this.artObjectAccessions = null;
+		this.artObjectBitmaps = null;
+		this.artObjectFacets = null;
+		this.relatedWorks = null;
+		this.artObjectText = null;
+		this.facetCache = null;
+		this.artObjectTitleWords = artObjectTitleWords;
+		this.constituents = unmodifiable(constituents);
+		this.indexOfArtistsRanges = null;
+		this.constituentText = null;
+		this.artistAltNames = artistAltNames;
+		this.ownerAltNames = ownerAltNames;
+		this.locations = unmodifiable(locations);
+		this.locationDescriptionsByRoom = describeRooms(locations);
+		this.places = unmodifiable(places);
+		this.placesTMSLocations = unmodifiable(placesTMSLocations);
+		this.mediaItems = unmodifiable(mediaItems);
+		this.mediaRelationships = unmodifiable(mediaRelationships);
+	}
+
+	private ArtDataSnapshot(ArtDataSnapshot base, DerivedData d) {
+		this.artObjects = base.artObjects;
+		this.artObjectIndex = d.artObjectIndex;
+		this.artObjectSubstrings = d.artObjectSubstrings;
+		this.artObjectRanges = d.artObjectRanges;
+		this.artObjectAccessions = d.artObjectAccessions;
+		this.artObjectBitmaps = d.artObjectBitmaps;
+		this.artObjectFacets = d.artObjectFacets == null ? null : Collections.unmodifiableList(d.artObjectFacets);
+		this.relatedWorks = d.relatedWorks;
+		this.artObjectText = d.artObjectText;
+		this.facetCache = d.facetCache;
+		this.artObjectTitleWords = base.artObjectTitleWords;
+		this.constituents = base.constituents;
+		this.indexOfArtistsRanges = unmodifiable(d.indexOfArtistsRanges);
+		this.constituentText = d.constituentText;
+		this.artistAltNames = base.artistAltNames;
+		this.ownerAltNames = base.ownerAltNames;
+		this.locations = base.locations;
+		this.locationDescriptionsByRoom = base.locationDescriptionsByRoom;
+		this.places = base.places;
+		this.placesTMSLocations = base.placesTMSLocations;
+		this.mediaItems = base.mediaItems;
+		this.mediaRelationships = base.mediaRelationships;
+	}
+
+	// the indexes and pre-calculated facets can only be derived once the rest of the data
+	// can be looked up, so they are added to a staged copy of the snapshot before it's published
+	protected ArtDataSnapshot withDerivedData(DerivedData derived) {
+		return new ArtDataSnapshot(this, derived);
+	}
+
+	// collects the data derived from a snapshot so that each of it is set by name rather than by
+	// its position in a long list of similar arguments - the snapshot copies what it's given, so
+	// changing the collected data afterwards leaves a published snapshot as it was
+	protected static class DerivedData {
+		private FieldIndex<ArtObject> artObjectIndex;
+		private TrigramIndex<ArtObject> artObjectSubstrings;
+		private RangeIndex<ArtObject> artObjectRanges;
+		private PrefixIndex<ArtObject> artObjectAccessions;
+		private BitmapIndex<ArtObject> artObjectBitmaps;
+		private List<Facet> artObjectFacets;
+		private RelatedWorksIndex relatedWorks;
+		private FreeTextIndex artObjectText;
+		private Map<String, String> indexOfArtistsRanges;
+		private FreeTextIndex constituentText;
+		private FacetCache facetCache;
+
+		protected DerivedData() {
+		}
+
+		// starts from everything already derived for the given snapshot so that only what has changed need be set
+		protected DerivedData(ArtDataSnapshot s) {
+			this.artObjectIndex = s.artObjectIndex;
+			this.artObjectSubstrings = s.artObjectSubstrings;
+			this.artObjectRanges = s.artObjectRanges;
+			this.artObjectAccessions = s.artObjectAccessions;
+			this.artObjectBitmaps = s.artObjectBitmaps;
+			this.artObjectFacets = s.artObjectFacets;
+			this.relatedWorks = s.relatedWorks;
+			this.artObjectText = s.artObjectText;
+			this.indexOfArtistsRanges = s.indexOfArtistsRanges;
+			this.constituentText = s.constituentText;
+			this.facetCache = s.facetCache;
+		}
+
+		protected DerivedData setArtObjectIndex(FieldIndex<ArtObject> artObjectIndex) {
+			this.artObjectIndex = artObjectIndex;
+			return this;
+		}
+
+		protected DerivedData setArtObjectSubstrings(TrigramIndex<ArtObject> artObjectSubstrings) {
+			this.artObjectSubstrings = artObjectSubstrings;
+			return this;
+		}
+
+		protected DerivedData setArtObjectRanges(RangeIndex<ArtObject> artObjectRanges) {
+			this.artObjectRanges = artObjectRanges;
+			return this;
+		}
+
+		protected DerivedData setArtObjectAccessions(PrefixIndex<ArtObject> artObjectAccessions) {
+			this.artObjectAccessions = artObjectAccessions;
+			return this;
+		}
+
+		protected DerivedData setArtObjectBitmaps(BitmapIndex<ArtObject> artObjectBitmaps) {
+			this.artObjectBitmaps = artObjectBitmaps;
+			return this;
+		}
+
+		protected DerivedData setArtObjectFacets(List<Facet> artObjectFacets) {
+			this.artObjectFacets = artObjectFacets;
+			return this;
+		}
+
+		protected DerivedData setRelatedWorks(RelatedWorksIndex relatedWorks) {
+			this.relatedWorks = relatedWorks;
+			return this;
+		}
+
+		protected DerivedData setArtObjectText(FreeTextIndex artObjectText) {
+			this.artObjectText = artObjectText;
+			return this;
+		}
+
+		protected DerivedData setIndexOfArtistsRanges(Map<String, String> indexOfArtistsRanges) {
+			this.indexOfArtistsRanges = indexOfArtistsRanges;
+			return this;
+		}
+
+		protected DerivedData setConstituentText(FreeTextIndex constituentText) {
+			this.constituentText = constituentText;
+			return this;
+		}
+
+		protected DerivedData setFacetCache(FacetCache facetCache) {
+			this.facetCache = facetCache;
+			return this;
+		}
+	}
+
+	private static <K, V> Map<K, V> unmodifiable(Map<K, V> map) {
+		return map == null ? null : Collections.unmodifiableMap(map);
+	}
+
+	private static Map<String, String> describeRooms(Map<Long, Location> locs) {
+		Map<String, String> rooms = CollectionUtils.newHashMap();
+		if (locs != null) {
+			for (Location l : locs.values()) {
+				rooms.put(l.getRoom(), l.getDescription());
+			}
+		}
+		return Collections.unmodifiableMap(rooms);
+	}
+
+	public boolean isEmpty() {
+		return artObjects == null;
+	}
+
+	public Map<Long, ArtObject> getArtObjects() {
+		return artObjects;
+	}
+
+	public FieldIndex<ArtObject> getArtObjectIndex() {
+		return artObjectIndex;
+	}
+
+	public TrigramIndex<ArtObject> getArtObjectSubstrings() {
+		return artObjectSubstrings;
+	}
+
+	public RangeIndex<ArtObject> getArtObjectRanges() {
+		return artObjectRanges;
+	}
+
+	// every art object in accession number order
+	public PrefixIndex<ArtObject> getArtObjectAccessions() {
+		return artObjectAccessions;
+	}
+
+	public BitmapIndex<ArtObject> getArtObjectBitmaps() {
+		return artObjectBitmaps;
+	}
+
+	public List<Facet> getArtObjectFacets() {
+		return artObjectFacets;
+	}
+
+	public RelatedWorksIndex getRelatedWorks() {
+		return relatedWorks;
+	}
+
+	public FreeTextIndex getArtObjectText() {
+		return artObjectText;
+	}
+
+	public FacetCache getFacetCache() {
+		return facetCache;
+	}
+
+	public SuggestIndex getArtObjectTitleWords() {
+		return artObjectTitleWords;
+	}
+
+	public Map<Long, Constituent> getConstituents() {
+		return constituents;
+	}
+
+	public Map<String, String> getIndexOfArtistsRanges() {
+		return indexOfArtistsRanges;
+	}
+
+	public FreeTextIndex getConstituentText() {
+		return constituentText;
+	}
+
+	public SuggestIndex getArtistAltNames() {
+		return artistAltNames;
+	}
+
+	public SuggestIndex getOwnerAltNames() {
+		return ownerAltNames;
+	}
+
+	public Map<Long, Location> getLocations() {
+		return locations;
+	}
+
+	public Map<String, String> getLocationDescriptionsByRoom() {
+		return locationDescriptionsByRoom;
+	}
+
+	public Map<String, Place> getPlaces() {
+		return places;
+	}
+
+	public Map<Long, Place> getPlacesTMSLocations() {
+		return placesTMSLocations;
+	}
+
+	public Map<Long, Media> getMediaItems() {
+		return mediaItems;
+	}
+
+	public Map<String, List<Media>> getMediaRelationships() {
+		return mediaRelationships;
+	}
+
+}
@@ -20,25 +20,106 @@
 */
 package gov.nga.entities.art;
 
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.gs.collections.api.map.primitive.LongDoubleMap;
+
 import gov.nga.search.Faceted;
+import gov.nga.search.FreeTextIndex;
+import gov.nga.search.FreeTextIndexable;
 import gov.nga.search.FreeTextSearchable;
 import gov.nga.search.Searchable;
+import gov.nga.search.SortHelper;
 import gov.nga.search.Sortable;
+import gov.nga.search.Sorter;
+import gov.nga.utils.CollectionUtils;
 
 
+// searches the free text index built for the snapshot the entities come from - entities that
+// don't come from a snapshot are indexed on the spot, which is no quicker than scanning them
 public class ArtEntityFreeTextSearch<T extends ArtEntity & Faceted & Searchable & Sortable> implements FreeTextSearchable<T>{
 	
 	private static final Logger log = LoggerFactory.getLogger(ArtEntityFreeTextSearch.class);
 	
 	
+	// the entities of the base list matching the search term in any of the given fields, most relevant first
+	// and otherwise in the order they were given - a search term without any words doesn't filter at all
 	public List<T> freeTextSearch(List<Object> fields, String searchTerm, List<T> baseList) {
-		log.error("*********** FREE TEXT SEARCH NOT IMPLEMENTED ***************");
-		return baseList;
+		if (baseList == null || baseList.isEmpty())
+			return baseList;
+		List<Object> searchFields = expandFields(fields);
+		FreeTextIndex index = indexFor(baseList.get(0));
+		if (index == null) {
+			if (!(baseList.get(0) instanceof FreeTextIndexable)) {
+				log.error("Free text search is not supported for " + baseList.get(0).getClass().getName());
+				return baseList;
+			}
+			List<FreeTextIndexable> entities = CollectionUtils.newArrayList();
+			for (T e : baseList)
+				entities.add((FreeTextIndexable) e);
+			index = new FreeTextIndex(entities, 0, searchFields.toArray());
+		}
+
+		final LongDoubleMap scores = index.scores(searchFields, searchTerm);
+		if (scores == null)
+			return baseList;
+		List<T> matches = CollectionUtils.newArrayList();
+		for (T e : baseList) {
+			if (e.getEntityID() != null && scores.containsKey(e.getEntityID()))
+				matches.add(e);
+		}
+		Collections.sort(matches, new Comparator<T>() {
+			public int compare(T a, T b) {
+				return Double.compare(scores.get(b.getEntityID()), scores.get(a.getEntityID()));
+			}
+		});
+		return matches;
+	}
+
+	// all data fields stands for every field of its entity
+	private static List<Object> expandFields(List<Object> fields) {
+		List<Object> expanded = CollectionUtils.newArrayList();
+		for (Object f : fields) {
+			if (f == ArtObject.FREETEXTSEARCH.ALLDATAFIELDS)
+				addAll(expanded, (Object[]) ArtObject.FREETEXTSEARCH.values());
+			else if (f == Constituent.FREETEXTSEARCH.ALLDATAFIELDS)
+				addAll(expanded, (Object[]) Constituent.FREETEXTSEARCH.values());
+			else
+				addAll(expanded, f);
+		}
+		return expanded;
+	}
+
+	private static void addAll(List<Object> fields, Object... more) {
+		for (Object f : more) {
+			if (!fields.contains(f))
+				fields.add(f);
+		}
+	}
+
+	// the index of the snapshot the calling thread is using for the given kind of entity, if there is one
+	static FreeTextIndex indexFor(ArtEntity e) {
+		ArtDataManagerService m = e.getManager();
+		if (!(m instanceof ArtDataManager))
+			return null;
+		ArtDataSnapshot s = ((ArtDataManager) m).getSnapshot();
+		if (e instanceof ArtObject)
+			return s.getArtObjectText();
+		if (e instanceof Constituent)
+			return s.getConstituentText();
+		return null;
+	}
+
+	// compares two entities by their relevance to a query across all of their fields, most relevant first
+	static int compareRelevance(ArtEntity a, ArtEntity b, String query) {
+		FreeTextIndex index = query == null ? null : indexFor(a);
+		if (index == null)
+			return Sorter.NULL;
+		return SortHelper.compareObjects(index.score(b.getEntityID(), query), index.score(a.getEntityID(), query));
 	}
-		
 
 }
@@ -22,6 +22,7 @@ package gov.nga.entities.art;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.text.CollationKey;
 import java.util.*;
 
@@ -44,7 +45,11 @@ import gov.nga.entities.art.Derivative.ImgSearchOpts;
 import gov.nga.entities.art.OperatingModeService.OperatingMode;
 import gov.nga.entities.art.TextEntry.TEXT_ENTRY_TYPE;
 import gov.nga.search.Faceted;
+import gov.nga.search.FreeTextIndexable;
+import gov.nga.search.Indexable;
+import gov.nga.search.RangeIndexable;
 import gov.nga.search.SearchFilter;
+import gov.nga.search.SearchKey;
 import gov.nga.search.Searchable;
 import gov.nga.search.SortHelper;
 import gov.nga.search.SortOrder;
@@ -59,7 +64,7 @@ import gov.nga.utils.TypeUtils;
 import static gov.nga.utils.StringUtils.htmlToMarkdown;
 import static gov.nga.utils.StringUtils.sanitizeHtml;
 
-public class ArtObject extends ArtEntityImpl implements Searchable, Sortable, Faceted {
+public class ArtObject extends ArtEntityImpl implements Searchable, Sortable, Faceted, Indexable, FreeTextIndexable, RangeIndexable {
 
 	private static final Logger log = LoggerFactory.getLogger(ArtObject.class);
 
@@ -162,6 +167,7 @@ public class ArtObject extends ArtEntityImpl implements Searchable, Sortable, Fa
 		LASTDETECTEDMODIFICATION_DESC,
 		FIRST_ARTIST_ASC,
 		FIRST_ARTIST_DESC,
+		RELEVANCE_DESC,                         // sorts by free text relevance to the query given as this order's match string
 		
 		// only for comparing two art objects against a third base art object ( set using SortHelper.setBaseEntity() )
 		YEAR_MATCH,                             // sorts a vs. b based on matching each to the year of object c
@@ -232,6 +238,9 @@ public class ArtObject extends ArtEntityImpl implements Searchable, Sortable, Fa
 
 	protected final String briefObjectQuery = fetchAllObjectsQuery + " WHERE objectID @@ "; 
 
+	// just enough to tell which objects have changed since they were loaded
+	protected static final String fetchAllObjectFingerprintsQuery = "SELECT objectID, fingerprint FROM data.objects";
+
 	// create an art object from an existing result set row
 	public ArtObject(ArtDataManagerService manager, ResultSet rs) throws SQLException {
 		super(manager,                TypeUtils.getLong(rs, 1));
@@ -273,9 +282,10 @@ public class ArtObject extends ArtEntityImpl implements Searchable, Sortable, Fa
 		departmentAbbr				= rs.getString(34);
 		portfolio					= rs.getString(35);
 		watermarks					= rs.getString(36);
-		// TODO consider making below a timestamp rather than a string for faster comparisons
-		// although this will require a number of new filter tests in search filter I think
-		lastDetectedModification	= DateUtils.formatDate(DateUtils.DATE_FORMAT_ISO_8601_WITH_TIME_AND_TZ_CORRECT, rs.getTimestamp(37));
+		// the formatted date is what's displayed while searches and sorts compare the time itself
+		Timestamp lastModified		= rs.getTimestamp(37);
+		lastDetectedModification	= DateUtils.formatDate(DateUtils.DATE_FORMAT_ISO_8601_WITH_TIME_AND_TZ_CORRECT, lastModified);
+		lastDetectedModificationTime = lastModified == null ? null : lastModified.getTime();
 		isPublic					= TypeUtils.getLong(rs, 38);
 
 		if ( manager.getOperatingMode() == OperatingMode.PRIVATE ) {
@@ -288,8 +298,25 @@ public class ArtObject extends ArtEntityImpl implements Searchable, Sortable, Fa
 		formatFreeMedium			= StringUtils.removeOnlyHTMLAndFormatting(getMedium());
 		strippedTitleCKey 			= StringUtils.getDefaultCollator().getCollationKey(stripLeadingArticle(StringUtils.removeDiacritics(getTitle())));
 		attributionInvertedCKey 	= StringUtils.getDefaultCollator().getCollationKey(StringUtils.removeDiacritics(attributionInverted));
+
+		// pre-compute the lower cased and diacritic free forms of the most commonly searched fields
+		titleSearchKey				= SearchKey.of(formatFreeTitle);
+		mediumSearchKey				= SearchKey.of(formatFreeMedium);
+		accessionNumSearchKey		= SearchKey.of(accessionNum);
+		attributionInvSearchKey		= SearchKey.of(attributionInverted);
+		creditLineSearchKey			= SearchKey.of(creditLine);
+		provenanceSearchKey			= SearchKey.of(StringUtils.removeOnlyHTMLAndFormatting(getProvenanceText()));
 	}
 
+	// search keys for the fields above - the overview key is maintained as text entries are added
+	private SearchKey titleSearchKey = null;
+	private SearchKey mediumSearchKey = null;
+	private SearchKey accessionNumSearchKey = null;
+	private SearchKey attributionInvSearchKey = null;
+	private SearchKey creditLineSearchKey = null;
+	private SearchKey provenanceSearchKey = null;
+	private SearchKey overviewSearchKey = null;
+
 	private String stripLeadingArticle(String text)	{
 		if ( text == null ) 
 			return null;
@@ -369,7 +396,15 @@ public class ArtObject extends ArtEntityImpl implements Searchable, Sortable, Fa
 		this.curatorialRemarks			= source.curatorialRemarks;
 		this.watermarks					= source.watermarks;
 		this.lastDetectedModification	= source.lastDetectedModification;
+		this.lastDetectedModificationTime = source.lastDetectedModificationTime;
 		this.isPublic					= source.isPublic;
+		this.titleSearchKey				= source.titleSearchKey;
+		this.mediumSearchKey			= source.mediumSearchKey;
+		this.accessionNumSearchKey		= source.accessionNumSearchKey;
+		this.attributionInvSearchKey	= source.attributionInvSearchKey;
+		this.creditLineSearchKey		= source.creditLineSearchKey;
+		this.provenanceSearchKey		= source.provenanceSearchKey;
+		this.overviewSearchKey			= source.overviewSearchKey;
 	}
 
 
@@ -721,9 +756,9 @@ public class ArtObject extends ArtEntityImpl implements Searchable, Sortable, Fa
 		case ACCESSIONNUM_DESC:
 			return SortHelper.compareObjects(ao.getAccessionNum(), getAccessionNum());
 		case LASTDETECTEDMODIFICATION_ASC:
-			return SortHelper.compareObjects(getLastDetectedModification(), ao.getLastDetectedModification());
+			return SortHelper.compareObjects(getLastDetectedModificationTime(), ao.getLastDetectedModificationTime());
 		case LASTDETECTEDMODIFICATION_DESC:
-			return SortHelper.compareObjects(ao.getLastDetectedModification(), getLastDetectedModification());
+			return SortHelper.compareObjects(ao.getLastDetectedModificationTime(), getLastDetectedModificationTime());
 		case FIRST_ARTIST_ASC:
 			Constituent c = getFirstArtist();
 			Constituent ac = ao.getFirstArtist();
@@ -740,6 +775,8 @@ public class ArtObject extends ArtEntityImpl implements Searchable, Sortable, Fa
 			return SortHelper.compareObjects(getObjectID(), ao.getObjectID());
 		case OBJECTID_DESC:
 			return SortHelper.compareObjects(ao.getObjectID(), getObjectID());
+		case RELEVANCE_DESC:
+			return ArtEntityFreeTextSearch.compareRelevance(this, ao, matchString);
 		case HASLARGERIMAGERY_DESC:
 			int a = hasImagery() ? 0 : 1;
 			int b = 0;
@@ -920,14 +957,12 @@ public class ArtObject extends ArtEntityImpl implements Searchable, Sortable, Fa
 				continue;
 			
 			// we need to check both the inverted and forward variations of primary and alternative names
-			String val = c.getPreferredDisplayName();
-			Boolean res = f.filterMatch(val);
+			Boolean res = f.filterMatchKey(c.getPreferredDisplayNameSearchKey());
 			if (res != null && res == true)
 				return res;
 			
 			// forward variation of primary name
-			val = c.getForwardDisplayName();
-			res = f.filterMatch(val);
+			res = f.filterMatchKey(c.getForwardDisplayNameSearchKey());
 			if (res != null && res == true)
 				return res;
 			
@@ -938,14 +973,12 @@ public class ArtObject extends ArtEntityImpl implements Searchable, Sortable, Fa
 					for (ConstituentAltName name : names) {
 						
 						// search inverted name (alphasort column in TMS database)
-						val = name.getDisplayName();
-						res = f.filterMatch(val);
+						res = f.filterMatchKey(name.getDisplayNameSearchKey());
 						if (res != null && res == true)
 							return res;
 						
 						// and forward name
-						val = name.getForwardDisplayName();
-						res = f.filterMatch(val);
+						res = f.filterMatchKey(name.getForwardDisplayNameSearchKey());
 						if (res != null && res == true)
 							return res;
 
@@ -956,6 +989,26 @@ public class ArtObject extends ArtEntityImpl implements Searchable, Sortable, Fa
 		return false;
 	}
 
+	// the same names hasConstituentName compares when it includes alternate names
+	private static void addAllNames(List<String> values, List<ArtObjectConstituent> constituentList) {
+		if (constituentList == null)
+			return;
+		for (ArtObjectConstituent oc : constituentList) {
+			Constituent c = oc.getConstituent();
+			if (c == null)
+				continue;
+			values.add(c.getPreferredDisplayName());
+			values.add(c.getForwardDisplayName());
+			List<ConstituentAltName> names = c.getAltNames();
+			if (names != null) {
+				for (ConstituentAltName name : names) {
+					values.add(name.getDisplayName());
+					values.add(name.getForwardDisplayName());
+				}
+			}
+		}
+	}
+
 	public boolean hasArtistNationality(SearchFilter f, boolean rawNationality) {
 		boolean triedMatch = false;
 		for (ArtObjectConstituent oc : getArtistsRaw()) {
@@ -1114,6 +1167,100 @@ public class ArtObject extends ArtEntityImpl implements Searchable, Sortable, Fa
 		return null;
 	}
 
+	// the text the free text index holds for each field - all data fields covers whatever
+	// the other fields don't, so a search of every field finds each word only once
+	public List<String> getFreeTextValues(Object field) {
+		List<String> values = CollectionUtils.newArrayList();
+		switch ( (FREETEXTSEARCH) field ) {
+		case ALLDATAFIELDS:
+			values.add(getTitle());
+			values.add(getAttribution());
+			values.add(getDisplayDate());
+			values.add(getAccessionNum());
+			values.add(getClassification());
+			break;
+		case CREDITLINE:
+			values.add(getCreditLine());
+			break;
+		case MEDIUM:
+			values.add(medium);
+			break;
+		case PROVENANCETEXT:
+			values.add(provenanceText);
+			break;
+		case DIMENSIONS:
+			values.add(getDimensions());
+			break;
+		case INSCRIPTION:
+			values.add(inscription);
+			break;
+		case MARKINGS:
+			values.add(markings);
+			break;
+		case CATALOGRAISONNEREF:
+			values.add(getCatalogRaisonneRef());
+			break;
+		case IMAGECOPYRIGHT:
+			values.add(getImageCopyright());
+			break;
+		case ARTISTS:
+			addNames(values, getArtistsRaw());
+			break;
+		case ARTISTNATIONALITIES:
+			if (getArtistsRaw() != null) {
+				for (ArtObjectConstituent oc : getArtistsRaw()) {
+					Constituent c = oc.getConstituent();
+					if (c != null)
+						values.add(c.getNationality());
+				}
+			}
+			break;
+		case OWNERS:
+			addNames(values, getOwnersRaw());
+			break;
+		case DONORS:
+			addNames(values, getDonorsRaw());
+			break;
+		case TERMS:
+			if (getTermsRaw() != null) {
+				for (ArtObjectTerm t : getTermsRaw())
+					values.add(t.getTerm());
+			}
+			break;
+		case BIBLIOGRAPHYTEXT:
+			for (ArtObjectTextEntry te : getBibliographyEntries())
+				values.add(te.getText());
+			break;
+		case OVERVIEWTEXT:
+			values.add(TextEntry.firstTextOfType(getTextEntriesRaw(), TEXT_ENTRY_TYPE.BRIEF_NARRATIVE));
+			break;
+		case CONSERVATIONNOTES:
+			values.add(TextEntry.firstTextOfType(getTextEntriesRaw(), TEXT_ENTRY_TYPE.CONSERVATION_NOTE));
+			break;
+		case SYSCATTEXT:
+			values.add(TextEntry.firstTextOfType(getTextEntriesRaw(), TEXT_ENTRY_TYPE.SYSTEMATIC_CATALOGUE));
+			break;
+		case EXHIBITIONHISTORY:
+			for (ArtObjectTextEntry te : getExhibitionEntries())
+				values.add(te.getText());
+			break;
+		}
+		return values;
+	}
+
+	// both forms of each name so that a phrase matches whichever way round it's given
+	private static void addNames(List<String> values, List<ArtObjectConstituent> ocs) {
+		if (ocs == null)
+			return;
+		for (ArtObjectConstituent oc : ocs) {
+			Constituent c = oc.getConstituent();
+			if (c != null) {
+				values.add(c.getPreferredDisplayName());
+				values.add(c.getForwardDisplayName());
+			}
+		}
+	}
+
 	public Boolean matchesFilter(SearchFilter f) {
 		switch ( (SEARCH) f.getField()) {
 		case ARTIST_DISPLAYNAME: 
@@ -1129,11 +1276,11 @@ public class ArtObject extends ArtEntityImpl implements Searchable, Sortable, Fa
 		case ONVIEW: 
 			return f.filterMatch(isOnView().toString());
 		case TITLE:
-			return f.filterMatch(getFormatFreeTitle());
+			return f.filterMatchKey(titleSearchKey);
 		case OBJECTID:
 			return f.filterMatch(getObjectID().toString());
 		case MEDIUM:
-			return f.filterMatch(getFormatFreeMedium());
+			return f.filterMatchKey(mediumSearchKey);
 		case YEARS_SPAN:
 			Long by = getBeginYear();
 			Long ey = getEndYear();
@@ -1145,20 +1292,20 @@ public class ArtObject extends ArtEntityImpl implements Searchable, Sortable, Fa
 			v1 = by == null ? "" : by.toString();
 			return f.filterMatch(v1);
 		case ACCESSIONNUM:
-			return f.filterMatch(getAccessionNum());
+			return f.filterMatchKey(accessionNumSearchKey);
 		case LASTDETECTEDMODIFICATION:
-			return getLastDetectedModification() == null ? false : f.filterMatch(getLastDetectedModification().toString());
+			return getLastDetectedModificationTime() == null ? false : f.filterMatch(getLastDetectedModificationTime().toString());
 		case ATTRIBUTION_INV:
-			return f.filterMatch(getAttributionInverted());
+			return f.filterMatchKey(attributionInvSearchKey);
 		case PROVENANCE:
-			return f.filterMatch(StringUtils.removeOnlyHTMLAndFormatting(getProvenanceText()));
+			return f.filterMatchKey(provenanceSearchKey);
 		case OVERVIEW:
-			return f.filterMatch(StringUtils.removeOnlyHTMLAndFormatting(getOverviewText()));
+			return f.filterMatchKey(overviewSearchKey);
 		case HASOVERVIEWTEXT:
 			Boolean hasOverview = !StringUtils.isNullOrEmpty(getOverviewText());
 			return f.filterMatch(hasOverview.toString());
 		case CREDITLINE:
-			return f.filterMatch(creditLine);
+			return f.filterMatchKey(creditLineSearchKey);
 		case DONORCONSTITUENTID:
 			return hasDonorConstituentID(f);
 		case OWNERCONSTITUENTID:
@@ -1236,6 +1383,99 @@ public class ArtObject extends ArtEntityImpl implements Searchable, Sortable, Fa
 		return values;
 	}
 
+	// the values returned here must stay in step with the values matchesFilter hands to the
+	// search filter for the same field since the inverted indexes are built from them
+	public List<String> getIndexValues(Object f) {
+		List<String> values = CollectionUtils.newArrayList();
+		switch ((SEARCH) f) {
+		case OBJECTID:
+			values.add(getObjectID().toString());
+			break;
+		case ACCESSIONNUM:
+			values.add(getAccessionNum());
+			break;
+		case TITLE:
+			values.add(formatFreeTitle);
+			break;
+		case ATTRIBUTION_INV:
+			values.add(attributionInverted);
+			break;
+		// only the lower cased search keys of the longer text fields are kept after they're loaded
+		case PROVENANCE:
+			values.add(provenanceSearchKey == null ? null : provenanceSearchKey.getLowerCase());
+			break;
+		case OVERVIEW:
+			values.add(overviewSearchKey == null ? null : overviewSearchKey.getLowerCase());
+			break;
+		case ARTIST_ALLNAMES:
+			addAllNames(values, getArtistsRaw());
+			break;
+		case OWNER_ALLNAMES:
+			addAllNames(values, getOwnersRaw());
+			break;
+		case LOCATION_ID:
+			Long i = getLocationID();
+			values.add(i != null ? i.toString() : null);
+			break;
+		case ONVIEW:
+			values.add(isOnView().toString());
+			break;
+		case VISUALBROWSERCLASSIFICATION:
+			values.add(getVisualBrowserClassification());
+			break;
+		case VISUALBROWSERNATIONALITY:
+			for (ArtObjectConstituent oc : getArtistsRaw()) {
+				Constituent c = oc.getConstituent();
+				if (c != null)
+					values.add(c.getVisualBrowserNationality());
+			}
+			break;
+		case VISUALBROWSERSTYLE:
+			values = getNormalizedTerms(TERMTYPES.STYLE);
+			break;
+		case VISUALBROWSERTHEME:
+			values = getNormalizedTerms(TERMTYPES.THEME);
+			break;
+		case DONORCONSTITUENTID:
+			for (ArtObjectConstituent oc : getDonorsRaw())
+				values.add(oc.getConstituentID().toString());
+			break;
+		case OWNERCONSTITUENTID:
+			for (ArtObjectConstituent oc : getOwnersRaw())
+				values.add(oc.getConstituentID().toString());
+			break;
+		default:
+			return null;
+		}
+		return values;
+	}
+
+	// these must also stay in step with the values matchesFilter compares for the same field
+	public Long getRangeLow(Object f) {
+		switch ((SEARCH) f) {
+		case YEARS_SPAN:
+		case YEARS_BEGIN:
+			return getBeginYear();
+		case LASTDETECTEDMODIFICATION:
+			return getLastDetectedModificationTime();
+		default:
+			return null;
+		}
+	}
+
+	public Long getRangeHigh(Object f) {
+		switch ((SEARCH) f) {
+		case YEARS_SPAN:
+			return getEndYear();
+		case YEARS_BEGIN:
+			return getBeginYear();
+		case LASTDETECTEDMODIFICATION:
+			return getLastDetectedModificationTime();
+		default:
+			return null;
+		}
+	}
+
 	public String getOverviewText() {
 		return getOverviewText(getDefaultFilter());
 	}
@@ -1712,7 +1952,7 @@ public class ArtObject extends ArtEntityImpl implements Searchable, Sortable, Fa
 	}
 
 	private List<ArtObjectConstituent> donors = null;
-	private List<ArtObjectConstituent> getDonorsRaw() {
+	protected List<ArtObjectConstituent> getDonorsRaw() {
 		return donors;
 	}
 
@@ -1767,7 +2007,7 @@ public class ArtObject extends ArtEntityImpl implements Searchable, Sortable, Fa
 	}
 
 	private List<ArtObjectTerm> terms = null;
-	private List<ArtObjectTerm> getTermsRaw() {
+	protected List<ArtObjectTerm> getTermsRaw() {
 		return terms;
 	}
 
@@ -2137,6 +2377,8 @@ public class ArtObject extends ArtEntityImpl implements Searchable, Sortable, Fa
 		if (textEntries == null)
 			textEntries = CollectionUtils.newArrayList();
 		textEntries.add(te);
+		if (te.getTextType() == TEXT_ENTRY_TYPE.BRIEF_NARRATIVE)
+			overviewSearchKey = SearchKey.of(StringUtils.removeOnlyHTMLAndFormatting(getOverviewText()));
 	}
 
 	// possible replacement for getExhibitionHistory if templates are adapted to use the more generic ArtObjectTextEntry object
@@ -2178,13 +2420,20 @@ public class ArtObject extends ArtEntityImpl implements Searchable, Sortable, Fa
 	}
 
 	private String lastDetectedModification=null;
-	public void setLastDetectedModification(String lastDetectedModification) {
-		this.lastDetectedModification = lastDetectedModification;
+	public void setLastDetectedModification(Date lastDetectedModification) {
+		this.lastDetectedModification = DateUtils.formatDate(DateUtils.DATE_FORMAT_ISO_8601_WITH_TIME_AND_TZ_CORRECT, lastDetectedModification);
+		this.lastDetectedModificationTime = lastDetectedModification == null ? null : lastDetectedModification.getTime();
 	}
 	public String getLastDetectedModification() {
 		return lastDetectedModification;
 	}
 
+	// milliseconds since the epoch
+	private Long lastDetectedModificationTime=null;
+	public Long getLastDetectedModificationTime() {
+		return lastDetectedModificationTime;
+	}
+
 	private CollationKey strippedTitleCKey = null;
 	public CollationKey getStrippedTitleCKey() {
 		return strippedTitleCKey;
@@ -40,6 +40,12 @@ class ArtObjectAssociationRecord extends ArtEntityImpl {
 					"FROM data.object_associations aoa "; 
 	// "ORDER BY aoa.associationID";
 
+	protected static final String associationsByParentQuery = 
+			fetchAllArtObjectAssociationsQuery + "WHERE aoa.parentObjectID @@ ";
+
+	protected static final String associationsByChildQuery = 
+			fetchAllArtObjectAssociationsQuery + "WHERE aoa.childObjectID @@ ";
+
 	ArtObjectAssociationRecord(ArtDataManagerService manager) {
 		super(manager);
 	}
@@ -34,6 +34,9 @@ public class ArtObjectComponent extends ArtEntityImpl {
 		"SELECT c.fingerprint, c.componentID, c.objectID, c.componentType, c.locationID, c.homeLocationID, " + 
 				"c.componentName, c.componentNumber " +
 		"FROM data.components c";
+
+	protected static final String componentsByObjectQuery = 
+		fetchAllComponentsQuery + " WHERE c.objectID @@ ";
 	
 	protected ArtObjectComponent(ArtDataManagerService manager) {
 		super(manager);
@@ -32,8 +32,6 @@ import java.util.Comparator;
 
 public class ArtObjectConstituent extends ArtEntityImpl {
 	
-	private Constituent constituent;
-	
 	// private static final Logger log = LoggerFactory.getLogger(ArtObjectConstituent.class);
 	
 	public static final String RELATEDARTISTROLE = "related artist";
@@ -54,6 +52,8 @@ public class ArtObjectConstituent extends ArtEntityImpl {
 		// WHERE oc.constituentID <> 12";
 
 	protected static final String fetchFirstObjectConstituentQuery = fetchAllObjectsConstituentsQuery + " LIMIT 1";
+
+	protected static final String fetchConstituentObjectsQuery = fetchAllObjectsConstituentsQuery + "WHERE oc.constituentID @@ ";
 	
 	public ArtObjectConstituent(ArtDataManagerService manager) {
 		super(manager);
@@ -87,15 +87,10 @@ public class ArtObjectConstituent extends ArtEntityImpl {
 		return getObjectID() + "; " + getConstituentID() + "; " + getDisplayOrder() + "; " + getRoleType() + "; " + getRole();
 	}
 	
-	private void loadConstituent() {
-		constituent = getManager().fetchByConstituentID(this.getConstituentID());
-	}
-	
+	// the constituent is looked up every time rather than being held onto since an incremental
+	// refresh can replace it while this relationship carries over unchanged
 	public Constituent getConstituent() {
-		// return Constituent.fetchByConstituentID(this.getConstituentID());
-		if (constituent == null)
-			loadConstituent();
-		return constituent;
+		return getManager().fetchByConstituentID(this.getConstituentID());
 	}
 
 	private Long constitutendID 	= null;
@@ -113,10 +113,15 @@ public class ArtObjectDimension extends ArtEntityImpl {
 		super(manager);
 	}
 	
-	static final String allObjectsDimensionsQuery = 
+	private static final String baseDimensionsQuery = 
 		"SELECT d.dimensionID, d.objectID, d.element, d.dimensionType, d.dimension, d.unitName " +
-		"FROM data.objects_dimensions d " +
-		"ORDER BY d.objectID, d.dimensionID ";
+		"FROM data.objects_dimensions d ";
+
+	static final String allObjectsDimensionsQuery = 
+		baseDimensionsQuery + "ORDER BY d.objectID, d.dimensionID ";
+
+	static final String dimensionsByObjectQuery = 
+		baseDimensionsQuery + "WHERE d.objectID @@ ORDER BY d.objectID, d.dimensionID ";
 	
 	ArtObjectDimension(ArtDataManagerService manager, ResultSet rs) throws SQLException {
 		// we did not generate a data finger print for object dimensions - if we find we need to do that
@@ -67,6 +67,9 @@ public class ArtObjectHistoricalData extends ArtEntityImpl {
 		"SELECT h.fingerprint, h.dataType, h.objectID, h.displayOrder, " +
 		" 		h.forwardText, h.invertedText, h.remarks, h.effectiveDate " +
 		"FROM 	data.objects_historical_data h ";
+
+	protected static final String historicalDataByObjectQuery = 
+		allHistoricalDataQuery + "WHERE h.objectID @@ ";
 	
 	public ArtObjectHistoricalData(ArtDataManagerService manager, ResultSet rs) throws SQLException {
 		super(manager,TypeUtils.getLong(rs, 1));
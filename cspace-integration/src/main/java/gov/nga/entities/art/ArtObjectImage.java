@@ -64,9 +64,16 @@ public class ArtObjectImage extends Derivative {
         "       viewType, sequence,      tmsObjectID,  catalogued " +
         "FROM data.object_images ";
 
+    private static final String fetchImagesByObjectQuery = 
+        fetchAllImagesQuery + "WHERE tmsObjectID @@ ";
+
     protected String getAllImagesQuery() {
         return fetchAllImagesQuery;
     }
+
+    protected String getImagesByObjectQuery() {
+        return fetchImagesByObjectQuery;
+    }
     
     public ArtObjectImage(
             ArtDataManagerService manager, 
@@ -48,17 +48,21 @@ public class ArtObjectMapComparator<T extends ArtObject> implements Comparator<T
 	// ending with unique values that can be differentiated properly
 	public int compare(ArtObject a, ArtObject b) {
 		int c = base.get(b).compareTo(base.get(a)); 
-		if (c == 0) {
-			int d = SortHelper.compareObjectsDiacritical(a.getAttributionInvertedCKey(), b.getAttributionInvertedCKey());
-			if (d == Sorter.NULL || d == 0) {
-				int e = SortHelper.compareObjectsDiacritical(a.getStrippedTitleCKey(), b.getStrippedTitleCKey());
-				if (e == Sorter.NULL || e == 0)
-					return a.getObjectID().compareTo(b.getObjectID());
-				return e;
-			}
-			return d;
-		}
+		if (c == 0)
+			return compareUnscored(a, b);
 		return c;
 	}
+
+	// the order of two objects with the same score
+	public static int compareUnscored(ArtObject a, ArtObject b) {
+		int d = SortHelper.compareObjectsDiacritical(a.getAttributionInvertedCKey(), b.getAttributionInvertedCKey());
+		if (d == Sorter.NULL || d == 0) {
+			int e = SortHelper.compareObjectsDiacritical(a.getStrippedTitleCKey(), b.getStrippedTitleCKey());
+			if (e == Sorter.NULL || e == 0)
+				return a.getObjectID().compareTo(b.getObjectID());
+			return e;
+		}
+		return d;
+	}
 	
 }
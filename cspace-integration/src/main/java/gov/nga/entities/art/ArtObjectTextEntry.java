@@ -38,10 +38,15 @@ public class ArtObjectTextEntry extends TextEntry {
 		super(manager);
 	}
 	
-	protected static final String allTextEntryQuery = 
+	private static final String baseTextEntryQuery = 
 		"SELECT t.fingerprint, t.textType, t.text, t.year, t.objectID " +
-		"FROM data.objects_text_entries t " +
-		"ORDER BY t.objectID, t.textType, t.year, t.text";
+		"FROM data.objects_text_entries t ";
+
+	protected static final String allTextEntryQuery = 
+		baseTextEntryQuery + "ORDER BY t.objectID, t.textType, t.year, t.text";
+
+	protected static final String textEntriesByObjectQuery = 
+		baseTextEntryQuery + "WHERE t.objectID @@ ORDER BY t.objectID, t.textType, t.year, t.text";
 	
 	public ArtObjectTextEntry(ArtDataManagerService manager, ResultSet rs) throws SQLException {
 		super(manager,rs);
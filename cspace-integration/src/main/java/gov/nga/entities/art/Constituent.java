@@ -26,7 +26,9 @@ package gov.nga.entities.art;
 import gov.nga.entities.art.TextEntry.TEXT_ENTRY_TYPE;
 import gov.nga.entities.art.factory.ArtObjectFactory;
 import gov.nga.search.Faceted;
+import gov.nga.search.FreeTextIndexable;
 import gov.nga.search.SearchFilter;
+import gov.nga.search.SearchKey;
 import gov.nga.search.Searchable;
 import gov.nga.search.SortHelper;
 import gov.nga.search.SortOrder;
@@ -52,7 +54,7 @@ import org.slf4j.LoggerFactory;
 import static gov.nga.utils.StringUtils.*;
 
 
-public class Constituent extends ArtEntityImpl implements Searchable, Sortable, Faceted
+public class Constituent extends ArtEntityImpl implements Searchable, Sortable, Faceted, FreeTextIndexable
 {
 
 	private static final Logger log = LoggerFactory.getLogger(Constituent.class);
@@ -101,7 +103,8 @@ public class Constituent extends ArtEntityImpl implements Searchable, Sortable,
 		// for comparing two constituents with each other 
 		PREFERRED_DISPLAY_NAME_ASC,
 		HASBIOGRAPHY_ASC,
-		CONSTITUENTID_ASC
+		CONSTITUENTID_ASC,
+		RELEVANCE_DESC		// sorts by free text relevance to the query given as this order's match string
 	}
 
 	private static final String JCRNODENAME = "Constituent";
@@ -205,6 +208,9 @@ public class Constituent extends ArtEntityImpl implements Searchable, Sortable,
 	protected static final String briefConstituentQuery =
 		fetchAllConstituentsQuery + "WHERE constituentID @@ ";
 
+	// just enough to tell which constituents have changed since they were loaded
+	protected static final String fetchAllConstituentFingerprintsQuery = "SELECT constituentID, fingerprint FROM data.constituents";
+
 	public Constituent(ArtDataManagerService manager, ResultSet rs) throws SQLException {
 		super(manager,		  	      TypeUtils.getLong(rs, 1));
 		constituentID 				= TypeUtils.getLong(rs, 2);
@@ -224,6 +230,8 @@ public class Constituent extends ArtEntityImpl implements Searchable, Sortable,
 		ulanID 						= rs.getString(16);
 		
 		preferredDisplayNameCKey  	= StringUtils.getDefaultCollator().getCollationKey(preferredDisplayName);
+		preferredDisplayNameSearchKey	= SearchKey.of(preferredDisplayName);
+		forwardDisplayNameSearchKey		= SearchKey.of(forwardDisplayName);
 	}
 	
 	protected Constituent(Constituent source) throws SQLException {
@@ -243,6 +251,8 @@ public class Constituent extends ArtEntityImpl implements Searchable, Sortable,
 		ulanID 						= source.ulanID;
 		visualBrowserNationality 	= source.visualBrowserNationality;
 		visualBrowserTimeSpan		= source.visualBrowserTimeSpan;
+		preferredDisplayNameSearchKey	= source.preferredDisplayNameSearchKey;
+		forwardDisplayNameSearchKey		= source.forwardDisplayNameSearchKey;
 		
 		this.altnames				= source.altnames;
 		this.indexOfArtistsRange	= source.indexOfArtistsRange;
@@ -282,17 +292,17 @@ public class Constituent extends ArtEntityImpl implements Searchable, Sortable,
 		case ISINDIVIDUALARTIST: 
 			return f.filterMatch(isIndividualArtist().toString());
 		case PREFERRED_DISPLAY_NAME: 
-			return f.filterMatch(getPreferredDisplayName());
+			return f.filterMatchKey(getPreferredDisplayNameSearchKey());
 		case CONSTITUENT_ID:
 			return f.filterMatch(getConstituentID().toString());
 		case ULAN_ID:
 			return f.filterMatch(getULANID());
 		case ALL_NAMES:
-			if (f.filterMatch(getPreferredDisplayName()))
+			if (f.filterMatchKey(getPreferredDisplayNameSearchKey()))
 				return true;
 			if (getAltNamesRaw() != null) {
 				for (ConstituentAltName alt : getAltNamesRaw()) {
-					if (f.filterMatch(alt.getDisplayName()))
+					if (f.filterMatchKey(alt.getDisplayNameSearchKey()))
 						return true;
 				}
 			}
@@ -405,6 +415,8 @@ public class Constituent extends ArtEntityImpl implements Searchable, Sortable,
 		switch ((SORT) order) {
 		case CONSTITUENTID_ASC: 
 			return getConstituentID().compareTo(c.getConstituentID());
+		case RELEVANCE_DESC:
+			return ArtEntityFreeTextSearch.compareRelevance(this, c, matchString);
 		case PREFERRED_DISPLAY_NAME_ASC: 
 			return SortHelper.compareObjectsDiacritical(getPreferredDisplayNameCKey(), c.getPreferredDisplayNameCKey());
 		case HASBIOGRAPHY_ASC:
@@ -427,6 +439,24 @@ public class Constituent extends ArtEntityImpl implements Searchable, Sortable,
 		return null;
 	}
 
+	public List<String> getFreeTextValues(Object field) {
+		List<String> values = CollectionUtils.newArrayList();
+		switch ( (FREETEXTSEARCH) field ) {
+		case ALLDATAFIELDS:
+			values.add(getPreferredDisplayName());
+			values.add(getForwardDisplayName());
+			if (getAltNamesRaw() != null) {
+				for (ConstituentAltName a : getAltNamesRaw())
+					values.add(a.getDisplayName());
+			}
+			values.add(getDisplayDate());
+			values.add(getNationality());
+			values.add(biography);
+			break;
+		}
+		return values;
+	}
+
 	synchronized protected void setObjectRoles(List<ArtObjectConstituent> newObjectRoles) {
 		objectRoles = newObjectRoles;
 		loadWorksRoles();
@@ -764,6 +794,16 @@ public class Constituent extends ArtEntityImpl implements Searchable, Sortable,
 	public CollationKey getPreferredDisplayNameCKey() {
 		return preferredDisplayNameCKey;
 	}
+
+	private SearchKey preferredDisplayNameSearchKey = null;
+	public SearchKey getPreferredDisplayNameSearchKey() {
+		return preferredDisplayNameSearchKey;
+	}
+
+	private SearchKey forwardDisplayNameSearchKey = null;
+	public SearchKey getForwardDisplayNameSearchKey() {
+		return forwardDisplayNameSearchKey;
+	}
 	
 }
 
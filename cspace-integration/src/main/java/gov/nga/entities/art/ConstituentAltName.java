@@ -23,6 +23,7 @@
 */
 package gov.nga.entities.art;
 
+import gov.nga.search.SearchKey;
 import gov.nga.search.SortHelper;
 import gov.nga.utils.TypeUtils;
 
@@ -64,6 +65,9 @@ public class ConstituentAltName extends ArtEntityImpl {
 		displayName 	= rs.getString(5);
 		forwardDisplayName 	= rs.getString(6);
 		nameType 		= rs.getString(7);
+
+		displayNameSearchKey		= SearchKey.of(displayName);
+		forwardDisplayNameSearchKey	= SearchKey.of(forwardDisplayName);
 	}
 	
 	public ConstituentAltName factory(ResultSet rs) throws SQLException {
@@ -97,6 +101,16 @@ public class ConstituentAltName extends ArtEntityImpl {
 		return forwardDisplayName;
 	}
 
+	private SearchKey displayNameSearchKey = null;
+	public SearchKey getDisplayNameSearchKey() {
+		return displayNameSearchKey;
+	}
+
+	private SearchKey forwardDisplayNameSearchKey = null;
+	public SearchKey getForwardDisplayNameSearchKey() {
+		return forwardDisplayNameSearchKey;
+	}
+
 	private String nameType = null;
 	public String getNameType() {
 		return nameType;
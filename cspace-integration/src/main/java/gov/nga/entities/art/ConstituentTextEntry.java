@@ -36,10 +36,15 @@ public class ConstituentTextEntry extends TextEntry {
 		super(manager);
 	}
 	
-	protected static final String allTextEntryQuery = 
+	private static final String baseTextEntryQuery = 
 		"SELECT t.fingerprint, t.textType, t.text, t.year, t.constituentID " +
-		"FROM data.constituents_text_entries t " +
-		"ORDER BY t.constituentID, t.textType, t.year, t.text";
+		"FROM data.constituents_text_entries t ";
+
+	protected static final String allTextEntryQuery = 
+		baseTextEntryQuery + "ORDER BY t.constituentID, t.textType, t.year, t.text";
+
+	protected static final String textEntriesByConstituentQuery = 
+		baseTextEntryQuery + "WHERE t.constituentID @@ ORDER BY t.constituentID, t.textType, t.year, t.text";
 	
 	public ConstituentTextEntry(ArtDataManagerService manager, ResultSet rs) throws SQLException {
 		super(manager,rs);
@@ -28,6 +28,7 @@ package gov.nga.entities.art;
 
 import gov.nga.search.Faceted;
 import gov.nga.search.SearchFilter;
+import gov.nga.search.SearchKey;
 import gov.nga.search.Searchable;
 import gov.nga.search.SortHelper;
 import gov.nga.search.SortOrder;
@@ -225,11 +226,11 @@ public abstract class Derivative extends SupplementingEntityImpl implements Sear
 		case CATALOGUED:
 			return getCatalogued() == null ? false : filter.filterMatch(getCatalogued().toString());
 		case IMAGEID:
-			return getImageID() == null ? false : filter.filterMatch(getImageID().toString());
+			return imageIDSearchKey == null ? false : filter.filterMatchKey(imageIDSearchKey);
 		case IMAGEVOLUMEPATH:
-			return getImgVolumePath() == null ? false : filter.filterMatch(getImgVolumePath());
+			return imgVolumePathSearchKey == null ? false : filter.filterMatchKey(imgVolumePathSearchKey);
 		case IMAGEFILENAME:
-			return getFilename() == null ? false : filter.filterMatch(getFilename());
+			return filenameSearchKey == null ? false : filter.filterMatchKey(filenameSearchKey);
 		}
 		return false;
 	}
@@ -568,9 +569,15 @@ public abstract class Derivative extends SupplementingEntityImpl implements Sear
 
 	public abstract IMAGECLASS getImageClass();
 
+	// search keys are kept in step with the values they represent by the setters below 
+	private SearchKey imageIDSearchKey = null;
+	private SearchKey imgVolumePathSearchKey = null;
+	private SearchKey filenameSearchKey = null;
+
 	private String imageID = null;
 	public void setImageID(String imageID) {
 		this.imageID = imageID;
+		this.imageIDSearchKey = SearchKey.of(imageID);
 	}
 	public String getImageID() {
 		return imageID;
@@ -579,6 +586,7 @@ public abstract class Derivative extends SupplementingEntityImpl implements Sear
 	private String imgVolumePath = null;
 	public void setImgVolumePath(String imgVolumePath) {
 		this.imgVolumePath=imgVolumePath;
+		this.imgVolumePathSearchKey = SearchKey.of(imgVolumePath);
 	}
 	public String getImgVolumePath() {
 		return imgVolumePath;
@@ -587,6 +595,7 @@ public abstract class Derivative extends SupplementingEntityImpl implements Sear
 	private String filename = null;
 	public void setFilename(String filename) {
 		this.filename = filename;
+		this.filenameSearchKey = SearchKey.of(filename);
 	}
 
 	public void setFormat(IMGFORMAT format) {
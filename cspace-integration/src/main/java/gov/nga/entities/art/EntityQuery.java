@@ -24,6 +24,7 @@ package gov.nga.entities.art;
 import gov.nga.utils.db.DataSourceService;
 import gov.nga.utils.CollectionUtils;
 import gov.nga.utils.StringUtils;
+import gov.nga.utils.TypeUtils;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -31,6 +32,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Calendar;
 import java.util.List;
+import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -46,6 +48,21 @@ public class EntityQuery<E extends ArtEntity> {
 	
 	private DataSourceService dataSourceService;
 	
+	// receives each entity as soon as its row has been read so it can be filed away by the caller
+	// without every row of a large table having to be held in a list first
+	public interface EntityHandler<E> {
+		public void handle(E entity) throws SQLException;
+	}
+
+	// number of rows the driver reads from the database at a time - without it, the postgres
+	// driver reads an entire result set into memory before returning the first row
+	public static final int DEFAULT_FETCH_SIZE = 1000;
+	private int fetchSize = DEFAULT_FETCH_SIZE;
+
+	protected void setFetchSize(int fetchSize) {
+		this.fetchSize = fetchSize;
+	}
+
 	private EntityQuery() {
 		super();
 	}
@@ -129,24 +146,38 @@ public class EntityQuery<E extends ArtEntity> {
 
 	// load a new entity using the supplied query and either create it or append
 	// the fetched properties to it
-	@SuppressWarnings("unchecked")
 	protected List<E> fetchAll(String query, E entity) throws SQLException {
+		final List<E> list = CollectionUtils.newArrayList();
+		fetchAll(query, entity, new EntityHandler<E>() {
+			public void handle(E e) {
+				list.add(e);
+			}
+		});
+		return list;
+	}
+
+	// create an entity from each row returned by the supplied query and hand it to the handler as soon as it's read - 
+	// the rows are read through a forward only, read only cursor a fetch size at a time and the number of rows is returned
+	@SuppressWarnings("unchecked")
+	protected int fetchAll(String query, E entity, EntityHandler<E> handler) throws SQLException {
 		Connection conn = null;
 		PreparedStatement st = null;
 		ResultSet rs = null;
-		
-		List<E> list = CollectionUtils.newArrayList();
+		boolean autoCommit = true;
+		int count = 0;
 		
 		try {
 			try {
 				conn = dataSourceService.getConnection();
 				if (conn != null) {
-					st = conn.prepareStatement(query);
+					autoCommit = openCursor(conn);
+					st = conn.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+					st.setFetchSize(fetchSize);
 					rs = st.executeQuery();
 					if (rs != null) {
 						while (rs.next()) {
-							E o = (E) entity.factory(rs);
-							list.add(o);
+							handler.handle((E) entity.factory(rs));
+							count++;
 						}
 					}
 				}
@@ -158,6 +189,77 @@ public class EntityQuery<E extends ArtEntity> {
 				log.error("Problem connecting to database: " + se.getMessage());
 				throw se;
 			}
+			finally {
+				// the connection is closed no matter what, since one that isn't never goes back to the pool
+				try {
+					if (rs != null)
+						rs.close();
+					if (st != null)
+						st.close();
+				}
+				finally {
+					if (conn != null) {
+						try {
+							closeCursor(conn, autoCommit);
+						}
+						finally {
+							conn.close();
+						}
+					}
+				}
+			}
+		}
+		catch (SQLException se) {
+			log.error("Encountered an error trying to fetch art entity: " + se.getMessage());
+			log.info("Query was: " + query);
+			throw se;
+		}
+		return count;
+	}
+
+	// postgres only honors the fetch size inside of a transaction, so auto commit is switched off
+	// for the duration of the query - returns the connection's original setting
+	private boolean openCursor(Connection conn) throws SQLException {
+		boolean autoCommit = conn.getAutoCommit();
+		if (fetchSize > 0 && autoCommit)
+			conn.setAutoCommit(false);
+		return autoCommit;
+	}
+
+	// the connection goes back to the pool so it has to be left the way we found it
+	private void closeCursor(Connection conn, boolean autoCommit) throws SQLException {
+		if (conn.getAutoCommit() != autoCommit) {
+			conn.rollback();
+			conn.setAutoCommit(autoCommit);
+		}
+	}
+
+
+	// fetch the ID and fingerprint of every row returned by a query that selects exactly those
+	// two columns, which is all that's needed to tell which entities have changed since they were loaded
+	protected Map<Long, Long> fetchFingerprints(String query) throws SQLException {
+		Connection conn = null;
+		PreparedStatement st = null;
+		ResultSet rs = null;
+		
+		Map<Long, Long> fingerprints = CollectionUtils.newLongKeyedMap();
+		
+		try {
+			try {
+				conn = dataSourceService.getConnection();
+				if (conn != null) {
+					st = conn.prepareStatement(query);
+					rs = st.executeQuery();
+					if (rs != null) {
+						while (rs.next()) {
+							fingerprints.put(TypeUtils.getLong(rs, 1), TypeUtils.getLong(rs, 2));
+						}
+					}
+				}
+				else {
+					throw new SQLException("Could not acquire datasource connection to " + dataSourceService.getUrl());
+				}
+			}
 			finally {
 				if (rs != null)
 					rs.close();
@@ -168,13 +270,12 @@ public class EntityQuery<E extends ArtEntity> {
 			}
 		}
 		catch (SQLException se) {
-			log.error("Encountered an error trying to fetch art entity: " + se.getMessage());
+			log.error("Encountered an error trying to fetch fingerprints: " + se.getMessage());
 			log.info("Query was: " + query);
 			throw se;
 		}
-		return list;
+		return fingerprints;
 	}
-
 	
 	// load additional properties using a SQL query into an existing art entity identified
 	// by the ID provided - should probably rely on the getKeyValue() method of FingerprintedEntity, but 
@@ -199,8 +300,17 @@ public class EntityQuery<E extends ArtEntity> {
 
 	// fetch and create multiple entities by IDs supplied in the list and append those entities to the 
 	// list of entities provided
+	protected void fetchAndCreate(List<Long> ids, String query, E entity, final List<E> list) throws SQLException {
+		fetchAndCreate(ids, query, entity, new EntityHandler<E>() {
+			public void handle(E e) {
+				list.add(e);
+			}
+		});
+	}
+
+	// fetch and create multiple entities by IDs supplied in the list and hand each one to the handler as it's read
 	@SuppressWarnings("unchecked")
-	protected void fetchAndCreate(List<Long> ids, String query, E entity, List<E> list) throws SQLException {
+	protected void fetchAndCreate(List<Long> ids, String query, E entity, EntityHandler<E> handler) throws SQLException {
 		Connection conn = null;
 		PreparedStatement st = null;
 		E o = null;
@@ -247,7 +357,7 @@ public class EntityQuery<E extends ArtEntity> {
 						if (rs != null) {
 							while (rs.next()) {
 								o = (E) entity.factory(rs);
-								list.add(o);
+								handler.handle(o);
 							}
 						}
 					}
@@ -0,0 +1,313 @@
+/*
+    NGA Art Data API: RelatedWorksIndex finds the works related to an art object by looking
+    up the objects that share its styles, themes, year, medium, artist nationalities and donors
+
+    Copyright (C) 2018 National Gallery of Art Washington DC
+    Developers: David Beaudet
+
+	This library is free software; you can redistribute it and/or
+	modify it under the terms of the GNU Lesser General Public
+	License as published by the Free Software Foundation; either
+	version 2.1 of the License, or (at your option) any later version.
+
+	This library is distributed in the hope that it will be useful,
+	but WITHOUT ANY WARRANTY; without even the implied warranty of
+	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+	Lesser General Public License for more details.
+
+	You should have received a copy of the GNU Lesser General Public
+	License along with this library; if not, write to the Free Software
+	Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package gov.nga.entities.art;
+
+import gov.nga.entities.art.ArtObject.RELATEDASPECT;
+import gov.nga.entities.art.ArtObjectTerm.TERMTYPES;
+import gov.nga.utils.CollectionUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.gs.collections.api.iterator.IntIterator;
+import com.gs.collections.impl.list.mutable.primitive.IntArrayList;
+import com.gs.collections.impl.map.mutable.primitive.IntLongHashMap;
+import com.gs.collections.impl.map.mutable.primitive.LongIntHashMap;
+import com.gs.collections.impl.map.mutable.primitive.LongObjectHashMap;
+
+// each feature an object can share with another - a style or theme term, a begin year, a medium,
+// an artist nationality or a donor - lists the objects that have it, so the objects related to a
+// work are found by walking only the lists of its own features rather than scoring it against the
+// whole collection.  The score each object collects is the same total of aspect weights that
+// ArtObject.relatedTotalScore calculates and only objects sharing at least one feature score
+// above zero.  Objects are referred to by their position in the index and an object appears in
+// a list once for every time it has the feature, e.g. once per artist of a given nationality, to
+// keep the same counts.  Rankings are remembered per object until the index is replaced on refresh.
+public class RelatedWorksIndex {
+
+	public static final int DEFAULT_CACHE_SIZE = 1000;
+
+	private final ArtObject[] objects;
+	private final LongIntHashMap positions;
+
+	private final LongObjectHashMap<int[]> styles;
+	private final LongObjectHashMap<int[]> themes;
+	private final LongObjectHashMap<int[]> years;
+	private final Map<String, int[]> mediums;
+	private final Map<String, int[]> nationalities;
+	private final LongObjectHashMap<int[]> donors;
+
+	private final Map<Long, Ranking> cache;
+
+	private final AtomicLong hits 	= new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	// the related works of an object in order - complete if no works were left off due to a limit
+	private static class Ranking {
+		private final int[] positions;
+		private final boolean complete;
+
+		Ranking(int[] positions, boolean complete) {
+			this.positions = positions;
+			this.complete = complete;
+		}
+	}
+
+	// artists are looked up by their constituent IDs so the data those constituents come from must
+	// be available to the calling thread while the index is built
+	public RelatedWorksIndex(Collection<ArtObject> artObjects, final int cacheSize) {
+		objects = artObjects.toArray(new ArtObject[artObjects.size()]);
+		positions = new LongIntHashMap(objects.length);
+
+		LongObjectHashMap<IntArrayList> styleLists = new LongObjectHashMap<IntArrayList>();
+		LongObjectHashMap<IntArrayList> themeLists = new LongObjectHashMap<IntArrayList>();
+		LongObjectHashMap<IntArrayList> yearLists = new LongObjectHashMap<IntArrayList>();
+		Map<String, IntArrayList> mediumLists = CollectionUtils.newHashMap();
+		Map<String, IntArrayList> nationalityLists = CollectionUtils.newHashMap();
+		LongObjectHashMap<IntArrayList> donorLists = new LongObjectHashMap<IntArrayList>();
+
+		for (int i=0; i<objects.length; i++) {
+			ArtObject o = objects[i];
+			positions.put(o.getObjectID(), i);
+			List<ArtObjectTerm> terms = o.getTermsRaw();
+			if (terms != null) {
+				for (ArtObjectTerm t : terms) {
+					if (t.getTermID() == null)
+						continue;
+					if (t.getTermType() == TERMTYPES.STYLE)
+						add(styleLists, t.getTermID(), i);
+					else if (t.getTermType() == TERMTYPES.THEME)
+						add(themeLists, t.getTermID(), i);
+				}
+			}
+			if (o.getBeginYear() != null)
+				add(yearLists, o.getBeginYear(), i);
+			if (o.getMedium() != null)
+				add(mediumLists, o.getMedium(), i);
+			for (String n : nationalitiesOf(o, false))
+				add(nationalityLists, n, i);
+			for (Long id : donorsOf(o, false))
+				add(donorLists, id, i);
+		}
+
+		styles = toArrays(styleLists);
+		themes = toArrays(themeLists);
+		years = toArrays(yearLists);
+		mediums = toArrays(mediumLists);
+		nationalities = toArrays(nationalityLists);
+		donors = toArrays(donorLists);
+
+		cache = new LinkedHashMap<Long, Ranking>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			protected boolean removeEldestEntry(Map.Entry<Long, Ranking> eldest) {
+				return size() > cacheSize;
+			}
+		};
+	}
+
+	// the nationalities of an object's artists, once per artist unless distinct
+	private static Collection<String> nationalitiesOf(ArtObject o, boolean distinct) {
+		Collection<String> c = distinct ? CollectionUtils.<String>newHashSet() : CollectionUtils.<String>newArrayList();
+		List<ArtObjectConstituent> artists = o.getArtistsRaw();
+		if (artists != null) {
+			for (ArtObjectConstituent oc : artists) {
+				Constituent con = oc.getConstituent();
+				if (con != null && con.getNationality() != null)
+					c.add(con.getNationality());
+			}
+		}
+		return c;
+	}
+
+	// the constituent IDs of an object's donors, once per donation unless distinct
+	private static Collection<Long> donorsOf(ArtObject o, boolean distinct) {
+		Collection<Long> c = distinct ? CollectionUtils.<Long>newHashSet() : CollectionUtils.<Long>newArrayList();
+		List<ArtObjectConstituent> ocs = o.getDonorsRaw();
+		if (ocs != null) {
+			for (ArtObjectConstituent oc : ocs) {
+				if (oc.getConstituentID() != null)
+					c.add(oc.getConstituentID());
+			}
+		}
+		return c;
+	}
+
+	private static void add(LongObjectHashMap<IntArrayList> lists, long key, int position) {
+		IntArrayList l = lists.get(key);
+		if (l == null) {
+			l = new IntArrayList();
+			lists.put(key, l);
+		}
+		l.add(position);
+	}
+
+	private static void add(Map<String, IntArrayList> lists, String key, int position) {
+		IntArrayList l = lists.get(key);
+		if (l == null) {
+			l = new IntArrayList();
+			lists.put(key, l);
+		}
+		l.add(position);
+	}
+
+	private static LongObjectHashMap<int[]> toArrays(LongObjectHashMap<IntArrayList> lists) {
+		LongObjectHashMap<int[]> arrays = new LongObjectHashMap<int[]>(lists.size());
+		for (long key : lists.keysView().toArray())
+			arrays.put(key, lists.get(key).toArray());
+		return arrays;
+	}
+
+	private static Map<String, int[]> toArrays(Map<String, IntArrayList> lists) {
+		Map<String, int[]> arrays = CollectionUtils.newHashMap();
+		for (Map.Entry<String, IntArrayList> e : lists.entrySet())
+			arrays.put(e.getKey(), e.getValue().toArray());
+		return arrays;
+	}
+
+	private static void score(IntLongHashMap scores, int[] list, long weight) {
+		if (list == null)
+			return;
+		for (int p : list)
+			scores.addToValue(p, weight);
+	}
+
+	// the works related to the given one from most to least related, at most limit of them or all of them if limit is 0
+	public List<ArtObject> relatedTo(ArtObject base, int limit) {
+		Ranking r = null;
+		synchronized (cache) {
+			r = cache.get(base.getObjectID());
+		}
+		if (r != null && (r.complete || (limit > 0 && limit <= r.positions.length)))
+			hits.incrementAndGet();
+		else {
+			misses.incrementAndGet();
+			r = rank(base, limit);
+			synchronized (cache) {
+				cache.put(base.getObjectID(), r);
+			}
+		}
+
+		int n = limit > 0 ? Math.min(limit, r.positions.length) : r.positions.length;
+		List<ArtObject> related = new ArrayList<ArtObject>(n);
+		for (int i=0; i<n; i++)
+			related.add(objects[r.positions[i]]);
+		return related;
+	}
+
+	private Ranking rank(ArtObject base, int limit) {
+		IntLongHashMap scores = new IntLongHashMap();
+		List<ArtObjectTerm> terms = base.getTermsRaw();
+		if (terms != null) {
+			for (ArtObjectTerm t : terms) {
+				if (t.getTermID() == null)
+					continue;
+				if (t.getTermType() == TERMTYPES.STYLE)
+					score(scores, styles.get(t.getTermID()), RELATEDASPECT.STYLE.weight);
+				else if (t.getTermType() == TERMTYPES.THEME)
+					score(scores, themes.get(t.getTermID()), RELATEDASPECT.THEME.weight);
+			}
+		}
+		if (base.getBeginYear() != null)
+			score(scores, years.get(base.getBeginYear()), RELATEDASPECT.CREATIONYEAR.weight);
+		if (base.getMedium() != null)
+			score(scores, mediums.get(base.getMedium()), RELATEDASPECT.MEDIUM.weight);
+		for (String n : nationalitiesOf(base, true))
+			score(scores, nationalities.get(n), RELATEDASPECT.ARTISTNATIONALITY.weight);
+		for (Long id : donorsOf(base, true))
+			score(scores, donors.get(id), RELATEDASPECT.RELATEDDONOR.weight);
+
+		// a work is not related to itself
+		if (positions.containsKey(base.getObjectID()))
+			scores.removeKey(positions.get(base.getObjectID()));
+
+		int[] candidates = new int[scores.size()];
+		long[] candidateScores = new long[scores.size()];
+		int c = 0;
+		for (IntIterator it = scores.keysView().intIterator(); it.hasNext(); ) {
+			int p = it.next();
+			candidates[c] = p;
+			candidateScores[c++] = scores.get(p);
+		}
+
+		// when only the top few are wanted, works scoring below the limit'th highest score can be
+		// dropped before the survivors are put in order, which saves comparing them by name
+		boolean complete = true;
+		if (limit > 0 && limit < candidates.length) {
+			long[] sorted = candidateScores.clone();
+			Arrays.sort(sorted);
+			long cutoff = sorted[sorted.length - limit];
+			int kept = 0;
+			for (int i=0; i<candidates.length; i++) {
+				if (candidateScores[i] >= cutoff)
+					candidates[kept++] = candidates[i];
+			}
+			candidates = Arrays.copyOf(candidates, kept);
+			complete = false;
+		}
+
+		final IntLongHashMap finalScores = scores;
+		Integer[] ordered = new Integer[candidates.length];
+		for (int i=0; i<candidates.length; i++)
+			ordered[i] = candidates[i];
+		Arrays.sort(ordered, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				int s = Long.compare(finalScores.get(b), finalScores.get(a));
+				if (s != 0)
+					return s;
+				return ArtObjectMapComparator.compareUnscored(objects[a], objects[b]);
+			}
+		});
+
+		int n = complete ? ordered.length : Math.min(limit, ordered.length);
+		int[] ranked = new int[n];
+		for (int i=0; i<n; i++)
+			ranked[i] = ordered[i];
+		return new Ranking(ranked, complete);
+	}
+
+	public int size() {
+		return objects.length;
+	}
+
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	public String toString() {
+		int size = 0;
+		synchronized (cache) {
+			size = cache.size();
+		}
+		return "RelatedWorksIndex[objects=" + objects.length + ", cached=" + size + ", hits=" + getHitCount() + ", misses=" + getMissCount() + "]";
+	}
+
+}
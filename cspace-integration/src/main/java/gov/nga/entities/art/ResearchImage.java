@@ -60,9 +60,16 @@ public class ResearchImage extends ArtObjectImage {
         "       altImageRef,    qualifier,          photoCredit " +
         "FROM data.object_researchimages ";
 
+    private static final String fetchImagesByObjectQuery = 
+        fetchAllImagesQuery + "WHERE tmsObjectID @@ ";
+
     protected String getAllImagesQuery() {
         return fetchAllImagesQuery;
     }
+
+    protected String getImagesByObjectQuery() {
+        return fetchImagesByObjectQuery;
+    }
     
     private ArtObject ngaArtObjectOfImage = null;
     public ArtObject getNGAArtObjectOfImage() {
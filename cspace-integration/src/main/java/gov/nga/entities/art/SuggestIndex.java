@@ -0,0 +1,231 @@
+/*
+    NGA Art Data API: SuggestIndex answers type ahead suggestions for names and titles
+    from keys that are normalized and suggestions that are ranked once per refresh
+
+    Copyright (C) 2018 National Gallery of Art Washington DC
+    Developers: David Beaudet
+
+	This library is free software; you can redistribute it and/or
+	modify it under the terms of the GNU Lesser General Public
+	License as published by the Free Software Foundation; either
+	version 2.1 of the License, or (at your option) any later version.
+
+	This library is distributed in the hope that it will be useful,
+	but WITHOUT ANY WARRANTY; without even the implied warranty of
+	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+	Lesser General Public License for more details.
+
+	You should have received a copy of the GNU Lesser General Public
+	License along with this library; if not, write to the Free Software
+	Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package gov.nga.entities.art;
+
+import gov.nga.entities.art.ArtDataManager.Suggestion;
+import gov.nga.utils.CollectionUtils;
+import gov.nga.utils.StringUtils;
+
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// every key a suggestion was indexed under is stripped of its diacritics and the keys are kept
+// in one sorted array, so that all of the keys starting with a prefix are found with two binary
+// searches - effectively a flattened trie.  Each key lists the suggestions filed under it by rank,
+// where rank is a suggestion's position when all of them are sorted by collation, so matches can be
+// ordered by comparing ints rather than strings.  Since one and two letter prefixes match thousands
+// of suggestions, their best few suggestions are worked out in advance.
+public class SuggestIndex {
+
+	// normalizes suggestion strings the same way keys and search terms are normalized
+	public interface Normalizer {
+		public String normalize(String s);
+	}
+
+	// prefixes up to this long have their top suggestions calculated up front
+	private static final int PRECOMPUTEDPREFIXLENGTH = 2;
+
+	private final Normalizer normalizer;
+	private final int limit;
+
+	// every distinct suggestion in rank order along with its normalized string
+	private final Suggestion[] suggestions;
+	private final String[] normalized;
+
+	// sorted keys and, for each, the ranks of the suggestions filed under it in ascending order
+	private final String[] keys;
+	private final int[][] postings;
+
+	// the top ranked suggestions for short prefixes - those whose normalized string starts with
+	// the prefix first and then the rest, at most limit of them in total
+	private final Map<String, int[]> topForPrefix;
+
+	// limit is the maximum number of suggestions returned for a search, 0 for no limit
+	public SuggestIndex(Map<String, Set<Suggestion>> suggestionsByKey, Normalizer normalizer, int limit) {
+		this.normalizer = normalizer;
+		this.limit = limit;
+
+		// merge keys that only differed by their diacritics
+		Map<String, Set<Suggestion>> byKey = CollectionUtils.newHashMap();
+		Set<Suggestion> all = CollectionUtils.newHashSet();
+		if (suggestionsByKey != null) {
+			for (Map.Entry<String, Set<Suggestion>> e : suggestionsByKey.entrySet()) {
+				String key = StringUtils.removeDiacritics(e.getKey());
+				Set<Suggestion> set = byKey.get(key);
+				if (set == null) {
+					set = CollectionUtils.newHashSet();
+					byKey.put(key, set);
+				}
+				set.addAll(e.getValue());
+				all.addAll(e.getValue());
+			}
+		}
+
+		// rank the suggestions - the collator is cloned since the shared one synchronizes every call
+		Collator collator = (Collator) StringUtils.getDefaultCollator().clone();
+		final Map<Suggestion, CollationKey> collationKeys = CollectionUtils.newHashMap();
+		for (Suggestion s : all)
+			collationKeys.put(s, collator.getCollationKey(s.getString()));
+		suggestions = all.toArray(new Suggestion[all.size()]);
+		Arrays.sort(suggestions, new Comparator<Suggestion>() {
+			public int compare(Suggestion a, Suggestion b) {
+				int i = collationKeys.get(a).compareTo(collationKeys.get(b));
+				if (i == 0)
+					i = Long.compare(a.getEntityID(), b.getEntityID());
+				return i;
+			}
+		});
+		Map<Suggestion, Integer> ranks = CollectionUtils.newHashMap();
+		normalized = new String[suggestions.length];
+		for (int i=0; i<suggestions.length; i++) {
+			ranks.put(suggestions[i], i);
+			normalized[i] = normalizer.normalize(suggestions[i].getString());
+		}
+
+		keys = byKey.keySet().toArray(new String[byKey.size()]);
+		Arrays.sort(keys);
+		postings = new int[keys.length][];
+		for (int k=0; k<keys.length; k++) {
+			Set<Suggestion> set = byKey.get(keys[k]);
+			int[] p = new int[set.size()];
+			int i = 0;
+			for (Suggestion s : set)
+				p[i++] = ranks.get(s);
+			Arrays.sort(p);
+			postings[k] = p;
+		}
+
+		topForPrefix = CollectionUtils.newHashMap();
+		if (limit > 0) {
+			for (String key : keys) {
+				for (int len=1; len<=PRECOMPUTEDPREFIXLENGTH && len<=key.length(); len++) {
+					String prefix = key.substring(0, len);
+					if (!topForPrefix.containsKey(prefix))
+						topForPrefix.put(prefix, rank(prefix, match(prefix)));
+				}
+			}
+		}
+	}
+
+	// a copy of this index with the suggestions of replaced entities taken out and those of
+	// their replacements put in
+	public SuggestIndex withChanges(Map<String, Set<Suggestion>> removed, Map<String, Set<Suggestion>> added) {
+		Map<String, Set<Suggestion>> byKey = CollectionUtils.newHashMap();
+		for (int k=0; k<keys.length; k++) {
+			Set<Suggestion> set = CollectionUtils.newHashSet();
+			for (int r : postings[k])
+				set.add(suggestions[r]);
+			byKey.put(keys[k], set);
+		}
+		for (Map.Entry<String, Set<Suggestion>> e : removed.entrySet()) {
+			Set<Suggestion> set = byKey.get(StringUtils.removeDiacritics(e.getKey()));
+			if (set != null)
+				set.removeAll(e.getValue());
+		}
+		for (Map.Entry<String, Set<Suggestion>> e : added.entrySet()) {
+			String key = StringUtils.removeDiacritics(e.getKey());
+			Set<Suggestion> set = byKey.get(key);
+			if (set == null) {
+				set = CollectionUtils.newHashSet();
+				byKey.put(key, set);
+			}
+			set.addAll(e.getValue());
+		}
+		// keys left without any suggestions are dropped
+		Map<String, Set<Suggestion>> remaining = CollectionUtils.newHashMap();
+		for (Map.Entry<String, Set<Suggestion>> e : byKey.entrySet()) {
+			if (!e.getValue().isEmpty())
+				remaining.put(e.getKey(), e.getValue());
+		}
+		return new SuggestIndex(remaining, normalizer, limit);
+	}
+
+	public int getLimit() {
+		return limit;
+	}
+
+	public int size() {
+		return suggestions.length;
+	}
+
+	public Suggestion getSuggestion(int rank) {
+		return suggestions[rank];
+	}
+
+	// the normalized form of the suggestion with the given rank
+	public String getNormalized(int rank) {
+		return normalized[rank];
+	}
+
+	public String normalize(String s) {
+		return normalizer.normalize(s);
+	}
+
+	// the ranks of every suggestion filed under a key starting with the given normalized prefix
+	public BitSet match(String prefix) {
+		BitSet matches = new BitSet(suggestions.length);
+		if (prefix == null || prefix.length() == 0)
+			return matches;
+		int start = Arrays.binarySearch(keys, prefix);
+		if (start < 0)
+			start = -start - 1;
+		for (int k=start; k<keys.length && keys[k].startsWith(prefix); k++) {
+			for (int r : postings[k])
+				matches.set(r);
+		}
+		return matches;
+	}
+
+	// the ranks of the top suggestions for a single normalized word if they were worked out in advance
+	public int[] getTopRanks(String prefix) {
+		return topForPrefix.get(prefix);
+	}
+
+	// orders matches the way suggestions are presented - those that start with the base come first - and
+	// keeps at most limit of them
+	public int[] rank(String base, BitSet matches) {
+		int max = limit > 0 ? limit : Integer.MAX_VALUE;
+		List<Integer> best = CollectionUtils.newArrayList();
+		List<Integer> others = CollectionUtils.newArrayList();
+		for (int r = matches.nextSetBit(0); r >= 0 && best.size() < max; r = matches.nextSetBit(r+1)) {
+			if (normalized[r].startsWith(base))
+				best.add(r);
+			else if (others.size() < max)
+				others.add(r);
+		}
+		int n = Math.min(max, best.size() + others.size());
+		int[] ranked = new int[n];
+		int i = 0;
+		for (int j=0; j<best.size() && i<n; j++)
+			ranked[i++] = best.get(j);
+		for (int j=0; j<others.size() && i<n; j++)
+			ranked[i++] = others.get(j);
+		return ranked;
+	}
+
+}
@@ -0,0 +1,196 @@
+/*
+    NGA Imaging: ImageFetcher is the shared HTTP client used to fetch the images that thumbnails
+    are made from
+
+    Copyright (C) 2018 National Gallery of Art Washington DC
+    Developers: David Beaudet
+
+	This library is free software; you can redistribute it and/or
+	modify it under the terms of the GNU Lesser General Public
+	License as published by the Free Software Foundation; either
+	version 2.1 of the License, or (at your option) any later version.
+
+	This library is distributed in the hope that it will be useful,
+	but WITHOUT ANY WARRANTY; without even the implied warranty of
+	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+	Lesser General Public License for more details.
+
+	You should have received a copy of the GNU Lesser General Public
+	License along with this library; if not, write to the Free Software
+	Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+
+package gov.nga.imaging;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.httpclient.Header;
+import org.apache.commons.httpclient.HttpClient;
+import org.apache.commons.httpclient.HttpStatus;
+import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
+import org.apache.commons.httpclient.methods.GetMethod;
+import org.apache.commons.httpclient.params.HttpConnectionManagerParams;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import gov.nga.utils.ConfigService;
+
+// every page of search results with thumbnails fetches dozens of images from the same image
+// server, so rather than each of them opening its own connection they share a pool of kept alive
+// connections.  The size of the pool bounds how many fetches run at once regardless of how many
+// threads ask - those beyond it wait for a connection, but never longer than the pool timeout.
+public class ImageFetcher {
+
+	private static final Logger log = LoggerFactory.getLogger(ImageFetcher.class);
+
+	public static final String maxConnectionsProperty 	= "imageFetcher.maxConnections";
+	public static final String connectTimeoutProperty 	= "imageFetcher.connectTimeout";
+	public static final String readTimeoutProperty 		= "imageFetcher.readTimeout";
+
+	public static final int DEFAULT_MAX_CONNECTIONS 	= 32;
+	public static final int DEFAULT_CONNECT_TIMEOUT 	= 2000;
+	public static final int DEFAULT_READ_TIMEOUT 		= 5000;
+
+	// thumbnails are small so anything larger than this isn't worth holding in memory
+	private static final int MAX_IMAGE_BYTES 			= 4 * 1024 * 1024;
+
+	private static volatile ImageFetcher sharedInstance = null;
+
+	private final MultiThreadedHttpConnectionManager connectionManager;
+	private final HttpClient client;
+
+	private final AtomicLong fetched 	= new AtomicLong();
+	private final AtomicLong failed 	= new AtomicLong();
+
+	// the body of a successful response along with the type the server said it was
+	public static class FetchedImage {
+		private final byte[] bytes;
+		private final String contentType;
+
+		FetchedImage(byte[] bytes, String contentType) {
+			this.bytes = bytes;
+			this.contentType = contentType;
+		}
+
+		public byte[] getBytes() {
+			return bytes;
+		}
+
+		public String getContentType() {
+			return contentType;
+		}
+
+		// true if the server said it's a JPEG or, failing that, if it starts like one
+		public boolean isJPEG() {
+			if (contentType != null)
+				return contentType.toLowerCase().startsWith("image/jpeg");
+			return bytes.length > 2 && (bytes[0] & 0xff) == 0xff && (bytes[1] & 0xff) == 0xd8 && (bytes[2] & 0xff) == 0xff;
+		}
+	}
+
+	private ImageFetcher(int maxConnections, int connectTimeout, int readTimeout) {
+		HttpConnectionManagerParams params = new HttpConnectionManagerParams();
+		// nearly all thumbnails come from the one image server so it may use the whole pool
+		params.setDefaultMaxConnectionsPerHost(maxConnections);
+		params.setMaxTotalConnections(maxConnections);
+		params.setConnectionTimeout(connectTimeout);
+		params.setSoTimeout(readTimeout);
+		params.setStaleCheckingEnabled(true);
+		connectionManager = new MultiThreadedHttpConnectionManager();
+		connectionManager.setParams(params);
+		client = new HttpClient(connectionManager);
+		client.getParams().setConnectionManagerTimeout(readTimeout);
+	}
+
+	public static ImageFetcher getInstance() {
+		ImageFetcher f = sharedInstance;
+		if (f == null) {
+			synchronized (ImageFetcher.class) {
+				if (sharedInstance == null)
+					sharedInstance = new ImageFetcher(DEFAULT_MAX_CONNECTIONS, DEFAULT_CONNECT_TIMEOUT, DEFAULT_READ_TIMEOUT);
+				f = sharedInstance;
+			}
+		}
+		return f;
+	}
+
+	// replace the shared fetcher with one sized per configuration - the previous one is shut down so its
+	// connections aren't left open, and any fetch still under way on it fails and falls back to a URL thumbnail
+	public static synchronized void configure(ConfigService cs) {
+		int maxConnections = ConfigService.getPositiveInteger(cs, maxConnectionsProperty, DEFAULT_MAX_CONNECTIONS);
+		int connectTimeout = ConfigService.getPositiveInteger(cs, connectTimeoutProperty, DEFAULT_CONNECT_TIMEOUT);
+		int readTimeout = ConfigService.getPositiveInteger(cs, readTimeoutProperty, DEFAULT_READ_TIMEOUT);
+		ImageFetcher old = sharedInstance;
+		sharedInstance = new ImageFetcher(maxConnections, connectTimeout, readTimeout);
+		if (old != null)
+			old.connectionManager.shutdown();
+		log.info("Image fetcher configured with " + maxConnections + " connections, connect timeout " + connectTimeout + "ms and read timeout " + readTimeout + "ms");
+	}
+
+	// the image at the given URL, or null if it couldn't be fetched
+	public FetchedImage fetch(URL url) {
+		GetMethod method = null;
+		try {
+			method = new GetMethod(url.toString());
+			method.setFollowRedirects(true);
+			int status = client.executeMethod(method);
+			if (status != HttpStatus.SC_OK) {
+				log.warn("Unable to fetch " + url + ": HTTP status " + status);
+				failed.incrementAndGet();
+				return null;
+			}
+			byte[] bytes = read(method.getResponseBodyAsStream());
+			if (bytes == null) {
+				// rather than reading the rest just to throw it away
+				method.abort();
+				log.warn("Image at " + url + " is too large to use for a thumbnail");
+				failed.incrementAndGet();
+				return null;
+			}
+			Header contentType = method.getResponseHeader("Content-Type");
+			fetched.incrementAndGet();
+			return new FetchedImage(bytes, contentType == null ? null : contentType.getValue());
+		}
+		catch (IllegalArgumentException | IOException e) {
+			log.warn("Unable to fetch " + url + ": " + e.getMessage());
+			failed.incrementAndGet();
+			return null;
+		}
+		finally {
+			if (method != null)
+				method.releaseConnection();
+		}
+	}
+
+	// the whole stream, or null if it's larger than a thumbnail should be
+	private static byte[] read(InputStream in) throws IOException {
+		if (in == null)
+			return new byte[0];
+		ByteArrayOutputStream bos = new ByteArrayOutputStream(16 * 1024);
+		byte[] buffer = new byte[8 * 1024];
+		int n;
+		while ( (n = in.read(buffer)) != -1 ) {
+			if (bos.size() + n > MAX_IMAGE_BYTES)
+				return null;
+			bos.write(buffer, 0, n);
+		}
+		return bos.toByteArray();
+	}
+
+	public long getFetchedCount() {
+		return fetched.get();
+	}
+
+	public long getFailedCount() {
+		return failed.get();
+	}
+
+	public String toString() {
+		return "ImageFetcher[connectionsInPool=" + connectionManager.getConnectionsInPool() + ", fetched=" + getFetchedCount() + ", failed=" + getFailedCount() + "]";
+	}
+
+}
@@ -26,6 +26,7 @@
 package gov.nga.imaging;
 
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.URI;
@@ -42,6 +43,8 @@ public class Thumbnail {
 	private static final Logger log = LoggerFactory.getLogger(Thumbnail.class);
 	
 	String representation=null;
+	// false when the thumbnail is only a URL, whether or not base64 was asked for
+	boolean encoded=false;
 
 	public Thumbnail(URI relativeURI, URL absoluteURL, boolean base64Preferred) {
 		this(relativeURI, absoluteURL,"JPEG",base64Preferred);
@@ -50,6 +53,7 @@ public class Thumbnail {
 	public Thumbnail(byte[] bytes) {
 		// we will always use base64 when dealing with blobs rather than URLs
 		this.representation = Base64.encodeBase64String(bytes);
+		this.encoded = true;
 	}
 	
 	public Thumbnail(URI relativeURI, URL absoluteURL, String encodingFormat, boolean base64Preferred) {
@@ -57,14 +61,22 @@ public class Thumbnail {
 		// which means we need an absolute URI as well when base64 encoding
 		this.representation = relativeURI.toString();
 		try {
-			if (base64Preferred) {
-				BufferedImage img = ImageIO.read(absoluteURL);
-				if (img != null) {
-					ByteArrayOutputStream bos = new ByteArrayOutputStream();
-					ImageIO.write(img, encodingFormat, bos);
-					byte[] imageBytes = bos.toByteArray();
-					this.representation = Base64.encodeBase64String(imageBytes);
+			if (base64Preferred && absoluteURL != null) {
+				String protocol = absoluteURL.getProtocol().toLowerCase();
+				if (protocol.equals("http") || protocol.equals("https")) {
+					ImageFetcher.FetchedImage fetched = ImageFetcher.getInstance().fetch(absoluteURL);
+					if (fetched != null) {
+						// the image server already sends JPEGs at the requested size so there's no need to decode and re-encode them
+						if (encodingFormat.equalsIgnoreCase("JPEG") && fetched.isJPEG()) {
+							this.representation = Base64.encodeBase64String(fetched.getBytes());
+							this.encoded = true;
+						}
+						else
+							encode(ImageIO.read(new ByteArrayInputStream(fetched.getBytes())), encodingFormat);
+					}
 				}
+				else
+					encode(ImageIO.read(absoluteURL), encodingFormat);
 			}
 		}
 		catch (IOException io) {
@@ -73,6 +85,21 @@ public class Thumbnail {
 		}
 	}
 
+	private void encode(BufferedImage img, String encodingFormat) throws IOException {
+		if (img == null)
+			return;
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		ImageIO.write(img, encodingFormat, bos);
+		byte[] imageBytes = bos.toByteArray();
+		this.representation = Base64.encodeBase64String(imageBytes);
+		this.encoded = true;
+	}
+
+	// true if the thumbnail is the image data itself rather than a URL for it
+	public boolean isEncoded() {
+		return encoded;
+	}
+
 	public String toString() {
 		return representation;
 	}
@@ -0,0 +1,59 @@
+/*
+    NGA ART DATA API: ArtDataSnapshotInterceptor pins the art data snapshot that is current
+    when a request arrives for the whole of that request so that a data refresh completing
+    part way through a request cannot mix old and new data in a single response
+
+    Copyright (C) 2018 National Gallery of Art Washington DC
+    Developers: David Beaudet
+
+	This library is free software; you can redistribute it and/or
+	modify it under the terms of the GNU Lesser General Public
+	License as published by the Free Software Foundation; either
+	version 2.1 of the License, or (at your option) any later version.
+
+	This library is distributed in the hope that it will be useful,
+	but WITHOUT ANY WARRANTY; without even the implied warranty of
+	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+	Lesser General Public License for more details.
+
+	You should have received a copy of the GNU Lesser General Public
+	License along with this library; if not, write to the Free Software
+	Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package gov.nga.integration.cspace;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import gov.nga.entities.art.ArtDataManagerService;
+
+@Configuration
+public class ArtDataSnapshotInterceptor extends WebMvcConfigurerAdapter {
+
+    @Autowired
+    private ArtDataManagerService artDataManager;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new HandlerInterceptorAdapter() {
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                artDataManager.pinSnapshot();
+                return true;
+            }
+
+            // servlet threads are pooled so the snapshot must always be released, even if the request failed
+            @Override
+            public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+                artDataManager.releaseSnapshot();
+            }
+        });
+    }
+
+}
@@ -47,6 +47,8 @@ import org.springframework.stereotype.Service;
 import gov.nga.entities.art.ArtDataManager;
 import gov.nga.entities.art.ArtObject;
 import gov.nga.entities.art.Derivative;
+import gov.nga.imaging.ImageFetcher;
+import gov.nga.search.SearchExecutor;
 
 import gov.nga.utils.CollectionUtils;
 import gov.nga.utils.ConfigService;
@@ -164,6 +166,10 @@ public class CSpaceArtDataManager extends ArtDataManager {
         log.info("******************************************* Activating Art Data Manager Service **********************************************");
         setConfigService(cs);
         setDataSourceService(ds);
+        // size the executor shared by searches, facet counting and thumbnail fetching
+        SearchExecutor.configure(cs);
+        ThumbnailCache.configure(cs);
+        ImageFetcher.configure(cs);
 
         // if we're unable to load, then we should try again every minute until we succeed
         scheduler.schedule(this, 0, TimeUnit.SECONDS);
@@ -179,6 +185,10 @@ public class CSpaceArtDataManager extends ArtDataManager {
     }
     
     public void run() {
+    	refresh(false);
+    }
+
+    private void refresh(boolean incremental) {
 
     	synchronized(loading) {
     		// if we're already loading in another thread, don't re-load
@@ -191,20 +201,17 @@ public class CSpaceArtDataManager extends ArtDataManager {
     	try {
     		// unload TMS data if already loaded
     		//setArtObjectsList(null);
-    		if ( ts.unloadBeforeLoading() ) {
+    		if ( !incremental && ts.unloadBeforeLoading() ) {
     			setDataReady(false);
     			unload();
     		}
     		
-    		// TODO -- having to clear cache manually from here isn't the best design but for only one cache at this level, it's probably fine
-    		// for now.  In future, probably a better pattern would be to implement a resetOnLoad interface and then find all classes implementing it
-    		// and call the rest operation
-    		if (!load()) {
+    		boolean loaded = incremental ? loadChanges() : load();
+    		if (!loaded) {
     			// if we are unable to load, then we will try again in ten seconds
     			scheduler.schedule(this, 10, TimeUnit.SECONDS); 
     		}
     		sendMessage(EVENTTYPES.DATAREFRESHED);
-    		ImageThumbnailWorker.clearCache(); 
     	}
     	catch (Exception e) {
     		log.error("Error loading data e",e);
@@ -237,7 +244,7 @@ public class CSpaceArtDataManager extends ArtDataManager {
     		List<ArtObject> objects = fetchByObjectIDs(ids);
     		for (ArtObject o : objects) {
     			if (o != null) {
-    				o.setLastDetectedModification(DateUtils.formatDate(DateUtils.DATE_FORMAT_ISO_8601_WITH_TIME_AND_TZ_CORRECT, new Date()));
+    				o.setLastDetectedModification(new Date());
     				String t = o.getTitle();
     				if (t == null)
     					t = "";
@@ -255,17 +262,31 @@ public class CSpaceArtDataManager extends ArtDataManager {
     				}
     			}
     		}
+    		reindexArtObjectRanges();
     		sendMessage(EVENTTYPES.DATAREFRESHED);
-    		ImageThumbnailWorker.clearCache(); 
     	}
     }
 
+    public static final String fullRefreshEveryPropertyName = "CSpaceArtDataManager.refresh.fullEvery";
+    private int scheduledRefreshes = 0;
+
+    // when configured, only every so many scheduled refreshes reload everything and the rest just pick up
+    // the objects and constituents that have changed - incremental refreshes need the current data in memory
+    // so they are never used when the cache is dumped before loading
+    private boolean isIncrementalRefreshDue() {
+    	Integer fullEvery = cs.getInteger(fullRefreshEveryPropertyName);
+    	if (fullEvery == null || fullEvery <= 1 || ts.unloadBeforeLoading())
+    		return false;
+    	return ++scheduledRefreshes % fullEvery != 0;
+    }
+
     // reload TMS data periodically according to a cron schedule
     @Scheduled(cron="${ngaweb.CSpaceArtDataManager.refresh.cron}")
     public void refreshData() {
     	// TODO - rework this to support refreshing without unloading the existing data from memory
-    	log.info("******************************************* Scheduled Refresh of TMS Data *****************************************************");
-    	run();
+    	boolean incremental = isIncrementalRefreshDue();
+    	log.info("******************************************* Scheduled " + (incremental ? "Incremental " : "") + "Refresh of TMS Data *****************************************************");
+    	refresh(incremental);
     }
 
 /*    private List<ArtObject> artObjectsList = null;
@@ -33,6 +33,7 @@ public class CSpaceConfigService implements ConfigService, CSpaceTestModeService
 	
 	public static final String thumbnailWidthProperty 	= "thumbnailWidth";
 	public static final String thumbnailHeightProperty 	= "thumbnailHeight";
+	public static final String thumbnailDeadlineProperty = "thumbnailDeadline";
 	
 	public static final String multiTenancyTestMode 				= "testMode";
 	public static final String multiTenancyTestModeHalfObjects 		= "halfObjects";
@@ -51,6 +51,12 @@ public abstract class CSpaceImage extends ArtObjectImage {
     // otherwise return NULL  
     public abstract Thumbnail getThumbnail(int width, int height, int maxdim, boolean exactSizeRequired, boolean preferBase64, String scheme);
 
+    // a thumbnail that only refers to the image by URL and so can be had without fetching anything, used when
+    // fetching the image itself takes too long - NULL if there's no way to refer to the image by URL
+    public Thumbnail getThumbnailWithoutFetching(int width, int height, int maxdim, String scheme) {
+    	return null;
+    }
+
     String classification;
 	public String getClassification() {
 		return classification;
@@ -24,10 +24,6 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 import java.util.regex.Pattern;
 
 import javax.servlet.http.HttpServletRequest;
@@ -57,6 +53,7 @@ import gov.nga.entities.art.ArtObject.SORT;
 import gov.nga.entities.art.Derivative;
 import gov.nga.search.ResultsPaginator;
 import gov.nga.search.SearchFilter;
+import gov.nga.search.SearchExecutor;
 import gov.nga.search.SearchHelper;
 import gov.nga.search.SearchHelper.SEARCHOP;
 import gov.nga.search.SortHelper;
@@ -195,32 +192,32 @@ public class ImageSearchController extends RecordSearchController {
 		// generate thumbnails and accumulate the results
     	if (images.size() > 0) {
 
-    		ExecutorService threadPool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors() * 2);
+    		// thumbnails are fetched on the shared search executor rather than a pool per request
+    		SearchExecutor threadPool = SearchExecutor.getInstance();
 
-    		try {
-    			// Map used to accumulate the thumbnail computations from Futures
-    			Map<Object,Future<String>> thumbnailMap = CollectionUtils.newHashMap();
-    			if (thumbnails) {
+    		// Map used to accumulate the thumbnail computations
+    		Map<Object,ImageThumbnailWorker> thumbnailMap = CollectionUtils.newHashMap();
+    		// the prefetch and the thumbnail workers all have to be done by the same deadline
+    		long thumbnailDeadline = ImageThumbnailWorker.deadlineFrom(artDataManager.getConfig());
+    		if (thumbnails) {
     				
-    				if (cs.isTestModeOtherHalfObjects())
-    					base64 = false;
+    			if (cs.isTestModeOtherHalfObjects())
+    				base64 = false;
+
+    			ImageThumbnailWorker.prefetch(threadPool, appContext.getBeansOfType(ImageSearchProvider.class).values(), 
+    					images, thumbWidth, thumbHeight, base64, thumbnailDeadline);
     				
-    				// submit the work to fetch thumbnails and compute base64 values of them
-    				for (CSpaceImage d : images) {
-    					Callable<String> thumbWorker = new ImageThumbnailWorker(d,thumbWidth,thumbHeight,base64);
-    					Future<String> future = threadPool.submit(thumbWorker);
-    					thumbnailMap.put(d, future);
-    				}
-    			}
+    			// submit the work to fetch thumbnails and compute base64 values of them
     			for (CSpaceImage d : images) {
-    				Record imageRecord = new AbridgedImageRecord(d, references, om, ts, RecordSearchController.getRequestingServer(request) );
-    				Future<String> thumb = thumbnailMap.get(d);
-    				String thumbVal = (thumb == null ? null : thumb.get());
-    				resultPage.add(new SearchResultItem(thumbVal, imageRecord));
+    				ImageThumbnailWorker thumbWorker = new ImageThumbnailWorker(d,thumbWidth,thumbHeight,base64);
+    				thumbnailMap.put(d, thumbWorker.submit(threadPool));
     			}
     		}
-    		finally {
-    			threadPool.shutdown();
+    		for (CSpaceImage d : images) {
+    			Record imageRecord = new AbridgedImageRecord(d, references, om, ts, RecordSearchController.getRequestingServer(request) );
+    			ImageThumbnailWorker thumb = thumbnailMap.get(d);
+    			String thumbVal = (thumb == null ? null : thumb.get(thumbnailDeadline));
+    			resultPage.add(new SearchResultItem(thumbVal, imageRecord));
     		}
     	}
     	
@@ -33,5 +33,9 @@ public interface ImageSearchProvider extends SourceProvider {
 	public abstract List<CSpaceImage> searchImages(
 			SearchHelper<CSpaceImage> derivativeSearchHelper,	
 			List<ArtObject> limitToTheseArtObjects) throws Exception;
+
+	// a chance to load the thumbnails of a page of results more efficiently than one at a time before
+	// the thumbnail workers ask for them individually
+	public abstract void prefetchThumbnails(List<CSpaceImage> images, int width, int height, boolean base64) throws Exception;
 	
 }
@@ -22,89 +22,157 @@
 */
 package gov.nga.integration.cspace;
 
-import java.util.LinkedHashMap;
+import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import gov.nga.imaging.Thumbnail;
+import gov.nga.search.SearchExecutor;
+import gov.nga.utils.ConfigService;
 
 public class ImageThumbnailWorker implements Callable<String> {
 	
 	private static final Logger log = LoggerFactory.getLogger(ImageThumbnailWorker.class);
 	static {log.debug(ImageThumbnailWorker.class.getName() + " starting up"); }
 
-	private static LinkedHashMap<Object, String> thumbnailCache = new LinkedHashMap<Object, String>();
-	
-	private static final int MAXDIM=400;
-	private static final int MAXSIZE=5000; // cache a maximum number of thumbnails before pruning the list 
+	public static final int MAXDIM=400;
+	// milliseconds a page of search results waits for its thumbnails by default
+	public static final int DEFAULT_DEADLINE=2000;
+
+	private static final AtomicLong timedOut = new AtomicLong();
+	private static final AtomicLong refused = new AtomicLong();
+
 	private CSpaceImage image;
 	private int width=90;
 	private int height=90;
 	private boolean useBase64IfPossible;
+	private Future<String> future = null;
 
 	public ImageThumbnailWorker(CSpaceImage image, int width, int height, boolean useBase64IfPossible) {
 		this.image = image;
-		width = width < 0 ? 0 : ( width > MAXDIM ? MAXDIM : width );
-		height = height < 0 ? 0 : ( height > MAXDIM ? MAXDIM : height );
-		this.width=width;
-		this.height=height;
+		this.width=clamp(width);
+		this.height=clamp(height);
 		this.useBase64IfPossible=useBase64IfPossible;
 	}
 
+	private static int clamp(int dim) {
+		return dim < 0 ? 0 : ( dim > MAXDIM ? MAXDIM : dim );
+	}
+
+	// thumbnails no longer have to be thrown away on a refresh since their keys change along with the
+	// metadata of the images they were made from, but this remains for anyone wanting to free the memory
 	public static void clearCache() {
-		synchronized(thumbnailCache) {
-			thumbnailCache.clear();
-		}
+		ThumbnailCache.getInstance().clear();
 	}
-	
-	private static String getFromCache(Object o) {
-		if (o == null)
-			return null;
-		synchronized(thumbnailCache) {
-			String s = thumbnailCache.get(o);
-			// each time the value is fetched, remove it from the cache and re-add it in order to keep the most
-			// frequently used items at the end of the list where they are less likely to be pruned
-			if (s != null) {
-				thumbnailCache.remove(o);
-				thumbnailCache.put(o,s);
+
+	// identifies the thumbnail requested from this particular rendition of the image by its metadata - a
+	// change to how it's fetched or to the metadata describing it changes the key, but new pixels served
+	// behind the same metadata don't, which is what the cache's maximum age is for
+	public static String cacheKey(CSpaceImage image, int width, int height, boolean useBase64IfPossible) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(clamp(width)).append('x').append(clamp(height)).append(useBase64IfPossible ? ":base64" : ":url");
+		sb.append('|').append(image.getSource());
+		sb.append('|').append(image.getImageID());
+		sb.append('|').append(image.getImgVolumePath());
+		sb.append('|').append(image.getFilename());
+		sb.append('|').append(image.getWidth()).append('x').append(image.getHeight());
+		sb.append('|').append(image.getThumbnailSize());
+		sb.append('|').append(image.getCatalogued());
+		return sb.toString();
+	}
+
+	// the time by which all of the thumbnails for a page of search results started now have to be ready
+	public static long deadlineFrom(ConfigService cs) {
+		return System.currentTimeMillis() + ConfigService.getPositiveInteger(cs, CSpaceConfigService.thumbnailDeadlineProperty, DEFAULT_DEADLINE);
+	}
+
+	// runs the prefetches of a page of thumbnails on the given executor, waiting on them no longer than the page's
+	// deadline - a prefetch still under way by then carries on so its thumbnails are cached for next time, while
+	// the workers go ahead and fetch the ones they need on their own
+	public static void prefetch(SearchExecutor executor, final Collection<ImageSearchProvider> providers, final List<CSpaceImage> images, 
+			final int width, final int height, final boolean useBase64IfPossible, long deadline) {
+		Future<Void> prefetched = executor.submitBlocking(new Callable<Void>() {
+			public Void call() throws Exception {
+				for (ImageSearchProvider isp : providers)
+					isp.prefetchThumbnails(images, width, height, useBase64IfPossible);
+				return null;
 			}
-			return s;
+		});
+		try {
+			prefetched.get(Math.max(deadline - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+		}
+		catch (TimeoutException te) {
+			log.debug("Thumbnail prefetch not finished in time, leaving the thumbnails to their workers");
+		}
+		catch (ExecutionException ee) {
+			if (ee.getCause() instanceof RejectedExecutionException)
+				log.debug("No room to prefetch thumbnails, leaving the thumbnails to their workers");
+			else
+				log.warn("Unable to prefetch thumbnails", ee.getCause());
+		}
+		catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
 		}
 	}
 
-	private static void saveToCache(Object o, String s) {
-		if (o == null)
-			return;
-		synchronized(thumbnailCache) {
-			thumbnailCache.put(o,s);
-			// prune the cache to max size, removing the first items from the entry set
-			// which are the ones less frequently used
-			while (thumbnailCache.size() > MAXSIZE) {
-				o = thumbnailCache.entrySet().iterator().next().getKey();
-				thumbnailCache.remove(o);
-			}
+	// starts the thumbnail on the given executor
+	public ImageThumbnailWorker submit(SearchExecutor executor) {
+		future = executor.submitBlocking(this);
+		return this;
+	}
+
+	// the thumbnail, or if it isn't ready by the deadline, a URL thumbnail instead so that one slow image doesn't
+	// hold up the whole page - the fetch carries on regardless so the thumbnail is cached for next time.  A fetch
+	// the executor had no room for gets the URL thumbnail straight away
+	public String get(long deadline) throws Exception {
+		if (future == null)
+			return null;
+		try {
+			return future.get(Math.max(deadline - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+		}
+		catch (TimeoutException te) {
+			timedOut.incrementAndGet();
+			log.debug("Thumbnail not ready in time for image " + image.getImageID());
+		}
+		catch (ExecutionException ee) {
+			if (!(ee.getCause() instanceof RejectedExecutionException))
+				throw ee;
+			refused.incrementAndGet();
+			log.debug("No room to fetch the thumbnail for image " + image.getImageID());
 		}
+		Thumbnail thumb = image.getThumbnailWithoutFetching(width, height, MAXDIM, "https");
+		return thumb == null ? null : thumb.toString();
 	}
 
-	public String call() {
+	// number of thumbnails that weren't ready by their deadline
+	public static long getTimedOutCount() {
+		return timedOut.get();
+	}
+
+	// number of thumbnails that were given as URLs because the executor had no room to fetch them
+	public static long getRefusedCount() {
+		return refused.get();
+	}
+
+	public String call() throws Exception {
 		if (image == null)
 			return null;
 
-		String thumbnailRepresentation = getFromCache(image);
-		if (thumbnailRepresentation != null)
-			return thumbnailRepresentation;
-		
-		// otherwise generate the thumbnail for the image
-		Thumbnail thumb = image.getThumbnail(width, height, MAXDIM, false, useBase64IfPossible, "https");
-		if (thumb == null)
-			return null;
-		String thumbRepresentation = thumb.toString();
-		saveToCache(image,thumbRepresentation);
-		
-		return thumbRepresentation;
+		return ThumbnailCache.getInstance().get(cacheKey(image, width, height, useBase64IfPossible), new Callable<Thumbnail>() {
+			public Thumbnail call() {
+				// generate the thumbnail for the image
+				return image.getThumbnail(width, height, MAXDIM, false, useBase64IfPossible, "https");
+			}
+		}, useBase64IfPossible);
 	}
 
 }
-
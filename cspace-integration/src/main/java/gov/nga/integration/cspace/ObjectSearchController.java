@@ -23,11 +23,7 @@ package gov.nga.integration.cspace;
 
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.Callable;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 import java.util.regex.Pattern;
 
 import javax.servlet.http.HttpServletRequest;
@@ -58,6 +54,7 @@ import gov.nga.entities.art.Derivative.ImgSearchOpts;
 import gov.nga.integration.cspace.imageproviders.WebImage;
 import gov.nga.search.ResultsPaginator;
 import gov.nga.search.SearchFilter;
+import gov.nga.search.SearchExecutor;
 import gov.nga.search.SearchHelper;
 import gov.nga.search.SearchHelper.SEARCHOP;
 import gov.nga.search.SortHelper;
@@ -201,45 +198,41 @@ public class ObjectSearchController extends RecordSearchController {
         		oList.add(img);
         	}
     		
-    		ExecutorService threadPool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors() * 2);
+    		// thumbnails are fetched on the shared search executor rather than a pool per request
+    		SearchExecutor threadPool = SearchExecutor.getInstance();
 
-    		try {
-    			// Map used to accumulate the thumbnail computations from Futures
-    			Map<Long,Future<String>> thumbnailMap = CollectionUtils.newHashMap();
-    			if (thumbnails) {
+    		// Map used to accumulate the thumbnail computations
+    		Map<Long,ImageThumbnailWorker> thumbnailMap = CollectionUtils.newHashMap();
+    		long thumbnailDeadline = ImageThumbnailWorker.deadlineFrom(artDataManager.getConfig());
+    		if (thumbnails) {
     				
-    				if (ts.isTestModeOtherHalfObjects())
-    					base64 = false;
+    			if (ts.isTestModeOtherHalfObjects())
+    				base64 = false;
     				
-    				int thumbWidth = artDataManager.getConfig().getInteger(CSpaceConfigService.thumbnailWidthProperty);
-    				int thumbHeight = artDataManager.getConfig().getInteger(CSpaceConfigService.thumbnailHeightProperty);
-    				// submit the work to fetch thumbnails and compute base64 values of them
-    				for (ArtObject o : artObjects) {
-    					// get the zoom image for this object, then call the ImageThumbNailWorker in a multi-threaded context to fetch them
-    					Derivative d = o.getZoomImage();
-    					// if for some reason we don't have a zoom image, use the crop
-    					if (d == null)
-    						d = o.getLargeThumbnail(ImgSearchOpts.FALLBACKTOLARGESTFIT);
-    					if (d != null) {
-    						WebImage wi = WebImage.factory(d,ts);
-    						Callable<String> thumbWorker = new ImageThumbnailWorker(wi,thumbWidth,thumbHeight,base64);
-    						Future<String> future = threadPool.submit(thumbWorker);
-    						thumbnailMap.put(o.getObjectID(), future);
-    					}
-    				}
-    			}
+    			int thumbWidth = artDataManager.getConfig().getInteger(CSpaceConfigService.thumbnailWidthProperty);
+    			int thumbHeight = artDataManager.getConfig().getInteger(CSpaceConfigService.thumbnailHeightProperty);
+    			// submit the work to fetch thumbnails and compute base64 values of them
     			for (ArtObject o : artObjects) {
-    				AbridgedObjectRecord objectRecord = new AbridgedObjectRecord(
-    						o, references, om, 
-    						ts, imagesMap.get(o.getObjectID()), RecordSearchController.getRequestingServer(request)
-    				);
-    				Future<String> thumb = thumbnailMap.get(o.getObjectID());
-    				String thumbVal = (thumb == null ? null : thumb.get());
-    				partialResults.add(new SearchResultItem(thumbVal, objectRecord));
+    				// get the zoom image for this object, then call the ImageThumbNailWorker in a multi-threaded context to fetch them
+    				Derivative d = o.getZoomImage();
+    				// if for some reason we don't have a zoom image, use the crop
+    				if (d == null)
+    					d = o.getLargeThumbnail(ImgSearchOpts.FALLBACKTOLARGESTFIT);
+    				if (d != null) {
+    					WebImage wi = WebImage.factory(d,ts);
+    					ImageThumbnailWorker thumbWorker = new ImageThumbnailWorker(wi,thumbWidth,thumbHeight,base64);
+    					thumbnailMap.put(o.getObjectID(), thumbWorker.submit(threadPool));
+    				}
     			}
     		}
-    		finally {
-    			threadPool.shutdown();
+    		for (ArtObject o : artObjects) {
+    			AbridgedObjectRecord objectRecord = new AbridgedObjectRecord(
+    					o, references, om, 
+    					ts, imagesMap.get(o.getObjectID()), RecordSearchController.getRequestingServer(request)
+    			);
+    			ImageThumbnailWorker thumb = thumbnailMap.get(o.getObjectID());
+    			String thumbVal = (thumb == null ? null : thumb.get(thumbnailDeadline));
+    			partialResults.add(new SearchResultItem(thumbVal, objectRecord));
     		}
     	}
     	
@@ -0,0 +1,332 @@
+/*
+    NGA ART DATA API: ThumbnailCache keeps the thumbnails returned with image and object search
+    results in memory, and optionally on disk, so they don't have to be fetched and encoded again
+
+    Copyright (C) 2018 National Gallery of Art Washington DC
+    Developers: David Beaudet
+
+	This library is free software; you can redistribute it and/or
+	modify it under the terms of the GNU Lesser General Public
+	License as published by the Free Software Foundation; either
+	version 2.1 of the License, or (at your option) any later version.
+
+	This library is distributed in the hope that it will be useful,
+	but WITHOUT ANY WARRANTY; without even the implied warranty of
+	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+	Lesser General Public License for more details.
+
+	You should have received a copy of the GNU Lesser General Public
+	License along with this library; if not, write to the Free Software
+	Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package gov.nga.integration.cspace;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import gov.nga.imaging.Thumbnail;
+import gov.nga.utils.ConfigService;
+import gov.nga.utils.DiskLRUCache;
+import gov.nga.utils.SegmentedLRUCache;
+
+// thumbnails are kept in memory up to a total size in bytes rather than a number of entries since
+// a base64 encoded thumbnail is many times the size of a URL.  When a directory is configured, every
+// thumbnail is also written to disk so that it survives restarts and anything dropped from memory
+// can be read back rather than fetched again.  Thumbnails are filed under a key made from the metadata
+// of the image they were made from, so a refresh that changes that metadata simply gives the image a new
+// key.  The key can't see the image server replacing the pixels behind the same metadata though, so a
+// thumbnail older than the maximum age, in either tier, is treated as missing and fetched again.  Only
+// one thread fetches any given thumbnail at a time; others asking for it wait for that result.
+public class ThumbnailCache {
+
+	private static final Logger log = LoggerFactory.getLogger(ThumbnailCache.class);
+
+	public static final String memorySizeProperty 	= "thumbnailCache.memoryMB";
+	public static final String directoryProperty 	= "thumbnailCache.directory";
+	public static final String diskSizeProperty 	= "thumbnailCache.diskMB";
+	public static final String maxAgeProperty 		= "thumbnailCache.maxAgeHours";
+
+	public static final int DEFAULT_MEMORY_MB 		= 64;
+	public static final int DEFAULT_DISK_MB 		= 1024;
+	public static final int DEFAULT_MAX_AGE_HOURS 	= 24;
+
+	// rough cost of an entry beyond its characters
+	private static final int ENTRY_OVERHEAD 		= 96;
+
+	private static final String SUFFIX 				= ".thumb";
+
+	private static volatile ThumbnailCache sharedInstance = null;
+
+	// a thumbnail along with when it was fetched
+	private static class Entry {
+		private final String value;
+		private final long fetched;
+
+		Entry(String value, long fetched) {
+			this.value = value;
+			this.fetched = fetched;
+		}
+	}
+
+	private final SegmentedLRUCache<String, Entry> memory;
+	private final DiskLRUCache disk;
+	private long maxAgeMillis;
+
+	private final ConcurrentHashMap<String, FutureTask<String>> loading = new ConcurrentHashMap<String, FutureTask<String>>();
+
+	private final AtomicLong hits 		= new AtomicLong();
+	private final AtomicLong diskHits 	= new AtomicLong();
+	private final AtomicLong misses 	= new AtomicLong();
+	private final AtomicLong coalesced 	= new AtomicLong();
+	private final AtomicLong unencoded 	= new AtomicLong();
+	private final AtomicLong expired 	= new AtomicLong();
+
+	private ThumbnailCache(long maxMemoryBytes, File directory, long maxDiskBytes, long maxAgeMillis) {
+		memory = new SegmentedLRUCache<String, Entry>(maxMemoryBytes) {
+			protected long weigh(String key, Entry entry) {
+				return ENTRY_OVERHEAD + 2L * (key.length() + entry.value.length());
+			}
+		};
+		disk = directory == null ? null : new DiskLRUCache(directory, SUFFIX, maxDiskBytes);
+		this.maxAgeMillis = maxAgeMillis;
+	}
+
+	private static long hoursToMillis(int hours) {
+		return hours * 60L * 60L * 1000L;
+	}
+
+	public static ThumbnailCache getInstance() {
+		ThumbnailCache c = sharedInstance;
+		if (c == null) {
+			synchronized (ThumbnailCache.class) {
+				if (sharedInstance == null)
+					sharedInstance = new ThumbnailCache(DEFAULT_MEMORY_MB * 1024L * 1024L, null, 0, hoursToMillis(DEFAULT_MAX_AGE_HOURS));
+				c = sharedInstance;
+			}
+		}
+		return c;
+	}
+
+	// replace the shared cache with one sized per configuration - thumbnails already on disk are picked up again
+	public static synchronized void configure(ConfigService cs) {
+		int memoryMB = ConfigService.getPositiveInteger(cs, memorySizeProperty, DEFAULT_MEMORY_MB);
+		int diskMB = ConfigService.getPositiveInteger(cs, diskSizeProperty, DEFAULT_DISK_MB);
+		int maxAgeHours = ConfigService.getPositiveInteger(cs, maxAgeProperty, DEFAULT_MAX_AGE_HOURS);
+		String dir = cs == null ? null : cs.getString(directoryProperty);
+		File directory = null;
+		if (dir != null && dir.trim().length() > 0) {
+			directory = new File(dir.trim());
+			if (!directory.isDirectory() && !directory.mkdirs()) {
+				log.error("Thumbnail cache directory " + directory + " cannot be created so thumbnails are only cached in memory");
+				directory = null;
+			}
+		}
+		sharedInstance = new ThumbnailCache(memoryMB * 1024L * 1024L, directory, diskMB * 1024L * 1024L, hoursToMillis(maxAgeHours));
+		log.info("Thumbnail cache configured with " + memoryMB + "MB in memory" + (directory == null ? "" : " and " + diskMB + "MB in " + directory)
+				+ " for up to " + maxAgeHours + " hours");
+	}
+
+	// the thumbnail filed under the given key, calling the loader for it if it isn't cached and no other
+	// thread is already doing so - nothing is cached if the loader returns null, or if an encoded thumbnail
+	// is required and the loader could only come up with a URL
+	public String get(final String key, final Callable<Thumbnail> loader, final boolean requireEncoded) throws Exception {
+		String value = fromMemory(key);
+		if (value != null) {
+			hits.incrementAndGet();
+			return value;
+		}
+
+		FutureTask<String> task = new FutureTask<String>(new Callable<String>() {
+			public String call() throws Exception {
+				return load(key, loader, requireEncoded);
+			}
+		});
+		FutureTask<String> inFlight = loading.putIfAbsent(key, task);
+		if (inFlight != null) {
+			coalesced.incrementAndGet();
+			task = inFlight;
+		}
+		else {
+			try {
+				task.run();
+			}
+			finally {
+				loading.remove(key, task);
+			}
+		}
+		try {
+			return task.get();
+		}
+		catch (ExecutionException ee) {
+			if (ee.getCause() instanceof Exception)
+				throw (Exception) ee.getCause();
+			throw ee;
+		}
+	}
+
+	private String load(String key, Callable<Thumbnail> loader, boolean requireEncoded) throws Exception {
+		Entry entry = readFromDisk(key);
+		if (entry != null) {
+			diskHits.incrementAndGet();
+			memory.put(key, entry);
+			return entry.value;
+		}
+		misses.incrementAndGet();
+		Thumbnail thumb = loader.call();
+		if (thumb == null)
+			return null;
+		String value = thumb.toString();
+		// falling back to a URL, e.g. when the image server is briefly unavailable, is only good
+		// enough for this request - the next one should try to encode the thumbnail again
+		if (requireEncoded && !thumb.isEncoded()) {
+			unencoded.incrementAndGet();
+			return value;
+		}
+		put(key, value);
+		return value;
+	}
+
+	// files a thumbnail that was loaded some other way, e.g. along with many others at once
+	public void put(String key, String value) {
+		if (value == null)
+			return;
+		writeToDisk(key, value);
+		memory.put(key, new Entry(value, System.currentTimeMillis()));
+	}
+
+	private boolean isExpired(long fetched) {
+		return System.currentTimeMillis() - fetched > maxAgeMillis;
+	}
+
+	// the thumbnail held in memory for the given key, unless it's past the maximum age
+	private String fromMemory(String key) {
+		Entry entry = memory.get(key);
+		if (entry == null)
+			return null;
+		if (isExpired(entry.fetched)) {
+			expired.incrementAndGet();
+			memory.remove(key);
+			return null;
+		}
+		return entry.value;
+	}
+
+	// true if the given thumbnail can be had without loading it
+	public boolean contains(String key) {
+		Entry entry = memory.get(key);
+		if (entry != null && !isExpired(entry.fetched))
+			return true;
+		if (disk == null)
+			return false;
+		String name = DiskLRUCache.nameFor(key);
+		return disk.contains(name) && !isExpired(disk.fileFor(name).lastModified());
+	}
+
+	// the thumbnail on disk for the given key, dated by when its file was written
+	private Entry readFromDisk(String key) {
+		if (disk == null)
+			return null;
+		String name = DiskLRUCache.nameFor(key);
+		if (!disk.contains(name))
+			return null;
+		File f = disk.fileFor(name);
+		try {
+			long lastModified = f.lastModified();
+			if (isExpired(lastModified)) {
+				expired.incrementAndGet();
+				disk.remove(name);
+				return null;
+			}
+			return new Entry(new String(Files.readAllBytes(f.toPath()), StandardCharsets.UTF_8), lastModified);
+		}
+		catch (NoSuchFileException nfe) {
+			// removed in the meantime
+		}
+		catch (IOException ie) {
+			log.warn("Unable to read cached thumbnail " + f + ": " + ie.getMessage());
+		}
+		disk.remove(name);
+		return null;
+	}
+
+	private void writeToDisk(String key, String value) {
+		if (disk == null)
+			return;
+		String name = DiskLRUCache.nameFor(key);
+		File temp = null;
+		try {
+			temp = disk.createTempFile(name);
+			Files.write(temp.toPath(), value.getBytes(StandardCharsets.UTF_8));
+			disk.commit(temp, name);
+			temp = null;
+		}
+		catch (IOException ie) {
+			log.warn("Unable to write thumbnail to disk: " + ie.getMessage());
+		}
+		finally {
+			if (temp != null)
+				temp.delete();
+		}
+	}
+
+	// empties the memory tier only - what's on disk stays valid until it reaches the maximum age
+	public void clear() {
+		memory.clear();
+	}
+
+	public int size() {
+		return memory.size();
+	}
+
+	public long getMemoryBytes() {
+		return memory.getWeight();
+	}
+
+	public long getDiskBytes() {
+		return disk == null ? 0 : disk.getSizeInBytes();
+	}
+
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	public long getDiskHitCount() {
+		return diskHits.get();
+	}
+
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	// number of requests that waited on a fetch another thread already had under way
+	public long getCoalescedCount() {
+		return coalesced.get();
+	}
+
+	// number of thumbnails that should have been encoded but weren't and so were left out of the cache
+	public long getUnencodedCount() {
+		return unencoded.get();
+	}
+
+	// number of thumbnails found past the maximum age and fetched again
+	public long getExpiredCount() {
+		return expired.get();
+	}
+
+	public String toString() {
+		return "ThumbnailCache[entries=" + size() + ", memory=" + getMemoryBytes() + "/" + memory.getCapacity() + ", disk=" + getDiskBytes() + "/" + (disk == null ? 0 : disk.getMaxBytes())
+				+ ", hits=" + getHitCount() + ", diskHits=" + getDiskHitCount() + ", misses=" + getMissCount() + ", coalesced=" + getCoalescedCount() + ", unencoded=" + getUnencodedCount() + ", expired=" + getExpiredCount() + "]";
+	}
+
+}
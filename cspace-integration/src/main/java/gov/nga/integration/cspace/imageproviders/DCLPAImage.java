@@ -20,17 +20,19 @@
 */
 package gov.nga.integration.cspace.imageproviders;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
-import java.sql.Blob;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.List;
 import java.util.regex.Pattern;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.util.StreamUtils;
 
 import gov.nga.entities.art.ArtDataManagerService;
 import gov.nga.imaging.Thumbnail;
@@ -56,12 +58,42 @@ public class DCLPAImage extends CSpaceImage {
 		// creator, originalSource, originalSourceType, viewDescription, description, projectDescription, lightQuality, spectrum,
     	// treatmentPhase, originalFilename, captureDevice
 
+	// thumbnails are stored in Portfolio as blobs in field 12 of the blobs table
+	private static final String fetchThumbnailsQuery = "SELECT record_id, value FROM blobs_table WHERE field_id=12 AND record_id IN (%s)";
+
 	private static final String CLASSIFICATION = "conservationImage";
     
     public String getAllImagesQuery() {
     	return fetchAllImagesQuery;
     }
 
+    // the query for the thumbnails of the given number of records, one parameter per record ID
+    public static String getThumbnailsQuery(int count) {
+    	StringBuilder params = new StringBuilder();
+    	for (int i=0; i<count; i++)
+    		params.append(i == 0 ? "?" : ",?");
+    	return String.format(fetchThumbnailsQuery, params);
+    }
+
+    // the thumbnail in the given column of the current row, streamed rather than materialized as a blob first
+    public static Thumbnail thumbnailFrom(ResultSet rs, int column) throws SQLException, IOException {
+    	try ( InputStream in = rs.getBinaryStream(column) ) {
+    		if (in == null)
+    			return null;
+    		return new Thumbnail(StreamUtils.copyToByteArray(in));
+    	}
+    }
+
+    // the Portfolio record ID of the image, or null if the image ID isn't one
+    public Integer getRecordID() {
+    	try {
+    		return Integer.parseInt(getImageID());
+    	}
+    	catch (NumberFormatException nfe) {
+    		return null;
+    	}
+    }
+
 	public DCLPAImage(ArtDataManagerService manager, ResultSet rs, DataSourceService dclpaDS, CSpaceTestModeService ts) throws SQLException {
 		this(manager,rs,ts);
 		this.dclpaDS = dclpaDS;
@@ -167,22 +199,23 @@ public class DCLPAImage extends CSpaceImage {
 		// otherwise, we'll give them what we've got and it will have to be base64 format since direct URL isn't practical
 		// for non-zoom images, i.e. we don't have IIIF server and PTIF resources for DCLPA images so we have to load the 
 		// image from portfolio's database directly - we get what we get and we don't get upset
+		Integer id = getRecordID();
+		if (id == null)
+			return null;
 		try ( Connection conn = dclpaDS.getConnection() ) {
-			try ( Statement st = conn.createStatement() ) {
-				try (ResultSet rs = st.executeQuery("SELECT value FROM blobs_table WHERE record_id=" + this.getImageID() + " AND field_id=12") ) {
-					if (rs.next()) {
-						Blob blob = rs.getBlob(1);
-						Long len = blob.length();
-						return new Thumbnail(blob.getBytes(1,len.intValue()));
-					}
+			try ( PreparedStatement ps = conn.prepareStatement(getThumbnailsQuery(1)) ) {
+				ps.setInt(1, id);
+				try (ResultSet rs = ps.executeQuery() ) {
+					if (rs.next())
+						return thumbnailFrom(rs, 2);
 					rs.close();
 				}
-				st.close();
+				ps.close();
 			}
 			conn.close();
 		}
-		catch (SQLException se) {
-			log.warn("Could not fetch thumbnail", se);
+		catch (IOException | SQLException e) {
+			log.warn("Could not fetch thumbnail", e);
 		}
 		
 		return null;
@@ -26,7 +26,10 @@ import java.sql.Date;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import javax.annotation.Resource;
@@ -44,8 +47,11 @@ import gov.nga.entities.art.ArtDataManagerService;
 import gov.nga.entities.art.OperatingModeService.OperatingMode;
 import gov.nga.entities.art.ArtObject;
 import gov.nga.entities.art.Derivative;
+import gov.nga.imaging.Thumbnail;
 import gov.nga.integration.cspace.CSpaceImage;
 import gov.nga.integration.cspace.CSpaceTestModeService;
+import gov.nga.integration.cspace.ImageThumbnailWorker;
+import gov.nga.integration.cspace.ThumbnailCache;
 import gov.nga.search.SearchFilter;
 import gov.nga.search.SearchHelper;
 import gov.nga.search.SearchHelper.SEARCHOP;
@@ -67,6 +73,9 @@ public class DCLPAImageSearchProvider extends SourceProviderImpl {
 	// TODO put in a SQL Server DB constants utility class
 	public static final DateTime MINDATE = DateTime.parse("1754-01-01T01:00:00+00:00"); // SQL server supports a min date of 1/1/1753
 	public static final DateTime MAXDATE = DateTime.parse("9998-01-01T01:00:00+00:00"); // SQL server supports up to 12/31/9999 this
+
+	// the most thumbnails fetched by a single query - SQL server allows up to 2100 parameters per statement
+	private static final int THUMBNAILBATCHSIZE = 500;
 		
     @Resource(name="nga.jdbc.dclpa") 
     private DataSourceService dclpaDataSource;
@@ -216,6 +225,64 @@ public class DCLPAImageSearchProvider extends SourceProviderImpl {
 		return imageHitList;
 	}
 
+	// DCLPA thumbnails are blobs in Portfolio so rather than each thumbnail worker querying for its own, the
+	// thumbnails for a whole page of results are fetched with as few queries as possible and handed to the
+	// thumbnail cache where the workers will find them - any that can't be fetched this way are left for the
+	// workers to try again on their own
+	@Override
+	public void prefetchThumbnails(List<CSpaceImage> images, int width, int height, boolean base64) {
+		ThumbnailCache cache = ThumbnailCache.getInstance();
+
+		// the cache keys of the thumbnails still needed by record ID
+		Map<Integer, List<String>> needed = new LinkedHashMap<Integer, List<String>>();
+		for (CSpaceImage i : images) {
+			// the workers won't use thumbnails too large to be thumbnails
+			if ( !(i instanceof DCLPAImage) || i.getThumbnailSize() > ImageThumbnailWorker.MAXDIM )
+				continue;
+			Integer id = ((DCLPAImage) i).getRecordID();
+			String key = ImageThumbnailWorker.cacheKey(i, width, height, base64);
+			if ( id == null || cache.contains(key) )
+				continue;
+			List<String> keys = needed.get(id);
+			if (keys == null) {
+				keys = CollectionUtils.newArrayList();
+				needed.put(id, keys);
+			}
+			keys.add(key);
+		}
+		if (needed.isEmpty())
+			return;
+
+		long cTime = System.currentTimeMillis();
+		int fetched = 0;
+		List<Integer> ids = new ArrayList<Integer>(needed.keySet());
+		try ( Connection conn = dclpaDataSource.getConnection() ) {
+			for (int from = 0; from < ids.size(); from += THUMBNAILBATCHSIZE) {
+				List<Integer> batch = ids.subList(from, Math.min(from + THUMBNAILBATCHSIZE, ids.size()));
+				try ( PreparedStatement ps = conn.prepareStatement(DCLPAImage.getThumbnailsQuery(batch.size())) ) {
+					int p = 1;
+					for (Integer id : batch)
+						ps.setInt(p++, id);
+					try ( ResultSet rs = ps.executeQuery() ) {
+						while (rs.next()) {
+							List<String> keys = needed.get(rs.getInt(1));
+							Thumbnail thumb = DCLPAImage.thumbnailFrom(rs, 2);
+							if (keys == null || thumb == null)
+								continue;
+							for (String key : keys)
+								cache.put(key, thumb.toString());
+							fetched++;
+						}
+					}
+				}
+			}
+		}
+		catch (Exception e) {
+			log.warn("Unable to prefetch DCLPA thumbnails", e);
+		}
+		log.debug("Prefetched " + fetched + " of " + ids.size() + " DCLPA thumbnails in " + (System.currentTimeMillis() - cTime) + "ms");
+	}
+
 	public String[] getProvidedSources() {
 		return providesSource;
 	}
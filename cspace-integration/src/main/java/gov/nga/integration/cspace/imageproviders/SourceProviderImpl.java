@@ -21,6 +21,9 @@
 */
 package gov.nga.integration.cspace.imageproviders;
 
+import java.util.List;
+
+import gov.nga.integration.cspace.CSpaceImage;
 import gov.nga.integration.cspace.ImageSearchProvider;
 import gov.nga.integration.cspace.SourceProvider;
 
@@ -35,5 +38,9 @@ public abstract class SourceProviderImpl implements SourceProvider, ImageSearchP
 					return true;
 		return false;
 	}
+
+	// thumbnails are fetched one at a time unless a provider knows better
+	public void prefetchThumbnails(List<CSpaceImage> images, int width, int height, boolean base64) throws Exception {
+	}
 	
 }
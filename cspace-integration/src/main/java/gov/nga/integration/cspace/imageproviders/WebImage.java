@@ -71,6 +71,11 @@ public class WebImage extends CSpaceImage {
     	return newImage;
     }
 
+    @Override
+    public Thumbnail getThumbnailWithoutFetching(int width, int height, int maxdim, String scheme) {
+    	return getThumbnail(width, height, maxdim, false, false, scheme);
+    }
+
     @Override
 	public Thumbnail getThumbnail(int width, int height, int maxdim, boolean exactSizeRequired, boolean preferBase64, String scheme) {
     	// first, we try to get a IIIF URL so we can get the right size thumbnail
@@ -0,0 +1,191 @@
+/*
+    NGA ART DATA API: WebImageIndex holds the cached list of web images along with hash
+    indexes of them by image ID and by volume path and filename
+
+    Copyright (C) 2018 National Gallery of Art Washington DC
+    Developers: David Beaudet
+
+	This library is free software; you can redistribute it and/or
+	modify it under the terms of the GNU Lesser General Public
+	License as published by the Free Software Foundation; either
+	version 2.1 of the License, or (at your option) any later version.
+
+	This library is distributed in the hope that it will be useful,
+	but WITHOUT ANY WARRANTY; without even the implied warranty of
+	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+	Lesser General Public License for more details.
+
+	You should have received a copy of the GNU Lesser General Public
+	License along with this library; if not, write to the Free Software
+	Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package gov.nga.integration.cspace.imageproviders;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import gov.nga.entities.art.Derivative;
+import gov.nga.integration.cspace.CSpaceImage;
+import gov.nga.search.SearchFilter;
+import gov.nga.search.SearchHelper;
+import gov.nga.search.SearchHelper.SEARCHOP;
+import gov.nga.search.SearchKey;
+import gov.nga.utils.CollectionUtils;
+
+// the image record service and every IIIF tile request look up a single image by its ID or by its
+// volume path and filename - rather than scanning every image for those, the images are filed under
+// the same lower cased and diacritic free forms of those values that a search filter compares, so an
+// equality filter only has to look its values up.  An index is never modified once it's built, a
+// refresh simply builds a new one.
+public class WebImageIndex {
+
+	public static final WebImageIndex EMPTY = new WebImageIndex(null);
+
+	// separates volume path and filename in the combined key - neither can contain it
+	private static final char PATHSEPARATOR = '\u0000';
+
+	private final List<CSpaceImage> images;
+
+	// positions of the images in the list keyed by lower cased and by normalized value
+	private final Map<String, int[]> byID = CollectionUtils.newHashMap();
+	private final Map<String, int[]> byIDNormalized = CollectionUtils.newHashMap();
+	private final Map<String, int[]> byPath = CollectionUtils.newHashMap();
+	private final Map<String, int[]> byPathNormalized = CollectionUtils.newHashMap();
+
+	public WebImageIndex(List<CSpaceImage> images) {
+		this.images = images == null ? null : Collections.unmodifiableList(images);
+		if (images == null)
+			return;
+		for (int i=0; i<images.size(); i++) {
+			CSpaceImage d = images.get(i);
+			SearchKey id = SearchKey.of(d.getImageID());
+			if (id != null) {
+				add(byID, id.getLowerCase(), i);
+				add(byIDNormalized, id.getNormalized(), i);
+			}
+			SearchKey path = SearchKey.of(d.getImgVolumePath());
+			SearchKey file = SearchKey.of(d.getFilename());
+			if (path != null && file != null) {
+				add(byPath, pathKey(path.getLowerCase(), file.getLowerCase()), i);
+				add(byPathNormalized, pathKey(path.getNormalized(), file.getNormalized()), i);
+			}
+		}
+	}
+
+	private static String pathKey(String volumePath, String filename) {
+		return volumePath + PATHSEPARATOR + filename;
+	}
+
+	// images almost never share a key so each list starts out with room for just one
+	private static void add(Map<String, int[]> map, String key, int position) {
+		int[] positions = map.get(key);
+		if (positions == null)
+			positions = new int[] { position };
+		else {
+			int[] more = new int[positions.length+1];
+			System.arraycopy(positions, 0, more, 0, positions.length);
+			more[positions.length] = position;
+			positions = more;
+		}
+		map.put(key, positions);
+	}
+
+	public boolean isEmpty() {
+		return images == null;
+	}
+
+	public List<CSpaceImage> getImages() {
+		return images;
+	}
+
+	public int size() {
+		return images == null ? 0 : images.size();
+	}
+
+	// a superset of the images that match the given search helper, in the order they appear in the
+	// full list, if it filters on an image ID or on both a volume path and a filename - otherwise null,
+	// in which case the whole list has to be searched
+	public List<CSpaceImage> candidates(SearchHelper<CSpaceImage> sh) {
+		if (images == null || sh == null)
+			return null;
+
+		BitSet matches = null;
+		for (SearchFilter f : sh.getFilters(Derivative.SEARCH.IMAGEID)) {
+			BitSet m = lookup(f.getNormalize() ? byIDNormalized : byID, f, null);
+			if (m != null)
+				matches = intersect(matches, m);
+		}
+		if (matches == null) {
+			for (SearchFilter pf : sh.getFilters(Derivative.SEARCH.IMAGEVOLUMEPATH)) {
+				for (SearchFilter ff : sh.getFilters(Derivative.SEARCH.IMAGEFILENAME)) {
+					// both filters have to compare values the same way for a combined key to be used
+					if (!pf.getNormalize().equals(ff.getNormalize()))
+						continue;
+					BitSet m = lookup(pf.getNormalize() ? byPathNormalized : byPath, pf, ff);
+					if (m != null)
+						matches = intersect(matches, m);
+				}
+			}
+		}
+		if (matches == null)
+			return null;
+
+		List<CSpaceImage> candidates = CollectionUtils.newArrayList();
+		for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i+1))
+			candidates.add(images.get(i));
+		return candidates;
+	}
+
+	private static BitSet intersect(BitSet a, BitSet b) {
+		if (a == null)
+			return b;
+		a.and(b);
+		return a;
+	}
+
+	// the positions of the images filed under any of the filter's values, or under any combination of
+	// the volume path filter's values with the filename filter's values, or null if the filters aren't
+	// equality filters on values that were indexed
+	private BitSet lookup(Map<String, int[]> map, SearchFilter f, SearchFilter filenameFilter) {
+		List<String> values = values(f);
+		List<String> filenames = filenameFilter == null ? null : values(filenameFilter);
+		if (values == null || (filenameFilter != null && filenames == null))
+			return null;
+
+		BitSet matches = new BitSet();
+		for (String v : values) {
+			if (filenames == null)
+				set(matches, map.get(v));
+			else {
+				for (String fn : filenames)
+					set(matches, map.get(pathKey(v, fn)));
+			}
+		}
+		return matches;
+	}
+
+	// the values of an equality filter in the form it compares them, or null if it isn't one or if it
+	// matches on a null value since images without a value aren't indexed
+	private static List<String> values(SearchFilter f) {
+		if (f.getOp() != SEARCHOP.EQUALS && f.getOp() != SEARCHOP.IN)
+			return null;
+		List<String> values = f.getNormalize() ? f.getStringSearchValuesNormalized() : f.getStringSearchValues();
+		if (values == null || values.isEmpty())
+			return null;
+		for (String v : values) {
+			if (v == null)
+				return null;
+		}
+		return values;
+	}
+
+	private static void set(BitSet bits, int[] positions) {
+		if (positions == null)
+			return;
+		for (int p : positions)
+			bits.set(p);
+	}
+
+}
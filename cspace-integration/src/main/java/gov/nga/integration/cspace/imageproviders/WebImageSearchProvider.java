@@ -70,7 +70,8 @@ public class WebImageSearchProvider extends SourceProviderImpl implements Messag
 
 	private static final String[] providesSource = {ArtObjectImage.defaultSource};
 	
-	private List<CSpaceImage> imageCache = null;
+	// the list of images and its indexes are replaced together so a search never sees one without the other
+	private volatile WebImageIndex imageCache = WebImageIndex.EMPTY;
 	
 	public synchronized void receiveMessage(EVENTTYPES event) {
 		if (event == EVENTTYPES.DATAREFRESHED) {
@@ -78,11 +79,17 @@ public class WebImageSearchProvider extends SourceProviderImpl implements Messag
 				// re-cache the image list and object marker
 				Collection<ArtObject> newObjectMarker = artDataManager.getArtObjectsRaw().values();
 				List<CSpaceImage> newImageCache = getLargestImagesOfArtObjects(newObjectMarker);
-				imageCache = newImageCache;
+				imageCache = new WebImageIndex(newImageCache);
+				log.info("Cached and indexed " + imageCache.size() + " web images");
 		//	}
 		}
 	}
 	
+	// the images cached when the data was last refreshed - a new index is built on every refresh
+	public WebImageIndex getImageCache() {
+		return imageCache;
+	}
+
 	private List<CSpaceImage> getLargestImagesOfArtObjects(Collection<ArtObject> fromTheseObjects) {
 		List<CSpaceImage> images = CollectionUtils.newArrayList();
 		// add the largest images of each type to the results
@@ -113,8 +120,12 @@ public class WebImageSearchProvider extends SourceProviderImpl implements Messag
 			images = getLargestImagesOfArtObjects(limitToTheseArtObjects);
 		else {
 			artDataManager.isDataReady(true);
-			// if we haven't yet cached the list of images or the list has changed since we cached it, then refresh it
-			images = imageCache;
+			// look up the images when searching for a specific one by its ID or by its volume path and filename,
+			// otherwise search the entire list of images that was cached when the data was last refreshed
+			WebImageIndex index = imageCache;
+			images = index.candidates(imageSearchHelper);
+			if (images == null)
+				images = index.getImages();
 		}
 
 		// execute the search across these derivatives for any derivative specific fields - other implementers will have to
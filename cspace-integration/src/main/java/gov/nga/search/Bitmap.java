@@ -0,0 +1,242 @@
+/*
+    Bitmap is an immutable set of the ordinals of entities in an index which keeps its members
+    either as a sorted array or as words of bits, whichever takes less room
+
+    Copyright (C) 2018 National Gallery of Art Washington DC
+    Developers: David Beaudet
+
+	This library is free software; you can redistribute it and/or
+	modify it under the terms of the GNU Lesser General Public
+	License as published by the Free Software Foundation; either
+	version 2.1 of the License, or (at your option) any later version.
+
+	This library is distributed in the hope that it will be useful,
+	but WITHOUT ANY WARRANTY; without even the implied warranty of
+	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+	Lesser General Public License for more details.
+
+	You should have received a copy of the GNU Lesser General Public
+	License along with this library; if not, write to the Free Software
+	Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+
+package gov.nga.search;
+
+import java.util.Arrays;
+
+// most facet and filter values belong to a few objects while a handful, such as on view, belong to
+// a good share of the collection, so rather than spending a bit per object on every value, a bitmap
+// with fewer members than one in every 32 ordinals keeps them as a sorted array, which is then never
+// larger than the words of bits would be.  Combining a sparse bitmap with any other only has to look
+// up each of its members, and two dense ones are combined a word, or 64 ordinals, at a time.
+public class Bitmap {
+
+	private static final int[] EMPTY = new int[0];
+
+	// the number of ordinals in the index, all of which are less than this
+	private final int size;
+	private final int cardinality;
+	// exactly one of these is set
+	private final int[] members;
+	private final long[] words;
+
+	private Bitmap(int size, int cardinality, int[] members, long[] words) {
+		this.size = size;
+		this.cardinality = cardinality;
+		this.members = members;
+		this.words = words;
+	}
+
+	// the given ordinals, which must be in ascending order without repeats
+	public static Bitmap of(int size, int[] ordinals, int count) {
+		if (!isDense(size, count))
+			return new Bitmap(size, count, count == ordinals.length ? ordinals : Arrays.copyOf(ordinals, count), null);
+		long[] words = new long[wordsFor(size)];
+		for (int i=0; i<count; i++)
+			words[ordinals[i] >>> 6] |= 1L << ordinals[i];
+		return new Bitmap(size, count, null, words);
+	}
+
+	public static Bitmap all(int size) {
+		long[] words = new long[wordsFor(size)];
+		Arrays.fill(words, -1L);
+		if ((size & 63) != 0 && words.length > 0)
+			words[words.length-1] = (1L << size) - 1;
+		return fromWords(size, words);
+	}
+
+	public static Bitmap none(int size) {
+		return new Bitmap(size, 0, EMPTY, null);
+	}
+
+	private static boolean isDense(int size, int cardinality) {
+		return cardinality > 0 && cardinality >= size / 32;
+	}
+
+	private static int wordsFor(int size) {
+		return (size + 63) >>> 6;
+	}
+
+	private static Bitmap fromWords(int size, long[] words) {
+		int cardinality = 0;
+		for (long w : words)
+			cardinality += Long.bitCount(w);
+		if (isDense(size, cardinality))
+			return new Bitmap(size, cardinality, null, words);
+		int[] members = new int[cardinality];
+		int n = 0;
+		for (int i=0; i<words.length; i++) {
+			long w = words[i];
+			while (w != 0) {
+				members[n++] = (i << 6) + Long.numberOfTrailingZeros(w);
+				w &= w - 1;
+			}
+		}
+		return new Bitmap(size, cardinality, members, null);
+	}
+
+	private long[] toWords() {
+		if (words != null)
+			return words.clone();
+		long[] w = new long[wordsFor(size)];
+		for (int m : members)
+			w[m >>> 6] |= 1L << m;
+		return w;
+	}
+
+	public boolean contains(int ordinal) {
+		if (ordinal < 0 || ordinal >= size)
+			return false;
+		if (words != null)
+			return (words[ordinal >>> 6] & (1L << ordinal)) != 0;
+		return Arrays.binarySearch(members, ordinal) >= 0;
+	}
+
+	public int cardinality() {
+		return cardinality;
+	}
+
+	public boolean isEmpty() {
+		return cardinality == 0;
+	}
+
+	public Bitmap and(Bitmap other) {
+		if (words == null || other.words == null) {
+			Bitmap sparse = words == null ? this : other;
+			Bitmap rest = sparse == this ? other : this;
+			int[] found = new int[sparse.cardinality];
+			int n = 0;
+			for (int m : sparse.members) {
+				if (rest.contains(m))
+					found[n++] = m;
+			}
+			return new Bitmap(size, n, Arrays.copyOf(found, n), null);
+		}
+		long[] w = new long[words.length];
+		for (int i=0; i<w.length; i++)
+			w[i] = words[i] & other.words[i];
+		return fromWords(size, w);
+	}
+
+	public Bitmap or(Bitmap other) {
+		if (words == null && other.words == null && !isDense(size, cardinality + other.cardinality)) {
+			int[] merged = new int[cardinality + other.cardinality];
+			int i = 0, j = 0, n = 0;
+			while (i < members.length || j < other.members.length) {
+				int next;
+				if (j >= other.members.length || (i < members.length && members[i] < other.members[j]))
+					next = members[i++];
+				else if (i >= members.length || other.members[j] < members[i])
+					next = other.members[j++];
+				else {
+					next = members[i++];
+					j++;
+				}
+				merged[n++] = next;
+			}
+			return new Bitmap(size, n, Arrays.copyOf(merged, n), null);
+		}
+		long[] w = toWords();
+		if (other.words != null) {
+			for (int i=0; i<w.length; i++)
+				w[i] |= other.words[i];
+		}
+		else {
+			for (int m : other.members)
+				w[m >>> 6] |= 1L << m;
+		}
+		return fromWords(size, w);
+	}
+
+	// the members of this bitmap that aren't in the other one
+	public Bitmap andNot(Bitmap other) {
+		if (words == null) {
+			int[] found = new int[cardinality];
+			int n = 0;
+			for (int m : members) {
+				if (!other.contains(m))
+					found[n++] = m;
+			}
+			return new Bitmap(size, n, Arrays.copyOf(found, n), null);
+		}
+		long[] w = words.clone();
+		if (other.words != null) {
+			for (int i=0; i<w.length; i++)
+				w[i] &= ~other.words[i];
+		}
+		else {
+			for (int m : other.members)
+				w[m >>> 6] &= ~(1L << m);
+		}
+		return fromWords(size, w);
+	}
+
+	// every ordinal of the index that isn't a member
+	public Bitmap not() {
+		return all(size).andNot(this);
+	}
+
+	// the number of members this bitmap has in common with the other, without building the bitmap of them
+	public int andCardinality(Bitmap other) {
+		if (words == null || other.words == null) {
+			Bitmap sparse = words == null ? this : other;
+			Bitmap rest = sparse == this ? other : this;
+			int n = 0;
+			for (int m : sparse.members) {
+				if (rest.contains(m))
+					n++;
+			}
+			return n;
+		}
+		int n = 0;
+		for (int i=0; i<words.length; i++)
+			n += Long.bitCount(words[i] & other.words[i]);
+		return n;
+	}
+
+	// the members in ascending order
+	public int[] toArray() {
+		if (members != null)
+			return members.clone();
+		int[] a = new int[cardinality];
+		int n = 0;
+		for (int i=0; i<words.length; i++) {
+			long w = words[i];
+			while (w != 0) {
+				a[n++] = (i << 6) + Long.numberOfTrailingZeros(w);
+				w &= w - 1;
+			}
+		}
+		return a;
+	}
+
+	// the bytes the members take up
+	public long sizeInBytes() {
+		return members != null ? 4L * members.length : 8L * words.length;
+	}
+
+	public String toString() {
+		return "Bitmap[size=" + size + ", cardinality=" + cardinality + ", " + (words != null ? "dense" : "sparse") + "]";
+	}
+
+}
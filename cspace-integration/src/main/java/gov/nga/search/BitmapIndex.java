@@ -0,0 +1,216 @@
+/*
+    BitmapIndex numbers every entity of a data set and keeps a bitmap of the entities having each
+    value of a set of search fields and facets, so filters on those fields are evaluated and facets
+    counted a word of bits at a time rather than an entity at a time
+
+    Copyright (C) 2018 National Gallery of Art Washington DC
+    Developers: David Beaudet
+
+	This library is free software; you can redistribute it and/or
+	modify it under the terms of the GNU Lesser General Public
+	License as published by the Free Software Foundation; either
+	version 2.1 of the License, or (at your option) any later version.
+
+	This library is distributed in the hope that it will be useful,
+	but WITHOUT ANY WARRANTY; without even the implied warranty of
+	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+	Lesser General Public License for more details.
+
+	You should have received a copy of the GNU Lesser General Public
+	License along with this library; if not, write to the Free Software
+	Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+
+package gov.nga.search;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.gs.collections.impl.list.mutable.primitive.IntArrayList;
+
+import gov.nga.search.SearchHelper.SEARCHOP;
+import gov.nga.utils.CollectionUtils;
+import gov.nga.utils.MutableInt;
+import gov.nga.utils.StringUtils;
+
+// each entity is given an ordinal, its position in the index, and each value of an indexed search
+// field or facet has a bitmap of the ordinals of the entities having it.  Equality filters on the
+// fields are then an OR of the bitmaps of their values, a search an AND of its filters, and the count
+// of a facet value is the number of members its bitmap has in common with the search's, so counting
+// every facet of a search costs about the same however many entities it matches.  Values are kept
+// the two ways SearchFilter compares them, like the field index, so both flavors of filter are
+// answered exactly.  A facet is only indexed if no entity gives the same value twice since the
+// facet helper counts those twice, which a bitmap can't.
+public class BitmapIndex<E extends Indexable & Faceted> {
+
+	private static final Logger log = LoggerFactory.getLogger(BitmapIndex.class);
+
+	private final E[] entities;
+	private final Bitmap all;
+	private final Map<Object, Map<String, Bitmap>> values = CollectionUtils.newHashMap();
+	private final Map<Object, Map<String, Bitmap>> normalizedValues = CollectionUtils.newHashMap();
+	private final Map<Object, Map<String, Bitmap>> facetValues = CollectionUtils.newHashMap();
+
+	@SuppressWarnings("unchecked")
+	public BitmapIndex(Collection<E> entities, Object[] fieldsToIndex, Object[] facetsToIndex) {
+		this.entities = (E[]) entities.toArray(new Indexable[entities.size()]);
+		all = Bitmap.all(this.entities.length);
+
+		for (Object field : fieldsToIndex) {
+			Map<String, IntArrayList> lc = CollectionUtils.newHashMap();
+			Map<String, IntArrayList> nm = CollectionUtils.newHashMap();
+			for (int i=0; i<this.entities.length; i++) {
+				List<String> vals = this.entities[i].getIndexValues(field);
+				if (vals == null)
+					continue;
+				for (String v : vals) {
+					if (v == null)
+						continue;
+					add(lc, v.toLowerCase(), i);
+					add(nm, StringUtils.removeDiacritics(v).toLowerCase(), i);
+				}
+			}
+			values.put(field, toBitmaps(lc));
+			normalizedValues.put(field, toBitmaps(nm));
+		}
+
+		for (Object facet : facetsToIndex) {
+			Map<String, IntArrayList> counted = CollectionUtils.newHashMap();
+			boolean countable = true;
+			for (int i=0; i<this.entities.length && countable; i++) {
+				List<String> vals = this.entities[i].getFacetValue(facet);
+				// the same rules Facet uses for what to count
+				if (vals == null || vals.size() == 0) {
+					add(counted, Facet.NOVALUEKEY, i);
+					continue;
+				}
+				for (String v : vals) {
+					if (v == null || v.equals(""))
+						v = Facet.NOVALUEKEY;
+					countable = countable && add(counted, v, i);
+				}
+			}
+			if (countable)
+				facetValues.put(facet, toBitmaps(counted));
+			else
+				log.info("Facet " + facet + " has entities with repeated values so it's left to be counted one entity at a time");
+		}
+	}
+
+	// adds the ordinal to the value's list and returns false if it was already there
+	private static boolean add(Map<String, IntArrayList> lists, String value, int ordinal) {
+		IntArrayList l = lists.get(value);
+		if (l == null) {
+			l = new IntArrayList();
+			lists.put(value, l);
+		}
+		// ordinals are added in ascending order so a repeat can only be the last one
+		if (l.size() > 0 && l.getLast() == ordinal)
+			return false;
+		l.add(ordinal);
+		return true;
+	}
+
+	private Map<String, Bitmap> toBitmaps(Map<String, IntArrayList> lists) {
+		Map<String, Bitmap> bitmaps = CollectionUtils.newHashMap();
+		for (Map.Entry<String, IntArrayList> e : lists.entrySet())
+			bitmaps.put(e.getKey(), Bitmap.of(entities.length, e.getValue().toArray(), e.getValue().size()));
+		return bitmaps;
+	}
+
+	public Bitmap all() {
+		return all;
+	}
+
+	// the entities matching an equality filter on an indexed field or null if the filter isn't one this
+	// index can answer - only entities without a value match a null and those aren't indexed
+	public Bitmap matching(SearchFilter f) {
+		Map<String, Bitmap> bitmaps = f.getNormalize() ? normalizedValues.get(f.getField()) : values.get(f.getField());
+		if (bitmaps == null)
+			return null;
+		if (f.getOp() != SEARCHOP.EQUALS && f.getOp() != SEARCHOP.IN)
+			return null;
+		List<String> strings = f.getStrings();
+		if (strings == null || strings.size() < 1)
+			return null;
+
+		Bitmap matches = Bitmap.none(entities.length);
+		for (String s : strings) {
+			if (s == null)
+				return null;
+			Bitmap b = bitmaps.get(s);
+			if (b != null)
+				matches = matches.or(b);
+		}
+		return matches;
+	}
+
+	// the entities matching every one of the filters or null if any of them can't be answered here
+	public Bitmap matchingAll(Collection<SearchFilter> filters) {
+		Bitmap matches = all;
+		for (SearchFilter f : filters) {
+			Bitmap b = matching(f);
+			if (b == null)
+				return null;
+			matches = matches.and(b);
+		}
+		return matches;
+	}
+
+	public List<E> entities(Bitmap members) {
+		List<E> list = CollectionUtils.newArrayList();
+		for (int o : members.toArray())
+			list.add(entities[o]);
+		return list;
+	}
+
+	public boolean canCount(Object facet) {
+		return facetValues.containsKey(facet);
+	}
+
+	// counts the facet helper's facets over the given entities and hands it the counts, unless one of
+	// the facets isn't indexed in which case the helper is left as it was and false is returned
+	public boolean countFacets(Bitmap matches, FacetHelper fn) {
+		for (Object facet : fn.facets) {
+			if (!canCount(facet))
+				return false;
+		}
+		List<Facet> facetList = CollectionUtils.newArrayList();
+		for (Object facet : fn.facets) {
+			Map<String, MutableInt> counts = CollectionUtils.newHashMap();
+			for (Map.Entry<String, Bitmap> e : facetValues.get(facet).entrySet()) {
+				int n = matches.andCardinality(e.getValue());
+				if (n > 0)
+					counts.put(e.getKey(), new MutableInt(n));
+			}
+			Facet f = new Facet(facet);
+			f.merge(counts);
+			facetList.add(f);
+		}
+		fn.setFacets(facetList);
+		return true;
+	}
+
+	public int size() {
+		return entities.length;
+	}
+
+	public String toString() {
+		List<Map<String, Bitmap>> byValue = CollectionUtils.newArrayList(values.values());
+		byValue.addAll(normalizedValues.values());
+		byValue.addAll(facetValues.values());
+		long bitmaps = 0;
+		long bytes = 0;
+		for (Map<String, Bitmap> m : byValue) {
+			bitmaps += m.size();
+			for (Bitmap b : m.values())
+				bytes += b.sizeInBytes();
+		}
+		return "BitmapIndex[entities=" + entities.length + ", fields=" + values.size() + ", facets=" + facetValues.size() + ", bitmaps=" + bitmaps + ", bitmapBytes=" + bytes + "]";
+	}
+
+}
@@ -98,24 +98,48 @@ public class Facet {
 	}
 	
 	public void processEntity(Faceted a) {
+		synchronized (facetHolder) {
+			count(a, facetHolder);
+		}
+	}
+
+	// counts the facet values of an entity into the given map rather than into this facet so
+	// that threads counting different parts of a list don't have to contend for the same lock
+	protected void count(Faceted a, Map<String, MutableInt> counts) {
 		List<String> l = a.getFacetValue(getFacet());
 		//log.debug(facet + " (" + a.getClass().getCanonicalName() + "): " + l);
-		if (l == null)
-			l = CollectionUtils.newArrayList();
-		// if the list is empty, add a single null value so-as not to lose track
+		// if the list is empty, count a single null value so-as not to lose track
 		// of nulls
-		if (l.size() == 0)
-			l.add(null);
+		if (l == null || l.size() == 0) {
+			inc(counts, NOVALUEKEY);
+			return;
+		}
 		for (String s : l) {
 			if (s == null || s.equals(""))
 				s = NOVALUEKEY;
-			synchronized (facetHolder) {
-				MutableInt cnt = facetHolder.get(s);
+			inc(counts, s);
+		}
+	}
+
+	private static void inc(Map<String, MutableInt> counts, String s) {
+		MutableInt cnt = counts.get(s);
+		if (cnt == null) {
+			counts.put(s, new MutableInt(1));
+		}
+		else 
+			cnt.inc();
+	}
+
+	// adds counts that were accumulated separately by count() to this facet's totals
+	protected void merge(Map<String, MutableInt> counts) {
+		synchronized (facetHolder) {
+			for (Map.Entry<String, MutableInt> e : counts.entrySet()) {
+				MutableInt cnt = facetHolder.get(e.getKey());
 				if (cnt == null) {
-					facetHolder.put(s, new MutableInt(1));
+					facetHolder.put(e.getKey(), new MutableInt(e.getValue().get()));
 				}
 				else 
-					cnt.inc();
+					cnt.add(e.getValue().get());
 			}
 		}
 	}
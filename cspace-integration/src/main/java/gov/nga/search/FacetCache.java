@@ -0,0 +1,139 @@
+/*
+    FacetCache remembers the facet counts of recent searches so that the handful of
+    searches the visual browser repeats all day long don't recount them every time
+
+    Copyright (C) 2018 National Gallery of Art Washington DC
+    Developers: David Beaudet
+
+	This library is free software; you can redistribute it and/or
+	modify it under the terms of the GNU Lesser General Public
+	License as published by the Free Software Foundation; either
+	version 2.1 of the License, or (at your option) any later version.
+
+	This library is distributed in the hope that it will be useful,
+	but WITHOUT ANY WARRANTY; without even the implied warranty of
+	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+	Lesser General Public License for more details.
+
+	You should have received a copy of the GNU Lesser General Public
+	License along with this library; if not, write to the Free Software
+	Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package gov.nga.search;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import gov.nga.utils.CollectionUtils;
+
+// a least recently used cache of facet counts keyed by the search filters and the facets
+// that were requested - the counts are only valid for the data they were counted from, so
+// a cache has to be discarded along with that data when it's refreshed
+public class FacetCache {
+
+	public static final int DEFAULT_CAPACITY = 500;
+
+	private final Map<Key, List<Facet>> cache;
+
+	private final AtomicLong hits 	= new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	public FacetCache(final int capacity) {
+		cache = new LinkedHashMap<Key, List<Facet>>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			protected boolean removeEldestEntry(Map.Entry<Key, List<Facet>> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	// the search is kept as the full list of what each of its filters searches for rather than a
+	// hash of them, so two different searches can never be given one another's counts
+	public static class Key {
+		private final String scope;
+		private final List<Object> search;
+		private final List<Object> facets;
+
+		private Key(String scope, List<Object> search, Object[] facets) {
+			this.scope = scope;
+			this.search = search;
+			this.facets = Arrays.asList(facets);
+		}
+
+		public boolean equals(Object o) {
+			if (!(o instanceof Key))
+				return false;
+			Key k = (Key) o;
+			return scope.equals(k.scope) && search.equals(k.search) && facets.equals(k.facets);
+		}
+
+		public int hashCode() {
+			return (scope.hashCode() * 31 + search.hashCode()) * 31 + facets.hashCode();
+		}
+	}
+
+	// the scope separates searches with identical filters which run over different kinds of
+	// entities, e.g. the same filters applied to art objects and constituents
+	public Key keyFor(String scope, SearchHelper<?> sh, FacetHelper fn) {
+		return new Key(scope, describe(sh), fn.facets);
+	}
+
+	// the filters are always held in the same order, so the same search is always described the same way
+	private static List<Object> describe(SearchHelper<?> sh) {
+		List<Object> search = CollectionUtils.newArrayList();
+		for (SearchFilter f : sh.getFilters()) {
+			search.add(f.getOp());
+			search.add(f.getField());
+			search.add(f.getNormalize());
+			search.add(f.getStringSearchValues());
+		}
+		for (FreeTextFilter f : sh.getFreeTextFilters()) {
+			search.add(CollectionUtils.newArrayList(f.getFields()));
+			search.add(f.getSearchTerm());
+		}
+		return search;
+	}
+
+	public List<Facet> get(Key key) {
+		List<Facet> facets = null;
+		synchronized (cache) {
+			facets = cache.get(key);
+		}
+		if (facets == null)
+			misses.incrementAndGet();
+		else
+			hits.incrementAndGet();
+		return facets;
+	}
+
+	public void put(Key key, List<Facet> facets) {
+		// the counts are sorted once here so that every later search sharing
+		// these facets only ever reads them
+		for (Facet f : facets)
+			f.getFacetCounts();
+		synchronized (cache) {
+			cache.put(key, Collections.unmodifiableList(facets));
+		}
+	}
+
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	public String toString() {
+		int size = 0;
+		synchronized (cache) {
+			size = cache.size();
+		}
+		return "FacetCache[size=" + size + ", hits=" + getHitCount() + ", misses=" + getMissCount() + "]";
+	}
+
+}
@@ -22,12 +22,16 @@
 package gov.nga.search;
 
 import gov.nga.utils.CollectionUtils;
+import gov.nga.utils.MutableInt;
 
 import java.util.Calendar;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -38,10 +42,24 @@ public class FacetHelper {
 
 	private List<Facet> facetList = null;
 	Object[] facets = null;
+	private boolean complete = false;
 
 	public List<Facet> getFacets() {
 		return facetList;
 	}
+
+	// true once every facet has been counted over a whole list, either by processFacets
+	// or because the counts were already known from an identical earlier search
+	public boolean isComplete() {
+		return complete;
+	}
+
+	// supply facet counts that were computed earlier for the same search and facets
+	// so that processing them again can be skipped
+	public void setFacets(List<Facet> facetList) {
+		this.facetList = facetList;
+		this.complete = true;
+	}
 	
 	public FacetHelper(Object... fs) {		
 		//log.debug("Creating new facetHelper with " + fs.length + " facets");
@@ -50,7 +68,9 @@ public class FacetHelper {
 	
 	public void processFacets(List<? extends Faceted> list) {
 
-		class FacetCalculator implements Runnable {
+		// each calculator counts its part of the list into its own maps and only merges them into
+		// the shared facets once it's done, so the threads never wait on each other while counting
+		class FacetCalculator implements Callable<Boolean> {
 			
 			List<? extends Faceted> list = null;
 			int start = 0; 
@@ -62,26 +82,33 @@ public class FacetHelper {
 				this.end = end;
 			}
 			
-			public void run() {
+			public Boolean call() {
 				try	{
 					//PerformanceMonitor perfMonitor = PerformanceMonitorFactory.getMonitor(FacetHelper.class);
+					List<Map<String, MutableInt>> counts = CollectionUtils.newArrayList();
+					for (int i=0; i<facetList.size(); i++) {
+						Map<String, MutableInt> m = CollectionUtils.newHashMap();
+						counts.add(m);
+					}
 					for (int j=start; j<end; j++) {
 						Faceted a = list.get(j);
 						//perfMonitor.logElapseTimeFromLastReport("starting processing of " + a);
-	    				for (Facet f : facetList) {
+	    				for (int i=0; i<facetList.size(); i++) {
 	    					//log.debug("Processing " + f.getFacet() + ": " + a.getClass().getCanonicalName());
-	    					//perfMonitor.logElapseTimeFromLastReport("processing facet " + f.getFacet());
-	    					f.processEntity(a);
-	    					//perfMonitor.logElapseTimeFromLastReport("processed facet " + f.getFacet());
+	    					facetList.get(i).count(a, counts.get(i));
 	    				}
 						//perfMonitor.logElapseTimeFromLastReport("finished processing of " + a);
 	    			}
+					for (int i=0; i<facetList.size(); i++)
+						facetList.get(i).merge(counts.get(i));
 					//perfMonitor.logElapseTimeFromSeed("threaded helper completed");
+					return Boolean.TRUE;
 				}
 				catch (Exception e)
 				{
 					log.error("Exception processing facet counts", e);
 				}
+				return Boolean.FALSE;
 			}
 		}
 		
@@ -92,42 +119,50 @@ public class FacetHelper {
 		}
 		Calendar at = Calendar.getInstance();
 
+		boolean counted = true;
 		if (list != null && list.size() > 0) {
 			
-			int threads = Runtime.getRuntime().availableProcessors() * 2;
-
-			// if we have a very small list, then we only use
-			// as many threads as we have items in our list
-			if (threads > list.size())
-				threads = list.size();
-			//threads = 1;
-
-			ExecutorService ex = Executors.newFixedThreadPool(threads);
-
-			int chunk = list.size() / threads;
-			for (int c=0; c<threads; c++) {
-				int start = c*chunk;
-				int end = (c+1)*chunk;
-				if (c == threads-1)
-					end = list.size();
-				ex.submit( new FacetCalculator(list, start, end) );		
-			}
-			
-			// break into two lists for faster calculating across multiple threads
-			try {
-				//ex.
-				ex.shutdown();
-				// we don't want to wait longer than 60 seconds for any
-				// faceting calculations
-				ex.awaitTermination(60, TimeUnit.SECONDS);
+			SearchExecutor ex = SearchExecutor.getInstance();
+
+			// small lists are counted on the caller's thread
+			if (ex.runInline(list.size())) {
+				counted = new FacetCalculator(list, 0, list.size()).call();
 			}
-			catch (InterruptedException ie) {
-				log.warn("TTTTTTTTT: Terminated due to timeout of faceting calculation");
-				// nothing needed here
+			else {
+				// if we have a very small list, then we only use
+				// as many threads as we have items in our list
+				int threads = ex.chunksFor(list.size());
+
+				List<Future<Boolean>> futures = CollectionUtils.newArrayList();
+				int chunk = list.size() / threads;
+				for (int c=0; c<threads; c++) {
+					int start = c*chunk;
+					int end = (c+1)*chunk;
+					if (c == threads-1)
+						end = list.size();
+					futures.add(ex.submit( new FacetCalculator(list, start, end) ));
+				}
+
+				try {
+					// we don't want to wait longer than 60 seconds for any
+					// faceting calculations
+					long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(60);
+					for (Future<Boolean> f : futures)
+						counted &= f.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+				}
+				catch (TimeoutException | InterruptedException ie) {
+					log.warn("TTTTTTTTT: Terminated due to timeout of faceting calculation");
+					counted = false;
+				}
+				catch (ExecutionException ee) {
+					log.error("Exception processing facet counts", ee);
+					counted = false;
+				}
 			}
 			//log.debug("thread is: " + Thread.currentThread().getId());
 			log.debug("iterated through " + list.size() + " objects");
 		}
+		complete = counted;
 		Calendar bt = Calendar.getInstance();
 		log.debug("Facet calculation took " + ( bt.getTimeInMillis() - at.getTimeInMillis() ) + " milliseconds: ");
 
@@ -0,0 +1,199 @@
+/*
+    FieldIndex is an inverted index of search field values to the entities that carry them
+  
+    Copyright (C) 2018 National Gallery of Art Washington DC
+    Developers: David Beaudet
+
+	This library is free software; you can redistribute it and/or
+	modify it under the terms of the GNU Lesser General Public
+	License as published by the Free Software Foundation; either
+	version 2.1 of the License, or (at your option) any later version.
+
+	This library is distributed in the hope that it will be useful,
+	but WITHOUT ANY WARRANTY; without even the implied warranty of
+	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+	Lesser General Public License for more details.
+
+	You should have received a copy of the GNU Lesser General Public
+	License along with this library; if not, write to the Free Software
+	Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+
+package gov.nga.search;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import gov.nga.utils.CollectionUtils;
+import gov.nga.utils.StringUtils;
+
+public class FieldIndex<E extends Indexable> implements SearchIndex<E> {
+
+	private static final Logger log = LoggerFactory.getLogger(FieldIndex.class);
+
+	// posting lists are keyed the same two ways that SearchFilter compares values, i.e. 
+	// lower cased and lower cased with diacritics removed, so that both flavors of filter
+	// can be answered without touching the entities themselves
+	private Map<Object, NavigableMap<String, List<E>>> postings = CollectionUtils.newHashMap();
+	private Map<Object, NavigableMap<String, List<E>>> normalizedPostings = CollectionUtils.newHashMap();
+	private final Object[] fields;
+
+	public FieldIndex(Collection<E> entities, Object... fields) {
+		this.fields = fields;
+		for (Object field : fields) {
+			NavigableMap<String, List<E>> lc = new TreeMap<String, List<E>>();
+			NavigableMap<String, List<E>> nm = new TreeMap<String, List<E>>();
+			for (E e : entities) {
+				List<String> values = e.getIndexValues(field);
+				if (values == null)
+					continue;
+				for (String v : values) {
+					if (v == null)
+						continue;
+					addPosting(lc, v.toLowerCase(), e);
+					addPosting(nm, StringUtils.removeDiacritics(v).toLowerCase(), e);
+				}
+			}
+			postings.put(field, lc);
+			normalizedPostings.put(field, nm);
+			log.debug("indexed " + lc.size() + " distinct values for " + field);
+		}
+	}
+
+	// a copy of the base index with the removed entities taken out and the added ones put in - the
+	// base index is left untouched and only the posting lists that are affected get copied
+	private FieldIndex(FieldIndex<E> base, Collection<E> removed, Collection<E> added) {
+		this.fields = base.fields;
+		for (Object field : fields) {
+			NavigableMap<String, List<E>> lc = new TreeMap<String, List<E>>(base.postings.get(field));
+			NavigableMap<String, List<E>> nm = new TreeMap<String, List<E>>(base.normalizedPostings.get(field));
+			Set<List<E>> copied = Collections.newSetFromMap(new IdentityHashMap<List<E>, Boolean>());
+			for (E e : removed) {
+				List<String> values = e.getIndexValues(field);
+				if (values == null)
+					continue;
+				for (String v : values) {
+					if (v == null)
+						continue;
+					removePosting(lc, v.toLowerCase(), e, copied);
+					removePosting(nm, StringUtils.removeDiacritics(v).toLowerCase(), e, copied);
+				}
+			}
+			for (E e : added) {
+				List<String> values = e.getIndexValues(field);
+				if (values == null)
+					continue;
+				for (String v : values) {
+					if (v == null)
+						continue;
+					addPosting(lc, v.toLowerCase(), e, copied);
+					addPosting(nm, StringUtils.removeDiacritics(v).toLowerCase(), e, copied);
+				}
+			}
+			postings.put(field, lc);
+			normalizedPostings.put(field, nm);
+		}
+	}
+
+	public FieldIndex<E> withChanges(Collection<E> removed, Collection<E> added) {
+		return new FieldIndex<E>(this, removed, added);
+	}
+
+	private List<E> copyOnWrite(Map<String, List<E>> map, String key, Set<List<E>> copied) {
+		List<E> list = map.get(key);
+		if (list != null && !copied.contains(list)) {
+			list = CollectionUtils.newArrayList(list);
+			copied.add(list);
+			map.put(key, list);
+		}
+		return list;
+	}
+
+	private void removePosting(Map<String, List<E>> map, String key, E e, Set<List<E>> copied) {
+		List<E> list = copyOnWrite(map, key, copied);
+		if (list == null)
+			return;
+		for (Iterator<E> it = list.iterator(); it.hasNext(); ) {
+			if (it.next() == e)
+				it.remove();
+		}
+		if (list.isEmpty())
+			map.remove(key);
+	}
+
+	private void addPosting(Map<String, List<E>> map, String key, E e, Set<List<E>> copied) {
+		List<E> list = copyOnWrite(map, key, copied);
+		if (list == null) {
+			list = CollectionUtils.newArrayList();
+			copied.add(list);
+			map.put(key, list);
+		}
+		if (list.isEmpty() || list.get(list.size()-1) != e)
+			list.add(e);
+	}
+
+	private void addPosting(Map<String, List<E>> map, String key, E e) {
+		List<E> list = map.get(key);
+		if (list == null) {
+			list = CollectionUtils.newArrayList();
+			map.put(key, list);
+		}
+		// entities are indexed one at a time so a repeated value is always at the tail
+		if (list.isEmpty() || list.get(list.size()-1) != e)
+			list.add(e);
+	}
+
+	public boolean isIndexed(Object field) {
+		return postings.containsKey(field);
+	}
+
+	public Set<E> candidates(SearchFilter f) {
+		NavigableMap<String, List<E>> map = f.getNormalize() ? normalizedPostings.get(f.getField()) : postings.get(f.getField());
+		if (map == null)
+			return null;
+
+		List<String> values = f.getStrings();
+		if (values == null || values.size() < 1)
+			return null;
+
+		// entities without any value for a field are not indexed, so matching on null still needs a scan
+		for (String s : values) {
+			if (s == null)
+				return null;
+		}
+
+		Set<E> matches = CollectionUtils.newHashSet();
+		switch (f.getOp()) {
+		case EQUALS:
+		case IN:
+			for (String s : values) {
+				List<E> list = map.get(s);
+				if (list != null)
+					matches.addAll(list);
+			}
+			return matches;
+		case STARTSWITH:
+			for (String s : values) {
+				for (Map.Entry<String, List<E>> entry : map.tailMap(s, true).entrySet()) {
+					if (!entry.getKey().startsWith(s))
+						break;
+					matches.addAll(entry.getValue());
+				}
+			}
+			return matches;
+		default:
+			return null;
+		}
+	}
+
+}
@@ -0,0 +1,456 @@
+/*
+    FreeTextIndex is a positional full text index of the free text search fields of a set of
+    entities that ranks the entities matching a query with BM25
+
+    Copyright (C) 2018 National Gallery of Art Washington DC
+    Developers: David Beaudet
+
+	This library is free software; you can redistribute it and/or
+	modify it under the terms of the GNU Lesser General Public
+	License as published by the Free Software Foundation; either
+	version 2.1 of the License, or (at your option) any later version.
+
+	This library is distributed in the hope that it will be useful,
+	but WITHOUT ANY WARRANTY; without even the implied warranty of
+	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+	Lesser General Public License for more details.
+
+	You should have received a copy of the GNU Lesser General Public
+	License along with this library; if not, write to the Free Software
+	Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+
+package gov.nga.search;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.gs.collections.api.iterator.IntIterator;
+import com.gs.collections.api.map.primitive.LongDoubleMap;
+import com.gs.collections.impl.list.mutable.primitive.IntArrayList;
+import com.gs.collections.impl.map.mutable.primitive.IntIntHashMap;
+import com.gs.collections.impl.map.mutable.primitive.IntObjectHashMap;
+import com.gs.collections.impl.map.mutable.primitive.LongDoubleHashMap;
+
+import gov.nga.utils.CollectionUtils;
+import gov.nga.utils.StringUtils;
+
+// the text of every field is broken into words that are lower cased with their diacritics removed,
+// markup is skipped, and each word lists the entities it appears in along with the positions it
+// appears at.  A query is a list of words, "quoted phrases" and prefixes ending in *, and an entity
+// matches if every one of them is found in at least one of the fields searched.  Entities are
+// scored with BM25 summed over those fields so that a rare word found in a short field such as
+// a title counts for more than a common one buried in a long provenance.  Entities are referred
+// to by their position in the index and scores are remembered per query until the index is
+// replaced on refresh.
+public class FreeTextIndex {
+
+	private static final Logger log = LoggerFactory.getLogger(FreeTextIndex.class);
+
+	public static final int DEFAULT_CACHE_SIZE = 100;
+
+	// how quickly repeats of a word stop adding to a score and how much long fields are discounted
+	private static final double K1 = 1.2;
+	private static final double B = 0.75;
+
+	// separate values of the same field are kept this far apart so that phrases don't run across them
+	private static final int VALUE_GAP = 100;
+
+	private final long[] ids;
+	private final Map<Object, Field> fields = CollectionUtils.newHashMap();
+	private final List<Object> allFields;
+	private final String allFieldsKey;
+	private final Map<String, LongDoubleMap> cache;
+
+	private final AtomicLong hits 	= new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	// the entities a word appears in, in ascending order, where its positions in each of them begin
+	// and the positions themselves, so the number of times it appears in entity i is offsets[i+1] - offsets[i]
+	private static class Postings {
+		private final int[] entities;
+		private final int[] offsets;
+		private final int[] positions;
+
+		Postings(int[] entities, int[] offsets, int[] positions) {
+			this.entities = entities;
+			this.offsets = offsets;
+			this.positions = positions;
+		}
+
+		int frequency(int i) {
+			return offsets[i+1] - offsets[i];
+		}
+	}
+
+	private static class PostingsBuilder {
+		private final IntArrayList entities = new IntArrayList();
+		private final IntArrayList offsets = new IntArrayList();
+		private final IntArrayList positions = new IntArrayList();
+
+		void add(int entity, int position) {
+			if (entities.isEmpty() || entities.getLast() != entity) {
+				entities.add(entity);
+				offsets.add(positions.size());
+			}
+			positions.add(position);
+		}
+
+		Postings build() {
+			offsets.add(positions.size());
+			return new Postings(entities.toArray(), offsets.toArray(), positions.toArray());
+		}
+	}
+
+	// the words of one field along with the number of words each entity has in it
+	private static class Field {
+		private final NavigableMap<String, Postings> words;
+		private final int[] lengths;
+		private final double averageLength;
+
+		Field(NavigableMap<String, Postings> words, int[] lengths) {
+			this.words = words;
+			this.lengths = lengths;
+			long total = 0;
+			int counted = 0;
+			for (int l : lengths) {
+				if (l > 0) {
+					total += l;
+					counted++;
+				}
+			}
+			this.averageLength = counted == 0 ? 1 : (double) total / counted;
+		}
+	}
+
+	// one word of a query which matches either that word alone or, if a prefix, every word beginning with it
+	private static class Word {
+		private final String text;
+		private final boolean prefix;
+
+		Word(String text, boolean prefix) {
+			this.text = text;
+			this.prefix = prefix;
+		}
+	}
+
+	public FreeTextIndex(Collection<? extends FreeTextIndexable> entities, final int cacheSize, Object... fieldsToIndex) {
+		ids = new long[entities.size()];
+		int e = 0;
+		for (FreeTextIndexable entity : entities)
+			ids[e++] = entity.getEntityID();
+
+		for (Object field : fieldsToIndex) {
+			Map<String, PostingsBuilder> builders = CollectionUtils.newHashMap();
+			int[] lengths = new int[ids.length];
+			e = 0;
+			for (FreeTextIndexable entity : entities) {
+				List<String> values = entity.getFreeTextValues(field);
+				if (values != null) {
+					int position = 0;
+					for (String v : values) {
+						List<String> words = tokenize(v);
+						for (String w : words) {
+							PostingsBuilder b = builders.get(w);
+							if (b == null) {
+								b = new PostingsBuilder();
+								builders.put(w, b);
+							}
+							b.add(e, position++);
+						}
+						lengths[e] += words.size();
+						position += VALUE_GAP;
+					}
+				}
+				e++;
+			}
+			NavigableMap<String, Postings> words = new TreeMap<String, Postings>();
+			for (Map.Entry<String, PostingsBuilder> b : builders.entrySet())
+				words.put(b.getKey(), b.getValue().build());
+			fields.put(field, new Field(words, lengths));
+			log.debug("indexed " + words.size() + " distinct words for " + field);
+		}
+		allFields = Collections.unmodifiableList(Arrays.asList(fieldsToIndex));
+		allFieldsKey = allFields.toString();
+
+		cache = new LinkedHashMap<String, LongDoubleMap>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			protected boolean removeEldestEntry(Map.Entry<String, LongDoubleMap> eldest) {
+				return size() > cacheSize;
+			}
+		};
+	}
+
+	// breaks text into lower cased words without diacritics, skipping over markup and character entities
+	public static List<String> tokenize(String text) {
+		List<String> words = CollectionUtils.newArrayList();
+		if (text == null)
+			return words;
+		String s = StringUtils.removeDiacritics(text).toLowerCase();
+		int start = -1;
+		for (int i=0; i<s.length(); i++) {
+			char c = s.charAt(i);
+			if (Character.isLetterOrDigit(c)) {
+				if (start < 0)
+					start = i;
+				continue;
+			}
+			if (start >= 0) {
+				words.add(s.substring(start, i));
+				start = -1;
+			}
+			int skip = skipMarkup(s, i);
+			if (skip > i)
+				i = skip;
+		}
+		if (start >= 0)
+			words.add(s.substring(start));
+		return words;
+	}
+
+	// the position of the end of a tag or character entity beginning at i, or i if there isn't one
+	private static int skipMarkup(String s, int i) {
+		char c = s.charAt(i);
+		if (c == '<' && i+1 < s.length()) {
+			char n = s.charAt(i+1);
+			if (Character.isLetter(n) || n == '/' || n == '!') {
+				int end = s.indexOf('>', i);
+				if (end > 0)
+					return end;
+			}
+		}
+		else if (c == '&') {
+			for (int j=i+1; j<s.length() && j<i+10; j++) {
+				char n = s.charAt(j);
+				if (n == ';')
+					return j > i+1 ? j : i;
+				if (!Character.isLetterOrDigit(n) && n != '#')
+					break;
+			}
+		}
+		return i;
+	}
+
+	// splits a query into the clauses an entity has to match - a quoted phrase or a word that
+	// tokenizes to more than one, e.g. a hyphenated name, is matched as a phrase
+	private static List<List<Word>> parse(String query) {
+		List<List<Word>> clauses = CollectionUtils.newArrayList();
+		if (query == null)
+			return clauses;
+		String[] parts = query.split("\"", -1);
+		for (int p=0; p<parts.length; p++) {
+			// the odd numbered parts were in quotes - unless the last quote was never closed
+			boolean quoted = p % 2 == 1 && p < parts.length - 1;
+			List<Word> phrase = CollectionUtils.newArrayList();
+			for (String piece : parts[p].trim().split("\\s+")) {
+				List<String> words = tokenize(piece);
+				if (words.isEmpty())
+					continue;
+				List<Word> clause = quoted ? phrase : CollectionUtils.<Word>newArrayList();
+				for (int i=0; i<words.size(); i++)
+					clause.add(new Word(words.get(i), i == words.size()-1 && piece.endsWith("*")));
+				if (!quoted)
+					clauses.add(clause);
+			}
+			if (!phrase.isEmpty())
+				clauses.add(phrase);
+		}
+		return clauses;
+	}
+
+	// the scores of the entities matching the query in the given fields keyed by entity ID, or null if the
+	// query has no words in it at all - fields that aren't indexed are ignored
+	public LongDoubleMap scores(Collection<?> searchFields, String query) {
+		return scores(searchFields.toString(), searchFields, query);
+	}
+
+	private LongDoubleMap scores(String fieldsKey, Collection<?> searchFields, String query) {
+		String key = fieldsKey + "\u0000" + query;
+		LongDoubleMap scores = null;
+		synchronized (cache) {
+			scores = cache.get(key);
+		}
+		if (scores != null) {
+			hits.incrementAndGet();
+			return scores;
+		}
+		misses.incrementAndGet();
+
+		List<List<Word>> clauses = parse(query);
+		if (clauses.isEmpty())
+			return null;
+		List<Field> searched = CollectionUtils.newArrayList();
+		for (Object f : searchFields) {
+			Field field = fields.get(f);
+			if (field != null && !searched.contains(field))
+				searched.add(field);
+		}
+		scores = search(searched, clauses).asUnmodifiable();
+		synchronized (cache) {
+			cache.put(key, scores);
+		}
+		return scores;
+	}
+
+	// the score of the given entity when every field is searched, or 0 if it doesn't match the query - sorting
+	// asks for the same query's scores over and over so the key they're cached under is worked out in advance
+	public double score(Long id, String query) {
+		LongDoubleMap scores = scores(allFieldsKey, allFields, query);
+		if (id == null || scores == null)
+			return 0;
+		return scores.get(id);
+	}
+
+	// an entity is only scored for a clause if it has matched every clause before it, which
+	// is tracked by the number of clauses each has matched so far
+	private LongDoubleHashMap search(List<Field> searched, List<List<Word>> clauses) {
+		double[] scores = new double[ids.length];
+		int[] matched = new int[ids.length];
+		for (int c=0; c<clauses.size(); c++) {
+			List<Word> clause = clauses.get(c);
+			for (Field f : searched) {
+				if (clause.size() == 1) {
+					for (Postings p : postingsOf(f, clause.get(0)))
+						scoreWord(f, p, c, scores, matched);
+				}
+				else
+					scorePhrase(f, clause, c, scores, matched);
+			}
+		}
+		LongDoubleHashMap results = new LongDoubleHashMap();
+		for (int e=0; e<ids.length; e++) {
+			if (matched[e] == clauses.size())
+				results.put(ids[e], scores[e]);
+		}
+		return results;
+	}
+
+	private static Collection<Postings> postingsOf(Field f, Word w) {
+		if (w.prefix)
+			return f.words.subMap(w.text, true, w.text + Character.MAX_VALUE, false).values();
+		Postings p = f.words.get(w.text);
+		return p == null ? Collections.<Postings>emptyList() : Collections.singletonList(p);
+	}
+
+	private double idf(int found) {
+		return Math.log(1 + (ids.length - found + 0.5) / (found + 0.5));
+	}
+
+	private static double weight(Field f, int entity, int frequency) {
+		double norm = K1 * (1 - B + B * f.lengths[entity] / f.averageLength);
+		return frequency * (K1 + 1) / (frequency + norm);
+	}
+
+	private void scoreWord(Field f, Postings p, int clause, double[] scores, int[] matched) {
+		double idf = idf(p.entities.length);
+		for (int i=0; i<p.entities.length; i++) {
+			int e = p.entities[i];
+			if (matched[e] < clause)
+				continue;
+			matched[e] = clause + 1;
+			scores[e] += idf * weight(f, e, p.frequency(i));
+		}
+	}
+
+	// a phrase is scored like a single word that appears wherever its words appear one after another
+	private void scorePhrase(Field f, List<Word> phrase, int clause, double[] scores, int[] matched) {
+		List<IntObjectHashMap<int[]>> positions = CollectionUtils.newArrayList();
+		int rarest = 0;
+		for (Word w : phrase) {
+			IntObjectHashMap<int[]> p = positionsOf(f, w, clause, matched);
+			if (p.isEmpty())
+				return;
+			positions.add(p);
+			if (p.size() < positions.get(rarest).size())
+				rarest = positions.size() - 1;
+		}
+
+		IntIntHashMap frequencies = new IntIntHashMap();
+		int[][] entityPositions = new int[phrase.size()][];
+		for (IntIterator it = positions.get(rarest).keysView().intIterator(); it.hasNext(); ) {
+			int e = it.next();
+			boolean all = true;
+			for (int i=0; i<phrase.size() && all; i++)
+				all = (entityPositions[i] = positions.get(i).get(e)) != null;
+			if (!all)
+				continue;
+			int frequency = 0;
+			for (int start : entityPositions[0]) {
+				boolean found = true;
+				for (int i=1; i<phrase.size() && found; i++)
+					found = Arrays.binarySearch(entityPositions[i], start + i) >= 0;
+				if (found)
+					frequency++;
+			}
+			if (frequency > 0)
+				frequencies.put(e, frequency);
+		}
+
+		double idf = idf(frequencies.size());
+		for (IntIterator it = frequencies.keysView().intIterator(); it.hasNext(); ) {
+			int e = it.next();
+			matched[e] = clause + 1;
+			scores[e] += idf * weight(f, e, frequencies.get(e));
+		}
+	}
+
+	// the positions of a word, or of all the words beginning with a prefix, in each entity still in the running
+	private static IntObjectHashMap<int[]> positionsOf(Field f, Word w, int clause, int[] matched) {
+		IntObjectHashMap<int[]> positions = new IntObjectHashMap<int[]>();
+		for (Postings p : postingsOf(f, w)) {
+			for (int i=0; i<p.entities.length; i++) {
+				int e = p.entities[i];
+				if (matched[e] < clause)
+					continue;
+				int[] these = Arrays.copyOfRange(p.positions, p.offsets[i], p.offsets[i+1]);
+				int[] those = positions.get(e);
+				if (those != null) {
+					int[] merged = Arrays.copyOf(those, those.length + these.length);
+					System.arraycopy(these, 0, merged, those.length, these.length);
+					Arrays.sort(merged);
+					these = merged;
+				}
+				positions.put(e, these);
+			}
+		}
+		return positions;
+	}
+
+	public List<Object> getFields() {
+		return allFields;
+	}
+
+	public int size() {
+		return ids.length;
+	}
+
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	public String toString() {
+		int words = 0;
+		for (Field f : fields.values())
+			words += f.words.size();
+		int size = 0;
+		synchronized (cache) {
+			size = cache.size();
+		}
+		return "FreeTextIndex[entities=" + ids.length + ", fields=" + fields.size() + ", words=" + words + ", cached=" + size + ", hits=" + getHitCount() + ", misses=" + getMissCount() + "]";
+	}
+
+}
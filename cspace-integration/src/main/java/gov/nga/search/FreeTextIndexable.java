@@ -0,0 +1,36 @@
+/*
+    FreeTextIndexable indicates that the text a class presents to free text searches can be
+    collected ahead of time into a full text index
+
+    Copyright (C) 2018 National Gallery of Art Washington DC
+    Developers: David Beaudet
+
+	This library is free software; you can redistribute it and/or
+	modify it under the terms of the GNU Lesser General Public
+	License as published by the Free Software Foundation; either
+	version 2.1 of the License, or (at your option) any later version.
+
+	This library is distributed in the hope that it will be useful,
+	but WITHOUT ANY WARRANTY; without even the implied warranty of
+	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+	Lesser General Public License for more details.
+
+	You should have received a copy of the GNU Lesser General Public
+	License along with this library; if not, write to the Free Software
+	Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+
+package gov.nga.search;
+
+import java.util.List;
+
+public interface FreeTextIndexable {
+
+	// search results are matched back to entities by their IDs
+	public Long getEntityID();
+
+	// returns the text to be searched for the given free text search field, one entry per
+	// value the field has, or null if the entity has nothing for that field
+	public List<String> getFreeTextValues(Object field);
+
+}
@@ -0,0 +1,33 @@
+/*
+    Indexable indicates that the values a class presents to search filters can be
+    collected ahead of time into an inverted index
+  
+    Copyright (C) 2018 National Gallery of Art Washington DC
+    Developers: David Beaudet
+
+	This library is free software; you can redistribute it and/or
+	modify it under the terms of the GNU Lesser General Public
+	License as published by the Free Software Foundation; either
+	version 2.1 of the License, or (at your option) any later version.
+
+	This library is distributed in the hope that it will be useful,
+	but WITHOUT ANY WARRANTY; without even the implied warranty of
+	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+	Lesser General Public License for more details.
+
+	You should have received a copy of the GNU Lesser General Public
+	License along with this library; if not, write to the Free Software
+	Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+
+package gov.nga.search;
+
+import java.util.List;
+
+public interface Indexable {
+
+	// returns the same raw values that matchesFilter would hand to SearchFilter.filterMatch 
+	// for the given search field or null if the field is not indexed for this class
+	public List<String> getIndexValues(Object field);
+
+}
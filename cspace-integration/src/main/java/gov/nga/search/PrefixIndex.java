@@ -0,0 +1,244 @@
+/*
+    PrefixIndex keeps the values of a search field in sorted order, along with the position each
+    entity takes in a given sort order, so that prefix searches are binary searches whose results
+    can be handed back already sorted
+
+    Copyright (C) 2018 National Gallery of Art Washington DC
+    Developers: David Beaudet
+
+	This library is free software; you can redistribute it and/or
+	modify it under the terms of the GNU Lesser General Public
+	License as published by the Free Software Foundation; either
+	version 2.1 of the License, or (at your option) any later version.
+
+	This library is distributed in the hope that it will be useful,
+	but WITHOUT ANY WARRANTY; without even the implied warranty of
+	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+	Lesser General Public License for more details.
+
+	You should have received a copy of the GNU Lesser General Public
+	License along with this library; if not, write to the Free Software
+	Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+
+package gov.nga.search;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.gs.collections.impl.list.mutable.primitive.IntArrayList;
+import com.gs.collections.impl.map.mutable.primitive.ObjectIntHashMap;
+
+import gov.nga.search.SearchHelper.SEARCHOP;
+import gov.nga.utils.CollectionUtils;
+import gov.nga.utils.StringUtils;
+
+// entities are sorted once, when the index is built, into the order a commonly requested sort would
+// put them in and are then referred to by their rank in that order.  Values are kept lower cased with
+// their diacritics removed, sorted, each with the rank of the entity it belongs to, so the values
+// starting with or equal to a search string lie between two binary searches and sorting the ranks
+// found there puts the entities in order without ever running the comparator.  A normalizing filter
+// compares values the same way, so for those the ranks are exactly the entities that match - as they
+// are for any filter when neither the values nor the search strings have diacritics to begin with.
+public class PrefixIndex<E extends Indexable> implements SearchIndex<E> {
+
+	private static final Logger log = LoggerFactory.getLogger(PrefixIndex.class);
+
+	private final Object field;
+	private final E[] ordered;
+	private final ObjectIntHashMap<E> ranks;
+	private final String[] keys;
+	private final int[] keyRanks;
+	private final boolean plain;
+
+	private static class Key {
+		private final String value;
+		private final int rank;
+
+		Key(String value, int rank) {
+			this.value = value;
+			this.rank = rank;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	public PrefixIndex(Collection<E> entities, Comparator<? super E> order, Object field) {
+		this.field = field;
+		ordered = (E[]) entities.toArray(new Indexable[entities.size()]);
+		Arrays.sort(ordered, order);
+		ranks = new ObjectIntHashMap<E>(ordered.length);
+
+		List<Key> found = CollectionUtils.newArrayList();
+		boolean allPlain = true;
+		for (int r=0; r<ordered.length; r++) {
+			ranks.put(ordered[r], r);
+			List<String> values = ordered[r].getIndexValues(field);
+			if (values == null)
+				continue;
+			for (String v : values) {
+				if (v == null)
+					continue;
+				String s = normalize(v);
+				allPlain = allPlain && s.equals(v.toLowerCase());
+				found.add(new Key(s, r));
+			}
+		}
+		plain = allPlain;
+
+		Key[] sorted = found.toArray(new Key[found.size()]);
+		Arrays.sort(sorted, new Comparator<Key>() {
+			public int compare(Key a, Key b) {
+				int c = a.value.compareTo(b.value);
+				return c != 0 ? c : Integer.compare(a.rank, b.rank);
+			}
+		});
+		keys = new String[sorted.length];
+		keyRanks = new int[sorted.length];
+		for (int i=0; i<sorted.length; i++) {
+			keys[i] = sorted[i].value;
+			keyRanks[i] = sorted[i].rank;
+		}
+		log.debug("indexed " + keys.length + " values of " + field + " for " + ordered.length + " entities");
+	}
+
+	private static String normalize(String s) {
+		return StringUtils.removeDiacritics(s).toLowerCase();
+	}
+
+	public boolean isIndexed(Object f) {
+		return field.equals(f);
+	}
+
+	// the ranks of the entities whose values equal or start with the filter's strings, in ascending
+	// order, or null if the filter is not one this index can answer
+	public int[] ranksOf(SearchFilter f) {
+		if (!isIndexed(f.getField()))
+			return null;
+		boolean prefix = false;
+		switch (f.getOp()) {
+		case EQUALS:
+		case IN:
+			break;
+		case STARTSWITH:
+			prefix = true;
+			break;
+		default:
+			return null;
+		}
+
+		List<String> values = f.getStrings();
+		if (values == null || values.size() < 1)
+			return null;
+		IntArrayList found = new IntArrayList();
+		for (String s : values) {
+			// only entities without a value match a null and they aren't indexed
+			if (s == null)
+				return null;
+			s = normalize(s);
+			int from = first(s);
+			int to = prefix ? first(s + Character.MAX_VALUE) : last(s, from);
+			for (int i=from; i<to; i++)
+				found.add(keyRanks[i]);
+		}
+		int[] sorted = found.toArray();
+		Arrays.sort(sorted);
+
+		// entities with several values, or found by several strings, are only listed once
+		int n = 0;
+		for (int i=0; i<sorted.length; i++) {
+			if (n == 0 || sorted[n-1] != sorted[i])
+				sorted[n++] = sorted[i];
+		}
+		return Arrays.copyOf(sorted, n);
+	}
+
+	// the first position whose value is not less than the given one
+	private int first(String s) {
+		int from = 0;
+		int to = keys.length;
+		while (from < to) {
+			int mid = (from + to) >>> 1;
+			if (keys[mid].compareTo(s) < 0)
+				from = mid + 1;
+			else
+				to = mid;
+		}
+		return from;
+	}
+
+	// the position after the last value equal to the one found at from
+	private int last(String s, int from) {
+		int to = keys.length;
+		while (from < to) {
+			int mid = (from + to) >>> 1;
+			if (keys[mid].compareTo(s) <= 0)
+				from = mid + 1;
+			else
+				to = mid;
+		}
+		return from;
+	}
+
+	// true if the entities ranksOf returns for the filter are exactly those the filter matches
+	public boolean isExact(SearchFilter f) {
+		if (!isIndexed(f.getField()))
+			return false;
+		if (f.getNormalize())
+			return true;
+		if (!plain)
+			return false;
+		for (String s : f.getStrings()) {
+			if (s != null && !normalize(s).equals(s))
+				return false;
+		}
+		return true;
+	}
+
+	public Set<E> candidates(SearchFilter f) {
+		int[] found = ranksOf(f);
+		if (found == null)
+			return null;
+		Set<E> matches = CollectionUtils.newHashSet();
+		for (int r : found)
+			matches.add(ordered[r]);
+		return matches;
+	}
+
+	// the entities with the given ranks from skip up to, but not including, end
+	public List<E> entities(int[] found, int skip, int end) {
+		List<E> list = CollectionUtils.newArrayList();
+		for (int i=Math.max(skip, 0); i<end && i<found.length; i++)
+			list.add(ordered[found[i]]);
+		return list;
+	}
+
+	// puts the given entities into the order the index was built with
+	public List<E> inOrder(Collection<E> entities) {
+		IntArrayList found = new IntArrayList(entities.size());
+		for (E e : entities) {
+			int r = ranks.getIfAbsent(e, -1);
+			// anything added since the index was built can't be placed
+			if (r < 0)
+				return null;
+			found.add(r);
+		}
+		int[] sorted = found.toArray();
+		Arrays.sort(sorted);
+		return entities(sorted, 0, sorted.length);
+	}
+
+	public int size() {
+		return ordered.length;
+	}
+
+	public String toString() {
+		return "PrefixIndex[field=" + field + ", entities=" + ordered.length + ", values=" + keys.length + ", plain=" + plain + "]";
+	}
+
+}
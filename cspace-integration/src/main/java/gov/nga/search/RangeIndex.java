@@ -0,0 +1,201 @@
+/*
+    RangeIndex keeps the numbers a set of range searched fields take in sorted order so that
+    filters on ranges of years or dates are answered with binary searches
+
+    Copyright (C) 2018 National Gallery of Art Washington DC
+    Developers: David Beaudet
+
+	This library is free software; you can redistribute it and/or
+	modify it under the terms of the GNU Lesser General Public
+	License as published by the Free Software Foundation; either
+	version 2.1 of the License, or (at your option) any later version.
+
+	This library is distributed in the hope that it will be useful,
+	but WITHOUT ANY WARRANTY; without even the implied warranty of
+	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+	Lesser General Public License for more details.
+
+	You should have received a copy of the GNU Lesser General Public
+	License along with this library; if not, write to the Free Software
+	Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+
+package gov.nga.search;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import gov.nga.search.SearchHelper.SEARCHOP;
+import gov.nga.utils.CollectionUtils;
+
+// each field keeps the spans its entities cover ordered by where they start.  When every span of a
+// field is a single value, such as a begin year or a modification time, a range is found with a
+// binary search for its start followed by a walk to its end.  Otherwise, the sorted spans double as
+// a balanced interval tree - the middle span of any stretch of the arrays is the root of the spans
+// on either side of it and records the furthest end found beneath it, so that whole subtrees ending
+// before the search range begins are skipped.  An open end, of a span or of a search range, reaches
+// indefinitely far in its direction.  Only bounds that are numbers are answered since the filter
+// compares anything else as strings, which doesn't order the same way.
+public class RangeIndex<E extends RangeIndexable> implements SearchIndex<E> {
+
+	private static final Logger log = LoggerFactory.getLogger(RangeIndex.class);
+
+	private final Map<Object, Spans> fields = CollectionUtils.newHashMap();
+
+	private class Spans {
+		private final E[] entities;
+		private final long[] lows;
+		private final long[] highs;
+		// the furthest end of any span in the subtree rooted at each position
+		private final long[] maxHighs;
+		private final boolean points;
+
+		@SuppressWarnings("unchecked")
+		Spans(Collection<E> all, Object field) {
+			List<E> found = CollectionUtils.newArrayList();
+			final List<Long> foundLows = CollectionUtils.newArrayList();
+			final List<Long> foundHighs = CollectionUtils.newArrayList();
+			for (E e : all) {
+				Long low = e.getRangeLow(field);
+				Long high = e.getRangeHigh(field);
+				// entities with neither end have no value that any range could match
+				if (low == null && high == null)
+					continue;
+				found.add(e);
+				foundLows.add(low == null ? Long.MIN_VALUE : low);
+				foundHighs.add(high == null ? Long.MAX_VALUE : high);
+			}
+
+			Integer[] order = new Integer[found.size()];
+			for (int i=0; i<order.length; i++)
+				order[i] = i;
+			Arrays.sort(order, new Comparator<Integer>() {
+				public int compare(Integer a, Integer b) {
+					int c = foundLows.get(a).compareTo(foundLows.get(b));
+					return c != 0 ? c : foundHighs.get(a).compareTo(foundHighs.get(b));
+				}
+			});
+
+			entities = (E[]) new RangeIndexable[order.length];
+			lows = new long[order.length];
+			highs = new long[order.length];
+			boolean allPoints = true;
+			for (int i=0; i<order.length; i++) {
+				entities[i] = found.get(order[i]);
+				lows[i] = foundLows.get(order[i]);
+				highs[i] = foundHighs.get(order[i]);
+				allPoints = allPoints && lows[i] == highs[i];
+			}
+			points = allPoints;
+			maxHighs = new long[order.length];
+			buildMaxHighs(0, order.length);
+		}
+
+		private long buildMaxHighs(int from, int to) {
+			if (from >= to)
+				return Long.MIN_VALUE;
+			int mid = (from + to) >>> 1;
+			long max = Math.max(highs[mid], Math.max(buildMaxHighs(from, mid), buildMaxHighs(mid+1, to)));
+			maxHighs[mid] = max;
+			return max;
+		}
+
+		// adds the entities whose spans overlap the range from low to high inclusive
+		void find(long low, long high, Set<E> matches) {
+			if (points) {
+				for (int i=first(low); i<lows.length && lows[i] <= high; i++)
+					matches.add(entities[i]);
+			}
+			else
+				find(0, lows.length, low, high, matches);
+		}
+
+		// the first position whose span starts at or after the given value
+		private int first(long value) {
+			int from = 0;
+			int to = lows.length;
+			while (from < to) {
+				int mid = (from + to) >>> 1;
+				if (lows[mid] < value)
+					from = mid + 1;
+				else
+					to = mid;
+			}
+			return from;
+		}
+
+		private void find(int from, int to, long low, long high, Set<E> matches) {
+			while (from < to) {
+				int mid = (from + to) >>> 1;
+				// nothing beneath here reaches the start of the range
+				if (maxHighs[mid] < low)
+					return;
+				find(from, mid, low, high, matches);
+				// and nothing from here on starts before its end
+				if (lows[mid] > high)
+					return;
+				if (highs[mid] >= low)
+					matches.add(entities[mid]);
+				from = mid + 1;
+			}
+		}
+	}
+
+	public RangeIndex(Collection<E> entities, Object... fieldsToIndex) {
+		for (Object field : fieldsToIndex) {
+			Spans spans = new Spans(entities, field);
+			fields.put(field, spans);
+			log.debug("indexed " + spans.entities.length + (spans.points ? " values" : " spans") + " for " + field);
+		}
+	}
+
+	public boolean isIndexed(Object field) {
+		return fields.containsKey(field);
+	}
+
+	// a single value is between two bounds exactly when a span of just that value intersects them,
+	// and either end of a span being between them means the span intersects them as well
+	public Set<E> candidates(SearchFilter f) {
+		Spans spans = fields.get(f.getField());
+		if (spans == null)
+			return null;
+		if (f.getOp() != SEARCHOP.BETWEEN && f.getOp() != SEARCHOP.INTERSECTS)
+			return null;
+
+		List<String> strings = f.getStrings();
+		if (strings == null || strings.size() < 2 || strings.size() % 2 != 0)
+			return null;
+		List<Long> longs = f.getLongSearchValues();
+
+		Set<E> matches = CollectionUtils.newHashSet();
+		for (int j=0; j<strings.size(); j=j+2) {
+			Long low = longs.get(j);
+			Long high = longs.get(j+1);
+			if ( (low == null && strings.get(j) != null) || (high == null && strings.get(j+1) != null) )
+				return null;
+			// a range open at both ends intersects everything, and an open ended between also
+			// matches values that aren't numbers at all
+			if (low == null && high == null)
+				return null;
+			if (f.getOp() == SEARCHOP.BETWEEN && (low == null || high == null))
+				return null;
+			spans.find(low == null ? Long.MIN_VALUE : low, high == null ? Long.MAX_VALUE : high, matches);
+		}
+		return matches;
+	}
+
+	public String toString() {
+		long spans = 0;
+		for (Spans s : fields.values())
+			spans += s.entities.length;
+		return "RangeIndex[fields=" + fields.size() + ", spans=" + spans + "]";
+	}
+
+}
@@ -0,0 +1,36 @@
+/*
+    RangeIndexable indicates that the values a class presents to range searches can be
+    decoded ahead of time into numbers and kept in sorted order
+
+    Copyright (C) 2018 National Gallery of Art Washington DC
+    Developers: David Beaudet
+
+	This library is free software; you can redistribute it and/or
+	modify it under the terms of the GNU Lesser General Public
+	License as published by the Free Software Foundation; either
+	version 2.1 of the License, or (at your option) any later version.
+
+	This library is distributed in the hope that it will be useful,
+	but WITHOUT ANY WARRANTY; without even the implied warranty of
+	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+	Lesser General Public License for more details.
+
+	You should have received a copy of the GNU Lesser General Public
+	License along with this library; if not, write to the Free Software
+	Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+
+package gov.nga.search;
+
+public interface RangeIndexable {
+
+	// returns the start of the span of numbers the entity covers for the given range searched
+	// field, or null if the span is open at that end - fields that have a single value return it
+	// from both this and getRangeHigh and an entity with neither end has no value for the field
+	public Long getRangeLow(Object field);
+
+	// returns the end of the span of numbers the entity covers for the given field or null if the
+	// span is open at that end
+	public Long getRangeHigh(Object field);
+
+}
@@ -163,4 +163,16 @@ public class ResultsPaginator {
 		return page;
 	}
 
+	// the number of results, counting from the first, needed to fill the requested page or window
+	// before the total number of results is known - if the requested page turns out to be past the
+	// end of the results, the last page lies within this number anyway
+	public int getRequestedLimit() {
+		long limit;
+		if (skip != null)
+			limit = (long) skip + getPageSize();
+		else
+			limit = (long) (page == null || page < 1 ? 1 : page) * getPageSize();
+		return (int) Math.min(limit, Integer.MAX_VALUE);
+	}
+
 }
@@ -0,0 +1,285 @@
+/*
+    SearchExecutor is the single thread pool shared by all search, faceting and
+    thumbnail work so that concurrent requests don't each spin up their own pool
+
+    Copyright (C) 2018 National Gallery of Art Washington DC
+    Developers: David Beaudet
+
+	This library is free software; you can redistribute it and/or
+	modify it under the terms of the GNU Lesser General Public
+	License as published by the Free Software Foundation; either
+	version 2.1 of the License, or (at your option) any later version.
+
+	This library is distributed in the hope that it will be useful,
+	but WITHOUT ANY WARRANTY; without even the implied warranty of
+	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+	Lesser General Public License for more details.
+
+	You should have received a copy of the GNU Lesser General Public
+	License along with this library; if not, write to the Free Software
+	Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+
+package gov.nga.search;
+
+import gov.nga.utils.ConfigService;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// a work stealing pool shared across all requests with a bound on the number of tasks
+// that can be outstanding at any one time - when that bound is reached, cpu bound work
+// is run on the caller's thread instead so that a busy server degrades to serial execution
+// rather than queueing without limit, while blocking work is turned away altogether since
+// waiting on it would hold the caller up for as long as the slowest server takes
+public class SearchExecutor {
+
+	private static final Logger log = LoggerFactory.getLogger(SearchExecutor.class);
+
+	public static final String parallelismProperty 		= "searchExecutor.parallelism";
+	public static final String queueCapacityProperty 	= "searchExecutor.queueCapacity";
+	public static final String inlineThresholdProperty 	= "searchExecutor.inlineThreshold";
+
+	public static final int DEFAULT_PARALLELISM 		= Runtime.getRuntime().availableProcessors();
+	public static final int DEFAULT_QUEUE_CAPACITY 		= DEFAULT_PARALLELISM * 64;
+	public static final int DEFAULT_INLINE_THRESHOLD 	= 2000;
+
+	private static volatile SearchExecutor sharedInstance = null;
+
+	// state kept in thread locals by the submitting thread, such as the data snapshot that a request
+	// has pinned, which has to follow the work onto whichever pool thread ends up running it
+	public interface ThreadContext {
+		// returns the state of the current thread so it can be handed to the task
+		public Object capture();
+		// installs captured state on the current thread and returns whatever it replaced
+		public Object install(Object captured);
+	}
+
+	private static final List<ThreadContext> threadContexts = new CopyOnWriteArrayList<ThreadContext>();
+
+	public static void addThreadContext(ThreadContext context) {
+		threadContexts.add(context);
+	}
+
+	public static void removeThreadContext(ThreadContext context) {
+		threadContexts.remove(context);
+	}
+
+	private final ForkJoinPool pool;
+	private final Semaphore permits;
+	private final int queueCapacity;
+	private final int inlineThreshold;
+
+	private final AtomicLong submitted 	= new AtomicLong();
+	private final AtomicLong rejected 	= new AtomicLong();
+	private final AtomicLong refused 	= new AtomicLong();
+	private final AtomicLong inlined 	= new AtomicLong();
+
+	private SearchExecutor(int parallelism, int queueCapacity, int inlineThreshold) {
+		this.pool = new ForkJoinPool(parallelism, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+		this.queueCapacity = queueCapacity;
+		this.permits = new Semaphore(queueCapacity);
+		this.inlineThreshold = inlineThreshold;
+	}
+
+	public static SearchExecutor getInstance() {
+		SearchExecutor e = sharedInstance;
+		if (e == null) {
+			synchronized (SearchExecutor.class) {
+				if (sharedInstance == null)
+					sharedInstance = new SearchExecutor(DEFAULT_PARALLELISM, DEFAULT_QUEUE_CAPACITY, DEFAULT_INLINE_THRESHOLD);
+				e = sharedInstance;
+			}
+		}
+		return e;
+	}
+
+	// replace the shared executor with one sized per configuration - anything already submitted
+	// to the previous pool is allowed to finish
+	public static synchronized void configure(ConfigService cs) {
+		int parallelism = ConfigService.getPositiveInteger(cs, parallelismProperty, DEFAULT_PARALLELISM);
+		int queueCapacity = ConfigService.getPositiveInteger(cs, queueCapacityProperty, parallelism * 64);
+		int inlineThreshold = ConfigService.getPositiveInteger(cs, inlineThresholdProperty, DEFAULT_INLINE_THRESHOLD);
+		SearchExecutor old = sharedInstance;
+		sharedInstance = new SearchExecutor(parallelism, queueCapacity, inlineThreshold);
+		if (old != null) {
+			log.info("Replacing " + old);
+			old.pool.shutdown();
+		}
+		log.info("Search executor configured with parallelism " + parallelism + ", queue capacity " + queueCapacity + " and inline threshold " + inlineThreshold);
+	}
+
+	public int getParallelism() {
+		return pool.getParallelism();
+	}
+
+	// true if a list of the given size is small enough that fanning it out to the pool
+	// would cost more than simply processing it on the caller's thread
+	public boolean runInline(int size) {
+		if (size <= inlineThreshold) {
+			inlined.incrementAndGet();
+			return true;
+		}
+		return false;
+	}
+
+	// number of chunks a list of the given size should be divided into
+	public int chunksFor(int size) {
+		int chunks = getParallelism() * 2;
+		if (chunks > size)
+			chunks = size;
+		return chunks < 1 ? 1 : chunks;
+	}
+
+	// cpu bound work such as evaluating search filters and counting facets
+	public <V> Future<V> submit(Callable<V> task) {
+		return submit(task, false);
+	}
+
+	// work that spends most of its time waiting on i/o such as fetching thumbnails - the pool
+	// is allowed to compensate with an additional thread while the task is blocked so that
+	// searches are not starved by slow image servers.  When there's no room for it, the task
+	// isn't run at all and its future fails at once with a RejectedExecutionException so the
+	// caller can fall back on whatever it can do without it
+	public <V> Future<V> submitBlocking(Callable<V> task) {
+		return submit(task, true);
+	}
+
+	private <V> Future<V> submit(final Callable<V> task, final boolean blocking) {
+		submitted.incrementAndGet();
+		if (permits.tryAcquire()) {
+			Callable<V> call = threadContexts.isEmpty() ? task : new ContextCall<V>(task);
+			FutureTask<V> ft = new FutureTask<V>(blocking ? new BlockingCall<V>(call) : call) {
+				protected void done() {
+					permits.release();
+				}
+			};
+			try {
+				pool.execute(ft);
+				return ft;
+			}
+			catch (RejectedExecutionException ree) {
+				// pool was shut down by a re-configuration - fall through and run it here
+				permits.release();
+			}
+		}
+		rejected.incrementAndGet();
+		if (blocking) {
+			refused.incrementAndGet();
+			log.debug("Search executor saturated, refusing blocking task");
+			FutureTask<V> ft = new FutureTask<V>(new Callable<V>() {
+				public V call() {
+					throw new RejectedExecutionException("Search executor saturated");
+				}
+			});
+			ft.run();
+			return ft;
+		}
+		log.debug("Search executor saturated, running task on caller thread");
+		FutureTask<V> ft = new FutureTask<V>(task);
+		ft.run();
+		return ft;
+	}
+
+	private static class ContextCall<V> implements Callable<V> {
+		private final Callable<V> task;
+		private final ThreadContext[] contexts;
+		private final Object[] captured;
+
+		ContextCall(Callable<V> task) {
+			this.task = task;
+			this.contexts = threadContexts.toArray(new ThreadContext[0]);
+			this.captured = new Object[contexts.length];
+			for (int i=0; i<contexts.length; i++)
+				captured[i] = contexts[i].capture();
+		}
+
+		public V call() throws Exception {
+			Object[] previous = new Object[contexts.length];
+			for (int i=0; i<contexts.length; i++)
+				previous[i] = contexts[i].install(captured[i]);
+			try {
+				return task.call();
+			}
+			finally {
+				// pool threads are reused so they must be left as we found them
+				for (int i=contexts.length-1; i>=0; i--)
+					contexts[i].install(previous[i]);
+			}
+		}
+	}
+
+	private static class BlockingCall<V> implements Callable<V>, ForkJoinPool.ManagedBlocker {
+		private final Callable<V> task;
+		private V result = null;
+		private Exception failure = null;
+		private boolean done = false;
+
+		BlockingCall(Callable<V> task) {
+			this.task = task;
+		}
+
+		public V call() throws Exception {
+			ForkJoinPool.managedBlock(this);
+			if (failure != null)
+				throw failure;
+			return result;
+		}
+
+		public boolean block() {
+			try {
+				result = task.call();
+			}
+			catch (Exception e) {
+				failure = e;
+			}
+			finally {
+				done = true;
+			}
+			return true;
+		}
+
+		public boolean isReleasable() {
+			return done;
+		}
+	}
+
+	public long getSubmittedCount() {
+		return submitted.get();
+	}
+
+	// number of tasks that found the queue full, whether they were then run on the caller's thread or refused
+	public long getRejectedCount() {
+		return rejected.get();
+	}
+
+	// number of blocking tasks that were refused because the queue was full
+	public long getRefusedCount() {
+		return refused.get();
+	}
+
+	// number of lists that were small enough to be processed without fanning out
+	public long getInlinedCount() {
+		return inlined.get();
+	}
+
+	public int getQueuedCount() {
+		return queueCapacity - permits.availablePermits();
+	}
+
+	public String toString() {
+		return "SearchExecutor[parallelism=" + getParallelism() + ", active=" + pool.getActiveThreadCount() + ", queued=" + getQueuedCount()
+				+ "/" + queueCapacity + ", submitted=" + getSubmittedCount() + ", rejected=" + getRejectedCount() + ", refused=" + getRefusedCount() + ", inlined=" + getInlinedCount() + "]";
+	}
+
+}
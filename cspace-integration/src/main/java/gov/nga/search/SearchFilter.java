@@ -21,6 +21,11 @@
 */
 package gov.nga.search;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 
 import org.apache.commons.lang.NotImplementedException;
@@ -94,15 +99,8 @@ public class SearchFilter implements CustomHash {
    			strings.add(val.toLowerCase());
         	stringsNormalized.add(StringUtils.removeDiacritics(val).toLowerCase());
 			// try to decode a whole number out of the string to support implicit numerical matches 
-			try {
-				Long l = Long.decode(val);
-				longs.add(l);
-			}
-			catch (NumberFormatException nfe) {
-				// not a number, so append a null value to the list so we keep all of our lists
-				// in sync
-				longs.add(null);
-			}
+			// if it's not a number, a null value is appended so we keep all of our lists in sync
+			longs.add(decodeLong(val));
    		}
    		else { 
         	stringsNormalized.add(null);
@@ -136,7 +134,7 @@ public class SearchFilter implements CustomHash {
 		normalize = b;
 	}
     
-	private Boolean getNormalize() {
+	public Boolean getNormalize() {
 		return normalize;
 	}
     
@@ -144,7 +142,7 @@ public class SearchFilter implements CustomHash {
 		return field;
 	}
 	
-	private List<String> getStrings() {
+	List<String> getStrings() {
 		return getNormalize() ? getStringsNormalized() : strings;
 	}
     
@@ -156,6 +154,38 @@ public class SearchFilter implements CustomHash {
 		return op;
 	}
 	
+	// whole numbers, including milliseconds since the epoch, are decoded as they are, and ISO 8601 dates
+	// as the milliseconds since the epoch so that entities keeping their dates that way are compared as
+	// numbers as well - a date alone is the start of that day and a date and time without an offset is
+	// in the local time zone, the same as the search controllers take them.  The time can also be
+	// separated from the date by a space as databases tend to write it
+	private static Long decodeLong(String val) {
+		try {
+			return Long.decode(val);
+		}
+		catch (NumberFormatException nfe) {
+		}
+		if (val.length() < 10 || val.charAt(4) != '-' || val.charAt(7) != '-')
+			return null;
+		try {
+			if (val.length() == 10)
+				return LocalDate.parse(val).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+			if (val.charAt(10) == ' ')
+				val = val.substring(0, 10) + 'T' + val.substring(11);
+			if (val.charAt(10) != 'T')
+				return null;
+			try {
+				return OffsetDateTime.parse(val).toInstant().toEpochMilli();
+			}
+			catch (DateTimeParseException dte) {
+				return LocalDateTime.parse(val).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+			}
+		}
+		catch (DateTimeParseException dte) {
+			return null;
+		}
+	}
+
 	private Long stringToLong(String string) {
 		Long myLong = null;
 		if (string == null)
@@ -172,6 +202,10 @@ public class SearchFilter implements CustomHash {
 	public List<String> getStringSearchValues() {
 		return CollectionUtils.newArrayList(strings);
 	}
+
+	public List<String> getStringSearchValuesNormalized() {
+		return CollectionUtils.newArrayList(stringsNormalized);
+	}
 	
 	public List<Long> getLongSearchValues() {
 		return CollectionUtils.newArrayList(longs);
@@ -237,7 +271,7 @@ public class SearchFilter implements CustomHash {
 		
 		// convert source string to the proper format based on whether we're normalizing diacritics or not
 		if (sourceStringLow != null)
-			sourceStringLow = getNormalize() ? StringUtils.removeDiacritics(sourceStringHigh).toLowerCase() : sourceStringLow.toLowerCase();
+			sourceStringLow = getNormalize() ? StringUtils.removeDiacritics(sourceStringLow).toLowerCase() : sourceStringLow.toLowerCase();
 		if (sourceStringHigh != null)
 			sourceStringHigh = getNormalize() ? StringUtils.removeDiacritics(sourceStringHigh).toLowerCase() : sourceStringHigh.toLowerCase();
 		Long sourceLongLow = stringToLong(sourceStringLow);
@@ -284,13 +318,13 @@ public class SearchFilter implements CustomHash {
 				
 				//	else if segment one end is null		segment 2 end is null OR segment 2 end >= segment one start
 				else if (searchStringHigh == null) {
-					if (sourceStringHigh == null || lessthanOrEqualTo(sourceLongHigh, sourceStringTrimmedHigh, searchLongLow, searchStringLow))
+					if (sourceStringHigh == null || lessthanOrEqualTo(searchLongLow, searchStringLow, sourceLongHigh, sourceStringTrimmedHigh))
 						return true;
 				}
 				
 				// else if 2b is null (and 1 is def)	2e >= 1b
 				else if (sourceStringLow == null) {
-					if (lessthanOrEqualTo(sourceLongHigh, sourceStringTrimmedHigh, searchLongLow, searchStringLow))
+					if (lessthanOrEqualTo(searchLongLow, searchStringLow, sourceLongHigh, sourceStringTrimmedHigh))
 						return true;
 				}
 				
@@ -331,6 +365,19 @@ public class SearchFilter implements CustomHash {
 		if (source != null)
 			source = getNormalize() ? StringUtils.removeDiacritics(source).toLowerCase() : source.toLowerCase();
 
+		return preparedMatch(source);
+	}
+
+	// fast path for entities that pre-compute the lower cased and normalized forms of
+	// their searchable values at load time
+	public Boolean filterMatchKey(SearchKey key) {
+		if (key == null)
+			return preparedMatch(null);
+		return preparedMatch(getNormalize() ? key.getNormalized() : key.getLowerCase());
+	}
+
+	// source must already be lower cased and, if this filter normalizes, diacritic free
+	private Boolean preparedMatch(String source) {
 		List<String> list = getStrings();
 		
 		// if we have no data to use for comparisons with the source, then we return false;
@@ -25,13 +25,14 @@ import gov.nga.performancemonitor.PerformanceMonitorFactory;
 import gov.nga.utils.CollectionUtils;
 import gov.nga.utils.hashcode.CustomHash;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 
 import org.apache.commons.lang3.builder.HashCodeBuilder;
@@ -166,6 +167,10 @@ public class SearchHelper <T extends Faceted & Searchable & Sortable> implements
 		return this.filters;
 	}
 
+	public List<FreeTextFilter> getFreeTextFilters() {
+		return this.freeTextFilters;
+	}
+
 	public void setFreeTextServicer(FreeTextSearchable<T> searchServicer) {
 		//log.debug("FreeTextSearcher set: " + searchServicer);
 		this.searchServicer = searchServicer;
@@ -181,26 +186,135 @@ public class SearchHelper <T extends Faceted & Searchable & Sortable> implements
 		freeTextFilters.add(new FreeTextFilter(fieldsToSearch, searchTerm));
 	}
 
+	public boolean hasFreeTextFilters() {
+		return freeTextFilters != null && freeTextFilters.size() > 0;
+	}
+
 	public int getFilterSize()
 	{
 		return filters.size() + freeTextFilters.size();
 	}
 
-	private class SearchWorker implements Callable<List<T>> {
+	// narrows the base collection down to the entities found in the posting lists of every
+	// filter that one of the given indexes can answer, intersecting the smallest lists first -
+	// the scan still evaluates all of the filters, but only against the surviving candidates
+	@SafeVarargs
+	public final <E> Collection<E> narrow(Collection<E> base, SearchIndex<E>... indexes) {
+		if (base == null || indexes == null)
+			return base;
+
+		List<Set<E>> candidateSets = CollectionUtils.newArrayList();
+		for (SearchFilter f : filters) {
+			for (SearchIndex<E> index : indexes) {
+				if (index == null)
+					continue;
+				Set<E> candidates = index.candidates(f);
+				if (candidates != null) {
+					// nothing can match if any one of the filters has no candidates
+					if (candidates.isEmpty())
+						return CollectionUtils.newArrayList();
+					candidateSets.add(candidates);
+					break;
+				}
+			}
+		}
+
+		if (candidateSets.isEmpty())
+			return base;
+
+		Collections.sort(candidateSets, new Comparator<Set<E>>() {
+			public int compare(Set<E> a, Set<E> b) {
+				return Integer.compare(a.size(), b.size());
+			}
+		});
+
+		List<E> narrowed = CollectionUtils.newArrayList(candidateSets.get(0));
+		for (int i=1; i<candidateSets.size() && !narrowed.isEmpty(); i++) {
+			Set<E> next = candidateSets.get(i);
+			List<E> survivors = CollectionUtils.newArrayList();
+			for (E e : narrowed) {
+				if (next.contains(e))
+					survivors.add(e);
+			}
+			narrowed = survivors;
+		}
+		log.trace("Index narrowed " + base.size() + " entities to " + narrowed.size() + " candidates");
+		return narrowed;
+	}
+
+	// the matches found by a single worker - when the caller only wants a page of results we only
+	// hold on to as many matches as are needed to fill that page, counting the rest so the total
+	// number of results remains exact
+	private class ChunkMatches {
+		int count = 0;
+		List<T> all = null;
+		List<T> first = null;
+		PriorityQueue<T> top = null;
+		Comparator<T> order = null;
+		int keep = 0;
+
+		ChunkMatches(Comparator<T> order, int keep, boolean keepAll) {
+			this.order = order;
+			this.keep = keep;
+			if (keepAll)
+				all = CollectionUtils.newArrayList();
+			if (keep < Integer.MAX_VALUE) {
+				// bounded heap with the worst of the best matches at its head
+				if (order != null)
+					top = new PriorityQueue<T>(Math.min(keep, 1024) + 1, Collections.reverseOrder(order));
+				else if (!keepAll)
+					first = CollectionUtils.newArrayList();
+			}
+		}
+
+		void add(T t) {
+			count++;
+			if (all != null)
+				all.add(t);
+			if (top != null) {
+				if (top.size() < keep)
+					top.add(t);
+				else if (order.compare(t, top.peek()) < 0) {
+					top.poll();
+					top.add(t);
+				}
+			}
+			// with no sort order, the page comes from the first matches in list order
+			// so once we have enough of them, there's no need to collect any more
+			else if (first != null && first.size() < keep)
+				first.add(t);
+		}
+
+		List<T> kept() {
+			if (top != null)
+				return CollectionUtils.newArrayList(top);
+			if (first != null)
+				return first;
+			return all;
+		}
+	}
+
+	private class SearchWorker implements Callable<ChunkMatches> {
 		List<T> objList;
 		Set<SearchFilter> filters;
 		int start;
 		int end;
+		Comparator<T> order;
+		int keep;
+		boolean keepAll;
 
-		public SearchWorker(List<T> objList, int start, int end, Set<SearchFilter> filters) {
+		public SearchWorker(List<T> objList, int start, int end, Set<SearchFilter> filters, Comparator<T> order, int keep, boolean keepAll) {
 			this.objList = objList;
 			this.filters = filters;
 			this.start = start;
 			this.end = end;
+			this.order = order;
+			this.keep = keep;
+			this.keepAll = keepAll;
 		}
 
-		public List<T> call() {
-			List<T> matches = CollectionUtils.newArrayList();
+		public ChunkMatches call() {
+			ChunkMatches matches = new ChunkMatches(order, keep, keepAll);
 			for (int i=start; i<=end; i++) {
 				T matchObj = objList.get(i);
 				if (matchObj != null) {
@@ -227,70 +341,99 @@ public class SearchHelper <T extends Faceted & Searchable & Sortable> implements
 		
 		PerformanceMonitor perfMonitor = PerformanceMonitorFactory.getMonitor(SearchHelper.class);
 		
-		// create an auto sorted set to enable insertion sorting rather than
-		// sorting everything at the end
-		Set<T> matches = sortH.createAutoSortedSet();
-		
+		Comparator<T> order = (sortH == null ? null : sortH.sortByEntityAttributes);
+
+		// when paginating, each worker only needs to keep enough matches to fill the requested
+		// page, but facets still have to be counted across every match unless they're already known
+		boolean countFacets = (fn != null && !fn.isComplete());
+		int keep = (pn == null ? Integer.MAX_VALUE : pn.getRequestedLimit());
+		boolean keepAll = (pn == null || countFacets);
+
 		for (SearchFilter f : this.filters) {
 			log.trace("FILTER: " + f.getOp() + " " + f.getField());
 		}
 
+		List<ChunkMatches> chunks = CollectionUtils.newArrayList();
 		perfMonitor.resetSeedTime();
 		if (list != null && list.size() > 0) {
 			// prepare the search work for a thread pool for maximum performance
-			
-			ExecutorService searchDistributor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors() * 2);
-			
-			perfMonitor.logElapseTimeFromLastReport("starting futures");
-			List<Future<List<T>>> futures = CollectionUtils.newArrayList();
-			
-			// divide the list and divvy it up to workers - this is more efficient than creating a separate
-			// future for each item in the list
-			int chunk = (list.size() / Runtime.getRuntime().availableProcessors()) - 1;
-			if (chunk <= 0)
-				chunk = 1;
-			for (int start=0; start < list.size(); ) {
-				int end = start + chunk;
-				if (end >= list.size())
-					end = list.size()-1;
-				Callable<List<T>> searchWorker = new SearchWorker(list, start, end, filters);
-				futures.add(searchDistributor.submit(searchWorker));
-				start = end + 1;
+			SearchExecutor searchDistributor = SearchExecutor.getInstance();
+
+			// small lists are cheaper to scan here than to hand off to other threads
+			if (searchDistributor.runInline(list.size())) {
+				chunks.add(new SearchWorker(list, 0, list.size()-1, filters, order, keep, keepAll).call());
 			}
-			perfMonitor.logElapseTimeFromLastReport("done creating futures - now collecting them");
-			
-			try {
-				// query the results of the thread pool
-				for (Future<List<T>> f : futures) {
-					List<T> a = f.get();
-					if (a != null && a.size() > 0)
-						matches.addAll(a);
+			else {
+				perfMonitor.logElapseTimeFromLastReport("starting futures");
+				List<Future<ChunkMatches>> futures = CollectionUtils.newArrayList();
+
+				// divide the list and divvy it up to workers - this is more efficient than creating a separate
+				// future for each item in the list
+				int chunk = (list.size() / searchDistributor.chunksFor(list.size())) - 1;
+				if (chunk <= 0)
+					chunk = 1;
+				for (int start=0; start < list.size(); ) {
+					int end = start + chunk;
+					if (end >= list.size())
+						end = list.size()-1;
+					Callable<ChunkMatches> searchWorker = new SearchWorker(list, start, end, filters, order, keep, keepAll);
+					futures.add(searchDistributor.submit(searchWorker));
+					start = end + 1;
+				}
+				perfMonitor.logElapseTimeFromLastReport("done creating futures - now collecting them");
+
+				try {
+					// query the results of the thread pool
+					for (Future<ChunkMatches> f : futures)
+						chunks.add(f.get());
+				}
+				catch (ExecutionException ee) {
+					log.error("Error executing search query " + ee.getMessage());
+				}
+				catch (InterruptedException ie) {
+					log.info("Search thread was interrupted" + ie.getMessage());
 				}
-			}
-			catch (ExecutionException ee) {
-				log.error("Error executing search query " + ee.getMessage());
-			}
-			catch (InterruptedException ie) {
-				log.info("Search thread was interrupted" + ie.getMessage());
-			}
-			finally {
-				searchDistributor.shutdown();
 			}
 			perfMonitor.logElapseTimeFromLastReport("done collecting futures");
 		}
-		// sort the art entities if a sort helper is provided
-		/*if (sortH != null) {
-			sortH.sortEntities(matches);
-		}*/
-		//perfMonitor.logElapseTimeFromLastReport("done sorting");
-
-		// copy the Set into a List (hopefully the order will be retained)
-		list = CollectionUtils.newArrayList(matches);
-		log.trace("Total results found: " + matches.size());
+
+		int total = 0;
+		List<T> all = CollectionUtils.newArrayList();
+		List<T> kept = CollectionUtils.newArrayList();
+		for (ChunkMatches c : chunks) {
+			total += c.count;
+			if (c.all != null)
+				all.addAll(c.all);
+			// chunks are merged in list order which is all that's needed when no sort is requested
+			if (pn != null && (order != null || kept.size() < keep))
+				kept.addAll(c.kept());
+		}
+
+		if (pn == null) {
+			// create an auto sorted set to enable insertion sorting rather than
+			// sorting everything at the end
+			if (sortH != null) {
+				Set<T> matches = sortH.createAutoSortedSet();
+				matches.addAll(all);
+				all = CollectionUtils.newArrayList(matches);
+			}
+			list = all;
+		}
+		else {
+			// only the best of the best from each chunk remain to be sorted
+			if (order != null)
+				Collections.sort(kept, order);
+			if (kept.size() > keep)
+				kept = kept.subList(0, keep);
+			list = kept;
+		}
+		log.trace("Total results found: " + total);
+		perfMonitor.logElapseTimeFromLastReport("matches merged");
+
 		// and now we count facets if the facethelper is not null
 		// we we send them back to the caller
 		log.trace("Process facets: " + fn);
-		if (fn != null) {
+		if (countFacets) {
 			perfMonitor.logElapseTimeFromLastReport("Starting work on facets");
 			// we cast the List as a list of Faceted objects here because that's
 			// all we really need it for to process the facets - I'm not sure why
@@ -298,13 +441,14 @@ public class SearchHelper <T extends Faceted & Searchable & Sortable> implements
 			// implemented by the class T
 			
 			//List<T> fList = (List<Faceted>) list;
-			fn.processFacets(list);
+			fn.processFacets(all);
 			perfMonitor.logElapseTimeFromLastReport("facets processed");
 		}
 		
 		// finally, we clip the results for the pagination 
 		if (pn != null) {
-			list = clipToPage(list,pn);
+			pn.setTotalResults(total);
+			list = CollectionUtils.newArrayList(list.subList(pn.getStartIndex(), pn.getEndIndex()));
 			perfMonitor.logElapseTimeFromLastReport("matches clipped");
 		}
 		perfMonitor.logElapseTimeFromSeed("searchExec completed");
@@ -331,6 +475,14 @@ public class SearchHelper <T extends Faceted & Searchable & Sortable> implements
 		return searchExec(baseList, pn, fn, sortH);
 	}
 
+	// for lists that are already in the order the caller wants - matches are kept in list order
+	// rather than being sorted, which also means free text filters, which order by score, can't be used
+	public List<T> searchInOrder(List<T> list, ResultsPaginator pn, FacetHelper fn) {
+		if (hasFreeTextFilters())
+			throw new IllegalStateException("free text searches order their own results");
+		return searchExec(list, pn, fn, null);
+	}
+
 	public List<T> search(List<T> list, ResultsPaginator pn, FacetHelper fn, Object... order) throws InterruptedException, ExecutionException {
 		SortHelper<T> sortH = null;
 		// if an order is actually specified, then create a new sort order,
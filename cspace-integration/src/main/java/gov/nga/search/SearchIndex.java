@@ -0,0 +1,33 @@
+/*
+    SearchIndex narrows a collection of searchable entities down to the candidates that
+    could satisfy a given search filter without having to evaluate every entity
+  
+    Copyright (C) 2018 National Gallery of Art Washington DC
+    Developers: David Beaudet
+
+	This library is free software; you can redistribute it and/or
+	modify it under the terms of the GNU Lesser General Public
+	License as published by the Free Software Foundation; either
+	version 2.1 of the License, or (at your option) any later version.
+
+	This library is distributed in the hope that it will be useful,
+	but WITHOUT ANY WARRANTY; without even the implied warranty of
+	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+	Lesser General Public License for more details.
+
+	You should have received a copy of the GNU Lesser General Public
+	License along with this library; if not, write to the Free Software
+	Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+
+package gov.nga.search;
+
+import java.util.Set;
+
+public interface SearchIndex<E> {
+
+	// returns a superset of the entities that match the given filter or null if the 
+	// filter cannot be answered by this index in which case the caller must scan
+	public Set<E> candidates(SearchFilter filter);
+
+}
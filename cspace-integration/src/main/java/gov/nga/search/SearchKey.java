@@ -0,0 +1,52 @@
+/*
+    SearchKey holds the lower cased and diacritic-free forms of a searchable value so that
+    search filters don't have to recompute them for every entity on every search
+  
+    Copyright (C) 2018 National Gallery of Art Washington DC
+    Developers: David Beaudet
+
+	This library is free software; you can redistribute it and/or
+	modify it under the terms of the GNU Lesser General Public
+	License as published by the Free Software Foundation; either
+	version 2.1 of the License, or (at your option) any later version.
+
+	This library is distributed in the hope that it will be useful,
+	but WITHOUT ANY WARRANTY; without even the implied warranty of
+	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+	Lesser General Public License for more details.
+
+	You should have received a copy of the GNU Lesser General Public
+	License along with this library; if not, write to the Free Software
+	Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+
+package gov.nga.search;
+
+import gov.nga.utils.StringUtils;
+
+public class SearchKey {
+
+	private final String lowerCase;
+	private final String normalized;
+
+	private SearchKey(String value) {
+		lowerCase = value.toLowerCase();
+		String n = StringUtils.removeDiacritics(value).toLowerCase();
+		// most of our data is plain ascii so share the same string when we can
+		normalized = n.equals(lowerCase) ? lowerCase : n;
+	}
+
+	// null values map to a null key which search filters treat the same as a null string
+	public static SearchKey of(String value) {
+		return value == null ? null : new SearchKey(value);
+	}
+
+	public String getLowerCase() {
+		return lowerCase;
+	}
+
+	public String getNormalized() {
+		return normalized;
+	}
+
+}
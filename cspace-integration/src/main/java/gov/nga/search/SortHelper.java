@@ -146,6 +146,19 @@ public class SortHelper<E extends Sortable> extends Sorter {
 		};
 	}
 
+	// true if nothing but the given aspect decides the order, however many times it's listed, so
+	// that entities already kept in that order don't need to be sorted again
+	public boolean isOrderedBy(Object aspect) {
+		List<Object> so = getSortOrder();
+		if (baseEntity != null || so == null || so.isEmpty())
+			return false;
+		for (Object w : so) {
+			if (!aspect.equals(w))
+				return false;
+		}
+		return true;
+	}
+
 	public void setMatchString(Object sortEnum, String matchString) {
 		matchStrings.put(sortEnum, matchString);
 	}
@@ -0,0 +1,250 @@
+/*
+    TrigramIndex is an index of every three character sequence found in the values of a set of
+    search fields which narrows substring searches down to the entities that could contain them
+
+    Copyright (C) 2018 National Gallery of Art Washington DC
+    Developers: David Beaudet
+
+	This library is free software; you can redistribute it and/or
+	modify it under the terms of the GNU Lesser General Public
+	License as published by the Free Software Foundation; either
+	version 2.1 of the License, or (at your option) any later version.
+
+	This library is distributed in the hope that it will be useful,
+	but WITHOUT ANY WARRANTY; without even the implied warranty of
+	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+	Lesser General Public License for more details.
+
+	You should have received a copy of the GNU Lesser General Public
+	License along with this library; if not, write to the Free Software
+	Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+
+package gov.nga.search;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.gs.collections.impl.map.mutable.primitive.LongObjectHashMap;
+
+import gov.nga.utils.CollectionUtils;
+import gov.nga.utils.StringUtils;
+
+// a value can only contain a search string if it also contains every three character sequence of
+// that string, so the entities found in the posting lists of all of them are a superset of those
+// that match, usually a small one, which the search then checks with contains as before.  Values
+// are indexed lower cased with their diacritics removed, which answers both flavors of filter since
+// any lower cased match is also a match once diacritics are removed from both sides.  Strings shorter
+// than three characters can't be narrowed and are left to the scan.  Entities are referred to by
+// their position in the index and each posting list is stored as the gaps between successive
+// positions in as few bytes as they fit, since the longer fields such as provenance have hundreds
+// of distinct sequences apiece.
+public class TrigramIndex<E extends Indexable> implements SearchIndex<E> {
+
+	private static final Logger log = LoggerFactory.getLogger(TrigramIndex.class);
+
+	private final E[] entities;
+	private final Map<Object, LongObjectHashMap<Postings>> fields = CollectionUtils.newHashMap();
+
+	// the positions of the entities containing a sequence, in ascending order
+	private static class Postings {
+		private byte[] bytes = new byte[4];
+		private int length = 0;
+		private int count = 0;
+		private int last = -1;
+
+		void add(int position) {
+			if (position == last)
+				return;
+			int gap = position - last;
+			last = position;
+			count++;
+			if (length + 5 > bytes.length)
+				bytes = Arrays.copyOf(bytes, bytes.length * 2);
+			while (gap >= 0x80) {
+				bytes[length++] = (byte) (gap | 0x80);
+				gap >>>= 7;
+			}
+			bytes[length++] = (byte) gap;
+		}
+
+		void trim() {
+			bytes = Arrays.copyOf(bytes, length);
+		}
+
+		int[] decode() {
+			int[] positions = new int[count];
+			Decoder d = new Decoder(this);
+			for (int i=0; i<count; i++)
+				positions[i] = d.next();
+			return positions;
+		}
+	}
+
+	private static class Decoder {
+		private final Postings p;
+		private int offset = 0;
+		private int remaining;
+		private int position = -1;
+
+		Decoder(Postings p) {
+			this.p = p;
+			this.remaining = p.count;
+		}
+
+		boolean hasNext() {
+			return remaining > 0;
+		}
+
+		int next() {
+			int gap = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = p.bytes[offset++];
+				gap |= (b & 0x7f) << shift;
+				shift += 7;
+			} while ((b & 0x80) != 0);
+			remaining--;
+			return position += gap;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	public TrigramIndex(Collection<E> entities, Object... fieldsToIndex) {
+		this.entities = (E[]) entities.toArray(new Indexable[entities.size()]);
+		for (Object field : fieldsToIndex) {
+			LongObjectHashMap<Postings> postings = new LongObjectHashMap<Postings>();
+			for (int i=0; i<this.entities.length; i++) {
+				List<String> values = this.entities[i].getIndexValues(field);
+				if (values == null)
+					continue;
+				for (String v : values) {
+					if (v == null)
+						continue;
+					String s = normalize(v);
+					for (int c=0; c+3 <= s.length(); c++) {
+						long t = trigram(s, c);
+						Postings p = postings.get(t);
+						if (p == null) {
+							p = new Postings();
+							postings.put(t, p);
+						}
+						p.add(i);
+					}
+				}
+			}
+			for (Postings p : postings.values())
+				p.trim();
+			fields.put(field, postings);
+			log.debug("indexed " + postings.size() + " distinct trigrams for " + field);
+		}
+	}
+
+	private static String normalize(String s) {
+		return StringUtils.removeDiacritics(s).toLowerCase();
+	}
+
+	private static long trigram(String s, int i) {
+		return ((long) s.charAt(i) << 32) | ((long) s.charAt(i+1) << 16) | s.charAt(i+2);
+	}
+
+	public boolean isIndexed(Object field) {
+		return fields.containsKey(field);
+	}
+
+	// every operator that only matches values containing the search strings can be narrowed
+	public Set<E> candidates(SearchFilter f) {
+		LongObjectHashMap<Postings> postings = fields.get(f.getField());
+		if (postings == null)
+			return null;
+		switch (f.getOp()) {
+		case EQUALS:
+		case IN:
+		case STARTSWITH:
+		case LIKE:
+			break;
+		default:
+			return null;
+		}
+
+		List<String> values = f.getStrings();
+		if (values == null || values.size() < 1)
+			return null;
+		List<String> normalized = CollectionUtils.newArrayList();
+		for (String s : values) {
+			if (s == null)
+				return null;
+			s = normalize(s);
+			if (s.length() < 3)
+				return null;
+			normalized.add(s);
+		}
+
+		Set<E> matches = CollectionUtils.newHashSet();
+		for (String s : normalized) {
+			for (int i : positionsContaining(postings, s))
+				matches.add(entities[i]);
+		}
+		return matches;
+	}
+
+	// the positions found in the posting lists of every sequence of the string, starting with the shortest list
+	private static int[] positionsContaining(LongObjectHashMap<Postings> postings, String s) {
+		List<Postings> lists = CollectionUtils.newArrayList();
+		for (int c=0; c+3 <= s.length(); c++) {
+			Postings p = postings.get(trigram(s, c));
+			if (p == null)
+				return new int[0];
+			if (!lists.contains(p))
+				lists.add(p);
+		}
+		Collections.sort(lists, new Comparator<Postings>() {
+			public int compare(Postings a, Postings b) {
+				return Integer.compare(a.count, b.count);
+			}
+		});
+
+		int[] positions = lists.get(0).decode();
+		int n = positions.length;
+		for (int l=1; l<lists.size() && n > 0; l++) {
+			Decoder d = new Decoder(lists.get(l));
+			int kept = 0;
+			int next = -1;
+			for (int i=0; i<n; i++) {
+				while (next < positions[i] && d.hasNext())
+					next = d.next();
+				if (next == positions[i])
+					positions[kept++] = positions[i];
+				else if (next < positions[i])
+					break;
+			}
+			n = kept;
+		}
+		return Arrays.copyOf(positions, n);
+	}
+
+	public int size() {
+		return entities.length;
+	}
+
+	public String toString() {
+		long trigrams = 0;
+		long bytes = 0;
+		for (LongObjectHashMap<Postings> postings : fields.values()) {
+			trigrams += postings.size();
+			for (Postings p : postings.values())
+				bytes += p.length;
+		}
+		return "TrigramIndex[entities=" + entities.length + ", fields=" + fields.size() + ", trigrams=" + trigrams + ", postingBytes=" + bytes + "]";
+	}
+
+}
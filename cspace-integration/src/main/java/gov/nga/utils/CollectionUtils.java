@@ -41,6 +41,11 @@ public class CollectionUtils {
 		return new HashMap<T1,T2>();
 	}
 	
+	// for maps keyed by entity IDs, which store their keys as primitive longs
+	public static <T> LongKeyedMap<T> newLongKeyedMap() {
+		return new LongKeyedMap<T>();
+	}
+
 	public static <T1,T2> Map<T1,T2> newTreeMap(Comparator<T1> c) {
 		return new TreeMap<T1, T2>(c);
 	}
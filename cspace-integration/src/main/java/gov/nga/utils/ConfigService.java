@@ -25,4 +25,13 @@ public interface ConfigService {
 	public String getString(String PropertyName);
 	public String[] getStrings(String PropertyName, String splitOn);
 	public Integer getInteger(String ProperyName);
+
+	// the value of an integer property that has to be positive, or the default if the property
+	// is missing, isn't positive or there's no configuration to look it up in
+	public static int getPositiveInteger(ConfigService cs, String propertyName, int defaultValue) {
+		Integer i = cs == null ? null : cs.getInteger(propertyName);
+		if (i == null || i <= 0)
+			return defaultValue;
+		return i;
+	}
 }
@@ -0,0 +1,188 @@
+/*
+    Utils: DiskLRUCache keeps track of the files in a cache directory and removes the least
+    recently used of them to keep the directory under a total size
+
+    Copyright (C) 2018 National Gallery of Art Washington DC
+    Developers: David Beaudet
+
+	This library is free software; you can redistribute it and/or
+	modify it under the terms of the GNU Lesser General Public
+	License as published by the Free Software Foundation; either
+	version 2.1 of the License, or (at your option) any later version.
+
+	This library is distributed in the hope that it will be useful,
+	but WITHOUT ANY WARRANTY; without even the implied warranty of
+	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+	Lesser General Public License for more details.
+
+	You should have received a copy of the GNU Lesser General Public
+	License along with this library; if not, write to the Free Software
+	Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+
+package gov.nga.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.util.DigestUtils;
+
+// entries are files named after a hash of their key, written to a temporary file first and then
+// moved into place so that a partly written entry is never read.  The callers decide what goes in
+// the files; this only knows their names and sizes.  Entries found in the directory when the cache
+// is created are picked up again, so what was cached survives a restart.
+public class DiskLRUCache {
+
+	private static final String TEMPSUFFIX = ".tmp";
+
+	private final File directory;
+	private final String suffix;
+	private final long maxBytes;
+
+	// file name to size in bytes, least recently used first
+	private final LinkedHashMap<String, Long> entries = new LinkedHashMap<String, Long>(1024, 0.75f, true);
+	private long totalBytes = 0;
+
+	private final AtomicLong evictions = new AtomicLong();
+
+	public DiskLRUCache(File directory, String suffix, long maxBytes) {
+		this.directory = directory;
+		this.suffix = suffix;
+		this.maxBytes = maxBytes;
+		load();
+	}
+
+	// picks up the files left from before a restart, oldest first so they are the first to go
+	private void load() {
+		List<File> files = CollectionUtils.newArrayList();
+		File[] shards = directory.listFiles();
+		if (shards == null)
+			return;
+		for (File shard : shards) {
+			// anything left half written is of no use
+			if (shard.getName().endsWith(TEMPSUFFIX)) {
+				shard.delete();
+				continue;
+			}
+			File[] fs = shard.isDirectory() ? shard.listFiles() : null;
+			if (fs == null)
+				continue;
+			for (File f : fs) {
+				if (f.getName().endsWith(suffix))
+					files.add(f);
+			}
+		}
+		File[] sorted = files.toArray(new File[files.size()]);
+		Arrays.sort(sorted, new Comparator<File>() {
+			public int compare(File a, File b) {
+				return Long.compare(a.lastModified(), b.lastModified());
+			}
+		});
+		for (File f : sorted) {
+			String name = f.getName();
+			added(name.substring(0, name.length() - suffix.length()), f.length());
+		}
+	}
+
+	// the name an entry is filed under - keys are usually too long and contain characters that
+	// can't appear in a file name
+	public static String nameFor(String key) {
+		return DigestUtils.md5DigestAsHex(key.getBytes(StandardCharsets.UTF_8));
+	}
+
+	// files are spread over sub directories to keep any one of them from growing too large
+	public File fileFor(String name) {
+		return new File(new File(directory, name.substring(0, 2)), name + suffix);
+	}
+
+	// a file to write a new entry to before it's committed
+	public File createTempFile(String name) throws IOException {
+		return File.createTempFile(name, TEMPSUFFIX, directory);
+	}
+
+	// moves a completely written temporary file into place, replacing any entry already there - the
+	// temporary file is left for the caller to delete if it can't be moved
+	public void commit(File temp, String name) throws IOException {
+		File f = fileFor(name);
+		f.getParentFile().mkdirs();
+		long size = temp.length();
+		Files.move(temp.toPath(), f.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		added(name, size);
+	}
+
+	// true if there's an entry with the given name, which then counts as the most recently used
+	public boolean contains(String name) {
+		synchronized (entries) {
+			return entries.get(name) != null;
+		}
+	}
+
+	private void added(String name, long size) {
+		List<String> evicted = CollectionUtils.newArrayList();
+		synchronized (entries) {
+			Long previous = entries.put(name, size);
+			if (previous != null)
+				totalBytes -= previous;
+			totalBytes += size;
+			Iterator<Map.Entry<String, Long>> it = entries.entrySet().iterator();
+			while (totalBytes > maxBytes && it.hasNext()) {
+				Map.Entry<String, Long> e = it.next();
+				if (e.getKey().equals(name))
+					continue;
+				totalBytes -= e.getValue();
+				evicted.add(e.getKey());
+				it.remove();
+			}
+		}
+		// files are deleted outside of the lock - anyone who already opened one can still read it
+		for (String e : evicted) {
+			fileFor(e).delete();
+			evictions.incrementAndGet();
+		}
+	}
+
+	public void remove(String name) {
+		synchronized (entries) {
+			Long size = entries.remove(name);
+			if (size == null)
+				return;
+			totalBytes -= size;
+		}
+		fileFor(name).delete();
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	public int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	public long getSizeInBytes() {
+		synchronized (entries) {
+			return totalBytes;
+		}
+	}
+
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	public long getEvictionCount() {
+		return evictions.get();
+	}
+
+}
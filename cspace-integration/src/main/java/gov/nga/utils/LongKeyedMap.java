@@ -0,0 +1,217 @@
+/*
+    Utils: LongKeyedMap is a map keyed by primitive longs that can still be handed
+    to anything expecting a Map<Long, V>
+
+    Copyright (C) 2018 National Gallery of Art Washington DC
+    Developers: David Beaudet
+
+	This library is free software; you can redistribute it and/or
+	modify it under the terms of the GNU Lesser General Public
+	License as published by the Free Software Foundation; either
+	version 2.1 of the License, or (at your option) any later version.
+
+	This library is distributed in the hope that it will be useful,
+	but WITHOUT ANY WARRANTY; without even the implied warranty of
+	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+	Lesser General Public License for more details.
+
+	You should have received a copy of the GNU Lesser General Public
+	License along with this library; if not, write to the Free Software
+	Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+
+package gov.nga.utils;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import com.gs.collections.api.iterator.LongIterator;
+import com.gs.collections.api.tuple.primitive.LongObjectPair;
+import com.gs.collections.impl.map.mutable.primitive.LongObjectHashMap;
+
+// the TMS caches hold hundreds of thousands of entities keyed by their IDs - storing those
+// keys as primitives in an open addressed table avoids a boxed Long and a hash map entry for
+// every one of them.  The Map<Long, V> methods unbox their keys on the way in and only box them
+// again when the keys or entries are iterated.  Entity IDs are never null so null keys are
+// not supported; looking one up simply finds nothing.  As with HashMap, access has to be
+// synchronized externally if the map is modified after it has been published.
+public class LongKeyedMap<V> extends AbstractMap<Long, V> {
+
+	private final LongObjectHashMap<V> map;
+
+	private Set<Long> keySet = null;
+	private Set<Map.Entry<Long, V>> entrySet = null;
+
+	public LongKeyedMap() {
+		map = new LongObjectHashMap<V>();
+	}
+
+	public LongKeyedMap(int initialCapacity) {
+		map = new LongObjectHashMap<V>(initialCapacity);
+	}
+
+	public LongKeyedMap(Map<Long, ? extends V> m) {
+		this(m == null ? 0 : m.size());
+		if (m != null)
+			putAll(m);
+	}
+
+	public V get(long key) {
+		return map.get(key);
+	}
+
+	public boolean containsKey(long key) {
+		return map.containsKey(key);
+	}
+
+	public V put(long key, V value) {
+		return map.put(key, value);
+	}
+
+	public V remove(long key) {
+		return map.removeKey(key);
+	}
+
+	@Override
+	public V get(Object key) {
+		if (key instanceof Long)
+			return map.get((Long) key);
+		return null;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		if (key instanceof Long)
+			return map.containsKey((Long) key);
+		return false;
+	}
+
+	@Override
+	public V put(Long key, V value) {
+		if (key == null)
+			throw new NullPointerException("LongKeyedMap does not support null keys");
+		return map.put(key, value);
+	}
+
+	@Override
+	public void putAll(Map<? extends Long, ? extends V> m) {
+		if (m instanceof LongKeyedMap) {
+			@SuppressWarnings("unchecked")
+			LongKeyedMap<? extends V> lm = (LongKeyedMap<? extends V>) m;
+			map.putAll(lm.map);
+			return;
+		}
+		for (Map.Entry<? extends Long, ? extends V> e : m.entrySet())
+			put(e.getKey(), e.getValue());
+	}
+
+	@Override
+	public V remove(Object key) {
+		if (key instanceof Long)
+			return map.removeKey((Long) key);
+		return null;
+	}
+
+	@Override
+	public int size() {
+		return map.size();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return map.isEmpty();
+	}
+
+	@Override
+	public void clear() {
+		map.clear();
+	}
+
+	@Override
+	public boolean containsValue(Object value) {
+		return map.containsValue(value);
+	}
+
+	@Override
+	public Collection<V> values() {
+		return map.values();
+	}
+
+	// removing keys through the key set is supported so that callers can still use
+	// keySet().removeAll() but removing them through an iterator is not
+	@Override
+	public Set<Long> keySet() {
+		if (keySet == null) {
+			keySet = new AbstractSet<Long>() {
+				public Iterator<Long> iterator() {
+					final LongIterator i = map.keysView().longIterator();
+					return new Iterator<Long>() {
+						public boolean hasNext() {
+							return i.hasNext();
+						}
+						public Long next() {
+							return i.next();
+						}
+						public void remove() {
+							throw new UnsupportedOperationException();
+						}
+					};
+				}
+				public int size() {
+					return map.size();
+				}
+				public boolean contains(Object o) {
+					return containsKey(o);
+				}
+				public boolean remove(Object o) {
+					if (!containsKey(o))
+						return false;
+					LongKeyedMap.this.remove(o);
+					return true;
+				}
+				public boolean removeAll(Collection<?> c) {
+					boolean changed = false;
+					for (Object o : c)
+						changed |= remove(o);
+					return changed;
+				}
+				public void clear() {
+					map.clear();
+				}
+			};
+		}
+		return keySet;
+	}
+
+	@Override
+	public Set<Map.Entry<Long, V>> entrySet() {
+		if (entrySet == null) {
+			entrySet = new AbstractSet<Map.Entry<Long, V>>() {
+				public Iterator<Map.Entry<Long, V>> iterator() {
+					final Iterator<LongObjectPair<V>> i = map.keyValuesView().iterator();
+					return new Iterator<Map.Entry<Long, V>>() {
+						public boolean hasNext() {
+							return i.hasNext();
+						}
+						public Map.Entry<Long, V> next() {
+							LongObjectPair<V> p = i.next();
+							return new AbstractMap.SimpleImmutableEntry<Long, V>(p.getOne(), p.getTwo());
+						}
+						public void remove() {
+							throw new UnsupportedOperationException();
+						}
+					};
+				}
+				public int size() {
+					return map.size();
+				}
+			};
+		}
+		return entrySet;
+	}
+
+}
@@ -38,6 +38,10 @@ public class MutableInt implements Comparable<MutableInt> {
 		++value;
 	}
 
+	public void add (int n) {
+		value += n;
+	}
+
 	public int  get () { 
 		return value; 
 	}
@@ -0,0 +1,162 @@
+/*
+    Utils: SegmentedLRUCache is a least recently used cache split into segments that are each
+    locked on their own
+
+    Copyright (C) 2018 National Gallery of Art Washington DC
+    Developers: David Beaudet
+
+	This library is free software; you can redistribute it and/or
+	modify it under the terms of the GNU Lesser General Public
+	License as published by the Free Software Foundation; either
+	version 2.1 of the License, or (at your option) any later version.
+
+	This library is distributed in the hope that it will be useful,
+	but WITHOUT ANY WARRANTY; without even the implied warranty of
+	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+	Lesser General Public License for more details.
+
+	You should have received a copy of the GNU Lesser General Public
+	License along with this library; if not, write to the Free Software
+	Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+
+package gov.nga.utils;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// concurrent requests for different keys rarely wait on one another since each segment has its own
+// lock.  The capacity is a total weight that's shared out evenly between the segments - every entry
+// weighs one unless weigh() is overridden, e.g. to bound the cache by its size in bytes instead.
+// Each segment evicts its own least recently used entries, never the one just put, once it's over
+// its share.
+public class SegmentedLRUCache<K, V> {
+
+	public static final int DEFAULT_SEGMENTS = 16;
+
+	private final List<Segment<K, V>> segments = CollectionUtils.newArrayList();
+	private final long capacity;
+
+	private final AtomicLong evictions = new AtomicLong();
+
+	private static class Segment<K, V> extends LinkedHashMap<K, V> {
+		private static final long serialVersionUID = 1L;
+		private final long max;
+		private long weight = 0;
+
+		Segment(long max) {
+			super(16, 0.75f, true);
+			this.max = max;
+		}
+	}
+
+	public SegmentedLRUCache(long capacity) {
+		this(capacity, DEFAULT_SEGMENTS);
+	}
+
+	public SegmentedLRUCache(long capacity, int segmentCount) {
+		this.capacity = capacity;
+		long max = (capacity + segmentCount - 1) / segmentCount;
+		for (int i=0; i<segmentCount; i++)
+			segments.add(new Segment<K, V>(max));
+	}
+
+	// how much of the capacity the given entry takes up
+	protected long weigh(K key, V value) {
+		return 1;
+	}
+
+	private Segment<K, V> segmentFor(K key) {
+		int h = key.hashCode();
+		h ^= (h >>> 16);
+		return segments.get((h & 0x7fffffff) % segments.size());
+	}
+
+	public V get(K key) {
+		Segment<K, V> s = segmentFor(key);
+		synchronized (s) {
+			return s.get(key);
+		}
+	}
+
+	// true if there's an entry for the key, without counting it as used
+	public boolean containsKey(K key) {
+		Segment<K, V> s = segmentFor(key);
+		synchronized (s) {
+			return s.containsKey(key);
+		}
+	}
+
+	public void put(K key, V value) {
+		if (capacity <= 0 || value == null)
+			return;
+		Segment<K, V> s = segmentFor(key);
+		synchronized (s) {
+			V previous = s.put(key, value);
+			if (previous != null)
+				s.weight -= weigh(key, previous);
+			s.weight += weigh(key, value);
+			// least recently used first, but never the entry just added
+			Iterator<Map.Entry<K, V>> it = s.entrySet().iterator();
+			while (s.weight > s.max && it.hasNext()) {
+				Map.Entry<K, V> e = it.next();
+				if (e.getKey().equals(key))
+					continue;
+				s.weight -= weigh(e.getKey(), e.getValue());
+				it.remove();
+				evictions.incrementAndGet();
+			}
+		}
+	}
+
+	public void remove(K key) {
+		Segment<K, V> s = segmentFor(key);
+		synchronized (s) {
+			V previous = s.remove(key);
+			if (previous != null)
+				s.weight -= weigh(key, previous);
+		}
+	}
+
+	public void clear() {
+		for (Segment<K, V> s : segments) {
+			synchronized (s) {
+				s.clear();
+				s.weight = 0;
+			}
+		}
+	}
+
+	public int size() {
+		int size = 0;
+		for (Segment<K, V> s : segments) {
+			synchronized (s) {
+				size += s.size();
+			}
+		}
+		return size;
+	}
+
+	// the total weight of the entries, which is their number unless weigh() is overridden
+	public long getWeight() {
+		long weight = 0;
+		for (Segment<K, V> s : segments) {
+			synchronized (s) {
+				weight += s.weight;
+			}
+		}
+		return weight;
+	}
+
+	public long getCapacity() {
+		return capacity;
+	}
+
+	public long getEvictionCount() {
+		return evictions.get();
+	}
+
+}
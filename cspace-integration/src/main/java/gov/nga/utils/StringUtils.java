@@ -42,6 +42,33 @@ public class StringUtils {
     private static final Logger logger = LoggerFactory
             .getLogger(StringUtils.class);
 
+    // patterns are compiled once here rather than by String.replaceAll on every call
+    private static final Pattern HIGHASCIICHARACTERS = Pattern.compile("[^\\x00-\\x7F]");
+    private static final Pattern PARAGRAPHTAGS = Pattern.compile("(?i)</?p.*?>");
+    private static final Pattern EMTAGS = Pattern.compile("(?i)</?em.*?>");
+    private static final Pattern ITAGS = Pattern.compile("(?i)</?i.*?>");
+    private static final Pattern MULTIPLEUNDERSCORES = Pattern.compile("(_{2,})");
+
+    // the single pass clean up methods below build their results in a buffer that's re-used by
+    // each thread - none of them call another method that uses the buffer while they hold it
+    private static final int MAXRETAINEDBUFFER = 64 * 1024;
+    private static final ThreadLocal<StringBuilder> buffers = new ThreadLocal<StringBuilder>() {
+        protected StringBuilder initialValue() {
+            return new StringBuilder(256);
+        }
+    };
+
+    private static StringBuilder buffer() {
+        StringBuilder sb = buffers.get();
+        // don't hang on to the odd very large buffer needed for a long biography or provenance
+        if (sb.capacity() > MAXRETAINEDBUFFER) {
+            sb = new StringBuilder(256);
+            buffers.set(sb);
+        }
+        sb.setLength(0);
+        return sb;
+    }
+
     /*
      * public static class DiacriticComparer implements Comparator<String> {
      * public int compare(String o1, String o2) { return
@@ -62,14 +89,52 @@ public class StringUtils {
     // from a string - Vadym's team uses this to transform names that are
     // subsequently used for storing nodes in the repository
     public static String removeHighASCIICharacters(String s) {
-        return s.replaceAll("[^\\x00-\\x7F]", "");
+        return HIGHASCIICHARACTERS.matcher(s).replaceAll("");
     }
 
     public static String removeDiacritics(String in) {
     	if (in == null)
     		return null;
-        return Normalizer.normalize(in, Normalizer.Form.NFD).replaceAll(
-                "\\p{InCombiningDiacriticalMarks}+", "");
+    	// most of what we see is plain ascii which has nothing to decompose
+    	if (isAscii(in))
+    		return in;
+    	String nfd = Normalizer.normalize(in, Normalizer.Form.NFD);
+    	// drop the combining diacritical marks block, U+0300 - U+036F
+    	StringBuilder sb = buffer();
+    	for (int i=0; i<nfd.length(); i++) {
+    		char c = nfd.charAt(i);
+    		if (c < '\u0300' || c > '\u036F')
+    			sb.append(c);
+    	}
+    	return sb.length() == nfd.length() ? nfd : sb.toString();
+    }
+
+    private static boolean isAscii(String s) {
+    	for (int i=0; i<s.length(); i++) {
+    		if (s.charAt(i) > 0x7F)
+    			return false;
+    	}
+    	return true;
+    }
+
+    // the characters that end a line as far as the . in a regular expression is concerned
+    private static boolean isLineTerminator(char c) {
+    	return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    // if a tag starts at the given position, returns the position of its closing bracket, otherwise -1 - 
+    // the same tags as \<.*?\> matches, so a tag can't span more than one line
+    private static int endOfTag(String s, int start) {
+    	if (s.charAt(start) != '<')
+    		return -1;
+    	for (int i=start+1; i<s.length(); i++) {
+    		char c = s.charAt(i);
+    		if (c == '>')
+    			return i;
+    		if (isLineTerminator(c))
+    			return -1;
+    	}
+    	return -1;
     }
 
     public static String trimToMatchSize(String source, String target) {
@@ -322,18 +387,28 @@ public class StringUtils {
      * This method removes international characters
      */
     public static String deAccent(String str) {
-        String nfdNormalizedString = Normalizer.normalize(str,
-                Normalizer.Form.NFD);
-        // dpb wonders why you want to compile this pattern every time the method is called??? and why you didn't just use the 
-        // existing "removeDiacritics()" method...
-        Pattern pattern = Pattern.compile("\\p{InCombiningDiacriticalMarks}+");
-        return pattern.matcher(nfdNormalizedString).replaceAll("");
+        return removeDiacritics(str);
     }
     
     public static String removeOnlyHTML(String htmlString) {
     	if (htmlString == null)
     		return null;
-    	return htmlString.replaceAll("\\<.*?\\>", "");
+    	return removeTags(htmlString, false);
+    }
+
+    // removes tags and, if asked to, underscores in a single pass
+    private static String removeTags(String s, boolean removeUnderscores) {
+    	if (s.indexOf('<') < 0 && (!removeUnderscores || s.indexOf('_') < 0))
+    		return s;
+    	StringBuilder sb = buffer();
+    	for (int i=0; i<s.length(); i++) {
+    		int end = endOfTag(s, i);
+    		if (end >= 0)
+    			i = end;
+    		else if (!removeUnderscores || s.charAt(i) != '_')
+    			sb.append(s.charAt(i));
+    	}
+    	return sb.toString();
     }
 
     /*
@@ -347,10 +422,103 @@ public class StringUtils {
         if (htmlString==null)
             return null;
         
-        String toUnescape = htmlString.replaceAll("\\<.*?\\>", "").replaceAll("\r|\n|\"", " ");
+        // strip the tags and blank out line breaks and quotes in one pass
+        StringBuilder sb = buffer();
+        for (int i=0; i<htmlString.length(); i++) {
+        	int end = endOfTag(htmlString, i);
+        	if (end >= 0) {
+        		i = end;
+        		continue;
+        	}
+        	char c = htmlString.charAt(i);
+        	sb.append(c == '\r' || c == '\n' || c == '"' ? ' ' : c);
+        }
+        String toUnescape = sb.toString();
         
-        return removeDiacritics ?
-                StringEscapeUtils.unescapeHtml4(deAccent(toUnescape)) : StringEscapeUtils.unescapeHtml4(toUnescape);
+        if (removeDiacritics)
+        	toUnescape = deAccent(toUnescape);
+        // there's nothing to unescape without an entity
+        return toUnescape.indexOf('&') < 0 ? toUnescape : StringEscapeUtils.unescapeHtml4(toUnescape);
+    }
+
+    // \s in a regular expression
+    private static boolean isRegexWhitespace(int c) {
+    	return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
+    }
+
+    // Cleans up names and titles for type ahead matching by removing markup and diacritics and lower casing
+    // them.  Letters are kept along with hyphens and apostrophes that fall between them, while anything else
+    // between two words becomes a space.  This does in a single pass what used to take a chain of nine regular
+    // expressions: a run of non-letters between letters becomes a single space if it has any white space in
+    // it, otherwise a run of two or more hyphens becomes a space and each character that isn't a hyphen or
+    // apostrophe becomes a space.  Non-letters at either end are dropped.
+    public static String cleanupForMatching(String original) {
+        if (original == null)
+            return null;
+
+        String s = removeHTML(original).toLowerCase();
+        StringBuilder sb = buffer();
+        int n = s.length();
+        int i = 0;
+        while (i < n) {
+            int cp = s.codePointAt(i);
+            if (Character.isLetter(cp)) {
+                sb.appendCodePoint(cp);
+                i += Character.charCount(cp);
+                continue;
+            }
+            int start = i;
+            boolean whitespace = false;
+            while (i < n && !Character.isLetter(cp = s.codePointAt(i))) {
+                whitespace |= isRegexWhitespace(cp);
+                i += Character.charCount(cp);
+            }
+            // leading and trailing non-letters are dropped
+            if (start == 0 || i >= n)
+                continue;
+            if (whitespace) {
+                sb.append(' ');
+                continue;
+            }
+            for (int j=start; j<i; ) {
+                cp = s.codePointAt(j);
+                if (cp == '-') {
+                    int k = j;
+                    while (k < i && s.charAt(k) == '-')
+                        k++;
+                    sb.append(k - j > 1 ? ' ' : '-');
+                    j = k;
+                    continue;
+                }
+                sb.append(cp == '\'' ? '\'' : ' ');
+                j += Character.charCount(cp);
+            }
+        }
+        return sb.toString();
+    }
+
+    // cleanupForMatching with apostrophes removed and each run of hyphens and slashes turned into a space
+    public static String cleanupForLettersOnlyMatching(String original) {
+        String s = cleanupForMatching(original);
+        if (s == null)
+            return null;
+        StringBuilder sb = buffer();
+        boolean inSeparators = false;
+        for (int i=0; i<s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '\'')
+                continue;
+            if (c == '-' || c == '/') {
+                if (!inSeparators)
+                    sb.append(' ');
+                inSeparators = true;
+            }
+            else {
+                sb.append(c);
+                inSeparators = false;
+            }
+        }
+        return sb.toString();
     }
 
     /*
@@ -378,7 +546,7 @@ public class StringUtils {
      */
     public static String stripAllParagraphs(String text){
         if (org.apache.commons.lang3.StringUtils.isBlank(text)) return text;
-        text = text.replaceAll("(?i)</?p.*?>", "");
+        text = PARAGRAPHTAGS.matcher(text).replaceAll("");
         return text;
         
     }
@@ -432,8 +600,8 @@ public class StringUtils {
     {
         if (org.apache.commons.lang3.StringUtils.isBlank(text)) 
         	return text;
-        text = text.replaceAll("(?i)</?em.*?>", "_");
-        text = text.replaceAll("(?i)</?i.*?>", "_");
+        text = EMTAGS.matcher(text).replaceAll("_");
+        text = ITAGS.matcher(text).replaceAll("_");
         if (text != null)
         	text = text.trim();
         return text;
@@ -456,8 +624,7 @@ public class StringUtils {
     {
         if (org.apache.commons.lang3.StringUtils.isBlank(text) || !text.contains("_")) return text;
 
-        Pattern pattern = Pattern.compile("(_{2,})");
-        Matcher matcher = pattern.matcher(text);
+        Matcher matcher = MULTIPLEUNDERSCORES.matcher(text);
         StringBuffer tmp = new StringBuffer();
         while (matcher.find())
             matcher.appendReplacement(tmp, org.apache.commons.lang3.StringUtils.repeat("&lowbar;", matcher.group(1).length()));
@@ -483,12 +650,23 @@ public class StringUtils {
     {
         if (org.apache.commons.lang3.StringUtils.isBlank(text)) 
         	return text;
-        return text.replaceAll("_","");
+        if (text.indexOf('_') < 0)
+        	return text;
+        StringBuilder sb = buffer();
+        for (int i=0; i<text.length(); i++) {
+        	char c = text.charAt(i);
+        	if (c != '_')
+        		sb.append(c);
+        }
+        return sb.toString();
     }
 
+    // the same as removeOnlyHTML(markdownToText(text)) but in a single pass
     public static String removeOnlyHTMLAndFormatting(String text)
     {
-        return removeOnlyHTML(markdownToText(text));
+        if (text == null)
+        	return null;
+        return removeTags(text, true);
     }
     
     public static String removeMarkup(String text)
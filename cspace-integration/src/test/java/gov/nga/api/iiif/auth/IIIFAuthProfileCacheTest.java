@@ -0,0 +1,125 @@
+/*
+    NGA IIIF Authorization Services: IIIFAuthProfileCacheTest checks when cached authorization
+    profiles are let go of
+
+    Copyright (C) 2018 National Gallery of Art Washington DC
+    Developers: David Beaudet
+
+	This library is free software; you can redistribute it and/or
+	modify it under the terms of the GNU Lesser General Public
+	License as published by the Free Software Foundation; either
+	version 2.1 of the License, or (at your option) any later version.
+
+	This library is distributed in the hope that it will be useful,
+	but WITHOUT ANY WARRANTY; without even the implied warranty of
+	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+	Lesser General Public License for more details.
+
+	You should have received a copy of the GNU Lesser General Public
+	License along with this library; if not, write to the Free Software
+	Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package gov.nga.api.iiif.auth;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class IIIFAuthProfileCacheTest {
+
+	private static IIIFAuthProfileCache.Key key(int i) {
+		return new IIIFAuthProfileCache.Key("/vol/" + i, "image" + i + ".ptif", null, false);
+	}
+
+	@Test
+	public void keys_test() {
+		IIIFAuthProfileCache.Key k = new IIIFAuthProfileCache.Key("/vol", "a.ptif", 640L, false);
+		assertEquals(k, new IIIFAuthProfileCache.Key("/vol", "a.ptif", 640L, false));
+		assertEquals(k.hashCode(), new IIIFAuthProfileCache.Key("/vol", "a.ptif", 640L, false).hashCode());
+		assertTrue(!k.equals(new IIIFAuthProfileCache.Key("/vol", "a.ptif", 640L, true)));
+		assertTrue(!k.equals(new IIIFAuthProfileCache.Key("/vol", "a.ptif", null, false)));
+		assertTrue(!k.equals(new IIIFAuthProfileCache.Key("/vol", "b.ptif", 640L, false)));
+		assertTrue(!k.equals(new IIIFAuthProfileCache.Key(null, "a.ptif", 640L, false)));
+	}
+
+	@Test
+	public void hits_and_misses_test() {
+		IIIFAuthProfileCache<String> cache = new IIIFAuthProfileCache<String>(100);
+		Object source = new Object();
+		assertNull(cache.get(key(1), source));
+		cache.put(key(1), "profile", source);
+		assertEquals("profile", cache.get(key(1), source));
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+	}
+
+	// profiles worked out from data that has been refreshed are dropped as soon as anyone asks
+	// for a profile of the new data
+	@Test
+	public void new_source_clears_cache_test() {
+		IIIFAuthProfileCache<String> cache = new IIIFAuthProfileCache<String>(100);
+		Object oldSource = new Object();
+		Object newSource = new Object();
+		cache.get(key(1), oldSource);
+		cache.put(key(1), "old", oldSource);
+		cache.put(key(2), "old", oldSource);
+		assertEquals(2, cache.size());
+
+		assertNull(cache.get(key(1), newSource));
+		assertEquals(0, cache.size());
+
+		// and a request still working from the old data can't put its profile back
+		cache.put(key(1), "old", oldSource);
+		assertNull(cache.get(key(1), newSource));
+		cache.put(key(1), "new", newSource);
+		assertEquals("new", cache.get(key(1), newSource));
+	}
+
+	// a put that checked the source just before another request moved the cache on to new data
+	// leaves a profile behind, but it's never given to a request using the new data
+	@Test
+	public void late_put_of_old_profile_ignored_test() {
+		IIIFAuthProfileCache<String> cache = new IIIFAuthProfileCache<String>(100);
+		Object oldSource = new Object();
+		Object newSource = new Object();
+		cache.get(key(1), oldSource);
+		cache.get(key(1), newSource);
+		ReflectionTestUtils.setField(cache, "source", oldSource);
+		cache.put(key(1), "old", oldSource);
+		ReflectionTestUtils.setField(cache, "source", newSource);
+		assertEquals(1, cache.size());
+
+		assertNull(cache.get(key(1), newSource));
+		cache.put(key(1), "new", newSource);
+		assertEquals("new", cache.get(key(1), newSource));
+		assertEquals(1, cache.getHitCount());
+	}
+
+	@Test
+	public void capacity_bounds_size_test() {
+		IIIFAuthProfileCache<String> cache = new IIIFAuthProfileCache<String>(32);
+		Object source = new Object();
+		cache.get(key(0), source);
+		for (int i=0; i<1000; i++)
+			cache.put(key(i), "profile" + i, source);
+		assertTrue(cache.size() <= 32);
+		assertTrue(cache.size() > 0);
+		assertEquals(1000 - cache.size(), cache.getEvictionCount());
+		// the last profile put is always kept
+		assertEquals("profile999", cache.get(key(999), source));
+	}
+
+	@Test
+	public void no_capacity_caches_nothing_test() {
+		IIIFAuthProfileCache<String> cache = new IIIFAuthProfileCache<String>(0);
+		Object source = new Object();
+		cache.get(key(1), source);
+		cache.put(key(1), "profile", source);
+		assertNull(cache.get(key(1), source));
+		assertEquals(0, cache.size());
+	}
+
+}
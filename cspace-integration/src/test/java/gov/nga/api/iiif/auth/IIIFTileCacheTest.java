@@ -0,0 +1,228 @@
+/*
+    NGA IIIF Authorization Services: IIIFTileCacheTest checks which tiles are kept on disk and
+    for how long
+
+    Copyright (C) 2018 National Gallery of Art Washington DC
+    Developers: David Beaudet
+
+	This library is free software; you can redistribute it and/or
+	modify it under the terms of the GNU Lesser General Public
+	License as published by the Free Software Foundation; either
+	version 2.1 of the License, or (at your option) any later version.
+
+	This library is distributed in the hope that it will be useful,
+	but WITHOUT ANY WARRANTY; without even the implied warranty of
+	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+	Lesser General Public License for more details.
+
+	You should have received a copy of the GNU Lesser General Public
+	License along with this library; if not, write to the Free Software
+	Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package gov.nga.api.iiif.auth;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import gov.nga.utils.CollectionUtils;
+import gov.nga.utils.DiskLRUCache;
+import gov.nga.utils.TestConfigService;
+
+public class IIIFTileCacheTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	// a 1MB cache holds responses of up to 16KB each
+	private IIIFTileCache newCache(File dir) {
+		IIIFTileCache cache = new IIIFTileCache();
+		cache.cs = new TestConfigService()
+				.set(IIIFAuthConfigs.tileCacheDirectoryPropertyName, dir)
+				.set(IIIFAuthConfigs.tileCacheMaxSizePropertyName, 1)
+				.set(IIIFAuthConfigs.tileCacheMaxAgePropertyName, 24);
+		cache.postConstruct();
+		return cache;
+	}
+
+	private static Map<String, String> headers(String type) {
+		Map<String, String> headers = CollectionUtils.newHashMap();
+		headers.put("Content-Type", type);
+		headers.put("Cache-Control", "public, max-age=86400");
+		return headers;
+	}
+
+	private static byte[] body(int length, int seed) {
+		byte[] b = new byte[length];
+		for (int i=0; i<length; i++)
+			b[i] = (byte) (i * 31 + seed);
+		return b;
+	}
+
+	private static void store(IIIFTileCache cache, String key, byte[] body) throws IOException {
+		IIIFTileCache.Writer w = cache.put(key, headers("image/jpeg"));
+		assertNotNull(w);
+		// written in pieces the way a proxied response arrives
+		int half = body.length / 2;
+		w.write(body, 0, half);
+		w.write(body, half, body.length - half);
+		w.commit();
+	}
+
+	private static byte[] read(IIIFTileCache.Tile tile) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		tile.transferTo(out);
+		return out.toByteArray();
+	}
+
+	@Test
+	public void stored_tile_read_back_test() throws IOException {
+		IIIFTileCache cache = newCache(folder.newFolder());
+		assertTrue(cache.isEnabled());
+		assertNull(cache.get("/iiif/a/full/full/0/default.jpg"));
+		byte[] body = body(5000, 1);
+		store(cache, "/iiif/a/full/full/0/default.jpg", body);
+
+		IIIFTileCache.Tile tile = cache.get("/iiif/a/full/full/0/default.jpg");
+		assertNotNull(tile);
+		try {
+			assertEquals(headers("image/jpeg"), tile.getHeaders());
+			assertEquals(body.length, tile.getBodyLength());
+			assertArrayEquals(body, read(tile));
+		}
+		finally {
+			tile.close();
+		}
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+		assertNull(cache.get("/iiif/b/full/full/0/default.jpg"));
+	}
+
+	@Test
+	public void discarded_and_oversized_tiles_not_stored_test() throws IOException {
+		File dir = folder.newFolder();
+		IIIFTileCache cache = newCache(dir);
+		IIIFTileCache.Writer w = cache.put("discarded", headers("image/jpeg"));
+		w.write(body(100, 1));
+		w.discard();
+		assertNull(cache.get("discarded"));
+
+		w = cache.put("oversized", headers("image/jpeg"));
+		w.write(body(10000, 1));
+		w.write(body(10000, 2));
+		w.commit();
+		assertNull(cache.get("oversized"));
+		assertEquals(0, cache.size());
+
+		// and nothing is left behind half written
+		assertEquals(0, dir.listFiles().length);
+	}
+
+	@Test
+	public void least_recently_used_evicted_test() throws IOException {
+		IIIFTileCache cache = newCache(folder.newFolder());
+		store(cache, "tile0", body(10000, 0));
+		// held open from before the tile is evicted
+		IIIFTileCache.Tile open = cache.get("tile0");
+		assertNotNull(open);
+		store(cache, "tile1", body(10000, 1));
+		for (int i=2; i<300; i++) {
+			store(cache, "tile" + i, body(10000, i));
+			// tile1 is used all along so it's never the least recently used
+			IIIFTileCache.Tile used = cache.get("tile1");
+			assertNotNull("tile1 evicted after " + i, used);
+			used.close();
+		}
+		assertTrue(cache.getSizeInBytes() <= 1024 * 1024);
+		assertTrue(cache.getEvictionCount() > 0);
+		assertNull(cache.get("tile2"));
+		assertNotNull(cache.get("tile299"));
+		assertNull(cache.get("tile0"));
+
+		// an evicted file can still be read by whoever already had it open
+		try {
+			assertArrayEquals(body(10000, 0), read(open));
+		}
+		finally {
+			open.close();
+		}
+	}
+
+	@Test
+	public void expired_tile_removed_test() throws IOException {
+		IIIFTileCache cache = newCache(folder.newFolder());
+		store(cache, "old", body(1000, 1));
+		store(cache, "new", body(1000, 2));
+
+		// stored more than a day ago
+		File old = findTile(folder.getRoot(), DiskLRUCache.nameFor("old"));
+		assertNotNull(old);
+		assertTrue(old.setLastModified(System.currentTimeMillis() - 25L * 60L * 60L * 1000L));
+		assertNull(cache.get("old"));
+		assertFalse(old.exists());
+		assertEquals(1, cache.size());
+	}
+
+	private static File findTile(File dir, String name) {
+		File[] files = dir.listFiles();
+		if (files == null)
+			return null;
+		for (File f : files) {
+			if (f.isDirectory()) {
+				File found = findTile(f, name);
+				if (found != null)
+					return found;
+			}
+			else if (f.getName().startsWith(name))
+				return f;
+		}
+		return null;
+	}
+
+	@Test
+	public void tiles_kept_over_restart_test() throws IOException {
+		File dir = folder.newFolder();
+		IIIFTileCache cache = newCache(dir);
+		for (int i=0; i<10; i++)
+			store(cache, "tile" + i, body(1000, i));
+		long bytes = cache.getSizeInBytes();
+
+		// a copy left half written when the service went down is cleaned up
+		assertTrue(new File(dir, "crashed.tmp").createNewFile());
+		IIIFTileCache restarted = newCache(dir);
+		assertEquals(10, restarted.size());
+		assertEquals(bytes, restarted.getSizeInBytes());
+		assertFalse(new File(dir, "crashed.tmp").exists());
+		IIIFTileCache.Tile tile = restarted.get("tile3");
+		try {
+			assertArrayEquals(body(1000, 3), read(tile));
+		}
+		finally {
+			tile.close();
+		}
+	}
+
+	@Test
+	public void disabled_without_directory_test() throws IOException {
+		IIIFTileCache cache = new IIIFTileCache();
+		cache.cs = new TestConfigService();
+		cache.postConstruct();
+		assertFalse(cache.isEnabled());
+		assertNull(cache.put("tile", headers("image/jpeg")));
+		assertNull(cache.get("tile"));
+		assertEquals(0, cache.size());
+	}
+
+}
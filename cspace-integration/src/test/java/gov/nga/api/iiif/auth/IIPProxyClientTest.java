@@ -0,0 +1,172 @@
+/*
+    NGA IIIF Authorization: IIPProxyClientTest checks the pooled client used to proxy IIP
+    requests against a local HTTP server
+
+    Copyright (C) 2018 National Gallery of Art Washington DC
+    Developers: David Beaudet
+
+	This library is free software; you can redistribute it and/or
+	modify it under the terms of the GNU Lesser General Public
+	License as published by the Free Software Foundation; either
+	version 2.1 of the License, or (at your option) any later version.
+
+	This library is distributed in the hope that it will be useful,
+	but WITHOUT ANY WARRANTY; without even the implied warranty of
+	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+	Lesser General Public License for more details.
+
+	You should have received a copy of the GNU Lesser General Public
+	License along with this library; if not, write to the Free Software
+	Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package gov.nga.api.iiif.auth;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.httpclient.ConnectionPoolTimeoutException;
+import org.apache.commons.httpclient.methods.GetMethod;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import gov.nga.utils.CollectionUtils;
+import gov.nga.utils.TestConfigService;
+
+public class IIPProxyClientTest {
+
+	private static final byte[] TILE = new byte[200 * 1024];
+	static {
+		for (int i=0; i<TILE.length; i++)
+			TILE[i] = (byte) (i * 7);
+	}
+
+	private HttpServer server;
+	private IIPProxyClient client;
+	private final AtomicInteger requests = new AtomicInteger();
+	private volatile String lastRange = null;
+
+	// answers /tile with a tile larger than the copy buffer and /moved with a redirect
+	@Before
+	public void start() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/tile", new HttpHandler() {
+			public void handle(HttpExchange ex) throws IOException {
+				requests.incrementAndGet();
+				lastRange = ex.getRequestHeaders().getFirst("Range");
+				ex.getResponseHeaders().set("Content-Type", "image/jpeg");
+				ex.sendResponseHeaders(200, TILE.length);
+				OutputStream out = ex.getResponseBody();
+				out.write(TILE);
+				out.close();
+			}
+		});
+		server.createContext("/moved", new HttpHandler() {
+			public void handle(HttpExchange ex) throws IOException {
+				ex.getResponseHeaders().set("Location", "/tile");
+				ex.sendResponseHeaders(302, -1);
+				ex.close();
+			}
+		});
+		server.start();
+	}
+
+	private IIPProxyClient newClient(int maxConnections) {
+		IIPProxyClient c = new IIPProxyClient();
+		c.cs = new TestConfigService()
+				.set(IIIFAuthConfigs.iipProxyMaxConnectionsPerHostPropertyName, maxConnections)
+				.set(IIIFAuthConfigs.iipProxyMaxConnectionsPropertyName, maxConnections)
+				.set(IIIFAuthConfigs.iipProxyPoolTimeoutPropertyName, 200);
+		c.postConstruct();
+		return c;
+	}
+
+	private URI uri(String path) {
+		return URI.create("http://127.0.0.1:" + server.getAddress().getPort() + path);
+	}
+
+	@After
+	public void stop() {
+		if (client != null)
+			client.preDestroy();
+		server.stop(0);
+	}
+
+	@Test
+	public void tiles_copied_over_pooled_connection_test() throws Exception {
+		client = newClient(2);
+		Map<String, String> headers = CollectionUtils.newHashMap();
+		headers.put("Range", "bytes=0-");
+		for (int i=0; i<5; i++) {
+			GetMethod method = client.execute(uri("/tile"), headers);
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			try {
+				assertEquals(200, method.getStatusCode());
+				assertEquals(TILE.length, IIPProxyClient.copy(method.getResponseBodyAsStream(), out));
+			}
+			finally {
+				client.release(method, false);
+			}
+			assertArrayEquals(TILE, out.toByteArray());
+			// the same connection goes back to the pool each time
+			assertEquals(1, client.getConnectionsInPool());
+		}
+		assertEquals(5, requests.get());
+		assertEquals("bytes=0-", lastRange);
+	}
+
+	@Test
+	public void redirects_not_followed_test() throws Exception {
+		client = newClient(2);
+		GetMethod method = client.execute(uri("/moved"), null);
+		try {
+			assertEquals(302, method.getStatusCode());
+			assertTrue(method.getResponseHeader("Location").getValue().endsWith("/tile"));
+		}
+		finally {
+			client.release(method, false);
+		}
+		assertEquals(0, requests.get());
+	}
+
+	// a response that isn't released holds on to its connection, so the next request gives up once
+	// the pool timeout passes while an abandoned one gives its connection up
+	@Test
+	public void exhausted_pool_times_out_test() throws Exception {
+		client = newClient(1);
+		GetMethod held = client.execute(uri("/tile"), null);
+		long start = System.currentTimeMillis();
+		try {
+			client.execute(uri("/tile"), null);
+			fail("expected the pool to be exhausted");
+		}
+		catch (ConnectionPoolTimeoutException ce) {
+			assertTrue(System.currentTimeMillis() - start >= 150);
+		}
+		client.release(held, true);
+
+		GetMethod method = client.execute(uri("/tile"), null);
+		try {
+			assertEquals(TILE.length, IIPProxyClient.copy(method.getResponseBodyAsStream(), new ByteArrayOutputStream()));
+		}
+		finally {
+			client.release(method, false);
+		}
+		client.release(null, true);
+	}
+
+}
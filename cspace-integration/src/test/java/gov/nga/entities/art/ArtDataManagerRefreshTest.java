@@ -0,0 +1,247 @@
+/*
+    NGA Art Data API: ArtDataManagerRefreshTest checks that an incremental refresh ends up with
+    the same data, indexes and search results as loading everything again
+
+    Copyright (C) 2018 National Gallery of Art Washington DC
+    Developers: David Beaudet
+
+	This library is free software; you can redistribute it and/or
+	modify it under the terms of the GNU Lesser General Public
+	License as published by the Free Software Foundation; either
+	version 2.1 of the License, or (at your option) any later version.
+
+	This library is distributed in the hope that it will be useful,
+	but WITHOUT ANY WARRANTY; without even the implied warranty of
+	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+	Lesser General Public License for more details.
+
+	You should have received a copy of the GNU Lesser General Public
+	License along with this library; if not, write to the Free Software
+	Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package gov.nga.entities.art;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import gov.nga.search.Facet;
+import gov.nga.search.FacetHelper;
+import gov.nga.search.SearchFilter;
+import gov.nga.search.SearchHelper;
+import gov.nga.search.SearchHelper.SEARCHOP;
+import gov.nga.search.SortHelper;
+import gov.nga.utils.CollectionUtils;
+
+public class ArtDataManagerRefreshTest {
+
+	private static final ArtObject.SEARCH[] INDEXEDFIELDS = {
+		ArtObject.SEARCH.OBJECTID,
+		ArtObject.SEARCH.ACCESSIONNUM,
+		ArtObject.SEARCH.LOCATION_ID,
+		ArtObject.SEARCH.ONVIEW,
+		ArtObject.SEARCH.VISUALBROWSERCLASSIFICATION,
+		ArtObject.SEARCH.VISUALBROWSERNATIONALITY,
+		ArtObject.SEARCH.DONORCONSTITUENTID,
+		ArtObject.SEARCH.OWNERCONSTITUENTID,
+		ArtObject.SEARCH.TITLE,
+		ArtObject.SEARCH.ARTIST_ALLNAMES,
+		ArtObject.SEARCH.OWNER_ALLNAMES,
+		ArtObject.SEARCH.PROVENANCE
+	};
+
+	private TestArtData data;
+	private ArtDataManager manager;
+
+	@Before
+	public void setUp() {
+		data = new TestArtData();
+		manager = data.newManager();
+		assertTrue(manager.load());
+		assertEquals(TestArtData.OBJECTS, manager.getSnapshot().getArtObjects().size());
+		assertEquals(TestArtData.CONSTITUENTS, manager.getSnapshot().getConstituents().size());
+	}
+
+	// the searches compared between an incrementally refreshed manager and a freshly loaded one
+	private static List<SearchFilter[]> searches() {
+		List<SearchFilter[]> searches = CollectionUtils.newArrayList();
+		for (String n : new String[] { "American", "French", "espanol", "Dutch", "Italian", "German" })
+			searches.add(new SearchFilter[] { new SearchFilter(SEARCHOP.EQUALS, ArtObject.SEARCH.VISUALBROWSERNATIONALITY, n, true) });
+		searches.add(new SearchFilter[] { new SearchFilter(SEARCHOP.EQUALS, ArtObject.SEARCH.VISUALBROWSERCLASSIFICATION, "painting") });
+		searches.add(new SearchFilter[] { new SearchFilter(SEARCHOP.LIKE, ArtObject.SEARCH.TITLE, "garden") });
+		searches.add(new SearchFilter[] { new SearchFilter(SEARCHOP.LIKE, ArtObject.SEARCH.TITLE, "Renamed") });
+		searches.add(new SearchFilter[] { new SearchFilter(SEARCHOP.LIKE, ArtObject.SEARCH.ARTIST_ALLNAMES, "manet", true) });
+		searches.add(new SearchFilter[] { new SearchFilter(SEARCHOP.STARTSWITH, ArtObject.SEARCH.ACCESSIONNUM, "1942") });
+		searches.add(new SearchFilter[] { new SearchFilter(SEARCHOP.BETWEEN, ArtObject.SEARCH.YEARS_BEGIN, "1600", "1750") });
+		searches.add(new SearchFilter[] { new SearchFilter(SEARCHOP.EQUALS, ArtObject.SEARCH.OWNERCONSTITUENTID, "33") });
+		searches.add(new SearchFilter[] {
+				new SearchFilter(SEARCHOP.EQUALS, ArtObject.SEARCH.VISUALBROWSERNATIONALITY, "French"),
+				new SearchFilter(SEARCHOP.INTERSECTS, ArtObject.SEARCH.YEARS_SPAN, "1500", "1800")
+		});
+		return searches;
+	}
+
+	private static Set<Long> searchIDs(ArtDataManager m, SearchFilter... filters) throws Exception {
+		SearchHelper<ArtObject> sh = new SearchHelper<ArtObject>();
+		for (SearchFilter f : filters)
+			sh.addFilter(f);
+		Set<Long> ids = new TreeSet<Long>();
+		for (ArtObject o : m.searchArtObjects(sh, null, null, (SortHelper<ArtObject>) null))
+			ids.add(o.getObjectID());
+		return ids;
+	}
+
+	private static Map<Object, Map<String, Integer>> facetCounts(ArtDataManager m, SearchFilter... filters) throws Exception {
+		SearchHelper<ArtObject> sh = new SearchHelper<ArtObject>();
+		for (SearchFilter f : filters)
+			sh.addFilter(f);
+		FacetHelper fn = new FacetHelper((Object[]) ArtObject.FACET.values());
+		m.searchArtObjects(sh, null, fn, (SortHelper<ArtObject>) null);
+		Map<Object, Map<String, Integer>> counts = CollectionUtils.newHashMap();
+		for (Facet f : fn.getFacets())
+			counts.put(f.getFacet(), f.getFacetCounts());
+		return counts;
+	}
+
+	// everything that's indexed or searched has to be the same as if the data had just been loaded
+	private void assertSameAsFullLoad() throws Exception {
+		ArtDataManager full = data.newManager();
+		assertTrue(full.load());
+
+		ArtDataSnapshot refreshed = manager.getSnapshot();
+		ArtDataSnapshot loaded = full.getSnapshot();
+		assertEquals(loaded.getArtObjects().keySet(), refreshed.getArtObjects().keySet());
+		assertEquals(loaded.getConstituents().keySet(), refreshed.getConstituents().keySet());
+
+		for (ArtObject o : loaded.getArtObjects().values()) {
+			ArtObject r = refreshed.getArtObjects().get(o.getObjectID());
+			assertEquals(o.getFingerprint(), r.getFingerprint());
+			for (ArtObject.SEARCH field : INDEXEDFIELDS) {
+				assertEquals("object " + o.getObjectID() + " " + field, valuesOf(o, field), valuesOf(r, field));
+			}
+		}
+		for (Constituent c : loaded.getConstituents().values()) {
+			Constituent r = refreshed.getConstituents().get(c.getConstituentID());
+			assertEquals(c.getFingerprint(), r.getFingerprint());
+			assertEquals("roles of " + c.getConstituentID(), roles(c), roles(r));
+		}
+
+		for (SearchFilter[] filters : searches()) {
+			assertEquals(filters[0].getField() + " " + filters[0].getStringSearchValues(), searchIDs(full, filters), searchIDs(manager, filters));
+			assertEquals(filters[0].getField() + " facets", facetCounts(full, filters), facetCounts(manager, filters));
+		}
+		assertEquals(facetCounts(full), facetCounts(manager));
+	}
+
+	// values derived from constituents are looked up through the object's own manager, just as they are when indexing
+	private static List<String> valuesOf(ArtObject o, ArtObject.SEARCH field) {
+		List<String> values = CollectionUtils.newArrayList();
+		for (String v : o.getIndexValues(field))
+			values.add(String.valueOf(v));
+		Collections.sort(values);
+		return values;
+	}
+
+	private static Set<String> roles(Constituent c) {
+		Set<String> roles = new TreeSet<String>();
+		for (ArtObjectConstituent oc : c.getObjectRoles())
+			roles.add(oc.getKeyValue());
+		return roles;
+	}
+
+	@Test
+	public void refresh_without_changes_keeps_snapshot_test() throws Exception {
+		ArtDataSnapshot before = manager.getSnapshot();
+		assertTrue(manager.loadChanges());
+		assertSame(before, manager.getSnapshot());
+	}
+
+	@Test
+	public void refresh_of_changed_objects_matches_full_load_test() throws Exception {
+		ArtDataSnapshot before = manager.getSnapshot();
+
+		data.setObject(3, TestArtData.OBJECT_TITLE, "Renamed Garden");
+		data.setObject(4, TestArtData.OBJECT_CLASSIFICATION, "sculpture");
+		data.setObject(5, TestArtData.OBJECT_ACCESSIONNUM, null);
+		data.setObject(6, TestArtData.OBJECT_BEGINYEAR, 1650L);
+		data.deleteObject(7);
+		long added = data.addObject();
+		data.addRole(added, 2, TestArtData.ARTIST);
+
+		assertTrue(manager.loadChanges());
+		ArtDataSnapshot after = manager.getSnapshot();
+		// it really was incremental - objects that didn't change carry over as they were
+		assertSame(before.getArtObjects().get(1L), after.getArtObjects().get(1L));
+		assertNotSame(before.getArtObjects().get(3L), after.getArtObjects().get(3L));
+		assertFalse(after.getArtObjects().containsKey(7L));
+		assertTrue(after.getArtObjects().containsKey(added));
+
+		assertSameAsFullLoad();
+	}
+
+	@Test
+	public void refresh_of_changed_constituents_matches_full_load_test() throws Exception {
+		// the nationality of an artist is indexed under objects that haven't changed themselves
+		long artist = 8;
+		List<Long> works = data.objectsOfArtist(artist);
+		assertFalse(works.isEmpty());
+		Set<Long> germanBefore = searchIDs(manager, new SearchFilter(SEARCHOP.EQUALS, ArtObject.SEARCH.VISUALBROWSERNATIONALITY, "German"));
+		assertTrue(germanBefore.isEmpty());
+
+		ArtDataSnapshot before = manager.getSnapshot();
+		data.setConstituent(artist, TestArtData.CONSTITUENT_NATIONALITY, "German");
+		data.deleteConstituent(40);
+		long newArtist = data.addConstituent();
+		data.addRole(10, newArtist, TestArtData.ARTIST);
+
+		assertTrue(manager.loadChanges());
+		assertSame(before.getArtObjects().get(works.get(0)), manager.getSnapshot().getArtObjects().get(works.get(0)));
+		Set<Long> germanAfter = searchIDs(manager, new SearchFilter(SEARCHOP.EQUALS, ArtObject.SEARCH.VISUALBROWSERNATIONALITY, "German"));
+		assertEquals(new TreeSet<Long>(works), germanAfter);
+
+		assertSameAsFullLoad();
+	}
+
+	@Test
+	public void refresh_discards_cached_facet_counts_test() throws Exception {
+		SearchFilter painting = new SearchFilter(SEARCHOP.EQUALS, ArtObject.SEARCH.VISUALBROWSERCLASSIFICATION, "painting");
+		Map<Object, Map<String, Integer>> before = facetCounts(manager, painting);
+		// counted from the same snapshot the second time, so they come from the cache
+		assertEquals(before, facetCounts(manager, painting));
+		assertTrue(manager.getSnapshot().getFacetCache().getHitCount() > 0);
+
+		data.setConstituent(1, TestArtData.CONSTITUENT_NATIONALITY, "German");
+		for (long id=1; id<=5; id++)
+			data.setObject(id, TestArtData.OBJECT_CLASSIFICATION, "painting");
+		assertTrue(manager.loadChanges());
+
+		assertEquals(0, manager.getSnapshot().getFacetCache().getHitCount());
+		assertFalse(before.equals(facetCounts(manager, painting)));
+		assertSameAsFullLoad();
+	}
+
+	@Test
+	public void refresh_of_many_changes_reloads_everything_test() throws Exception {
+		ArtDataSnapshot before = manager.getSnapshot();
+		for (long id=1; id<=TestArtData.OBJECTS / 5; id++)
+			data.setObject(id, TestArtData.OBJECT_TITLE, "Renamed " + id);
+
+		assertTrue(manager.loadChanges());
+		// nothing carries over from a full load
+		long unchanged = TestArtData.OBJECTS;
+		assertNotSame(before.getArtObjects().get(unchanged), manager.getSnapshot().getArtObjects().get(unchanged));
+		assertSameAsFullLoad();
+	}
+
+}
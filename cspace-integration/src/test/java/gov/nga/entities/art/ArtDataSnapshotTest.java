@@ -0,0 +1,95 @@
+/*
+    NGA Art Data API: ArtDataSnapshotTest checks that a pinned snapshot stays put while a refresh
+    publishes another
+
+    Copyright (C) 2018 National Gallery of Art Washington DC
+    Developers: David Beaudet
+
+	This library is free software; you can redistribute it and/or
+	modify it under the terms of the GNU Lesser General Public
+	License as published by the Free Software Foundation; either
+	version 2.1 of the License, or (at your option) any later version.
+
+	This library is distributed in the hope that it will be useful,
+	but WITHOUT ANY WARRANTY; without even the implied warranty of
+	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+	Lesser General Public License for more details.
+
+	You should have received a copy of the GNU Lesser General Public
+	License along with this library; if not, write to the Free Software
+	Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package gov.nga.entities.art;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import gov.nga.search.SearchExecutor;
+import gov.nga.search.SearchHelper;
+import gov.nga.search.SortHelper;
+
+public class ArtDataSnapshotTest {
+
+	// a refresh runs on a thread of its own in the service
+	private static void refresh(final ArtDataManager manager) throws Exception {
+		final boolean[] loaded = new boolean[1];
+		Thread t = new Thread() {
+			public void run() {
+				loaded[0] = manager.load();
+			}
+		};
+		t.start();
+		t.join(60000);
+		assertTrue(loaded[0]);
+	}
+
+	@Test
+	public void pinned_snapshot_kept_over_refresh_test() throws Exception {
+		final ArtDataManager manager = new TestArtData().newManager();
+		assertTrue(manager.load());
+		final ArtDataSnapshot pinned = manager.pinSnapshot();
+		try {
+			refresh(manager);
+			assertSame(pinned, manager.getSnapshot());
+			assertSame(pinned, manager.pinSnapshot());
+
+			// and so does the work handed to the search executor on its behalf
+			ArtDataSnapshot seen = SearchExecutor.getInstance().submit(new Callable<ArtDataSnapshot>() {
+				public ArtDataSnapshot call() {
+					return manager.getSnapshot();
+				}
+			}).get(10, TimeUnit.SECONDS);
+			assertSame(pinned, seen);
+
+			// searches are answered from the pinned data
+			assertEquals(pinned.getArtObjects().size(),
+					manager.searchArtObjects(new SearchHelper<ArtObject>(), null, null, (SortHelper<ArtObject>) null).size());
+		}
+		finally {
+			manager.releaseSnapshot();
+		}
+
+		ArtDataSnapshot published = manager.getSnapshot();
+		assertNotSame(pinned, published);
+		assertFalse(published.isEmpty());
+		assertEquals(pinned.getArtObjects().keySet(), published.getArtObjects().keySet());
+		// a thread with nothing pinned sees whatever was published last
+		assertSame(published, manager.getSnapshot());
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void snapshot_is_unmodifiable_test() {
+		ArtDataManager manager = new TestArtData().newManager();
+		assertTrue(manager.load());
+		manager.getSnapshot().getArtObjects().remove(1L);
+	}
+
+}
@@ -0,0 +1,408 @@
+/*
+    NGA Art Data API: ArtObjectSearchIndexTest checks the art object search indexes against
+    scanning every object with the filters themselves
+
+    Copyright (C) 2018 National Gallery of Art Washington DC
+    Developers: David Beaudet
+
+	This library is free software; you can redistribute it and/or
+	modify it under the terms of the GNU Lesser General Public
+	License as published by the Free Software Foundation; either
+	version 2.1 of the License, or (at your option) any later version.
+
+	This library is distributed in the hope that it will be useful,
+	but WITHOUT ANY WARRANTY; without even the implied warranty of
+	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+	Lesser General Public License for more details.
+
+	You should have received a copy of the GNU Lesser General Public
+	License along with this library; if not, write to the Free Software
+	Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package gov.nga.entities.art;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.gs.collections.api.map.primitive.LongDoubleMap;
+
+import gov.nga.search.Bitmap;
+import gov.nga.search.BitmapIndex;
+import gov.nga.search.Facet;
+import gov.nga.search.FacetHelper;
+import gov.nga.search.FieldIndex;
+import gov.nga.search.FreeTextIndex;
+import gov.nga.search.PrefixIndex;
+import gov.nga.search.RangeIndex;
+import gov.nga.search.SearchFilter;
+import gov.nga.search.SearchHelper;
+import gov.nga.search.SearchHelper.SEARCHOP;
+import gov.nga.search.SearchIndex;
+import gov.nga.search.SortHelper;
+import gov.nga.search.TrigramIndex;
+import gov.nga.utils.CollectionUtils;
+
+// each index may only ever narrow a search down to a superset of what scanning every object with
+// matchesFilter finds, which is how every search was answered before there were any indexes, and
+// searches have to find exactly the same objects either way.  Where an index claims to answer a
+// filter exactly, it has to find exactly the objects the scan does
+public class ArtObjectSearchIndexTest {
+
+	private static ArtDataManager manager;
+	private static ArtDataSnapshot snapshot;
+	private static Collection<ArtObject> all;
+
+	@BeforeClass
+	public static void load() {
+		manager = new TestArtData().newManager();
+		assertTrue(manager.load());
+		snapshot = manager.getSnapshot();
+		all = snapshot.getArtObjects().values();
+	}
+
+	private static SearchFilter filter(SEARCHOP op, ArtObject.SEARCH field, String... values) {
+		return new SearchFilter(op, field, Arrays.asList(values), false);
+	}
+
+	private static SearchFilter normalized(SEARCHOP op, ArtObject.SEARCH field, String... values) {
+		return new SearchFilter(op, field, Arrays.asList(values), true);
+	}
+
+	// filters on every indexed field including values that are missing, have diacritics or come from constituents
+	private static List<SearchFilter> filters() {
+		List<SearchFilter> filters = CollectionUtils.newArrayList();
+		filters.add(filter(SEARCHOP.EQUALS, ArtObject.SEARCH.OBJECTID, "5"));
+		filters.add(filter(SEARCHOP.IN, ArtObject.SEARCH.OBJECTID, "1", "2", "999"));
+		filters.add(filter(SEARCHOP.EQUALS, ArtObject.SEARCH.ACCESSIONNUM, "1945.6.5"));
+		filters.add(filter(SEARCHOP.EQUALS, ArtObject.SEARCH.ACCESSIONNUM, (String) null));
+		filters.add(filter(SEARCHOP.STARTSWITH, ArtObject.SEARCH.ACCESSIONNUM, "1942"));
+		filters.add(filter(SEARCHOP.STARTSWITH, ArtObject.SEARCH.ACCESSIONNUM, "1950.", "1951.2"));
+		filters.add(normalized(SEARCHOP.STARTSWITH, ArtObject.SEARCH.ACCESSIONNUM, "1943"));
+		filters.add(filter(SEARCHOP.LIKE, ArtObject.SEARCH.ACCESSIONNUM, ".3.1"));
+		filters.add(filter(SEARCHOP.EQUALS, ArtObject.SEARCH.LOCATION_ID, "2"));
+		filters.add(filter(SEARCHOP.EQUALS, ArtObject.SEARCH.LOCATION_ID, (String) null));
+		filters.add(filter(SEARCHOP.EQUALS, ArtObject.SEARCH.ONVIEW, "false"));
+		filters.add(filter(SEARCHOP.EQUALS, ArtObject.SEARCH.ONVIEW, "true"));
+		filters.add(filter(SEARCHOP.EQUALS, ArtObject.SEARCH.VISUALBROWSERCLASSIFICATION, "painting"));
+		filters.add(filter(SEARCHOP.EQUALS, ArtObject.SEARCH.VISUALBROWSERCLASSIFICATION, "PAINTING"));
+		filters.add(filter(SEARCHOP.EQUALS, ArtObject.SEARCH.VISUALBROWSERCLASSIFICATION, (String) null));
+		filters.add(filter(SEARCHOP.IN, ArtObject.SEARCH.VISUALBROWSERCLASSIFICATION, "print", "drawing"));
+		filters.add(filter(SEARCHOP.STARTSWITH, ArtObject.SEARCH.VISUALBROWSERCLASSIFICATION, "pa"));
+		filters.add(filter(SEARCHOP.EQUALS, ArtObject.SEARCH.VISUALBROWSERNATIONALITY, "Español"));
+		filters.add(filter(SEARCHOP.EQUALS, ArtObject.SEARCH.VISUALBROWSERNATIONALITY, "espanol"));
+		filters.add(normalized(SEARCHOP.EQUALS, ArtObject.SEARCH.VISUALBROWSERNATIONALITY, "espanol"));
+		filters.add(filter(SEARCHOP.IN, ArtObject.SEARCH.VISUALBROWSERNATIONALITY, "French", "Dutch"));
+		filters.add(filter(SEARCHOP.EQUALS, ArtObject.SEARCH.VISUALBROWSERNATIONALITY, (String) null));
+		filters.add(filter(SEARCHOP.EQUALS, ArtObject.SEARCH.VISUALBROWSERSTYLE, "impressionism"));
+		filters.add(filter(SEARCHOP.EQUALS, ArtObject.SEARCH.DONORCONSTITUENTID, "37"));
+		filters.add(filter(SEARCHOP.IN, ArtObject.SEARCH.OWNERCONSTITUENTID, "31", "33"));
+		filters.add(filter(SEARCHOP.LIKE, ArtObject.SEARCH.TITLE, "garden"));
+		filters.add(filter(SEARCHOP.LIKE, ArtObject.SEARCH.TITLE, "café"));
+		filters.add(filter(SEARCHOP.LIKE, ArtObject.SEARCH.TITLE, "cafe"));
+		filters.add(normalized(SEARCHOP.LIKE, ArtObject.SEARCH.TITLE, "cafe"));
+		filters.add(normalized(SEARCHOP.LIKE, ArtObject.SEARCH.TITLE, "ELEGIE", "saint"));
+		filters.add(filter(SEARCHOP.LIKE, ArtObject.SEARCH.TITLE, "ga"));
+		filters.add(filter(SEARCHOP.LIKE, ArtObject.SEARCH.TITLE, (String) null));
+		filters.add(filter(SEARCHOP.STARTSWITH, ArtObject.SEARCH.TITLE, "portrait"));
+		filters.add(filter(SEARCHOP.EQUALS, ArtObject.SEARCH.TITLE, "garden"));
+		filters.add(filter(SEARCHOP.LIKE, ArtObject.SEARCH.ATTRIBUTION_INV, "manet"));
+		filters.add(filter(SEARCHOP.LIKE, ArtObject.SEARCH.ARTIST_ALLNAMES, "gérôme"));
+		filters.add(normalized(SEARCHOP.LIKE, ArtObject.SEARCH.ARTIST_ALLNAMES, "gerome"));
+		filters.add(filter(SEARCHOP.LIKE, ArtObject.SEARCH.ARTIST_ALLNAMES, "gerome"));
+		filters.add(filter(SEARCHOP.LIKE, ArtObject.SEARCH.OWNER_ALLNAMES, "cassatt"));
+		filters.add(filter(SEARCHOP.LIKE, ArtObject.SEARCH.PROVENANCE, "münchen"));
+		filters.add(normalized(SEARCHOP.LIKE, ArtObject.SEARCH.PROVENANCE, "munchen"));
+		filters.add(filter(SEARCHOP.LIKE, ArtObject.SEARCH.PROVENANCE, "by inheritance"));
+		filters.add(filter(SEARCHOP.LIKE, ArtObject.SEARCH.OVERVIEW, "landscape"));
+		filters.add(filter(SEARCHOP.BETWEEN, ArtObject.SEARCH.YEARS_SPAN, "1600", "1700"));
+		filters.add(filter(SEARCHOP.INTERSECTS, ArtObject.SEARCH.YEARS_SPAN, "1600", "1700"));
+		filters.add(filter(SEARCHOP.INTERSECTS, ArtObject.SEARCH.YEARS_SPAN, null, "1600"));
+		filters.add(filter(SEARCHOP.INTERSECTS, ArtObject.SEARCH.YEARS_SPAN, "1850", null));
+		filters.add(filter(SEARCHOP.BETWEEN, ArtObject.SEARCH.YEARS_BEGIN, "1550", "1560"));
+		filters.add(filter(SEARCHOP.BETWEEN, ArtObject.SEARCH.YEARS_BEGIN, "1550", "1560", "1800", "1850"));
+		filters.add(filter(SEARCHOP.BETWEEN, ArtObject.SEARCH.YEARS_BEGIN, "abc", "def"));
+		// bounds that are exactly the values of some objects
+		filters.add(filter(SEARCHOP.BETWEEN, ArtObject.SEARCH.YEARS_BEGIN, "1537", "1537"));
+		filters.add(filter(SEARCHOP.INTERSECTS, ArtObject.SEARCH.YEARS_SPAN, "1574", "1574"));
+		filters.add(filter(SEARCHOP.BETWEEN, ArtObject.SEARCH.LASTDETECTEDMODIFICATION, "1500003600000", "1500036000000"));
+		filters.add(filter(SEARCHOP.BETWEEN, ArtObject.SEARCH.LASTDETECTEDMODIFICATION, "2017-07-14", "2017-07-14 06:00:00"));
+		filters.add(filter(SEARCHOP.BETWEEN, ArtObject.SEARCH.LASTDETECTEDMODIFICATION, "2017-07-14T04:00:00Z", "2017-07-14T10:00:00.000+00:00"));
+		return filters;
+	}
+
+	private static Set<Long> ids(Collection<ArtObject> objects) {
+		Set<Long> ids = new TreeSet<Long>();
+		for (ArtObject o : objects)
+			ids.add(o.getObjectID());
+		return ids;
+	}
+
+	// how every search was answered before - each object is checked against the filters themselves
+	private static Set<Long> scan(SearchFilter... filters) {
+		Set<Long> ids = new TreeSet<Long>();
+		nextObject:
+		for (ArtObject o : all) {
+			for (SearchFilter f : filters) {
+				if (!o.matchesFilter(f))
+					continue nextObject;
+			}
+			ids.add(o.getObjectID());
+		}
+		return ids;
+	}
+
+	private static String describe(SearchFilter f) {
+		return f.getOp() + " " + f.getField() + " " + f.getStringSearchValues() + (f.getNormalize() ? " normalized" : "");
+	}
+
+	// returns the number of filters the index answered
+	private static int assertCandidates(SearchIndex<ArtObject> index, boolean exactForEquality) {
+		int answered = 0;
+		for (SearchFilter f : filters()) {
+			Set<ArtObject> candidates = index.candidates(f);
+			if (candidates == null)
+				continue;
+			answered++;
+			Set<Long> expected = scan(f);
+			Set<Long> found = ids(candidates);
+			assertTrue(describe(f) + " missed " + expected + " vs " + found, found.containsAll(expected));
+			if (exactForEquality && (f.getOp() == SEARCHOP.EQUALS || f.getOp() == SEARCHOP.IN))
+				assertEquals(describe(f), expected, found);
+		}
+		return answered;
+	}
+
+	@Test
+	public void field_index_matches_scan_test() {
+		FieldIndex<ArtObject> index = snapshot.getArtObjectIndex();
+		assertTrue(index.isIndexed(ArtObject.SEARCH.VISUALBROWSERNATIONALITY));
+		assertTrue(assertCandidates(index, true) > 10);
+		// only objects without a value match a null and those aren't indexed
+		assertNull(index.candidates(filter(SEARCHOP.EQUALS, ArtObject.SEARCH.LOCATION_ID, (String) null)));
+	}
+
+	@Test
+	public void trigram_index_matches_scan_test() {
+		TrigramIndex<ArtObject> index = snapshot.getArtObjectSubstrings();
+		assertTrue(assertCandidates(index, false) > 10);
+		// strings shorter than a trigram are left to the scan
+		assertNull(index.candidates(filter(SEARCHOP.LIKE, ArtObject.SEARCH.TITLE, "ga")));
+	}
+
+	@Test
+	public void range_index_matches_scan_test() {
+		RangeIndex<ArtObject> index = snapshot.getArtObjectRanges();
+		assertTrue(assertCandidates(index, false) > 4);
+		// bounds that aren't numbers are compared as strings by the filter
+		assertNull(index.candidates(filter(SEARCHOP.BETWEEN, ArtObject.SEARCH.YEARS_BEGIN, "abc", "def")));
+	}
+
+	@Test
+	public void prefix_index_matches_scan_test() {
+		PrefixIndex<ArtObject> index = snapshot.getArtObjectAccessions();
+		assertTrue(assertCandidates(index, false) > 2);
+		Comparator<ArtObject> order = new SortHelper<ArtObject>(ArtObject.SORT.ACCESSIONNUM_ASC).getComparator();
+		for (SearchFilter f : filters()) {
+			int[] ranks = index.ranksOf(f);
+			if (ranks == null || !index.isExact(f))
+				continue;
+			List<ArtObject> found = index.entities(ranks, 0, ranks.length);
+			assertEquals(describe(f), scan(f), ids(found));
+			// and they come out sorted the way they would be by accession number
+			for (int i=1; i<found.size(); i++)
+				assertTrue(describe(f) + " out of order at " + i, order.compare(found.get(i-1), found.get(i)) <= 0);
+		}
+	}
+
+	@Test
+	public void bitmap_index_matches_scan_test() {
+		BitmapIndex<ArtObject> index = snapshot.getArtObjectBitmaps();
+		int answered = 0;
+		for (SearchFilter f : filters()) {
+			Bitmap matches = index.matching(f);
+			if (matches == null)
+				continue;
+			answered++;
+			assertEquals(describe(f), scan(f), ids(index.entities(matches)));
+		}
+		assertTrue(answered > 8);
+	}
+
+	@Test
+	public void bitmap_facet_counts_match_scan_test() {
+		BitmapIndex<ArtObject> index = snapshot.getArtObjectBitmaps();
+		List<Object> facets = CollectionUtils.newArrayList();
+		for (ArtObject.FACET facet : ArtObject.FACET.values()) {
+			if (index.canCount(facet))
+				facets.add(facet);
+		}
+		assertTrue(facets.contains(ArtObject.FACET.VISUALBROWSERNATIONALITY));
+
+		SearchFilter[][] searches = {
+			{ },
+			{ filter(SEARCHOP.EQUALS, ArtObject.SEARCH.VISUALBROWSERCLASSIFICATION, "painting") },
+			{ filter(SEARCHOP.IN, ArtObject.SEARCH.VISUALBROWSERNATIONALITY, "French", "Italian"), filter(SEARCHOP.EQUALS, ArtObject.SEARCH.ONVIEW, "false") },
+		};
+		for (SearchFilter[] filters : searches) {
+			Bitmap matches = index.matchingAll(Arrays.asList(filters));
+			assertNotNull(matches);
+			FacetHelper counted = new FacetHelper(facets.toArray());
+			assertTrue(index.countFacets(matches, counted));
+
+			List<ArtObject> scanned = CollectionUtils.newArrayList();
+			for (Long id : scan(filters))
+				scanned.add(snapshot.getArtObjects().get(id));
+			FacetHelper processed = new FacetHelper(facets.toArray());
+			processed.processFacets(scanned);
+
+			assertEquals(countsOf(processed), countsOf(counted));
+		}
+	}
+
+	private static Map<Object, Map<String, Integer>> countsOf(FacetHelper fn) {
+		Map<Object, Map<String, Integer>> counts = CollectionUtils.newHashMap();
+		for (Facet f : fn.getFacets())
+			counts.put(f.getFacet(), f.getFacetCounts());
+		return counts;
+	}
+
+	// searches through the manager narrow with every index and have to find what the scan finds
+	@Test
+	public void narrowed_searches_match_scan_test() throws Exception {
+		List<SearchFilter[]> searches = CollectionUtils.newArrayList();
+		for (SearchFilter f : filters())
+			searches.add(new SearchFilter[] { f });
+		searches.add(new SearchFilter[] {
+				filter(SEARCHOP.EQUALS, ArtObject.SEARCH.VISUALBROWSERNATIONALITY, "French"),
+				filter(SEARCHOP.LIKE, ArtObject.SEARCH.TITLE, "garden"),
+				filter(SEARCHOP.BETWEEN, ArtObject.SEARCH.YEARS_BEGIN, "1500", "1800") });
+		searches.add(new SearchFilter[] {
+				filter(SEARCHOP.STARTSWITH, ArtObject.SEARCH.ACCESSIONNUM, "194"),
+				filter(SEARCHOP.EQUALS, ArtObject.SEARCH.LOCATION_ID, (String) null) });
+		searches.add(new SearchFilter[] {
+				normalized(SEARCHOP.LIKE, ArtObject.SEARCH.ARTIST_ALLNAMES, "gerome"),
+				filter(SEARCHOP.IN, ArtObject.SEARCH.OWNERCONSTITUENTID, "31", "32", "33", "34", "35") });
+
+		int nonEmpty = 0;
+		for (SearchFilter[] filters : searches) {
+			SearchHelper<ArtObject> sh = new SearchHelper<ArtObject>();
+			for (SearchFilter f : filters)
+				sh.addFilter(f);
+			Set<Long> expected = scan(filters);
+			if (!expected.isEmpty())
+				nonEmpty++;
+			assertEquals(describe(filters[0]), expected, ids(manager.searchArtObjects(sh, null, null, (SortHelper<ArtObject>) null)));
+			// the accession number sort has a fast path of its own
+			assertEquals(describe(filters[0]), expected, ids(manager.searchArtObjects(sh, null, null, new SortHelper<ArtObject>(ArtObject.SORT.ACCESSIONNUM_ASC))));
+		}
+		assertTrue(nonEmpty > searches.size() / 2);
+	}
+
+	// words, phrases and prefixes are found in the text of each field the way a reader would find them
+	private static Set<Long> scanText(List<Object> fields, String query) {
+		List<List<String>> clauses = CollectionUtils.newArrayList();
+		List<Boolean> prefixes = CollectionUtils.newArrayList();
+		String[] parts = query.split("\"");
+		for (int p=0; p<parts.length; p++) {
+			List<String> pieces = p % 2 == 1 ? Arrays.asList(parts[p].trim()) : Arrays.asList(parts[p].trim().split("\\s+"));
+			for (String piece : pieces) {
+				List<String> words = FreeTextIndex.tokenize(piece);
+				if (words.isEmpty())
+					continue;
+				clauses.add(words);
+				prefixes.add(piece.endsWith("*"));
+			}
+		}
+
+		Set<Long> ids = new TreeSet<Long>();
+		nextObject:
+		for (ArtObject o : all) {
+			for (int c=0; c<clauses.size(); c++) {
+				if (!containsText(o, fields, clauses.get(c), prefixes.get(c)))
+					continue nextObject;
+			}
+			ids.add(o.getObjectID());
+		}
+		return ids;
+	}
+
+	private static boolean containsText(ArtObject o, List<Object> fields, List<String> phrase, boolean prefix) {
+		for (Object field : fields) {
+			List<String> values = o.getFreeTextValues(field);
+			if (values == null)
+				continue;
+			for (String v : values) {
+				if (v == null)
+					continue;
+				List<String> words = FreeTextIndex.tokenize(v);
+				for (int start=0; start + phrase.size() <= words.size(); start++) {
+					boolean found = true;
+					for (int i=0; i<phrase.size() && found; i++) {
+						String w = words.get(start + i);
+						String q = phrase.get(i);
+						found = prefix && i == phrase.size() - 1 ? w.startsWith(q) : w.equals(q);
+					}
+					if (found)
+						return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	@Test
+	public void free_text_index_matches_scan_test() throws Exception {
+		FreeTextIndex index = snapshot.getArtObjectText();
+		List<Object> everything = CollectionUtils.newArrayList((Object[]) ArtObject.FREETEXTSEARCH.values());
+		List<Object> titles = CollectionUtils.newArrayList();
+		titles.add(ArtObject.FREETEXTSEARCH.ALLDATAFIELDS);
+		List<Object> provenance = CollectionUtils.newArrayList();
+		provenance.add(ArtObject.FREETEXTSEARCH.PROVENANCETEXT);
+
+		String[] queries = { "garden", "Café", "cafe", "caf*", "\"still life\"", "\"life still\"", "portrait-of", "paris oil",
+				"gift collection", "widener", "munchen", "MANET 1942", "nonexistentword" };
+		int nonEmpty = 0;
+		for (List<Object> fields : Arrays.asList(everything, titles, provenance)) {
+			for (String q : queries) {
+				Set<Long> expected = scanText(fields, q);
+				if (!expected.isEmpty())
+					nonEmpty++;
+				LongDoubleMap scores = index.scores(fields, q);
+				Set<Long> found = new TreeSet<Long>();
+				for (ArtObject o : all) {
+					if (scores.containsKey(o.getObjectID()))
+						found.add(o.getObjectID());
+				}
+				assertEquals(fields + " " + q, expected, found);
+				assertEquals(fields + " " + q, expected.size(), scores.size());
+			}
+		}
+		assertTrue(nonEmpty > 10);
+		assertNull(index.scores(everything, "  "));
+
+		// and through the search itself, where it's combined with the other filters
+		SearchHelper<ArtObject> sh = new SearchHelper<ArtObject>();
+		sh.addFreeTextFilter(ArtObject.FREETEXTSEARCH.ALLDATAFIELDS, "garden");
+		SearchFilter painting = filter(SEARCHOP.EQUALS, ArtObject.SEARCH.VISUALBROWSERCLASSIFICATION, "painting");
+		sh.addFilter(painting);
+		Set<Long> expected = scanText(titles, "garden");
+		expected.retainAll(scan(painting));
+		assertFalse(expected.isEmpty());
+		assertEquals(expected, ids(manager.searchArtObjects(sh, null, null, (SortHelper<ArtObject>) null)));
+	}
+
+}
@@ -0,0 +1,116 @@
+/*
+    NGA Art Data API: EntityQueryTest checks that the connections art entities are read through
+    always go back to the pool in the state they were borrowed in
+
+    Copyright (C) 2018 National Gallery of Art Washington DC
+    Developers: David Beaudet
+
+	This library is free software; you can redistribute it and/or
+	modify it under the terms of the GNU Lesser General Public
+	License as published by the Free Software Foundation; either
+	version 2.1 of the License, or (at your option) any later version.
+
+	This library is distributed in the hope that it will be useful,
+	but WITHOUT ANY WARRANTY; without even the implied warranty of
+	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+	Lesser General Public License for more details.
+
+	You should have received a copy of the GNU Lesser General Public
+	License along with this library; if not, write to the Free Software
+	Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package gov.nga.entities.art;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import org.junit.Test;
+
+import gov.nga.utils.db.DataSourceService;
+
+public class EntityQueryTest {
+
+	// hands out a single connection that returns no rows, optionally failing when asked to roll back
+	private static class OneConnection extends DataSourceService {
+		private final boolean failRollback;
+		private boolean autoCommit = true;
+		private boolean rolledBack = false;
+		private boolean closed = false;
+
+		OneConnection(boolean failRollback) {
+			this.failRollback = failRollback;
+			setUrl("fake:one");
+		}
+
+		public Connection getConnection() throws SQLException {
+			return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Connection.class }, new InvocationHandler() {
+				public Object invoke(Object proxy, Method m, Object[] args) throws Throwable {
+					String name = m.getName();
+					if (name.equals("prepareStatement"))
+						return statement();
+					if (name.equals("getAutoCommit"))
+						return autoCommit;
+					if (name.equals("setAutoCommit"))
+						autoCommit = (Boolean) args[0];
+					else if (name.equals("rollback")) {
+						if (failRollback)
+							throw new SQLException("connection lost");
+						rolledBack = true;
+					}
+					else if (name.equals("close"))
+						closed = true;
+					return null;
+				}
+			});
+		}
+
+		private PreparedStatement statement() {
+			return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { PreparedStatement.class }, new InvocationHandler() {
+				public Object invoke(Object proxy, Method m, Object[] args) throws Throwable {
+					return null;
+				}
+			});
+		}
+	}
+
+	private static int fetch(DataSourceService ds) throws SQLException {
+		return new EntityQuery<ArtObject>(ds).fetchAll("select * from objects", null, new EntityQuery.EntityHandler<ArtObject>() {
+			public void handle(ArtObject entity) {
+			}
+		});
+	}
+
+	@Test
+	public void cursor_closed_test() throws Exception {
+		OneConnection ds = new OneConnection(false);
+		assertEquals(0, fetch(ds));
+		assertTrue(ds.rolledBack);
+		assertTrue(ds.autoCommit);
+		assertTrue(ds.closed);
+	}
+
+	// a connection that can't be put back the way it was found is still closed
+	@Test
+	public void connection_closed_when_cursor_cannot_be_test() throws Exception {
+		OneConnection ds = new OneConnection(true);
+		try {
+			fetch(ds);
+			fail("expected the failed rollback to reach the caller");
+		}
+		catch (SQLException se) {
+			assertEquals("connection lost", se.getMessage());
+		}
+		assertFalse(ds.rolledBack);
+		assertTrue(ds.closed);
+	}
+
+}
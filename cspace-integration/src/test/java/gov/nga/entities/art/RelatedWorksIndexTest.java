@@ -0,0 +1,132 @@
+/*
+    NGA Art Data API: RelatedWorksIndexTest checks that related works found through the feature
+    index are the ones scoring every pair of works finds
+
+    Copyright (C) 2018 National Gallery of Art Washington DC
+    Developers: David Beaudet
+
+	This library is free software; you can redistribute it and/or
+	modify it under the terms of the GNU Lesser General Public
+	License as published by the Free Software Foundation; either
+	version 2.1 of the License, or (at your option) any later version.
+
+	This library is distributed in the hope that it will be useful,
+	but WITHOUT ANY WARRANTY; without even the implied warranty of
+	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+	Lesser General Public License for more details.
+
+	You should have received a copy of the GNU Lesser General Public
+	License along with this library; if not, write to the Free Software
+	Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package gov.nga.entities.art;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import gov.nga.entities.art.factory.ArtObjectFactoryImpl;
+import gov.nga.utils.CollectionUtils;
+import gov.nga.utils.MutableInt;
+import gov.nga.utils.TestConfigService;
+
+public class RelatedWorksIndexTest {
+
+	private static final int[] LIMITS = { 0, 1, 3, 10 };
+
+	// how fetchRelatedWorks used to rank them - every other work scored against the base one
+	private static List<Long> scoreEveryPair(ArtDataSnapshot snapshot, ArtObject base, int limit) {
+		Map<String, MutableInt> nationalities = base.getNationalities();
+		Map<ArtObject, Long> m = CollectionUtils.newHashMap();
+		Map<ArtObject, Long> sm = CollectionUtils.newTreeMap(new ArtObjectMapComparator<ArtObject>(m));
+		for (ArtObject o : snapshot.getArtObjects().values()) {
+			if (!base.getObjectID().equals(o.getObjectID())) {
+				Long score = base.relatedTotalScore(o, nationalities);
+				if (score > 0)
+					m.put(o, score);
+			}
+		}
+		sm.putAll(m);
+		List<Long> ids = CollectionUtils.newArrayList();
+		for (ArtObject o : sm.keySet()) {
+			if (limit > 0 && ids.size() >= limit)
+				break;
+			ids.add(o.getObjectID());
+		}
+		return ids;
+	}
+
+	private static List<Long> ids(List<ArtObject> objects) {
+		List<Long> ids = CollectionUtils.newArrayList();
+		for (ArtObject o : objects)
+			ids.add(o.getObjectID());
+		return ids;
+	}
+
+	private static ArtDataManager newManager(TestArtData data) {
+		ArtDataManager manager = data.newManager();
+		assertTrue(manager.load());
+		return manager;
+	}
+
+	private static void assertSameAsScoringEveryPair(ArtDataManager manager) throws Exception {
+		ArtDataSnapshot snapshot = manager.getSnapshot();
+		int related = 0;
+		for (ArtObject o : snapshot.getArtObjects().values()) {
+			for (int limit : LIMITS) {
+				List<Long> expected = scoreEveryPair(snapshot, o, limit);
+				assertEquals(o.getObjectID() + " limit " + limit, expected, ids(manager.fetchRelatedWorks(o, new ArtObjectFactoryImpl(), limit)));
+				related += expected.size();
+			}
+		}
+		assertTrue(related > 1000);
+	}
+
+	@Test
+	public void same_as_scoring_every_pair_test() throws Exception {
+		assertSameAsScoringEveryPair(newManager(new TestArtData()));
+	}
+
+	// a ranking that's complete answers any limit, while a partial one only answers smaller limits
+	@Test
+	public void rankings_cached_until_refresh_test() throws Exception {
+		TestArtData data = new TestArtData();
+		ArtDataManager manager = newManager(data);
+		ArtDataSnapshot snapshot = manager.getSnapshot();
+		RelatedWorksIndex index = snapshot.getRelatedWorks();
+		ArtObject o = snapshot.getArtObjects().get(12L);
+
+		assertEquals(scoreEveryPair(snapshot, o, 3), ids(index.relatedTo(o, 3)));
+		assertEquals(scoreEveryPair(snapshot, o, 2), ids(index.relatedTo(o, 2)));
+		assertEquals(1, index.getMissCount());
+		assertEquals(1, index.getHitCount());
+		assertEquals(scoreEveryPair(snapshot, o, 0), ids(index.relatedTo(o, 0)));
+		assertEquals(scoreEveryPair(snapshot, o, 10), ids(index.relatedTo(o, 10)));
+		assertEquals(2, index.getMissCount());
+		assertEquals(2, index.getHitCount());
+
+		// a refresh starts over with the new data
+		data.setObject(12, TestArtData.OBJECT_BEGINYEAR, 1500L);
+		data.setObject(13, TestArtData.OBJECT_BEGINYEAR, 1500L);
+		assertTrue(manager.loadChanges());
+		assertNotSame(index, manager.getSnapshot().getRelatedWorks());
+		assertEquals(0, manager.getSnapshot().getRelatedWorks().getHitCount());
+		assertSameAsScoringEveryPair(manager);
+	}
+
+	// without a limit the configured number of works is returned
+	@Test
+	public void configured_limit_test() throws Exception {
+		ArtDataManager manager = new TestArtData().newManager();
+		manager.setConfigService(new TestConfigService().set(manager.relatedWorksLimitPropertyName, 4));
+		assertTrue(manager.load());
+		ArtObject o = manager.getSnapshot().getArtObjects().get(30L);
+		assertEquals(scoreEveryPair(manager.getSnapshot(), o, 4), ids(manager.fetchRelatedWorks(o, new ArtObjectFactoryImpl())));
+	}
+
+}
@@ -0,0 +1,125 @@
+/*
+    NGA Art Data API: SearchPaginationTest checks that a page of results is the same page whether
+    or not the search only kept what it needed to fill it
+
+    Copyright (C) 2018 National Gallery of Art Washington DC
+    Developers: David Beaudet
+
+	This library is free software; you can redistribute it and/or
+	modify it under the terms of the GNU Lesser General Public
+	License as published by the Free Software Foundation; either
+	version 2.1 of the License, or (at your option) any later version.
+
+	This library is distributed in the hope that it will be useful,
+	but WITHOUT ANY WARRANTY; without even the implied warranty of
+	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+	Lesser General Public License for more details.
+
+	You should have received a copy of the GNU Lesser General Public
+	License along with this library; if not, write to the Free Software
+	Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package gov.nga.entities.art;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import gov.nga.search.FacetHelper;
+import gov.nga.search.ResultsPaginator;
+import gov.nga.search.SearchExecutor;
+import gov.nga.search.SearchHelper;
+import gov.nga.search.SearchHelper.SEARCHOP;
+import gov.nga.utils.CollectionUtils;
+import gov.nga.utils.TestConfigService;
+
+// every page is compared with the same slice of all of the results sorted the same way
+public class SearchPaginationTest {
+
+	private static ArtDataManager manager;
+
+	@BeforeClass
+	public static void load() {
+		manager = new TestArtData().newManager();
+		assertTrue(manager.load());
+	}
+
+	@After
+	public void reset() {
+		SearchExecutor.configure(null);
+	}
+
+	private static SearchHelper<ArtObject> search(boolean filtered) {
+		SearchHelper<ArtObject> sh = new SearchHelper<ArtObject>();
+		if (filtered)
+			sh.addFilter(ArtObject.SEARCH.ONVIEW, SEARCHOP.EQUALS, "false");
+		return sh;
+	}
+
+	private static List<Long> ids(List<ArtObject> objects) {
+		List<Long> ids = CollectionUtils.newArrayList();
+		for (ArtObject o : objects)
+			ids.add(o.getObjectID());
+		return ids;
+	}
+
+	private static Map<String, Integer> counts(FacetHelper fn) {
+		return fn.getFacets().get(0).getFacetCounts();
+	}
+
+	private static void assertPages(boolean filtered, Object... order) throws Exception {
+		FacetHelper allFacets = new FacetHelper(ArtObject.FACET.ONVIEW);
+		List<Long> all = ids(manager.searchArtObjects(search(filtered), null, allFacets, order));
+		assertTrue(all.size() > 10);
+		for (int pageSize : new int[] { 1, 7, 50, 500 }) {
+			int pages = (all.size() + pageSize - 1) / pageSize;
+			for (int page=1; page<=pages + 1; page++) {
+				// boxed, since two ints ask for a window instead
+				ResultsPaginator pn = new ResultsPaginator(Integer.valueOf(pageSize), Integer.valueOf(page));
+				FacetHelper fn = new FacetHelper(ArtObject.FACET.ONVIEW);
+				List<Long> found = ids(manager.searchArtObjects(search(filtered), pn, fn, order));
+				// past the end of the results gets the last page
+				int p = Math.min(page, pages);
+				String desc = "page " + page + " of " + pageSize;
+				assertEquals(desc, all.subList((p - 1) * pageSize, Math.min(p * pageSize, all.size())), found);
+				assertEquals(desc, Integer.valueOf(all.size()), pn.getTotalResults());
+				// facets are still counted across every match
+				assertEquals(desc, counts(allFacets), counts(fn));
+			}
+		}
+
+		// skipping the first five
+		ResultsPaginator window = new ResultsPaginator(5, 9);
+		assertEquals(all.subList(5, 14), ids(manager.searchArtObjects(search(filtered), window, null, order)));
+	}
+
+	@Test
+	public void sorted_pages_test() throws Exception {
+		assertPages(false, ArtObject.SORT.OBJECTID_DESC);
+		assertPages(true, ArtObject.SORT.TITLE_ASC, ArtObject.SORT.OBJECTID_ASC);
+	}
+
+	@Test
+	public void unsorted_pages_test() throws Exception {
+		assertPages(false);
+		assertPages(true);
+	}
+
+	// the same pages come back when the search is split up between threads
+	@Test
+	public void chunked_pages_test() throws Exception {
+		SearchExecutor.configure(new TestConfigService()
+				.set(SearchExecutor.parallelismProperty, 3)
+				.set(SearchExecutor.inlineThresholdProperty, 1));
+		assertPages(false, ArtObject.SORT.OBJECTID_DESC);
+		assertPages(true, ArtObject.SORT.TITLE_ASC, ArtObject.SORT.OBJECTID_ASC);
+		assertPages(true);
+	}
+
+}
@@ -0,0 +1,272 @@
+/*
+    NGA Art Data API: SuggestIndexTest checks that suggestions served from the prefix index are the
+    ones a scan of every suggestion finds
+
+    Copyright (C) 2018 National Gallery of Art Washington DC
+    Developers: David Beaudet
+
+	This library is free software; you can redistribute it and/or
+	modify it under the terms of the GNU Lesser General Public
+	License as published by the Free Software Foundation; either
+	version 2.1 of the License, or (at your option) any later version.
+
+	This library is distributed in the hope that it will be useful,
+	but WITHOUT ANY WARRANTY; without even the implied warranty of
+	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+	Lesser General Public License for more details.
+
+	You should have received a copy of the GNU Lesser General Public
+	License along with this library; if not, write to the Free Software
+	Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package gov.nga.entities.art;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import gov.nga.utils.CollectionUtils;
+import gov.nga.utils.StringUtils;
+import gov.nga.utils.TestConfigService;
+
+// the suggestions used to be found by looking up every key starting with what was typed, which is
+// what the scan below does one suggestion at a time.  The only intended difference is that keys
+// are now matched without their diacritics, so the scan compares them that way as well
+public class SuggestIndexTest {
+
+	private static final String[] NAMES = {
+		"m", "ma", "man", "manet", "MANET", "édouard", "edouard", "edouard man", "claude 2", "claude monet",
+		"gé", "ge", "gerome", "mü", "mary cassatt", "cassatt mary", "1", "x", "", "  ", "-", "o'neil"
+	};
+
+	private static final String[][] TITLES = {
+		{ null, "garden" }, { null, "ga" }, { null, "café" }, { null, "cafe" }, { null, "portrait lady" },
+		{ null, "saint" }, { null, "with" }, { null, "landscape with" }, { null, "x" }, { null, "" }, { null, "é" },
+		{ "manet", "garden" }, { "édouard", "c" }, { "claude monet", "still life" }, { "zzz", "garden" }, { "", "river" }
+	};
+
+	// a suggestion along with every key it's filed under
+	private static class Entry {
+		final String string;
+		final long id;
+		final Set<String> keys = CollectionUtils.newHashSet();
+
+		Entry(String string, long id) {
+			this.string = string;
+			this.id = id;
+			String key = cleanup(string);
+			addKeys(key);
+			String stripped = key.replaceAll("[\']+", "").replaceAll("[-/]+", " ");
+			if (!stripped.equals(key))
+				addKeys(stripped);
+		}
+
+		private void addKeys(String key) {
+			keys.add(key);
+			for (String word : key.split("\\s+"))
+				keys.add(word);
+			keys.remove("");
+		}
+	}
+
+	private static String cleanup(String s) {
+		return StringUtils.removeHTML(s).toLowerCase()
+			.replaceAll("^[^\\p{L}]+", " ")
+			.replaceAll("[^\\p{L}]+$", " ")
+			.replaceAll("\\s+[^\\p{L}]+", " ")
+			.replaceAll("[^\\p{L}]+\\s+", " ")
+			.replaceAll("-{2,}", " ")
+			.replaceAll("[^-\'\\p{L}]", " ")
+			.replaceAll("^[^\\p{L}]+", "")
+			.replaceAll("[^\\p{L}]+$", "");
+	}
+
+	private static String normalize(String s) {
+		return StringUtils.removeDiacritics(cleanup(s));
+	}
+
+	private static Set<Entry> scan(List<Entry> entries, String s) {
+		Set<Entry> found = CollectionUtils.newHashSet();
+		if (s == null || s.length() == 0)
+			return found;
+		String prefix = normalize(s);
+		if (prefix.length() == 0)
+			return found;
+		for (Entry e : entries) {
+			for (String key : e.keys) {
+				if (StringUtils.removeDiacritics(key).startsWith(prefix)) {
+					found.add(e);
+					break;
+				}
+			}
+		}
+		return found;
+	}
+
+	// those matching the whole string as well as those matching every word of it
+	private static Set<Entry> scanWords(List<Entry> entries, String s, String[] words) {
+		Set<Entry> found = scan(entries, s);
+		Set<Entry> everyWord = null;
+		for (String word : words) {
+			Set<Entry> matches = scan(entries, word);
+			if (everyWord == null)
+				everyWord = matches;
+			else
+				everyWord.retainAll(matches);
+		}
+		if (everyWord != null)
+			found.addAll(everyWord);
+		return found;
+	}
+
+	// those starting with the base come first, each group in collation order
+	private static List<String> ordered(Set<String> best, Set<String> others, int limit) {
+		others.removeAll(best);
+		List<String> ordered = CollectionUtils.toSortedAlphaDiacriticNormalizedList(best);
+		ordered.addAll(CollectionUtils.toSortedAlphaDiacriticNormalizedList(others));
+		return limit > 0 && ordered.size() > limit ? ordered.subList(0, limit) : ordered;
+	}
+
+	private static List<String> names(List<Entry> entries, String name, int limit) {
+		Set<String> best = CollectionUtils.newHashSet();
+		Set<String> others = CollectionUtils.newHashSet();
+		String base = normalize(name);
+		for (Entry e : scanWords(entries, name, cleanup(name).split("\\s+"))) {
+			if (normalize(e.string).startsWith(base))
+				best.add(e.string);
+			else
+				others.add(e.string);
+		}
+		return ordered(best, others, limit);
+	}
+
+	private static List<String> titles(ArtDataSnapshot snapshot, List<Entry> titleEntries, List<Entry> artistEntries, String artist, String title, int limit) {
+		Set<Entry> matches = title == null ? CollectionUtils.<Entry>newHashSet() : scanWords(titleEntries, title, title.split("\\s+"));
+		if (artist != null && artist.length() > 0) {
+			Set<Long> works = null;
+			for (Entry a : scanWords(artistEntries, artist, cleanup(artist).split("\\s+"))) {
+				if (works == null)
+					works = CollectionUtils.newHashSet();
+				works.addAll(snapshot.getConstituents().get(a.id).getWorksIDs());
+			}
+			// an artist that matches nothing doesn't narrow the titles down at all
+			if (works != null) {
+				Set<Entry> byArtist = CollectionUtils.newHashSet();
+				for (Entry e : matches) {
+					if (works.contains(e.id))
+						byArtist.add(e);
+				}
+				matches = byArtist;
+			}
+		}
+		Set<String> best = CollectionUtils.newHashSet();
+		Set<String> others = CollectionUtils.newHashSet();
+		if (title != null) {
+			String base = normalize(title);
+			for (Entry e : matches) {
+				if (normalize(e.string).startsWith(base))
+					best.add(StringUtils.removeMarkup(e.string, false));
+				else
+					others.add(StringUtils.removeMarkup(e.string, false));
+			}
+		}
+		return ordered(best, others, limit);
+	}
+
+	private static List<Entry> titleEntries(ArtDataSnapshot snapshot) {
+		List<Entry> entries = CollectionUtils.newArrayList();
+		for (ArtObject o : snapshot.getArtObjects().values()) {
+			if (o.getTitle() != null && o.getTitle().length() > 0)
+				entries.add(new Entry(o.getTitle(), o.getObjectID()));
+		}
+		return entries;
+	}
+
+	private static List<Entry> nameEntries(ArtDataSnapshot snapshot, boolean artists) {
+		List<Entry> entries = CollectionUtils.newArrayList();
+		for (Constituent c : snapshot.getConstituents().values()) {
+			Boolean related = artists ? c.isArtistOfNGAObject() : c.isPreviousOwnerOfNGAObject();
+			if (!Boolean.TRUE.equals(related))
+				continue;
+			entries.add(new Entry(c.getPreferredDisplayName(), c.getConstituentID()));
+			if (c.getAltNames() != null) {
+				for (ConstituentAltName a : c.getAltNames())
+					entries.add(new Entry(a.getDisplayName(), c.getConstituentID()));
+			}
+		}
+		return entries;
+	}
+
+	private static ArtDataManager newManager(TestArtData data, int limit) {
+		ArtDataManager manager = data.newManager();
+		manager.setConfigService(new TestConfigService().set(manager.suggestLimitPropertyName, limit));
+		assertTrue(manager.load());
+		return manager;
+	}
+
+	private static void assertSameAsScan(ArtDataManager manager, int limit) {
+		ArtDataSnapshot snapshot = manager.getSnapshot();
+		List<Entry> titleEntries = titleEntries(snapshot);
+		List<Entry> artists = nameEntries(snapshot, true);
+		List<Entry> owners = nameEntries(snapshot, false);
+		assertTrue(artists.size() > 10);
+		assertTrue(owners.size() > 2);
+
+		int found = 0;
+		for (String name : NAMES) {
+			List<String> expected = names(artists, name, limit);
+			assertEquals("artist " + name, expected, manager.suggestArtistNames(name));
+			assertEquals("owner " + name, names(owners, name, limit), manager.suggestOwnerNames(name));
+			if (!expected.isEmpty())
+				found++;
+		}
+		for (String[] t : TITLES) {
+			List<String> expected = titles(snapshot, titleEntries, artists, t[0], t[1], limit);
+			assertEquals("title " + t[0] + " " + t[1], expected, manager.suggestArtObjectTitles(t[0], t[1]));
+			if (!expected.isEmpty())
+				found++;
+		}
+		assertTrue(found > (NAMES.length + TITLES.length) / 2);
+	}
+
+	@Test
+	public void unlimited_suggestions_match_scan_test() {
+		assertSameAsScan(newManager(new TestArtData(), 0), 0);
+	}
+
+	// short prefixes are answered from the suggestions worked out in advance
+	@Test
+	public void limited_suggestions_match_scan_test() {
+		TestArtData data = new TestArtData();
+		ArtDataManager manager = newManager(data, 3);
+		assertEquals(3, manager.suggestArtistNames("m").size());
+		assertSameAsScan(manager, 3);
+		assertSameAsScan(newManager(data, 1), 1);
+	}
+
+	@Test
+	public void refreshed_suggestions_match_scan_test() throws Exception {
+		TestArtData data = new TestArtData();
+		ArtDataManager manager = newManager(data, 0);
+		data.setObject(3, TestArtData.OBJECT_TITLE, "Gardener's Daughter");
+		data.setObject(4, TestArtData.OBJECT_TITLE, null);
+		data.deleteObject(5);
+		data.setConstituent(2, 4, "Claudette 2 Garçon");
+		data.deleteConstituent(12);
+		long added = data.addObject();
+		data.addRole(added, 31, TestArtData.OWNER);
+		assertTrue(manager.loadChanges());
+		assertEquals(1, manager.suggestArtObjectTitles(null, "gardener").size());
+		assertSameAsScan(manager, 0);
+
+		// and the same as when everything is loaded again
+		ArtDataManager loaded = newManager(data, 0);
+		for (String name : NAMES)
+			assertEquals(loaded.suggestArtistNames(name), manager.suggestArtistNames(name));
+	}
+
+}
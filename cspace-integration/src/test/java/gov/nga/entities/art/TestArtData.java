@@ -0,0 +1,247 @@
+/*
+    NGA Art Data API: TestArtData is a small, made up collection of art objects and
+    constituents served from memory to art data managers under test
+
+    Copyright (C) 2018 National Gallery of Art Washington DC
+    Developers: David Beaudet
+
+	This library is free software; you can redistribute it and/or
+	modify it under the terms of the GNU Lesser General Public
+	License as published by the Free Software Foundation; either
+	version 2.1 of the License, or (at your option) any later version.
+
+	This library is distributed in the hope that it will be useful,
+	but WITHOUT ANY WARRANTY; without even the implied warranty of
+	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+	Lesser General Public License for more details.
+
+	You should have received a copy of the GNU Lesser General Public
+	License along with this library; if not, write to the Free Software
+	Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package gov.nga.entities.art;
+
+import java.util.Iterator;
+import java.util.List;
+
+import gov.nga.entities.art.OperatingModeService.OperatingMode;
+import gov.nga.utils.CollectionUtils;
+import gov.nga.utils.TestConfigService;
+import gov.nga.utils.db.FakeDataSourceService;
+
+// the objects, constituents and their relationships are rows laid out the way the TMS queries
+// select them.  Every field that's searched has some rows without a value and some with diacritics,
+// and the visual browser nationality of an object comes from its artists, so changing a constituent
+// changes what objects that haven't changed themselves are found by.  Anything that changes a row
+// also gives it a new fingerprint, as TMS would, and the next load or incremental refresh sees it.
+public class TestArtData {
+
+	public static final int OBJECTS 		= 120;
+	public static final int CONSTITUENTS 	= 40;
+
+	// columns of the object rows, counting from one like the result sets do
+	public static final int OBJECT_FINGERPRINT 		= 1;
+	public static final int OBJECT_ID 				= 2;
+	public static final int OBJECT_ACCESSIONNUM 	= 4;
+	public static final int OBJECT_LOCATIONID 		= 5;
+	public static final int OBJECT_TITLE 			= 6;
+	public static final int OBJECT_BEGINYEAR 		= 8;
+	public static final int OBJECT_ENDYEAR 			= 9;
+	public static final int OBJECT_CLASSIFICATION 	= 17;
+	public static final int OBJECT_PROVENANCE 		= 23;
+	public static final int OBJECT_LASTMODIFIED 	= 37;
+
+	// columns of the constituent rows
+	public static final int CONSTITUENT_FINGERPRINT = 1;
+	public static final int CONSTITUENT_ID 			= 2;
+	public static final int CONSTITUENT_NATIONALITY = 10;
+
+	// columns of the relationship rows
+	public static final int OC_CONSTITUENTID 		= 2;
+	public static final int OC_OBJECTID 			= 3;
+
+	public static final String ARTIST 	= ArtObjectConstituent.ARTISTROLETYPE;
+	public static final String OWNER 	= ArtObjectConstituent.OWNERROLETYPE;
+	public static final String DONOR 	= "donor";
+
+	private static final String[] TITLEWORDS 		= { "Café", "Garden", "Portrait of a Lady", "Saint John", "Élégie", "River Landscape", "Madonna and Child", "Still Life" };
+	private static final String[] CLASSIFICATIONS 	= { "painting", "sculpture", "drawing", "print", null };
+	private static final String[] MEDIUMS 			= { "oil on canvas", "bronze", "graphite on wove paper", null };
+	private static final String[] LASTNAMES 		= { "Manet", "Monet", "Cassatt", "Goya", "Vermeer", "Müller", "Gérôme", "Stuart" };
+	private static final String[] FIRSTNAMES 		= { "Édouard", "Claude", "Mary", "Francisco", "Johannes" };
+	private static final String[] NATIONALITIES 	= { "American", "French", "Español", "Dutch", "Italian", null };
+	private static final String[] CITIES 			= { "Paris", "New York", "München", "London" };
+
+	private final List<Object[]> objects 		= CollectionUtils.newArrayList();
+	private final List<Object[]> constituents 	= CollectionUtils.newArrayList();
+	private final List<Object[]> ocs 			= CollectionUtils.newArrayList();
+
+	private final FakeDataSourceService dataSource = new FakeDataSourceService();
+
+	private long nextFingerprint = 1;
+	private long nextObjectID = OBJECTS + 1;
+	private long nextConstituentID = CONSTITUENTS + 1;
+
+	public TestArtData() {
+		for (long id=1; id<=CONSTITUENTS; id++)
+			constituents.add(constituentRow(id));
+		for (long id=1; id<=OBJECTS; id++)
+			objects.add(objectRow(id));
+
+		// constituents 1 to 30 are artists, 31 to 35 owners and 36 to 39 donors while 40 has nothing to do with any object
+		for (long id=1; id<=OBJECTS; id++) {
+			if (id % 9 != 0)
+				ocs.add(ocRow(id, (id * 7) % 30 + 1, ARTIST, 1));
+			if (id % 4 == 0 && (id * 3) % 30 != (id * 7) % 30)
+				ocs.add(ocRow(id, (id * 3) % 30 + 1, ARTIST, 2));
+			if (id % 3 == 0)
+				ocs.add(ocRow(id, 31 + id % 5, OWNER, 3));
+			if (id % 6 == 0)
+				ocs.add(ocRow(id, 36 + id % 4, DONOR, 4));
+		}
+
+		ArtObject.setFetchAllObjectsQuery(OperatingMode.PUBLIC);
+		dataSource.addTable(ArtObject.fetchAllObjectsQuery, objects);
+		dataSource.addTable(ArtObject.fetchAllObjectsQuery + " WHERE objectID @@ ", OBJECT_ID, objects);
+		dataSource.addTable(ArtObject.fetchAllObjectFingerprintsQuery, objects, OBJECT_ID, OBJECT_FINGERPRINT);
+		dataSource.addTable(Constituent.fetchAllConstituentsQuery, constituents);
+		dataSource.addTable(Constituent.briefConstituentQuery, CONSTITUENT_ID, constituents);
+		dataSource.addTable(Constituent.fetchAllConstituentFingerprintsQuery, constituents, CONSTITUENT_ID, CONSTITUENT_FINGERPRINT);
+		dataSource.addTable(ArtObjectConstituent.fetchAllObjectsConstituentsQuery, ocs);
+		dataSource.addTable(ArtObject.baseConstituentsQuery, OC_OBJECTID, ocs);
+		dataSource.addTable(ArtObjectConstituent.fetchConstituentObjectsQuery, OC_CONSTITUENTID, ocs);
+	}
+
+	private static <T> T pick(T[] values, long i) {
+		return values[(int) (i % values.length)];
+	}
+
+	private Object[] objectRow(long id) {
+		Object[] row = new Object[38];
+		row[OBJECT_FINGERPRINT - 1] 	= nextFingerprint++;
+		row[OBJECT_ID - 1] 				= id;
+		row[2] 							= 1L;
+		row[OBJECT_ACCESSIONNUM - 1] 	= id % 23 == 0 ? null : "19" + (40 + id % 20) + "." + (id % 7 + 1) + "." + id;
+		row[OBJECT_LOCATIONID - 1] 		= id % 5 == 0 ? null : Long.valueOf(id % 4 + 1);
+		row[OBJECT_TITLE - 1] 			= id % 17 == 0 ? null : pick(TITLEWORDS, id) + (id % 3 == 0 ? " with " + pick(TITLEWORDS, id / 3) : "");
+		Long begin 						= id % 11 == 0 ? null : Long.valueOf(1500 + (id * 37) % 400);
+		row[6] 							= begin == null ? null : "c. " + begin;
+		row[OBJECT_BEGINYEAR - 1] 		= begin;
+		row[OBJECT_ENDYEAR - 1] 		= begin == null ? (id % 2 == 0 ? Long.valueOf(1700) : null) : (id % 10 == 0 ? null : Long.valueOf(begin + id % 50));
+		row[10] 						= pick(LASTNAMES, id) + ", " + pick(FIRSTNAMES, id);
+		row[11] 						= pick(FIRSTNAMES, id) + " " + pick(LASTNAMES, id);
+		row[12] 						= id % 6 == 0 ? "Gift of the " + pick(LASTNAMES, id + 3) + " Collection" : "Widener Collection";
+		row[14] 						= pick(CLASSIFICATIONS, id);
+		row[OBJECT_CLASSIFICATION - 1] 	= pick(CLASSIFICATIONS, id);
+		row[21] 						= pick(MEDIUMS, id);
+		row[OBJECT_PROVENANCE - 1] 		= id % 8 == 0 ? null : "Sold " + pick(CITIES, id) + ", " + (1800 + id) + ", to " + pick(LASTNAMES, id + 2) + "; by inheritance to <i>" + pick(FIRSTNAMES, id + 1) + "</i>.";
+		row[OBJECT_LASTMODIFIED - 1] 	= id % 13 == 0 ? null : Long.valueOf(1500000000000L + id * 3600000L);
+		row[37] 						= 1L;
+		return row;
+	}
+
+	private Object[] constituentRow(long id) {
+		Object[] row = new Object[16];
+		String last = pick(LASTNAMES, id);
+		String first = pick(FIRSTNAMES, id);
+		row[CONSTITUENT_FINGERPRINT - 1] 	= nextFingerprint++;
+		row[CONSTITUENT_ID - 1] 			= id;
+		row[2] 								= last + ", " + first + " " + id;
+		row[3] 								= first + " " + id + " " + last;
+		row[4] 								= "1800 - 1870";
+		row[5] 								= id <= 30 ? 1L : 0L;
+		row[6] 								= 1800L;
+		row[7] 								= 1870L;
+		row[8] 								= pick(NATIONALITIES, id);
+		row[CONSTITUENT_NATIONALITY - 1] 	= pick(NATIONALITIES, id);
+		row[11] 							= "individual";
+		row[12] 							= last;
+		return row;
+	}
+
+	private Object[] ocRow(long objectID, long constituentID, String roleType, long displayOrder) {
+		String role = OWNER.equals(roleType) ? ArtObjectConstituent.PREVIOUSOWNERROLE : roleType;
+		return new Object[] { nextFingerprint++, constituentID, objectID, role, roleType, displayOrder, null };
+	}
+
+	// a new manager that loads from these rows - nothing is loaded until asked to
+	public ArtDataManager newManager() {
+		ArtDataManager m = new ArtDataManager();
+		m.setConfigService(new TestConfigService());
+		m.setDataSourceService(dataSource);
+		return m;
+	}
+
+	public FakeDataSourceService getDataSource() {
+		return dataSource;
+	}
+
+	private static Object[] find(List<Object[]> rows, int idColumn, long id) {
+		for (Object[] row : rows) {
+			if (row[idColumn - 1].equals(id))
+				return row;
+		}
+		throw new IllegalArgumentException("no row with ID " + id);
+	}
+
+	public void setObject(long id, int column, Object value) {
+		Object[] row = find(objects, OBJECT_ID, id);
+		row[column - 1] = value;
+		row[OBJECT_FINGERPRINT - 1] = nextFingerprint++;
+	}
+
+	public void setConstituent(long id, int column, Object value) {
+		Object[] row = find(constituents, CONSTITUENT_ID, id);
+		row[column - 1] = value;
+		row[CONSTITUENT_FINGERPRINT - 1] = nextFingerprint++;
+	}
+
+	public long addObject() {
+		long id = nextObjectID++;
+		objects.add(objectRow(id));
+		return id;
+	}
+
+	public long addConstituent() {
+		long id = nextConstituentID++;
+		constituents.add(constituentRow(id));
+		return id;
+	}
+
+	// relationships belong to their objects, which change along with them
+	public void addRole(long objectID, long constituentID, String roleType) {
+		ocs.add(ocRow(objectID, constituentID, roleType, 9));
+		setObject(objectID, OBJECT_ID, objectID);
+	}
+
+	public void deleteObject(long id) {
+		objects.remove(find(objects, OBJECT_ID, id));
+		for (Iterator<Object[]> it = ocs.iterator(); it.hasNext(); ) {
+			if (it.next()[OC_OBJECTID - 1].equals(id))
+				it.remove();
+		}
+	}
+
+	// the objects the constituent was related to change as well
+	public void deleteConstituent(long id) {
+		constituents.remove(find(constituents, CONSTITUENT_ID, id));
+		for (Iterator<Object[]> it = ocs.iterator(); it.hasNext(); ) {
+			Object[] oc = it.next();
+			if (oc[OC_CONSTITUENTID - 1].equals(id)) {
+				it.remove();
+				setObject((Long) oc[OC_OBJECTID - 1], OBJECT_ID, oc[OC_OBJECTID - 1]);
+			}
+		}
+	}
+
+	// the objects the constituent is an artist of
+	public List<Long> objectsOfArtist(long constituentID) {
+		List<Long> ids = CollectionUtils.newArrayList();
+		for (Object[] oc : ocs) {
+			if (oc[OC_CONSTITUENTID - 1].equals(constituentID) && ARTIST.equals(oc[4]))
+				ids.add((Long) oc[OC_OBJECTID - 1]);
+		}
+		return ids;
+	}
+
+}
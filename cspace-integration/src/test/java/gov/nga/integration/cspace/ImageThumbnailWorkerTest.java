@@ -0,0 +1,248 @@
+/*
+    NGA ART DATA API: ImageThumbnailWorkerTest checks that a page of search results gets its
+    thumbnails by the deadline, falling back on a URL for any that are still being fetched
+
+    Copyright (C) 2018 National Gallery of Art Washington DC
+    Developers: David Beaudet
+
+	This library is free software; you can redistribute it and/or
+	modify it under the terms of the GNU Lesser General Public
+	License as published by the Free Software Foundation; either
+	version 2.1 of the License, or (at your option) any later version.
+
+	This library is distributed in the hope that it will be useful,
+	but WITHOUT ANY WARRANTY; without even the implied warranty of
+	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+	Lesser General Public License for more details.
+
+	You should have received a copy of the GNU Lesser General Public
+	License along with this library; if not, write to the Free Software
+	Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package gov.nga.integration.cspace;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import gov.nga.entities.art.ArtObject;
+import gov.nga.imaging.Thumbnail;
+import gov.nga.integration.cspace.imageproviders.SourceProviderImpl;
+import gov.nga.integration.cspace.imageproviders.WebImage;
+import gov.nga.search.SearchExecutor;
+import gov.nga.search.SearchHelper;
+import gov.nga.utils.CollectionUtils;
+import gov.nga.utils.TestConfigService;
+
+public class ImageThumbnailWorkerTest {
+
+	private static final CSpaceTestModeService testMode = new CSpaceTestModeService() {
+		public boolean isTestModeHalfObjects() {
+			return false;
+		}
+		public boolean isTestModeOtherHalfObjects() {
+			return false;
+		}
+		public boolean unloadBeforeLoading() {
+			return false;
+		}
+	};
+
+	// an image whose thumbnail takes until it's released to fetch
+	private static class SlowImage extends WebImage {
+		private final CountDownLatch release = new CountDownLatch(1);
+		private final AtomicInteger fetches = new AtomicInteger();
+		private final Thumbnail fetched;
+
+		SlowImage(String id) {
+			super(null, testMode);
+			setImageID(id);
+			byte[] b = new byte[500];
+			for (int i=0; i<b.length; i++)
+				b[i] = (byte) (i + id.hashCode());
+			fetched = new Thumbnail(b);
+		}
+
+		@Override
+		public Thumbnail getThumbnail(int width, int height, int maxdim, boolean exactSizeRequired, boolean preferBase64, String scheme) {
+			fetches.incrementAndGet();
+			try {
+				release.await(10, TimeUnit.SECONDS);
+			}
+			catch (InterruptedException ie) {
+				return null;
+			}
+			return fetched;
+		}
+
+		@Override
+		public Thumbnail getThumbnailWithoutFetching(int width, int height, int maxdim, String scheme) {
+			return new Thumbnail(URI.create("/iiif/" + getImageID() + "/full/!" + width + "," + height + "/0/default.jpg"), null, false);
+		}
+	}
+
+	// a provider whose prefetch waits until it's released, or fails if there's no latch to wait on
+	private static class SlowProvider extends SourceProviderImpl {
+		private final CountDownLatch release;
+		private final AtomicInteger prefetched = new AtomicInteger();
+
+		SlowProvider(CountDownLatch release) {
+			this.release = release;
+		}
+
+		public String[] getProvidedSources() {
+			return new String[] { "slow" };
+		}
+
+		public List<CSpaceImage> searchImages(SearchHelper<CSpaceImage> sh, List<ArtObject> objects) {
+			return null;
+		}
+
+		@Override
+		public void prefetchThumbnails(List<CSpaceImage> images, int width, int height, boolean base64) throws Exception {
+			if (release == null)
+				throw new Exception("Portfolio is down");
+			release.await(10, TimeUnit.SECONDS);
+			prefetched.addAndGet(images.size());
+		}
+	}
+
+	@Before
+	public void configure() {
+		ThumbnailCache.configure(null);
+	}
+
+	@After
+	public void reset() {
+		ThumbnailCache.configure(null);
+	}
+
+	@Test
+	public void ready_before_deadline_test() throws Exception {
+		SlowImage image = new SlowImage("ready1");
+		image.release.countDown();
+		ImageThumbnailWorker worker = new ImageThumbnailWorker(image, 90, 90, true).submit(SearchExecutor.getInstance());
+		assertEquals(image.fetched.toString(), worker.get(System.currentTimeMillis() + 10000));
+	}
+
+	// a thumbnail still being fetched at the deadline is given as its URL, while the fetch carries on and
+	// leaves the thumbnail in the cache for the next page
+	@Test
+	public void late_thumbnail_falls_back_on_url_test() throws Exception {
+		SlowImage image = new SlowImage("late1");
+		long timedOut = ImageThumbnailWorker.getTimedOutCount();
+		ImageThumbnailWorker worker = new ImageThumbnailWorker(image, 90, 90, true).submit(SearchExecutor.getInstance());
+		long start = System.currentTimeMillis();
+		assertEquals("/iiif/late1/full/!90,90/0/default.jpg", worker.get(start + 100));
+		assertTrue(System.currentTimeMillis() - start < 5000);
+		assertEquals(timedOut + 1, ImageThumbnailWorker.getTimedOutCount());
+
+		image.release.countDown();
+		assertEquals(image.fetched.toString(), worker.get(System.currentTimeMillis() + 10000));
+		worker = new ImageThumbnailWorker(image, 90, 90, true).submit(SearchExecutor.getInstance());
+		assertEquals(image.fetched.toString(), worker.get(System.currentTimeMillis() + 10000));
+		assertEquals(1, image.fetches.get());
+	}
+
+	// URL thumbnails fall back the same way rather than leaving the result without a thumbnail
+	@Test
+	public void late_url_thumbnail_falls_back_on_url_test() throws Exception {
+		SlowImage image = new SlowImage("late2");
+		try {
+			ImageThumbnailWorker worker = new ImageThumbnailWorker(image, 90, 90, false).submit(SearchExecutor.getInstance());
+			long start = System.currentTimeMillis();
+			assertEquals("/iiif/late2/full/!90,90/0/default.jpg", worker.get(start + 100));
+			assertTrue(System.currentTimeMillis() - start < 5000);
+		}
+		finally {
+			image.release.countDown();
+		}
+	}
+
+	// a deadline that has already passed doesn't wait at all
+	@Test
+	public void passed_deadline_does_not_wait_test() throws Exception {
+		SlowImage image = new SlowImage("passed1");
+		try {
+			ImageThumbnailWorker worker = new ImageThumbnailWorker(image, 90, 90, true).submit(SearchExecutor.getInstance());
+			long start = System.currentTimeMillis();
+			assertEquals("/iiif/passed1/full/!90,90/0/default.jpg", worker.get(start - 1000));
+			assertTrue(System.currentTimeMillis() - start < 5000);
+		}
+		finally {
+			image.release.countDown();
+		}
+		assertNull(new ImageThumbnailWorker(image, 90, 90, true).get(System.currentTimeMillis()));
+	}
+
+	// the page goes ahead without a prefetch that's still running at the deadline, or one that failed
+	@Test
+	public void prefetch_bounded_by_deadline_test() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		SlowProvider slow = new SlowProvider(release);
+		List<ImageSearchProvider> providers = CollectionUtils.newArrayList();
+		providers.add(new SlowProvider(null));
+		providers.add(slow);
+		List<CSpaceImage> images = CollectionUtils.newArrayList();
+		images.add(new SlowImage("prefetch1"));
+		try {
+			long start = System.currentTimeMillis();
+			ImageThumbnailWorker.prefetch(SearchExecutor.getInstance(), providers.subList(0, 1), images, 90, 90, true, start + 10000);
+			ImageThumbnailWorker.prefetch(SearchExecutor.getInstance(), providers.subList(1, 2), images, 90, 90, true, start + 100);
+			assertTrue(System.currentTimeMillis() - start < 5000);
+			assertEquals(0, slow.prefetched.get());
+		}
+		finally {
+			release.countDown();
+		}
+
+		// while one that's done in time has finished by the time the workers start
+		ImageThumbnailWorker.prefetch(SearchExecutor.getInstance(), providers.subList(1, 2), images, 90, 90, true, System.currentTimeMillis() + 10000);
+		assertTrue(slow.prefetched.get() >= 1);
+	}
+
+	// a thumbnail the executor has no room to fetch is given as its URL without waiting for the deadline
+	@Test
+	public void refused_thumbnail_falls_back_on_url_test() throws Exception {
+		SearchExecutor.configure(new TestConfigService()
+				.set(SearchExecutor.parallelismProperty, 1)
+				.set(SearchExecutor.queueCapacityProperty, 1));
+		SlowImage busy = new SlowImage("busy1");
+		SlowImage image = new SlowImage("refused1");
+		try {
+			long refused = ImageThumbnailWorker.getRefusedCount();
+			new ImageThumbnailWorker(busy, 90, 90, true).submit(SearchExecutor.getInstance());
+			ImageThumbnailWorker worker = new ImageThumbnailWorker(image, 90, 90, true).submit(SearchExecutor.getInstance());
+			long start = System.currentTimeMillis();
+			assertEquals("/iiif/refused1/full/!90,90/0/default.jpg", worker.get(start + 10000));
+			assertTrue(System.currentTimeMillis() - start < 5000);
+			assertEquals(refused + 1, ImageThumbnailWorker.getRefusedCount());
+			assertEquals(0, image.fetches.get());
+		}
+		finally {
+			busy.release.countDown();
+			image.release.countDown();
+			SearchExecutor.configure(null);
+		}
+	}
+
+	@Test
+	public void configured_deadline_test() {
+		long start = System.currentTimeMillis();
+		long deadline = ImageThumbnailWorker.deadlineFrom(new TestConfigService().set(CSpaceConfigService.thumbnailDeadlineProperty, 500));
+		assertTrue(deadline >= start + 500 && deadline <= System.currentTimeMillis() + 500);
+		deadline = ImageThumbnailWorker.deadlineFrom(null);
+		assertTrue(deadline >= start + ImageThumbnailWorker.DEFAULT_DEADLINE);
+	}
+
+}
@@ -0,0 +1,260 @@
+/*
+    NGA ART DATA API: ThumbnailCacheTest checks which thumbnails are cached, where, and how many
+    times they are loaded
+
+    Copyright (C) 2018 National Gallery of Art Washington DC
+    Developers: David Beaudet
+
+	This library is free software; you can redistribute it and/or
+	modify it under the terms of the GNU Lesser General Public
+	License as published by the Free Software Foundation; either
+	version 2.1 of the License, or (at your option) any later version.
+
+	This library is distributed in the hope that it will be useful,
+	but WITHOUT ANY WARRANTY; without even the implied warranty of
+	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+	Lesser General Public License for more details.
+
+	You should have received a copy of the GNU Lesser General Public
+	License along with this library; if not, write to the Free Software
+	Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package gov.nga.integration.cspace;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.net.URI;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import gov.nga.imaging.Thumbnail;
+import gov.nga.utils.TestConfigService;
+
+public class ThumbnailCacheTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	// counts how many times it's asked for a thumbnail
+	private static class Loader implements Callable<Thumbnail> {
+		private final AtomicInteger calls = new AtomicInteger();
+		private final Thumbnail thumb;
+
+		Loader(Thumbnail thumb) {
+			this.thumb = thumb;
+		}
+
+		public Thumbnail call() throws Exception {
+			calls.incrementAndGet();
+			return thumb;
+		}
+	}
+
+	private static ThumbnailCache configure(File dir, int diskMB) {
+		TestConfigService cs = new TestConfigService().set(ThumbnailCache.memorySizeProperty, 1);
+		if (dir != null)
+			cs.set(ThumbnailCache.directoryProperty, dir).set(ThumbnailCache.diskSizeProperty, diskMB);
+		ThumbnailCache.configure(cs);
+		return ThumbnailCache.getInstance();
+	}
+
+	private static Thumbnail encoded(int length, int seed) {
+		byte[] b = new byte[length];
+		for (int i=0; i<length; i++)
+			b[i] = (byte) (i * 31 + seed);
+		return new Thumbnail(b);
+	}
+
+	// dates every thumbnail file under the given directory back by the given number of hours
+	private static int age(File dir, int hours) {
+		int aged = 0;
+		File[] files = dir.listFiles();
+		for (File f : files == null ? new File[0] : files) {
+			if (f.isDirectory())
+				aged += age(f, hours);
+			else if (f.getName().endsWith(".thumb") && f.setLastModified(System.currentTimeMillis() - hours * 60L * 60L * 1000L))
+				aged++;
+		}
+		return aged;
+	}
+
+	// leave a shared cache without a directory behind for anything else running in this JVM
+	@After
+	public void reset() {
+		ThumbnailCache.configure(null);
+	}
+
+	@Test
+	public void loaded_once_test() throws Exception {
+		ThumbnailCache cache = configure(null, 0);
+		Loader loader = new Loader(encoded(1000, 1));
+		String value = cache.get("image1", loader, true);
+		assertEquals(loader.thumb.toString(), value);
+		assertEquals(value, cache.get("image1", loader, true));
+		assertEquals(value, cache.get("image1", loader, true));
+		assertEquals(1, loader.calls.get());
+		assertEquals(1, cache.getMissCount());
+		assertEquals(2, cache.getHitCount());
+		assertTrue(cache.contains("image1"));
+		assertTrue(cache.getMemoryBytes() > 2 * value.length());
+	}
+
+	// a URL given in place of an encoded thumbnail is only good for the request it was loaded for
+	@Test
+	public void unencoded_not_cached_test() throws Exception {
+		ThumbnailCache cache = configure(null, 0);
+		Loader loader = new Loader(new Thumbnail(new URI("/iiif/image1/full/!90,90/0/default.jpg"), null, false));
+		String url = cache.get("image1", loader, true);
+		assertEquals(loader.thumb.toString(), url);
+		assertFalse(cache.contains("image1"));
+		cache.get("image1", loader, true);
+		assertEquals(2, loader.calls.get());
+		assertEquals(2, cache.getUnencodedCount());
+
+		// unless a URL is all that's wanted
+		cache.get("image1", loader, false);
+		assertTrue(cache.contains("image1"));
+
+		// and nothing at all isn't cached either
+		Loader nothing = new Loader(null);
+		assertNull(cache.get("image2", nothing, false));
+		assertFalse(cache.contains("image2"));
+	}
+
+	@Test
+	public void memory_bounded_test() throws Exception {
+		ThumbnailCache cache = configure(null, 0);
+		for (int i=0; i<200; i++)
+			cache.get("image" + i, new Loader(encoded(3000, i)), true);
+		assertTrue(cache.getMemoryBytes() <= 1024 * 1024);
+		assertTrue(cache.size() < 200);
+		assertTrue(cache.contains("image199"));
+	}
+
+	@Test
+	public void read_back_from_disk_test() throws Exception {
+		File dir = folder.newFolder();
+		ThumbnailCache cache = configure(dir, 1);
+		Loader loader = new Loader(encoded(1000, 1));
+		String value = cache.get("image1", loader, true);
+		assertTrue(cache.getDiskBytes() > 0);
+
+		// what's dropped from memory is read back from disk rather than loaded again
+		cache.clear();
+		assertTrue(cache.contains("image1"));
+		assertEquals(value, cache.get("image1", loader, true));
+		assertEquals(1, cache.getDiskHitCount());
+		assertEquals(1, loader.calls.get());
+
+		// and so is what was cached before a restart
+		ThumbnailCache restarted = configure(dir, 1);
+		assertTrue(restarted.contains("image1"));
+		assertEquals(value, restarted.get("image1", loader, true));
+		assertEquals(1, restarted.getDiskHitCount());
+		assertEquals(0, restarted.getMissCount());
+		assertEquals(1, loader.calls.get());
+	}
+
+	// a thumbnail past the maximum age is fetched again in case the image behind it has changed
+	@Test
+	public void expired_thumbnail_fetched_again_test() throws Exception {
+		File dir = folder.newFolder();
+		ThumbnailCache.configure(new TestConfigService().set(ThumbnailCache.memorySizeProperty, 1)
+				.set(ThumbnailCache.directoryProperty, dir).set(ThumbnailCache.maxAgeProperty, 2));
+		ThumbnailCache cache = ThumbnailCache.getInstance();
+		Loader loader = new Loader(encoded(1000, 1));
+		String value = cache.get("image1", loader, true);
+
+		// on disk
+		assertEquals(1, age(dir, 1));
+		cache.clear();
+		assertTrue(cache.contains("image1"));
+		assertEquals(value, cache.get("image1", loader, true));
+		assertEquals(1, loader.calls.get());
+		assertEquals(1, age(dir, 3));
+		cache.clear();
+		assertFalse(cache.contains("image1"));
+		assertEquals(value, cache.get("image1", loader, true));
+		assertEquals(2, loader.calls.get());
+		assertEquals(1, cache.getExpiredCount());
+
+		// and in memory
+		assertEquals(value, cache.get("image1", loader, true));
+		assertEquals(2, loader.calls.get());
+		ReflectionTestUtils.setField(cache, "maxAgeMillis", -1L);
+		assertFalse(cache.contains("image1"));
+		assertEquals(value, cache.get("image1", loader, true));
+		assertEquals(3, loader.calls.get());
+		assertTrue(cache.getExpiredCount() >= 2);
+	}
+
+	@Test
+	public void disk_bounded_test() throws Exception {
+		ThumbnailCache cache = configure(folder.newFolder(), 1);
+		// about 130KB each once encoded
+		for (int i=0; i<20; i++)
+			cache.get("image" + i, new Loader(encoded(100000, i)), true);
+		assertTrue(cache.getDiskBytes() <= 1024 * 1024);
+		cache.clear();
+		assertFalse(cache.contains("image0"));
+		assertTrue(cache.contains("image19"));
+	}
+
+	// a second request for a thumbnail that's still being loaded waits for it rather than loading it again
+	@Test
+	public void concurrent_loads_coalesced_test() throws Exception {
+		final ThumbnailCache cache = configure(null, 0);
+		final CountDownLatch loading = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final Thumbnail thumb = encoded(1000, 1);
+		final AtomicInteger calls = new AtomicInteger();
+		final Callable<Thumbnail> loader = new Callable<Thumbnail>() {
+			public Thumbnail call() throws Exception {
+				calls.incrementAndGet();
+				loading.countDown();
+				release.await(10, TimeUnit.SECONDS);
+				return thumb;
+			}
+		};
+		Callable<String> request = new Callable<String>() {
+			public String call() throws Exception {
+				return cache.get("image1", loader, true);
+			}
+		};
+
+		ExecutorService pool = Executors.newFixedThreadPool(2);
+		try {
+			Future<String> first = pool.submit(request);
+			assertTrue(loading.await(10, TimeUnit.SECONDS));
+			Future<String> second = pool.submit(request);
+			long deadline = System.currentTimeMillis() + 10000;
+			while (cache.getCoalescedCount() < 1 && System.currentTimeMillis() < deadline)
+				Thread.sleep(5);
+			release.countDown();
+
+			assertEquals(thumb.toString(), first.get(10, TimeUnit.SECONDS));
+			assertEquals(thumb.toString(), second.get(10, TimeUnit.SECONDS));
+			assertEquals(1, calls.get());
+			assertEquals(1, cache.getCoalescedCount());
+		}
+		finally {
+			pool.shutdownNow();
+		}
+	}
+
+}
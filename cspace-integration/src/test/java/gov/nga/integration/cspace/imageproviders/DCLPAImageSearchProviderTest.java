@@ -0,0 +1,131 @@
+/*
+    NGA ART DATA API: DCLPAImageSearchProviderTest checks that a page of Portfolio thumbnails is
+    fetched with a few batched queries and left in the thumbnail cache for the workers
+
+    Copyright (C) 2018 National Gallery of Art Washington DC
+    Developers: David Beaudet
+
+	This library is free software; you can redistribute it and/or
+	modify it under the terms of the GNU Lesser General Public
+	License as published by the Free Software Foundation; either
+	version 2.1 of the License, or (at your option) any later version.
+
+	This library is distributed in the hope that it will be useful,
+	but WITHOUT ANY WARRANTY; without even the implied warranty of
+	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+	Lesser General Public License for more details.
+
+	You should have received a copy of the GNU Lesser General Public
+	License along with this library; if not, write to the Free Software
+	Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package gov.nga.integration.cspace.imageproviders;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import gov.nga.imaging.Thumbnail;
+import gov.nga.integration.cspace.CSpaceImage;
+import gov.nga.integration.cspace.ImageThumbnailWorker;
+import gov.nga.integration.cspace.ThumbnailCache;
+import gov.nga.utils.CollectionUtils;
+import gov.nga.utils.db.FakeDataSourceService;
+
+public class DCLPAImageSearchProviderTest {
+
+	private static final String THUMBNAILSQUERY = DCLPAImage.getThumbnailsQuery(1).replace("?)", "@@");
+
+	private FakeDataSourceService dataSource;
+	private DCLPAImageSearchProvider provider;
+	private List<Object[]> blobs;
+
+	private static byte[] blob(int id) {
+		byte[] b = new byte[64];
+		for (int i=0; i<b.length; i++)
+			b[i] = (byte) (i * 13 + id);
+		return b;
+	}
+
+	private static DCLPAImage image(String id) {
+		DCLPAImage d = new DCLPAImage(null);
+		d.setImageID(id);
+		return d;
+	}
+
+	private static String key(CSpaceImage image) {
+		return ImageThumbnailWorker.cacheKey(image, 90, 90, true);
+	}
+
+	// every record has a thumbnail except for every tenth one
+	@Before
+	public void setUp() {
+		ThumbnailCache.configure(null);
+		blobs = CollectionUtils.newArrayList();
+		for (int id=1; id<=1200; id++) {
+			if (id % 10 != 0)
+				blobs.add(new Object[] { id, blob(id) });
+		}
+		dataSource = new FakeDataSourceService();
+		dataSource.addTable(THUMBNAILSQUERY, 1, blobs);
+		provider = new DCLPAImageSearchProvider();
+		ReflectionTestUtils.setField(provider, "dclpaDataSource", dataSource);
+	}
+
+	@After
+	public void reset() {
+		ThumbnailCache.configure(null);
+	}
+
+	@Test
+	public void page_fetched_in_batches_test() throws Exception {
+		List<CSpaceImage> images = CollectionUtils.newArrayList();
+		for (int id=1; id<=1200; id++)
+			images.add(image(Integer.toString(id)));
+		provider.prefetchThumbnails(images, 90, 90, true);
+		assertEquals(3, dataSource.getQueryCount());
+
+		ThumbnailCache cache = ThumbnailCache.getInstance();
+		for (CSpaceImage i : images) {
+			int id = Integer.parseInt(i.getImageID());
+			assertEquals(id % 10 != 0, cache.contains(key(i)));
+		}
+		// what the workers get is what Portfolio has, without fetching it again
+		CSpaceImage first = images.get(0);
+		assertEquals(new Thumbnail(blob(1)).toString(), new ImageThumbnailWorker(first, 90, 90, true).call());
+		assertEquals(0, cache.getMissCount());
+
+		// only the ones still missing are asked for the next time around
+		provider.prefetchThumbnails(images, 90, 90, true);
+		assertEquals(4, dataSource.getQueryCount());
+	}
+
+	// the same record on a page more than once is only fetched once, and images that aren't Portfolio records,
+	// or whose thumbnails are too big to be used as thumbnails, are left alone
+	@Test
+	public void only_usable_records_fetched_test() throws Exception {
+		DCLPAImage big = image("7");
+		big.setThumbnailSize(ImageThumbnailWorker.MAXDIM + 1);
+		List<CSpaceImage> images = CollectionUtils.newArrayList();
+		images.add(image("5"));
+		images.add(image("5"));
+		images.add(image("notanumber"));
+		images.add(big);
+		provider.prefetchThumbnails(images, 90, 90, true);
+		assertEquals(1, dataSource.getQueryCount());
+		assertTrue(ThumbnailCache.getInstance().contains(key(images.get(0))));
+		assertFalse(ThumbnailCache.getInstance().contains(key(big)));
+
+		// and nothing at all is queried when there's nothing to fetch
+		provider.prefetchThumbnails(images.subList(0, 3), 90, 90, true);
+		assertEquals(1, dataSource.getQueryCount());
+	}
+
+}
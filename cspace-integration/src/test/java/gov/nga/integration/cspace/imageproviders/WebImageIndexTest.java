@@ -0,0 +1,164 @@
+/*
+    NGA Art Data API: WebImageIndexTest checks that the images looked up by ID or by volume path and
+    filename include every image a search of the whole list finds
+
+    Copyright (C) 2018 National Gallery of Art Washington DC
+    Developers: David Beaudet
+
+	This library is free software; you can redistribute it and/or
+	modify it under the terms of the GNU Lesser General Public
+	License as published by the Free Software Foundation; either
+	version 2.1 of the License, or (at your option) any later version.
+
+	This library is distributed in the hope that it will be useful,
+	but WITHOUT ANY WARRANTY; without even the implied warranty of
+	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+	Lesser General Public License for more details.
+
+	You should have received a copy of the GNU Lesser General Public
+	License along with this library; if not, write to the Free Software
+	Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package gov.nga.integration.cspace.imageproviders;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import gov.nga.entities.art.Derivative;
+import gov.nga.integration.cspace.CSpaceImage;
+import gov.nga.integration.cspace.CSpaceTestModeService;
+import gov.nga.search.SearchHelper;
+import gov.nga.search.SearchHelper.SEARCHOP;
+import gov.nga.search.SortHelper;
+import gov.nga.utils.CollectionUtils;
+
+public class WebImageIndexTest {
+
+	private static final CSpaceTestModeService testMode = new CSpaceTestModeService() {
+		public boolean isTestModeHalfObjects() {
+			return false;
+		}
+		public boolean isTestModeOtherHalfObjects() {
+			return false;
+		}
+		public boolean unloadBeforeLoading() {
+			return false;
+		}
+	};
+
+	// images with mixed case and accented values, some sharing an ID or a path and filename and some
+	// missing them altogether
+	private static List<CSpaceImage> images() {
+		List<CSpaceImage> images = CollectionUtils.newArrayList();
+		for (int i=0; i<300; i++) {
+			WebImage d = new WebImage(null, testMode);
+			if (i % 40 != 0)
+				d.setImageID(i % 25 == 1 ? "Dup" : "Img-" + i + (i % 7 == 0 ? "é" : ""));
+			if (i % 10 != 0)
+				d.setImgVolumePath("/web/Vol" + (i % 3) + (i % 5 == 0 ? "/Café" : ""));
+			if (i % 11 != 0)
+				d.setFilename("File" + (i % 50) + ".JPG");
+			images.add(d);
+		}
+		return images;
+	}
+
+	private static List<CSpaceImage> search(SearchHelper<CSpaceImage> sh, List<CSpaceImage> images) {
+		return sh.search(images, null, null, (SortHelper<CSpaceImage>) null);
+	}
+
+	// the candidates narrow the search down without changing what it finds
+	private static List<CSpaceImage> assertSameAsFullSearch(WebImageIndex index, SearchHelper<CSpaceImage> sh, boolean indexed) {
+		List<CSpaceImage> candidates = index.candidates(sh);
+		if (!indexed) {
+			assertNull(candidates);
+			return null;
+		}
+		assertNotNull(candidates);
+		assertTrue(candidates.size() < 20);
+		List<CSpaceImage> found = search(sh, index.getImages());
+		assertEquals(found, search(sh, candidates));
+		return found;
+	}
+
+	@Test
+	public void by_image_id_test() {
+		WebImageIndex index = new WebImageIndex(images());
+		int found = 0;
+		for (String id : new String[] { "Img-14é", "img-14e", "IMG-14É", "Img-15", "img-15", "Dup", "dup", "missing", "" }) {
+			for (Boolean normalize : new Boolean[] { true, false }) {
+				SearchHelper<CSpaceImage> sh = new SearchHelper<CSpaceImage>();
+				sh.addFilter(Derivative.SEARCH.IMAGEID, SEARCHOP.EQUALS, id, normalize);
+				found += assertSameAsFullSearch(index, sh, true).size();
+			}
+			SearchHelper<CSpaceImage> sh = new SearchHelper<CSpaceImage>();
+			sh.addFilter(Derivative.SEARCH.IMAGEID, SEARCHOP.EQUALS, id);
+			found += assertSameAsFullSearch(index, sh, true).size();
+		}
+		assertTrue(found > 10);
+
+		SearchHelper<CSpaceImage> sh = new SearchHelper<CSpaceImage>();
+		sh.addFilter(Derivative.SEARCH.IMAGEID, SEARCHOP.IN, Arrays.asList("Img-3", "img-4", "Img-7é", "nothing"), true);
+		assertEquals(3, assertSameAsFullSearch(index, sh, true).size());
+
+		// other filters still apply to the images looked up
+		sh = new SearchHelper<CSpaceImage>();
+		sh.addFilter(Derivative.SEARCH.IMAGEID, SEARCHOP.EQUALS, "dup");
+		sh.addFilter(Derivative.SEARCH.IMAGEFILENAME, SEARCHOP.EQUALS, "file1.jpg");
+		assertEquals(1, assertSameAsFullSearch(index, sh, true).size());
+	}
+
+	@Test
+	public void by_volume_path_and_filename_test() {
+		WebImageIndex index = new WebImageIndex(images());
+		int found = 0;
+		String[][] pairs = {
+			{ "/web/Vol1", "File1.JPG" }, { "/web/vol1", "file1.jpg" }, { "/web/Vol0/Café", "File5.JPG" },
+			{ "/web/vol0/cafe", "file5.jpg" }, { "/web/Vol2", "File99.JPG" }
+		};
+		for (String[] pair : pairs) {
+			for (Boolean normalize : new Boolean[] { true, false }) {
+				SearchHelper<CSpaceImage> sh = new SearchHelper<CSpaceImage>();
+				sh.addFilter(Derivative.SEARCH.IMAGEVOLUMEPATH, SEARCHOP.EQUALS, pair[0], normalize);
+				sh.addFilter(Derivative.SEARCH.IMAGEFILENAME, SEARCHOP.EQUALS, pair[1], normalize);
+				found += assertSameAsFullSearch(index, sh, true).size();
+			}
+		}
+		assertTrue(found > 5);
+
+		// filters that compare differently can't share a key
+		SearchHelper<CSpaceImage> sh = new SearchHelper<CSpaceImage>();
+		sh.addFilter(Derivative.SEARCH.IMAGEVOLUMEPATH, SEARCHOP.EQUALS, "/web/vol1", true);
+		sh.addFilter(Derivative.SEARCH.IMAGEFILENAME, SEARCHOP.EQUALS, "File1.JPG", false);
+		assertSameAsFullSearch(index, sh, false);
+	}
+
+	// anything other than equality on indexed values searches the whole list
+	@Test
+	public void other_filters_not_indexed_test() {
+		WebImageIndex index = new WebImageIndex(images());
+		SearchHelper<CSpaceImage> sh = new SearchHelper<CSpaceImage>();
+		sh.addFilter(Derivative.SEARCH.IMAGEVOLUMEPATH, SEARCHOP.EQUALS, "/web/Vol1");
+		assertSameAsFullSearch(index, sh, false);
+
+		sh = new SearchHelper<CSpaceImage>();
+		sh.addFilter(Derivative.SEARCH.IMAGEID, SEARCHOP.LIKE, "img-1");
+		assertSameAsFullSearch(index, sh, false);
+
+		sh = new SearchHelper<CSpaceImage>();
+		sh.addFilter(Derivative.SEARCH.IMAGEID, SEARCHOP.EQUALS, (String) null);
+		assertSameAsFullSearch(index, sh, false);
+
+		assertNull(WebImageIndex.EMPTY.candidates(sh));
+		assertTrue(WebImageIndex.EMPTY.isEmpty());
+		assertNull(index.candidates(null));
+	}
+
+}
@@ -0,0 +1,134 @@
+/*
+    NGA Art Data API: FacetCacheTest checks which searches share cached facet counts and which
+    counts the cache lets go of
+
+    Copyright (C) 2018 National Gallery of Art Washington DC
+    Developers: David Beaudet
+
+	This library is free software; you can redistribute it and/or
+	modify it under the terms of the GNU Lesser General Public
+	License as published by the Free Software Foundation; either
+	version 2.1 of the License, or (at your option) any later version.
+
+	This library is distributed in the hope that it will be useful,
+	but WITHOUT ANY WARRANTY; without even the implied warranty of
+	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+	Lesser General Public License for more details.
+
+	You should have received a copy of the GNU Lesser General Public
+	License along with this library; if not, write to the Free Software
+	Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package gov.nga.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import gov.nga.entities.art.ArtObject;
+import gov.nga.search.SearchHelper.SEARCHOP;
+import gov.nga.utils.CollectionUtils;
+
+public class FacetCacheTest {
+
+	private static SearchHelper<ArtObject> search(String... values) {
+		SearchHelper<ArtObject> sh = new SearchHelper<ArtObject>();
+		for (String v : values)
+			sh.addFilter(ArtObject.SEARCH.TITLE, SEARCHOP.EQUALS, v);
+		return sh;
+	}
+
+	private static List<Facet> facets(Object... fs) {
+		List<Facet> facets = CollectionUtils.newArrayList();
+		for (Object f : fs)
+			facets.add(new Facet(f));
+		return facets;
+	}
+
+	@Test
+	public void same_search_shares_key_test() {
+		FacetCache cache = new FacetCache(10);
+		FacetHelper fn = new FacetHelper("A", "B");
+		FacetCache.Key key = cache.keyFor("objects", search("x", "y"), fn);
+		assertEquals(key, cache.keyFor("objects", search("x", "y"), new FacetHelper("A", "B")));
+		assertEquals(key.hashCode(), cache.keyFor("objects", search("x", "y"), new FacetHelper("A", "B")).hashCode());
+
+		// a different scope, different filters or different facets all have counts of their own
+		assertFalse(key.equals(cache.keyFor("constituents", search("x", "y"), fn)));
+		assertFalse(key.equals(cache.keyFor("objects", search("x", "z"), fn)));
+		assertFalse(key.equals(cache.keyFor("objects", search("x"), fn)));
+		assertFalse(key.equals(cache.keyFor("objects", search("x", "y"), new FacetHelper("A"))));
+		assertFalse(key.equals(cache.keyFor("objects", search("x", "y"), new FacetHelper("B", "A"))));
+	}
+
+	// searches whose filters happen to hash the same still have counts of their own
+	@Test
+	public void colliding_searches_kept_apart_test() {
+		FacetCache cache = new FacetCache(10);
+		FacetHelper fn = new FacetHelper("A");
+		assertEquals(search("1_").customHash(), search("2@").customHash());
+		assertFalse(cache.keyFor("objects", search("1_"), fn).equals(cache.keyFor("objects", search("2@"), fn)));
+
+		SearchHelper<ArtObject> freeText = search("x");
+		freeText.addFreeTextFilter(ArtObject.SEARCH.TITLE, "1_");
+		SearchHelper<ArtObject> otherFreeText = search("x");
+		otherFreeText.addFreeTextFilter(ArtObject.SEARCH.TITLE, "2@");
+		assertFalse(cache.keyFor("objects", freeText, fn).equals(cache.keyFor("objects", otherFreeText, fn)));
+		assertFalse(cache.keyFor("objects", freeText, fn).equals(cache.keyFor("objects", search("x"), fn)));
+
+		cache.put(cache.keyFor("objects", search("1_"), fn), facets("A"));
+		assertNull(cache.get(cache.keyFor("objects", search("2@"), fn)));
+		assertNotNull(cache.get(cache.keyFor("objects", search("1_"), fn)));
+	}
+
+	@Test
+	public void hits_and_misses_test() {
+		FacetCache cache = new FacetCache(10);
+		FacetCache.Key key = cache.keyFor("objects", search("x"), new FacetHelper("A"));
+		assertNull(cache.get(key));
+		List<Facet> facets = facets("A");
+		cache.put(key, facets);
+		List<Facet> cached = cache.get(cache.keyFor("objects", search("x"), new FacetHelper("A")));
+		assertNotNull(cached);
+		assertSame(facets.get(0), cached.get(0));
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+	}
+
+	// the cached list is handed to every search with the same key so nobody gets to change it
+	@Test(expected = UnsupportedOperationException.class)
+	public void cached_facets_are_unmodifiable_test() {
+		FacetCache cache = new FacetCache(10);
+		FacetCache.Key key = cache.keyFor("objects", search("x"), new FacetHelper("A"));
+		cache.put(key, facets("A"));
+		cache.get(key).clear();
+	}
+
+	@Test
+	public void least_recently_used_evicted_test() {
+		FacetCache cache = new FacetCache(3);
+		FacetHelper fn = new FacetHelper("A");
+		FacetCache.Key a = cache.keyFor("objects", search("a"), fn);
+		FacetCache.Key b = cache.keyFor("objects", search("b"), fn);
+		FacetCache.Key c = cache.keyFor("objects", search("c"), fn);
+		FacetCache.Key d = cache.keyFor("objects", search("d"), fn);
+		cache.put(a, facets("A"));
+		cache.put(b, facets("A"));
+		cache.put(c, facets("A"));
+
+		// using a makes b the oldest
+		assertNotNull(cache.get(a));
+		cache.put(d, facets("A"));
+		assertNull(cache.get(b));
+		assertNotNull(cache.get(a));
+		assertNotNull(cache.get(c));
+		assertNotNull(cache.get(d));
+	}
+
+}
@@ -0,0 +1,184 @@
+/*
+    NGA Art Data API: SearchExecutorTest checks where the shared executor runs the work it's given
+
+    Copyright (C) 2018 National Gallery of Art Washington DC
+    Developers: David Beaudet
+
+	This library is free software; you can redistribute it and/or
+	modify it under the terms of the GNU Lesser General Public
+	License as published by the Free Software Foundation; either
+	version 2.1 of the License, or (at your option) any later version.
+
+	This library is distributed in the hope that it will be useful,
+	but WITHOUT ANY WARRANTY; without even the implied warranty of
+	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+	Lesser General Public License for more details.
+
+	You should have received a copy of the GNU Lesser General Public
+	License along with this library; if not, write to the Free Software
+	Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package gov.nga.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import gov.nga.utils.TestConfigService;
+
+public class SearchExecutorTest {
+
+	// a single thread with room for a single outstanding task
+	private static SearchExecutor configure() {
+		SearchExecutor.configure(new TestConfigService()
+				.set(SearchExecutor.parallelismProperty, 1)
+				.set(SearchExecutor.queueCapacityProperty, 1)
+				.set(SearchExecutor.inlineThresholdProperty, 100));
+		return SearchExecutor.getInstance();
+	}
+
+	// leave a shared executor sized by default behind for anything else running in this JVM
+	@After
+	public void reset() {
+		SearchExecutor.configure(null);
+	}
+
+	private static Callable<Thread> currentThread() {
+		return new Callable<Thread>() {
+			public Thread call() {
+				return Thread.currentThread();
+			}
+		};
+	}
+
+	// holds onto the executor's only permit until it's released
+	private static Callable<Thread> blockUntil(final CountDownLatch started, final CountDownLatch release) {
+		return new Callable<Thread>() {
+			public Thread call() throws Exception {
+				started.countDown();
+				assertTrue(release.await(10, TimeUnit.SECONDS));
+				return Thread.currentThread();
+			}
+		};
+	}
+
+	// a finished task hands its permit back just after its result is available
+	private static void awaitIdle(SearchExecutor executor) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10000;
+		while (executor.getQueuedCount() > 0 && System.currentTimeMillis() < deadline)
+			Thread.sleep(5);
+		assertEquals(0, executor.getQueuedCount());
+	}
+
+	@Test
+	public void tasks_run_on_pool_test() throws Exception {
+		SearchExecutor executor = configure();
+		assertEquals(1, executor.getParallelism());
+		assertNotSame(Thread.currentThread(), executor.submit(currentThread()).get(10, TimeUnit.SECONDS));
+		awaitIdle(executor);
+		assertNotSame(Thread.currentThread(), executor.submitBlocking(currentThread()).get(10, TimeUnit.SECONDS));
+		assertEquals(2, executor.getSubmittedCount());
+		assertEquals(0, executor.getRejectedCount());
+	}
+
+	// once the queue is full, work runs on the caller rather than waiting in line
+	@Test
+	public void saturated_pool_runs_task_on_caller_test() throws Exception {
+		SearchExecutor executor = configure();
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		Future<Thread> busy = executor.submit(blockUntil(started, release));
+		assertTrue(started.await(10, TimeUnit.SECONDS));
+		assertEquals(1, executor.getQueuedCount());
+
+		Future<Thread> inline = executor.submit(currentThread());
+		assertTrue(inline.isDone());
+		assertSame(Thread.currentThread(), inline.get());
+		assertEquals(1, executor.getRejectedCount());
+		assertEquals(0, executor.getRefusedCount());
+
+		// and the permit comes back once the task that held it is done
+		release.countDown();
+		assertNotSame(Thread.currentThread(), busy.get(10, TimeUnit.SECONDS));
+		awaitIdle(executor);
+		assertNotSame(Thread.currentThread(), executor.submit(currentThread()).get(10, TimeUnit.SECONDS));
+	}
+
+	// while blocking work isn't run at all, so a slow image server can't hold up the caller
+	@Test
+	public void saturated_pool_refuses_blocking_task_test() throws Exception {
+		SearchExecutor executor = configure();
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		Future<Thread> busy = executor.submitBlocking(blockUntil(started, release));
+		assertTrue(started.await(10, TimeUnit.SECONDS));
+
+		final CountDownLatch ran = new CountDownLatch(1);
+		Future<Thread> refused = executor.submitBlocking(new Callable<Thread>() {
+			public Thread call() {
+				ran.countDown();
+				return Thread.currentThread();
+			}
+		});
+		assertTrue(refused.isDone());
+		try {
+			refused.get();
+			fail("expected the task to be refused");
+		}
+		catch (ExecutionException ee) {
+			assertTrue(ee.getCause() instanceof RejectedExecutionException);
+		}
+		assertEquals(1, ran.getCount());
+		assertEquals(1, executor.getRejectedCount());
+		assertEquals(1, executor.getRefusedCount());
+		assertTrue(executor.toString().contains("refused=1"));
+
+		release.countDown();
+		assertNotSame(Thread.currentThread(), busy.get(10, TimeUnit.SECONDS));
+		awaitIdle(executor);
+		assertNotSame(Thread.currentThread(), executor.submitBlocking(currentThread()).get(10, TimeUnit.SECONDS));
+		assertEquals(1, executor.getRefusedCount());
+	}
+
+	@Test
+	public void failures_reach_caller_test() throws Exception {
+		SearchExecutor executor = configure();
+		Future<Object> f = executor.submitBlocking(new Callable<Object>() {
+			public Object call() throws Exception {
+				throw new IllegalStateException("image server unavailable");
+			}
+		});
+		try {
+			f.get(10, TimeUnit.SECONDS);
+			fail("expected the task to fail");
+		}
+		catch (ExecutionException ee) {
+			assertTrue(ee.getCause() instanceof IllegalStateException);
+		}
+	}
+
+	@Test
+	public void small_lists_run_inline_test() {
+		SearchExecutor executor = configure();
+		assertTrue(executor.runInline(100));
+		assertFalse(executor.runInline(101));
+		assertEquals(1, executor.getInlinedCount());
+		assertEquals(1, executor.chunksFor(1));
+		assertEquals(2, executor.chunksFor(1000));
+		assertEquals(1, executor.chunksFor(0));
+	}
+
+}
@@ -0,0 +1,77 @@
+/*
+    NGA Art Data API: SearchFilterTest checks which of the values searched for are also compared
+    as numbers
+
+    Copyright (C) 2018 National Gallery of Art Washington DC
+    Developers: David Beaudet
+
+	This library is free software; you can redistribute it and/or
+	modify it under the terms of the GNU Lesser General Public
+	License as published by the Free Software Foundation; either
+	version 2.1 of the License, or (at your option) any later version.
+
+	This library is distributed in the hope that it will be useful,
+	but WITHOUT ANY WARRANTY; without even the implied warranty of
+	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+	Lesser General Public License for more details.
+
+	You should have received a copy of the GNU Lesser General Public
+	License along with this library; if not, write to the Free Software
+	Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package gov.nga.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+import org.junit.Test;
+
+import gov.nga.search.SearchHelper.SEARCHOP;
+
+public class SearchFilterTest {
+
+	private static Long decoded(String val) {
+		return new SearchFilter(SEARCHOP.EQUALS, "field", val).getLongSearchValues().get(0);
+	}
+
+	private static long local(int year, int month, int day, int hour, int minute) {
+		return LocalDateTime.of(year, month, day, hour, minute).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+	}
+
+	@Test
+	public void numbers_decoded_test() {
+		assertEquals(Long.valueOf(1537), decoded("1537"));
+		assertEquals(Long.valueOf(1500003600000L), decoded("1500003600000"));
+		assertEquals(Long.valueOf(-44), decoded("-44"));
+		assertNull(decoded("abc"));
+	}
+
+	@Test
+	public void dates_decoded_test() {
+		assertEquals(Long.valueOf(1500003600000L), decoded("2017-07-14T03:40:00Z"));
+		assertEquals(Long.valueOf(1500003600000L), decoded("2017-07-14T03:40:00.000+00:00"));
+		assertEquals(Long.valueOf(1500003600000L), decoded("2017-07-13T23:40:00-04:00"));
+		// without an offset, in the local time zone
+		assertEquals(Long.valueOf(local(2017, 7, 14, 0, 0)), decoded("2017-07-14"));
+		assertEquals(Long.valueOf(local(2017, 7, 14, 3, 40)), decoded("2017-07-14T03:40"));
+		assertEquals(Long.valueOf(local(2017, 7, 14, 3, 40)), decoded("2017-07-14 03:40:00"));
+		assertNull(decoded("2017-07-14 and more"));
+		assertNull(decoded("2017-13-14"));
+		assertNull(decoded("07/14/2017"));
+	}
+
+	// dates are compared by the moment they name rather than as text
+	@Test
+	public void dates_compared_as_numbers_test() {
+		SearchFilter f = new SearchFilter(SEARCHOP.BETWEEN, "field", "2017-07-14", "2017-07-14T23:59:59.999");
+		assertTrue(f.filterMatch(Long.toString(local(2017, 7, 14, 3, 40))));
+		assertFalse(f.filterMatch(Long.toString(local(2017, 7, 15, 0, 0))));
+		assertFalse(f.filterMatch(Long.toString(local(2017, 7, 13, 23, 59))));
+	}
+
+}
@@ -0,0 +1,133 @@
+/*
+    Utils: LongKeyedMapTest checks that a LongKeyedMap behaves like the HashMap it replaced
+
+    Copyright (C) 2018 National Gallery of Art Washington DC
+    Developers: David Beaudet
+
+	This library is free software; you can redistribute it and/or
+	modify it under the terms of the GNU Lesser General Public
+	License as published by the Free Software Foundation; either
+	version 2.1 of the License, or (at your option) any later version.
+
+	This library is distributed in the hope that it will be useful,
+	but WITHOUT ANY WARRANTY; without even the implied warranty of
+	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+	Lesser General Public License for more details.
+
+	You should have received a copy of the GNU Lesser General Public
+	License along with this library; if not, write to the Free Software
+	Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package gov.nga.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+public class LongKeyedMapTest {
+
+	// the same random puts and removes made to both maps, including the keys that open addressed
+	// tables tend to treat specially
+	@Test
+	public void same_as_hash_map_test() {
+		LongKeyedMap<String> map = new LongKeyedMap<String>();
+		Map<Long, String> expected = CollectionUtils.newHashMap();
+		Random r = new Random(42);
+		long[] special = { 0, 1, -1, Long.MIN_VALUE, Long.MAX_VALUE };
+		for (int i=0; i<20000; i++) {
+			long key = i % 10 == 0 ? special[r.nextInt(special.length)] : r.nextInt(5000);
+			switch (r.nextInt(4)) {
+			case 0:
+				assertEquals(expected.remove(key), map.remove(key));
+				break;
+			case 1:
+				assertEquals(expected.put(key, "p" + i), map.put(key, "p" + i));
+				break;
+			default:
+				assertEquals(expected.put(key, "b" + i), map.put(Long.valueOf(key), "b" + i));
+			}
+			assertEquals(expected.size(), map.size());
+		}
+		for (long key=-2; key<5002; key++) {
+			assertEquals(expected.get(key), map.get(key));
+			assertEquals(expected.get(key), map.get(Long.valueOf(key)));
+			assertEquals(expected.containsKey(key), map.containsKey(key));
+		}
+		assertEquals(expected, map);
+		assertEquals(map, expected);
+		assertEquals(expected.hashCode(), map.hashCode());
+		assertEquals(new TreeMap<Long, String>(expected), new TreeMap<Long, String>(map));
+		assertEquals(expected.keySet(), map.keySet());
+		assertEquals(expected.entrySet(), map.entrySet());
+		String[] values = map.values().toArray(new String[0]);
+		String[] expectedValues = expected.values().toArray(new String[0]);
+		Arrays.sort(values);
+		Arrays.sort(expectedValues);
+		assertTrue(Arrays.equals(expectedValues, values));
+	}
+
+	// anything other than a Long is simply never found
+	@Test
+	public void other_keys_not_found_test() {
+		LongKeyedMap<String> map = new LongKeyedMap<String>();
+		map.put(5, "five");
+		assertNull(map.get((Object) null));
+		assertNull(map.get(Integer.valueOf(5)));
+		assertNull(map.get("5"));
+		assertFalse(map.containsKey((Object) null));
+		assertFalse(map.containsKey(Integer.valueOf(5)));
+		assertNull(map.remove("5"));
+		assertEquals("five", map.get(5L));
+		assertTrue(map.containsValue("five"));
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void null_key_rejected_test() {
+		new LongKeyedMap<String>().put((Long) null, "nothing");
+	}
+
+	@Test
+	public void copies_and_key_set_removal_test() {
+		Map<Long, String> source = CollectionUtils.newHashMap();
+		for (long i=0; i<100; i++)
+			source.put(i, "v" + i);
+		LongKeyedMap<String> copy = new LongKeyedMap<String>(source);
+		assertEquals(source, copy);
+		LongKeyedMap<String> copyOfCopy = new LongKeyedMap<String>(copy);
+		assertEquals(source, copyOfCopy);
+
+		// removing through the key set removes from the map but a copy keeps its own entries
+		assertTrue(copy.keySet().removeAll(Arrays.asList(1L, 2L, 3L, 1000L)));
+		assertFalse(copy.keySet().removeAll(Arrays.asList(1L, 1000L)));
+		assertTrue(copy.keySet().remove(4L));
+		assertEquals(96, copy.size());
+		assertFalse(copy.containsKey(2L));
+		assertEquals(100, copyOfCopy.size());
+		assertEquals("v2", copyOfCopy.get(2L));
+
+		copy.keySet().clear();
+		assertTrue(copy.isEmpty());
+		copyOfCopy.clear();
+		assertTrue(copyOfCopy.isEmpty());
+		assertEquals(100, source.size());
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void entries_not_removed_through_iterator_test() {
+		LongKeyedMap<String> map = new LongKeyedMap<String>();
+		map.put(1, "one");
+		Iterator<Map.Entry<Long, String>> i = map.entrySet().iterator();
+		i.next();
+		i.remove();
+	}
+
+}
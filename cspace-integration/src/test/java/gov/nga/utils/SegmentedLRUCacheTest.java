@@ -0,0 +1,91 @@
+/*
+    Utils: SegmentedLRUCacheTest checks which entries the cache lets go of
+
+    Copyright (C) 2018 National Gallery of Art Washington DC
+    Developers: David Beaudet
+
+	This library is free software; you can redistribute it and/or
+	modify it under the terms of the GNU Lesser General Public
+	License as published by the Free Software Foundation; either
+	version 2.1 of the License, or (at your option) any later version.
+
+	This library is distributed in the hope that it will be useful,
+	but WITHOUT ANY WARRANTY; without even the implied warranty of
+	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+	Lesser General Public License for more details.
+
+	You should have received a copy of the GNU Lesser General Public
+	License along with this library; if not, write to the Free Software
+	Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package gov.nga.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class SegmentedLRUCacheTest {
+
+	@Test
+	public void least_recently_used_evicted_test() {
+		SegmentedLRUCache<String, String> cache = new SegmentedLRUCache<String, String>(3, 1);
+		cache.put("a", "1");
+		cache.put("b", "2");
+		cache.put("c", "3");
+		// using a makes b the oldest, but just looking doesn't count as using
+		assertEquals("1", cache.get("a"));
+		assertTrue(cache.containsKey("b"));
+		cache.put("d", "4");
+		assertNull(cache.get("b"));
+		assertEquals("1", cache.get("a"));
+		assertEquals(3, cache.size());
+		assertEquals(1, cache.getEvictionCount());
+	}
+
+	@Test
+	public void weighed_entries_test() {
+		SegmentedLRUCache<String, String> cache = new SegmentedLRUCache<String, String>(10, 1) {
+			protected long weigh(String key, String value) {
+				return value.length();
+			}
+		};
+		cache.put("a", "1234");
+		cache.put("b", "1234");
+		assertEquals(8, cache.getWeight());
+		// replacing an entry only counts its new weight
+		cache.put("b", "12");
+		assertEquals(6, cache.getWeight());
+		cache.put("c", "12345");
+		assertNull(cache.get("a"));
+		assertEquals(7, cache.getWeight());
+
+		// an entry heavier than the whole cache pushes everything else out but is itself kept
+		cache.put("d", "123456789012");
+		assertEquals(1, cache.size());
+		assertEquals("123456789012", cache.get("d"));
+		assertEquals(12, cache.getWeight());
+	}
+
+	@Test
+	public void segments_share_capacity_test() {
+		SegmentedLRUCache<Integer, Integer> cache = new SegmentedLRUCache<Integer, Integer>(64);
+		for (int i=0; i<10000; i++)
+			cache.put(i, i);
+		assertTrue(cache.size() <= 64);
+		assertEquals(cache.size(), cache.getWeight());
+		assertEquals(10000 - cache.size(), cache.getEvictionCount());
+		cache.clear();
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.getWeight());
+	}
+
+	@Test
+	public void no_capacity_caches_nothing_test() {
+		SegmentedLRUCache<String, String> cache = new SegmentedLRUCache<String, String>(0);
+		cache.put("a", "1");
+		assertNull(cache.get("a"));
+	}
+
+}
@@ -0,0 +1,201 @@
+/*
+    Utils: StringUtilsBenchmark compares the single pass text clean up in StringUtils
+    with the regular expression chains it replaced
+
+    Copyright (C) 2018 National Gallery of Art Washington DC
+    Developers: David Beaudet
+
+	This library is free software; you can redistribute it and/or
+	modify it under the terms of the GNU Lesser General Public
+	License as published by the Free Software Foundation; either
+	version 2.1 of the License, or (at your option) any later version.
+
+	This library is distributed in the hope that it will be useful,
+	but WITHOUT ANY WARRANTY; without even the implied warranty of
+	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+	Lesser General Public License for more details.
+
+	You should have received a copy of the GNU Lesser General Public
+	License along with this library; if not, write to the Free Software
+	Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package gov.nga.utils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.text.Normalizer;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang3.StringEscapeUtils;
+
+// Run with one or more text files of real data, one value per line, such as object titles and
+// constituent biographies exported from TMS:
+//     java -cp <classpath> gov.nga.utils.StringUtilsBenchmark titles.txt bios.txt
+// Each file is first checked to make sure both implementations give identical results and
+// then timed.  A handful of built in samples are used if no files are given.
+public class StringUtilsBenchmark {
+
+	private static final int WARMUPROUNDS = 5;
+	private static final int TIMEDROUNDS = 10;
+
+	private static final String[] SAMPLES = {
+		"Watson and the Shark",
+		"<i>The Japanese Footbridge</i>",
+		"Madonna and Child with Saint John the Baptist -- Study",
+		"Édouard Manet, \"Olympia\" (1863) &amp; studies",
+		"Self-Portrait, 1889",
+		"Ginevra de' Benci [obverse]",
+		"Rembrandt van Rijn<br/>\r\nDutch, 1606 - 1669",
+		"__The Boating Party__ / Mary Cassatt's",
+		"purchased 1937 by the Andrew W. Mellon Foundation, Pittsburgh; gift 1937 to NGA.",
+		"Jean-Honoré Fragonard - Étude d'après nature",
+	};
+
+	// the implementations that were replaced
+	private interface Impl {
+		public String apply(String s);
+	}
+
+	private static final Impl legacyCleanupForMatching = new Impl() {
+		public String apply(String original) {
+			if (original == null)
+				return null;
+			return
+				legacyRemoveHTML(original).toLowerCase()
+				.replaceAll("^[^\\p{L}]+", " ")
+				.replaceAll("[^\\p{L}]+$", " ")
+				.replaceAll("\\s+[^\\p{L}]+", " ")
+				.replaceAll("[^\\p{L}]+\\s+", " ")
+				.replaceAll("-{2,}", " ")
+				.replaceAll("[^-\'\\p{L}]", " ")
+				.replaceAll("^[^\\p{L}]+", "")
+				.replaceAll("[^\\p{L}]+$", "");
+		}
+	};
+
+	private static final Impl legacyCleanupForLettersOnlyMatching = new Impl() {
+		public String apply(String original) {
+			String s = legacyCleanupForMatching.apply(original);
+			return s == null ? null : s.replaceAll("[\']+", "").replaceAll("[-/]+", " ");
+		}
+	};
+
+	private static final Impl legacyRemoveOnlyHTMLAndFormatting = new Impl() {
+		public String apply(String text) {
+			if (text != null && !org.apache.commons.lang3.StringUtils.isBlank(text))
+				text = text.replaceAll("_","");
+			return text == null ? null : text.replaceAll("\\<.*?\\>", "");
+		}
+	};
+
+	private static final Impl legacyRemoveDiacritics = new Impl() {
+		public String apply(String in) {
+			return in == null ? null : Normalizer.normalize(in, Normalizer.Form.NFD).replaceAll("\\p{InCombiningDiacriticalMarks}+", "");
+		}
+	};
+
+	private static String legacyDeAccent(String str) {
+		String nfdNormalizedString = Normalizer.normalize(str, Normalizer.Form.NFD);
+		Pattern pattern = Pattern.compile("\\p{InCombiningDiacriticalMarks}+");
+		return pattern.matcher(nfdNormalizedString).replaceAll("");
+	}
+
+	private static String legacyRemoveHTML(String htmlString) {
+		if (htmlString == null)
+			return null;
+		String toUnescape = htmlString.replaceAll("\\<.*?\\>", "").replaceAll("\r|\n|\"", " ");
+		return StringEscapeUtils.unescapeHtml4(legacyDeAccent(toUnescape));
+	}
+
+	private static final Impl cleanupForMatching = new Impl() {
+		public String apply(String s) {
+			return StringUtils.cleanupForMatching(s);
+		}
+	};
+
+	private static final Impl cleanupForLettersOnlyMatching = new Impl() {
+		public String apply(String s) {
+			return StringUtils.cleanupForLettersOnlyMatching(s);
+		}
+	};
+
+	private static final Impl removeOnlyHTMLAndFormatting = new Impl() {
+		public String apply(String s) {
+			return StringUtils.removeOnlyHTMLAndFormatting(s);
+		}
+	};
+
+	private static final Impl removeDiacritics = new Impl() {
+		public String apply(String s) {
+			return StringUtils.removeDiacritics(s);
+		}
+	};
+
+	public static void main(String[] args) throws IOException {
+		List<String> values = CollectionUtils.newArrayList();
+		for (String file : args)
+			values.addAll(Files.readAllLines(Paths.get(file), StandardCharsets.UTF_8));
+		if (values.isEmpty()) {
+			// repeat the samples enough to get a measurable time
+			for (int i=0; i<2000; i++) {
+				for (String s : SAMPLES)
+					values.add(s);
+			}
+		}
+		System.out.println("Benchmarking " + values.size() + " values");
+
+		int mismatches = 0;
+		mismatches += compare("cleanupForMatching", values, legacyCleanupForMatching, cleanupForMatching);
+		mismatches += compare("cleanupForLettersOnlyMatching", values, legacyCleanupForLettersOnlyMatching, cleanupForLettersOnlyMatching);
+		mismatches += compare("removeOnlyHTMLAndFormatting", values, legacyRemoveOnlyHTMLAndFormatting, removeOnlyHTMLAndFormatting);
+		mismatches += compare("removeDiacritics", values, legacyRemoveDiacritics, removeDiacritics);
+		if (mismatches > 0)
+			System.out.println(mismatches + " values were cleaned up differently");
+	}
+
+	private static int compare(String name, List<String> values, Impl legacy, Impl current) {
+		int mismatches = 0;
+		for (String s : values) {
+			String a = legacy.apply(s);
+			String b = current.apply(s);
+			if (a == null ? b != null : !a.equals(b)) {
+				if (mismatches++ < 5)
+					System.out.println(name + " differs for [" + s + "]: [" + a + "] vs [" + b + "]");
+			}
+		}
+		double legacyNanos = time(values, legacy);
+		double currentNanos = time(values, current);
+		System.out.println(String.format("%-30s regex %8.1f ns/op   single pass %8.1f ns/op   %5.1fx",
+				name, legacyNanos, currentNanos, legacyNanos / currentNanos));
+		return mismatches;
+	}
+
+	// average time per value over the timed rounds once the jit has had a chance to warm up
+	private static double time(List<String> values, Impl impl) {
+		long sink = 0;
+		for (int r=0; r<WARMUPROUNDS; r++)
+			sink += run(values, impl);
+		long start = System.nanoTime();
+		for (int r=0; r<TIMEDROUNDS; r++)
+			sink += run(values, impl);
+		long elapsed = System.nanoTime() - start;
+		// keeps the results from being optimized away
+		if (sink == 42)
+			System.out.print("");
+		return (double) elapsed / ((long) TIMEDROUNDS * values.size());
+	}
+
+	private static long run(List<String> values, Impl impl) {
+		long sink = 0;
+		for (String s : values) {
+			String r = impl.apply(s);
+			if (r != null)
+				sink += r.length();
+		}
+		return sink;
+	}
+
+}
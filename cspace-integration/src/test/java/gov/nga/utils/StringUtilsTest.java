@@ -0,0 +1,164 @@
+/*
+    Utils: StringUtilsTest checks that the single pass text clean up in StringUtils gives the same
+    results as the regular expressions it replaced
+
+    Copyright (C) 2018 National Gallery of Art Washington DC
+    Developers: David Beaudet
+
+	This library is free software; you can redistribute it and/or
+	modify it under the terms of the GNU Lesser General Public
+	License as published by the Free Software Foundation; either
+	version 2.1 of the License, or (at your option) any later version.
+
+	This library is distributed in the hope that it will be useful,
+	but WITHOUT ANY WARRANTY; without even the implied warranty of
+	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+	Lesser General Public License for more details.
+
+	You should have received a copy of the GNU Lesser General Public
+	License along with this library; if not, write to the Free Software
+	Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package gov.nga.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.text.Normalizer;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.lang3.StringEscapeUtils;
+import org.junit.Test;
+
+public class StringUtilsTest {
+
+	private static final String[] SAMPLES = {
+		"Watson and the Shark",
+		"<i>The Japanese Footbridge</i>",
+		"Madonna and Child with Saint John the Baptist -- Study",
+		"Édouard Manet, \"Olympia\" (1863) &amp; studies",
+		"Self-Portrait, 1889",
+		"Ginevra de' Benci [obverse]",
+		"Rembrandt van Rijn<br/>\r\nDutch, 1606 - 1669",
+		"__The Boating Party__ / Mary Cassatt's",
+		"purchased 1937 by the Andrew W. Mellon Foundation, Pittsburgh; gift 1937 to NGA.",
+		"Jean-Honoré Fragonard - Étude d'après nature",
+		"<a href=\"x\"\n>split tag</a> &lt;not a tag&gt; &eacute;t&eacute;",
+		"'quoted' -hyphens- ---dashes--- a-b--c/d'e",
+		"", " ", "-", "''", "<>", "<", "a<b", "_", "___",
+	};
+
+	// what the text is made of - markup, entities, line breaks, combining marks, letters outside the
+	// basic multilingual plane and the punctuation the clean up treats specially
+	private static final String[] PIECES = {
+		"a", "Z", "é", "Å", "ß", "ø", "é", "̈", "ẞ", "𝒜", "😀",
+		"1", " ", "  ", "\t", "\r", "\n", "\r\n", "\u0085", " ", " ",
+		"-", "--", "'", "/", "_", "__", "\"", ",", ".", "&", "&amp;", "&eacute;", "&#233;",
+		"<", ">", "<i>", "</i>", "<em>", "<p class=\"x\">", "</P>", "<br/>", "<b", "Manet", " de ", "d'",
+	};
+
+	private static String legacyDeAccent(String str) {
+		return Normalizer.normalize(str, Normalizer.Form.NFD).replaceAll("\\p{InCombiningDiacriticalMarks}+", "");
+	}
+
+	private static String legacyRemoveDiacritics(String in) {
+		return in == null ? null : legacyDeAccent(in);
+	}
+
+	private static String legacyRemoveHTML(String htmlString, boolean removeDiacritics) {
+		if (htmlString == null)
+			return null;
+		String toUnescape = htmlString.replaceAll("\\<.*?\\>", "").replaceAll("\r|\n|\"", " ");
+		return removeDiacritics ? StringEscapeUtils.unescapeHtml4(legacyDeAccent(toUnescape)) : StringEscapeUtils.unescapeHtml4(toUnescape);
+	}
+
+	private static String legacyRemoveOnlyHTML(String htmlString) {
+		return htmlString == null ? null : htmlString.replaceAll("\\<.*?\\>", "");
+	}
+
+	private static String legacyMarkdownToText(String text) {
+		if (org.apache.commons.lang3.StringUtils.isBlank(text))
+			return text;
+		return text.replaceAll("_", "");
+	}
+
+	private static String legacyCleanupForMatching(String original) {
+		if (original == null)
+			return null;
+		return
+			legacyRemoveHTML(original, true).toLowerCase()
+			.replaceAll("^[^\\p{L}]+", " ")
+			.replaceAll("[^\\p{L}]+$", " ")
+			.replaceAll("\\s+[^\\p{L}]+", " ")
+			.replaceAll("[^\\p{L}]+\\s+", " ")
+			.replaceAll("-{2,}", " ")
+			.replaceAll("[^-\'\\p{L}]", " ")
+			.replaceAll("^[^\\p{L}]+", "")
+			.replaceAll("[^\\p{L}]+$", "");
+	}
+
+	private static String legacyCleanupForLettersOnlyMatching(String original) {
+		String s = legacyCleanupForMatching(original);
+		return s == null ? null : s.replaceAll("[\']+", "").replaceAll("[-/]+", " ");
+	}
+
+	private static void assertSameAsLegacy(String s) {
+		assertEquals(s, legacyRemoveDiacritics(s), StringUtils.removeDiacritics(s));
+		assertEquals(s, legacyRemoveHTML(s, true), StringUtils.removeHTML(s));
+		assertEquals(s, legacyRemoveHTML(s, false), StringUtils.removeHTML(s, false));
+		assertEquals(s, legacyRemoveOnlyHTML(s), StringUtils.removeOnlyHTML(s));
+		assertEquals(s, legacyMarkdownToText(s), StringUtils.markdownToText(s));
+		assertEquals(s, legacyRemoveOnlyHTML(legacyMarkdownToText(s)), StringUtils.removeOnlyHTMLAndFormatting(s));
+		assertEquals(s, legacyCleanupForMatching(s), StringUtils.cleanupForMatching(s));
+		assertEquals(s, legacyCleanupForLettersOnlyMatching(s), StringUtils.cleanupForLettersOnlyMatching(s));
+		assertEquals(s, legacyDeAccent(s), StringUtils.deAccent(s));
+	}
+
+	@Test
+	public void samples_same_as_regular_expressions_test() {
+		for (String s : SAMPLES)
+			assertSameAsLegacy(s);
+	}
+
+	@Test
+	public void null_stays_null_test() {
+		assertNull(StringUtils.removeDiacritics(null));
+		assertNull(StringUtils.removeHTML(null));
+		assertNull(StringUtils.removeOnlyHTML(null));
+		assertNull(StringUtils.removeOnlyHTMLAndFormatting(null));
+		assertNull(StringUtils.cleanupForMatching(null));
+		assertNull(StringUtils.cleanupForLettersOnlyMatching(null));
+	}
+
+	@Test
+	public void random_text_same_as_regular_expressions_test() {
+		Random r = new Random(1937);
+		for (int i=0; i<20000; i++) {
+			StringBuilder sb = new StringBuilder();
+			int n = r.nextInt(12);
+			for (int j=0; j<n; j++)
+				sb.append(PIECES[r.nextInt(PIECES.length)]);
+			assertSameAsLegacy(sb.toString());
+		}
+	}
+
+	// the buffer kept by each thread is given up once it grows past its limit, and shouldn't leak
+	// anything from one call into the next
+	@Test
+	public void long_text_same_as_regular_expressions_test() {
+		List<String> values = CollectionUtils.newArrayList();
+		StringBuilder sb = new StringBuilder();
+		while (sb.length() < 200 * 1024) {
+			for (String s : SAMPLES)
+				sb.append(s).append(' ');
+		}
+		values.add(sb.toString());
+		values.add(SAMPLES[3]);
+		values.add(sb.substring(0, 70 * 1024));
+		values.add(SAMPLES[6]);
+		for (String s : values)
+			assertSameAsLegacy(s);
+	}
+
+}
@@ -0,0 +1,48 @@
+/*
+    Utils: TestConfigService is a configuration held in memory for tests to fill in
+
+    Copyright (C) 2018 National Gallery of Art Washington DC
+    Developers: David Beaudet
+
+	This library is free software; you can redistribute it and/or
+	modify it under the terms of the GNU Lesser General Public
+	License as published by the Free Software Foundation; either
+	version 2.1 of the License, or (at your option) any later version.
+
+	This library is distributed in the hope that it will be useful,
+	but WITHOUT ANY WARRANTY; without even the implied warranty of
+	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+	Lesser General Public License for more details.
+
+	You should have received a copy of the GNU Lesser General Public
+	License along with this library; if not, write to the Free Software
+	Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package gov.nga.utils;
+
+import java.util.Map;
+
+public class TestConfigService implements ConfigService {
+
+	private final Map<String, String> properties = CollectionUtils.newHashMap();
+
+	public TestConfigService set(String propertyName, Object value) {
+		properties.put(propertyName, value == null ? null : value.toString());
+		return this;
+	}
+
+	public String getString(String propertyName) {
+		return properties.get(propertyName);
+	}
+
+	public String[] getStrings(String propertyName, String splitOn) {
+		String s = getString(propertyName);
+		return s == null ? null : s.split(splitOn);
+	}
+
+	public Integer getInteger(String propertyName) {
+		String s = getString(propertyName);
+		return s == null ? null : Integer.valueOf(s);
+	}
+
+}
@@ -0,0 +1,214 @@
+/*
+    Utils: FakeDataSourceService answers the queries the data manager runs from rows held in
+    memory so that loading can be tested without a database
+
+    Copyright (C) 2018 National Gallery of Art Washington DC
+    Developers: David Beaudet
+
+	This library is free software; you can redistribute it and/or
+	modify it under the terms of the GNU Lesser General Public
+	License as published by the Free Software Foundation; either
+	version 2.1 of the License, or (at your option) any later version.
+
+	This library is distributed in the hope that it will be useful,
+	but WITHOUT ANY WARRANTY; without even the implied warranty of
+	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+	Lesser General Public License for more details.
+
+	You should have received a copy of the GNU Lesser General Public
+	License along with this library; if not, write to the Free Software
+	Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+package gov.nga.utils.db;
+
+import java.io.ByteArrayInputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import gov.nga.utils.CollectionUtils;
+
+// each table is registered under the query that reads it.  A query containing @@ is matched by
+// everything up to the @@, which is where the caller puts its list of IDs, and only returns the
+// rows whose key column holds one of the IDs bound to it.  Queries that match no table return no
+// rows at all.  Rows are arrays of column values - strings, longs, longs of milliseconds for
+// timestamps or bytes for streams - and are read when the query is run, so a test can change them
+// between loads.  A table can also be registered as some of the columns of another's rows, e.g.
+// just their IDs.
+public class FakeDataSourceService extends DataSourceService {
+
+	private static class Table {
+		private final String query;
+		private final int keyColumn;
+		private final List<Object[]> rows;
+		private final int[] columns;
+
+		Table(String query, int keyColumn, List<Object[]> rows, int[] columns) {
+			this.query = query;
+			this.keyColumn = keyColumn;
+			this.rows = rows;
+			this.columns = columns;
+		}
+
+		boolean isFiltered() {
+			return keyColumn > 0 && query.indexOf("@@") >= 0;
+		}
+
+		Object[] project(Object[] row) {
+			if (columns.length == 0)
+				return row.clone();
+			Object[] projected = new Object[columns.length];
+			for (int i=0; i<columns.length; i++)
+				projected[i] = row[columns[i] - 1];
+			return projected;
+		}
+
+		boolean matches(String sql) {
+			int i = query.indexOf("@@");
+			if (i < 0)
+				return query.equals(sql);
+			return sql.startsWith(query.substring(0, i));
+		}
+
+		int prefixLength() {
+			int i = query.indexOf("@@");
+			return i < 0 ? query.length() : i;
+		}
+	}
+
+	private final List<Table> tables = CollectionUtils.newArrayList();
+
+	private int queries = 0;
+
+	public FakeDataSourceService() {
+		setUrl("fake:memory");
+	}
+
+	// rows for the given query, all of which are returned every time it's run, made up of just the
+	// given columns, counting from one, if there are any
+	public void addTable(String query, List<Object[]> rows, int... columns) {
+		tables.add(new Table(query, 0, rows, columns));
+	}
+
+	// rows for a query with IDs in place of its @@ - only the rows whose value in the given column,
+	// counting from one, is one of those IDs are returned
+	public void addTable(String query, int keyColumn, List<Object[]> rows) {
+		tables.add(new Table(query, keyColumn, rows, new int[0]));
+	}
+
+	// number of queries run so far
+	public synchronized int getQueryCount() {
+		return queries;
+	}
+
+	private synchronized List<Object[]> run(String sql, Map<Integer, Object> params) {
+		queries++;
+		Table found = null;
+		for (Table t : tables) {
+			if (t.matches(sql) && (found == null || t.prefixLength() > found.prefixLength()))
+				found = t;
+		}
+		List<Object[]> rows = CollectionUtils.newArrayList();
+		if (found == null)
+			return rows;
+		Set<Object> ids = CollectionUtils.newHashSet(params.values());
+		for (Object[] row : found.rows) {
+			if (!found.isFiltered() || ids.contains(row[found.keyColumn - 1]))
+				rows.add(found.project(row));
+		}
+		return rows;
+	}
+
+	public Connection getConnection() throws SQLException {
+		return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Connection.class }, new InvocationHandler() {
+			private boolean autoCommit = true;
+			public Object invoke(Object proxy, Method m, Object[] args) throws Throwable {
+				String name = m.getName();
+				if (name.equals("prepareStatement"))
+					return statement((String) args[0]);
+				if (name.equals("getAutoCommit"))
+					return autoCommit;
+				if (name.equals("setAutoCommit"))
+					autoCommit = (Boolean) args[0];
+				return defaultValue(m.getReturnType());
+			}
+		});
+	}
+
+	private PreparedStatement statement(final String sql) {
+		final Map<Integer, Object> params = CollectionUtils.newHashMap();
+		return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { PreparedStatement.class }, new InvocationHandler() {
+			public Object invoke(Object proxy, Method m, Object[] args) throws Throwable {
+				String name = m.getName();
+				if (name.equals("setLong") || name.equals("setInt"))
+					params.put((Integer) args[0], args[1]);
+				else if (name.equals("executeQuery"))
+					return resultSet(run(sql, params));
+				return defaultValue(m.getReturnType());
+			}
+		});
+	}
+
+	private ResultSet resultSet(final List<Object[]> rows) {
+		return (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { ResultSet.class }, new InvocationHandler() {
+			private int row = -1;
+			private boolean wasNull = false;
+			public Object invoke(Object proxy, Method m, Object[] args) throws Throwable {
+				String name = m.getName();
+				if (name.equals("next"))
+					return ++row < rows.size();
+				if (name.equals("wasNull"))
+					return wasNull;
+				if (!name.startsWith("get") || args == null || !(args[0] instanceof Integer))
+					return defaultValue(m.getReturnType());
+
+				Object[] values = rows.get(row);
+				int column = (Integer) args[0];
+				Object v = column <= values.length ? values[column - 1] : null;
+				wasNull = v == null;
+				if (v == null)
+					return defaultValue(m.getReturnType());
+				if (name.equals("getString"))
+					return v.toString();
+				if (name.equals("getTimestamp"))
+					return new Timestamp(((Number) v).longValue());
+				if (name.equals("getLong"))
+					return ((Number) v).longValue();
+				if (name.equals("getInt"))
+					return ((Number) v).intValue();
+				if (name.equals("getDouble"))
+					return ((Number) v).doubleValue();
+				if (name.equals("getBinaryStream"))
+					return new ByteArrayInputStream((byte[]) v);
+				return v;
+			}
+		});
+	}
+
+	private static Object defaultValue(Class<?> c) {
+		if (c == boolean.class)
+			return false;
+		if (c == int.class)
+			return 0;
+		if (c == long.class)
+			return 0L;
+		if (c == double.class)
+			return 0d;
+		if (c == float.class)
+			return 0f;
+		if (c == short.class)
+			return (short) 0;
+		if (c == byte.class)
+			return (byte) 0;
+		return null;
+	}
+
+}